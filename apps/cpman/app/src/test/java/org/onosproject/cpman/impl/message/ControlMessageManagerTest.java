@@ -176,5 +176,14 @@ public class ControlMessageManagerTest {
         public long getDispatchTimeLimit() {
             return 0;
         }
+
+        @Override
+        public void setDispatchThreads(int threads) {
+        }
+
+        @Override
+        public int getDispatchThreads() {
+            return 0;
+        }
     }
 }
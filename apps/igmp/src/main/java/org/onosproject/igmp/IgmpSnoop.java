@@ -65,6 +65,7 @@ import org.onosproject.net.packet.DefaultOutboundPacket;
 import org.onosproject.net.packet.InboundPacket;
 import org.onosproject.net.packet.PacketContext;
 import org.onosproject.net.packet.PacketProcessor;
+import org.onosproject.net.packet.PacketProcessorFilter;
 import org.onosproject.net.packet.PacketService;
 
 import org.osgi.service.component.ComponentContext;
@@ -184,7 +185,11 @@ public class IgmpSnoop {
 
         appId = coreService.registerApplication("org.onosproject.igmp");
 
-        packetService.addProcessor(processor, PacketProcessor.director(1));
+        packetService.addProcessor(processor, PacketProcessor.director(1),
+                                   PacketProcessorFilter.builder()
+                                           .matchEthType(Ethernet.TYPE_IPV4)
+                                           .matchIpProtocol(IPv4.PROTOCOL_IGMP)
+                                           .build());
 
         networkConfig.registerConfigFactory(configFactory);
         networkConfig.registerConfigFactory(ssmTranslateConfigFactory);
@@ -191,14 +191,7 @@ public class BgpRouteEntry extends RouteEntry {
      * @return true if the AS Path contains a loop, otherwise false
      */
     boolean hasAsPathLoop(long localAsNumber) {
-        for (PathSegment pathSegment : asPath.getPathSegments()) {
-            for (Long asNumber : pathSegment.getSegmentAsNumbers()) {
-                if (asNumber.equals(localAsNumber)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return asPath.hasLoop(localAsNumber);
     }
 
     /**
@@ -405,6 +398,27 @@ public class BgpRouteEntry extends RouteEntry {
             return asPathLength;
         }
 
+        /**
+         * Tests whether the AS Path contains a loop.
+         * <p>
+         * The test is done by comparing whether the AS Path contains the
+         * local AS number.
+         * </p>
+         *
+         * @param localAsNumber the local AS number to compare against
+         * @return true if the AS Path contains a loop, otherwise false
+         */
+        boolean hasLoop(long localAsNumber) {
+            for (PathSegment pathSegment : pathSegments) {
+                for (Long asNumber : pathSegment.getSegmentAsNumbers()) {
+                    if (asNumber == localAsNumber) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
         @Override
         public boolean equals(Object other) {
             if (this == other) {
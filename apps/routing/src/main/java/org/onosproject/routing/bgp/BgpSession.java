@@ -28,6 +28,7 @@ import org.onlab.packet.Ip4Address;
 import org.onlab.packet.Ip4Prefix;
 import org.onlab.packet.Ip6Prefix;
 import org.onlab.packet.IpPrefix;
+import org.onlab.packet.IpPrefixTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,8 +36,6 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -62,11 +61,12 @@ public class BgpSession extends SimpleChannelHandler {
     private volatile Timeout keepaliveTimeout;  // Periodic KEEPALIVE
     private volatile Timeout sessionTimeout;    // Session timeout
 
-    // BGP RIB-IN routing entries from this peer
-    private ConcurrentMap<Ip4Prefix, BgpRouteEntry> bgpRibIn4 =
-        new ConcurrentHashMap<>();
-    private ConcurrentMap<Ip6Prefix, BgpRouteEntry> bgpRibIn6 =
-        new ConcurrentHashMap<>();
+    private static final IpPrefix ALL_IP4 = IpPrefix.valueOf("0.0.0.0/0");
+    private static final IpPrefix ALL_IP6 = IpPrefix.valueOf("::/0");
+
+    // BGP RIB-IN routing entries from this peer, both IPv4 and IPv6
+    private final IpPrefixTable<BgpRouteEntry> bgpRibIn =
+        new IpPrefixTable<>();
 
     /**
      * Constructor for a given BGP Session Manager.
@@ -135,7 +135,7 @@ public class BgpSession extends SimpleChannelHandler {
      * @return the IPv4 BGP RIB-IN routing entries
      */
     public Collection<BgpRouteEntry> getBgpRibIn4() {
-        return bgpRibIn4.values();
+        return bgpRibIn.covered(ALL_IP4);
     }
 
     /**
@@ -144,7 +144,7 @@ public class BgpSession extends SimpleChannelHandler {
      * @return the IPv6 BGP RIB-IN routing entries
      */
     public Collection<BgpRouteEntry> getBgpRibIn6() {
-        return bgpRibIn6.values();
+        return bgpRibIn.covered(ALL_IP6);
     }
 
     /**
@@ -154,7 +154,7 @@ public class BgpSession extends SimpleChannelHandler {
      * @return the IPv4 BGP routing entry if found, otherwise null
      */
     public BgpRouteEntry findBgpRoute(Ip4Prefix prefix) {
-        return bgpRibIn4.get(prefix);
+        return bgpRibIn.get(prefix);
     }
 
     /**
@@ -164,7 +164,7 @@ public class BgpSession extends SimpleChannelHandler {
      * @return the IPv6 BGP routing entry if found, otherwise null
      */
     public BgpRouteEntry findBgpRoute(Ip6Prefix prefix) {
-        return bgpRibIn6.get(prefix);
+        return bgpRibIn.get(prefix);
     }
 
     /**
@@ -175,15 +175,7 @@ public class BgpSession extends SimpleChannelHandler {
      * @return the BGP routing entry if found, otherwise null
      */
     public BgpRouteEntry findBgpRoute(IpPrefix prefix) {
-        if (prefix.isIp4()) {
-            // IPv4 prefix
-            Ip4Prefix ip4Prefix = prefix.getIp4Prefix();
-            return bgpRibIn4.get(ip4Prefix);
-        }
-
-        // IPv6 prefix
-        Ip6Prefix ip6Prefix = prefix.getIp6Prefix();
-        return bgpRibIn6.get(ip6Prefix);
+        return bgpRibIn.get(prefix);
     }
 
     /**
@@ -192,15 +184,7 @@ public class BgpSession extends SimpleChannelHandler {
      * @param bgpRouteEntry the BGP route entry to use
      */
     void addBgpRoute(BgpRouteEntry bgpRouteEntry) {
-        if (bgpRouteEntry.isIp4()) {
-            // IPv4 route
-            Ip4Prefix ip4Prefix = bgpRouteEntry.prefix().getIp4Prefix();
-            bgpRibIn4.put(ip4Prefix, bgpRouteEntry);
-        } else {
-            // IPv6 route
-            Ip6Prefix ip6Prefix = bgpRouteEntry.prefix().getIp6Prefix();
-            bgpRibIn6.put(ip6Prefix, bgpRouteEntry);
-        }
+        bgpRibIn.put(bgpRouteEntry.prefix(), bgpRouteEntry);
     }
 
     /**
@@ -210,7 +194,7 @@ public class BgpSession extends SimpleChannelHandler {
      * @return true if the route was found and removed, otherwise false
      */
     boolean removeBgpRoute(Ip4Prefix prefix) {
-        return (bgpRibIn4.remove(prefix) != null);
+        return (bgpRibIn.remove(prefix) != null);
     }
 
     /**
@@ -220,7 +204,7 @@ public class BgpSession extends SimpleChannelHandler {
      * @return true if the route was found and removed, otherwise false
      */
     boolean removeBgpRoute(Ip6Prefix prefix) {
-        return (bgpRibIn6.remove(prefix) != null);
+        return (bgpRibIn.remove(prefix) != null);
     }
 
     /**
@@ -230,10 +214,23 @@ public class BgpSession extends SimpleChannelHandler {
      * @return true if the route was found and removed, otherwise false
      */
     boolean removeBgpRoute(IpPrefix prefix) {
-        if (prefix.isIp4()) {
-            return (bgpRibIn4.remove(prefix.getIp4Prefix()) != null);   // IPv4
-        }
-        return (bgpRibIn6.remove(prefix.getIp6Prefix()) != null);       // IPv6
+        return (bgpRibIn.remove(prefix) != null);
+    }
+
+    /**
+     * Removes and adds BGP routes at once, so that the routes of a BGP
+     * UPDATE message appear in the RIB-IN together. The routes can be
+     * either IPv4 or IPv6.
+     *
+     * @param withdrawnPrefixes the prefixes of the routes to remove
+     * @param addedRoutes the BGP route entries to add
+     */
+    void updateBgpRoutes(Iterable<? extends IpPrefix> withdrawnPrefixes,
+                         Iterable<BgpRouteEntry> addedRoutes) {
+        bgpRibIn.update(ribIn -> {
+            withdrawnPrefixes.forEach(ribIn::remove);
+            addedRoutes.forEach(r -> ribIn.put(r.prefix(), r));
+        });
     }
 
     /**
@@ -342,10 +339,13 @@ public class BgpSession extends SimpleChannelHandler {
         // for further processing. Otherwise, the BGP Decision Process
         // will use those routes again.
         //
-        Collection<BgpRouteEntry> deletedRoutes4 = bgpRibIn4.values();
-        Collection<BgpRouteEntry> deletedRoutes6 = bgpRibIn6.values();
-        bgpRibIn4 = new ConcurrentHashMap<>();
-        bgpRibIn6 = new ConcurrentHashMap<>();
+        IpPrefixTable.Snapshot<BgpRouteEntry> deletedRoutes =
+            bgpRibIn.snapshot();
+        bgpRibIn.clear();
+        Collection<BgpRouteEntry> deletedRoutes4 =
+            deletedRoutes.covered(ALL_IP4);
+        Collection<BgpRouteEntry> deletedRoutes6 =
+            deletedRoutes.covered(ALL_IP6);
 
         // Push the updates to the BGP Merged RIB
         BgpRouteSelector bgpRouteSelector =
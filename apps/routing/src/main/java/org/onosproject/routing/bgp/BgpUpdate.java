@@ -15,6 +15,8 @@
  */
 package org.onosproject.routing.bgp;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.apache.commons.lang3.tuple.Pair;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
@@ -23,6 +25,8 @@ import org.onlab.packet.Ip4Address;
 import org.onlab.packet.Ip4Prefix;
 import org.onlab.packet.Ip6Address;
 import org.onlab.packet.Ip6Prefix;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +41,10 @@ import java.util.Map;
 final class BgpUpdate {
     private static final Logger log = LoggerFactory.getLogger(BgpUpdate.class);
 
+    // AS Paths of the received routes: identical ones are shared
+    private static final Interner<BgpRouteEntry.AsPath> AS_PATHS =
+        Interners.newWeakInterner();
+
     /**
      * Default constructor.
      * <p>
@@ -93,10 +101,11 @@ final class BgpUpdate {
             actionsBgpUpdateMalformedAttributeList(bgpSession, ctx);
             return;
         }
-        Collection<Ip4Prefix> withdrawnPrefixes = null;
+        ChannelBuffer withdrawnPrefixes;
         try {
-            withdrawnPrefixes = parsePackedIp4Prefixes(withdrawnRoutesLength,
-                                                       message);
+            withdrawnPrefixes = readPackedPrefixes(withdrawnRoutesLength,
+                                                   Ip4Address.BIT_LENGTH,
+                                                   message);
         } catch (BgpMessage.BgpParseException e) {
             // ERROR: Invalid Network Field
             log.debug("Exception parsing Withdrawn Prefixes from BGP peer {}: ",
@@ -104,14 +113,11 @@ final class BgpUpdate {
             actionsBgpUpdateInvalidNetworkField(bgpSession, ctx);
             return;
         }
-        for (Ip4Prefix prefix : withdrawnPrefixes) {
+        while (withdrawnPrefixes.readable()) {
+            Ip4Prefix prefix = readIp4Prefix(withdrawnPrefixes);
             log.debug("BGP RX UPDATE message WITHDRAWN from {}: {}",
                       bgpSession.remoteInfo().address(), prefix);
-            BgpRouteEntry bgpRouteEntry = bgpSession.findBgpRoute(prefix);
-            if (bgpRouteEntry != null) {
-                decodedBgpRoutes.deletedUnicastRoutes4.put(prefix,
-                                                           bgpRouteEntry);
-            }
+            decodedBgpRoutes.deleteRoute(bgpSession, prefix);
         }
 
         //
@@ -127,39 +133,18 @@ final class BgpUpdate {
         }
 
         //
-        // Update the BGP RIB-IN
-        //
-        for (Ip4Prefix ip4Prefix :
-                 decodedBgpRoutes.deletedUnicastRoutes4.keySet()) {
-            bgpSession.removeBgpRoute(ip4Prefix);
-        }
-        //
-        for (BgpRouteEntry bgpRouteEntry :
-                 decodedBgpRoutes.addedUnicastRoutes4.values()) {
-            bgpSession.addBgpRoute(bgpRouteEntry);
-        }
-        //
-        for (Ip6Prefix ip6Prefix :
-                 decodedBgpRoutes.deletedUnicastRoutes6.keySet()) {
-            bgpSession.removeBgpRoute(ip6Prefix);
-        }
+        // Update the BGP RIB-IN with all routes of the message at once
         //
-        for (BgpRouteEntry bgpRouteEntry :
-                 decodedBgpRoutes.addedUnicastRoutes6.values()) {
-            bgpSession.addBgpRoute(bgpRouteEntry);
-        }
+        bgpSession.updateBgpRoutes(decodedBgpRoutes.deletedRoutes.keySet(),
+                                   decodedBgpRoutes.addedRoutes.values());
 
         //
-        // Push the updates to the BGP Merged RIB
+        // Push the updates to the BGP Merged RIB, also at once
         //
         BgpRouteSelector bgpRouteSelector =
             bgpSession.getBgpSessionManager().getBgpRouteSelector();
-        bgpRouteSelector.routeUpdates(
-                                decodedBgpRoutes.addedUnicastRoutes4.values(),
-                                decodedBgpRoutes.deletedUnicastRoutes4.values());
-        bgpRouteSelector.routeUpdates(
-                                decodedBgpRoutes.addedUnicastRoutes6.values(),
-                                decodedBgpRoutes.deletedUnicastRoutes6.values());
+        bgpRouteSelector.routeUpdates(decodedBgpRoutes.addedRoutes.values(),
+                                      decodedBgpRoutes.deletedRoutes.values());
 
         // Start the Session Timeout timer
         bgpSession.restartSessionTimeoutTimer(ctx);
@@ -373,10 +358,10 @@ final class BgpUpdate {
         //
         int nlriLength = message.readableBytes();
         try {
-            Collection<Ip4Prefix> addedPrefixes4 =
-                parsePackedIp4Prefixes(nlriLength, message);
             // Store it inside the legacy NLRI wrapper
-            legacyNlri.nlri4 = addedPrefixes4;
+            legacyNlri.nlri = readPackedPrefixes(nlriLength,
+                                                 Ip4Address.BIT_LENGTH,
+                                                 message);
         } catch (BgpMessage.BgpParseException e) {
             // ERROR: Invalid Network Field
             log.debug("Exception parsing NLRI from BGP peer {}: ",
@@ -395,78 +380,38 @@ final class BgpUpdate {
         // Generate the deleted routes
         //
         for (MpNlri mpNlri : mpNlriUnreachList) {
-            BgpRouteEntry bgpRouteEntry;
-
-            // The deleted IPv4 routes
-            for (Ip4Prefix prefix : mpNlri.nlri4) {
-                bgpRouteEntry = bgpSession.findBgpRoute(prefix);
-                if (bgpRouteEntry != null) {
-                    decodedBgpRoutes.deletedUnicastRoutes4.put(prefix,
-                                                               bgpRouteEntry);
-                }
-            }
-
-            // The deleted IPv6 routes
-            for (Ip6Prefix prefix : mpNlri.nlri6) {
-                bgpRouteEntry = bgpSession.findBgpRoute(prefix);
-                if (bgpRouteEntry != null) {
-                    decodedBgpRoutes.deletedUnicastRoutes6.put(prefix,
-                                                               bgpRouteEntry);
-                }
+            while (mpNlri.nlri.readable()) {
+                decodedBgpRoutes.deleteRoute(bgpSession, mpNlri.readPrefix());
             }
         }
 
         //
-        // Generate the added routes
+        // Generate the added routes. All of them share the same (interned)
+        // AS Path, hence it is checked for loops only once.
         //
+        boolean asPathLoop = (asPath != null) &&
+            asPath.hasLoop(bgpSession.localInfo().asNumber());
         mpNlriReachList.add(legacyNlri);
         for (MpNlri mpNlri : mpNlriReachList) {
-            BgpRouteEntry bgpRouteEntry;
-
-            // The added IPv4 routes
-            for (Ip4Prefix prefix : mpNlri.nlri4) {
-                bgpRouteEntry =
-                    new BgpRouteEntry(bgpSession, prefix, mpNlri.nextHop4,
-                                      origin.byteValue(), asPath, localPref);
-                bgpRouteEntry.setMultiExitDisc(multiExitDisc);
-                if (bgpRouteEntry.hasAsPathLoop(bgpSession.localInfo().asNumber())) {
+            IpAddress nextHop = mpNlri.nextHop();
+            while (mpNlri.nlri.readable()) {
+                IpPrefix prefix = mpNlri.readPrefix();
+                if (asPathLoop) {
                     log.debug("BGP RX UPDATE message IGNORED from {}: {} " +
                               "nextHop {}: contains AS Path loop",
                               bgpSession.remoteInfo().address(), prefix,
-                              mpNlri.nextHop4);
+                              nextHop);
                     continue;
-                } else {
+                }
+                if (log.isDebugEnabled()) {
                     log.debug("BGP RX UPDATE message ADDED from {}: {} nextHop {}",
-                              bgpSession.remoteInfo().address(), prefix,
-                              mpNlri.nextHop4);
+                              bgpSession.remoteInfo().address(), prefix, nextHop);
                 }
-                // Remove from the collection of deleted routes
-                decodedBgpRoutes.deletedUnicastRoutes4.remove(prefix);
-                decodedBgpRoutes.addedUnicastRoutes4.put(prefix,
-                                                         bgpRouteEntry);
-            }
-
-            // The added IPv6 routes
-            for (Ip6Prefix prefix : mpNlri.nlri6) {
-                bgpRouteEntry =
-                    new BgpRouteEntry(bgpSession, prefix, mpNlri.nextHop6,
+                BgpRouteEntry bgpRouteEntry =
+                    new BgpRouteEntry(bgpSession, prefix, nextHop,
                                       origin.byteValue(), asPath, localPref);
                 bgpRouteEntry.setMultiExitDisc(multiExitDisc);
-                if (bgpRouteEntry.hasAsPathLoop(bgpSession.localInfo().asNumber())) {
-                    log.debug("BGP RX UPDATE message IGNORED from {}: {} " +
-                              "nextHop {}: contains AS Path loop",
-                              bgpSession.remoteInfo().address(), prefix,
-                              mpNlri.nextHop6);
-                    continue;
-                } else {
-                    log.debug("BGP RX UPDATE message ADDED from {}: {} nextHop {}",
-                              bgpSession.remoteInfo().address(), prefix,
-                              mpNlri.nextHop6);
-                }
-                // Remove from the collection of deleted routes
-                decodedBgpRoutes.deletedUnicastRoutes6.remove(prefix);
-                decodedBgpRoutes.addedUnicastRoutes6.put(prefix,
-                                                         bgpRouteEntry);
+                decodedBgpRoutes.addRoute(bgpRouteEntry);
             }
         }
     }
@@ -507,7 +452,7 @@ final class BgpUpdate {
             hasNlri = true;
             hasLegacyNlri = true;
         } else {
-            if (!legacyNlri.nlri4.isEmpty()) {
+            if (legacyNlri.nlri.readable()) {
                 hasNlri = true;
                 hasLegacyNlri = true;
             }
@@ -771,7 +716,8 @@ final class BgpUpdate {
                 throw new BgpMessage.BgpParseException(errorMsg);
             }
             attrLen -= (asPathLen * pathSegmentLength);
-            ArrayList<Long> segmentAsNumbers = new ArrayList<>();
+            ArrayList<Long> segmentAsNumbers =
+                new ArrayList<>(pathSegmentLength);
             while (pathSegmentLength-- > 0) {
                 long asNumber;
                 if (asPathLen == BgpConstants.Update.AS_4OCTET_LENGTH) {
@@ -788,7 +734,8 @@ final class BgpUpdate {
             pathSegments.add(pathSegment);
         }
 
-        return new BgpRouteEntry.AsPath(pathSegments);
+        // Share the AS Path among all routes that have the same one
+        return AS_PATHS.intern(new BgpRouteEntry.AsPath(pathSegments));
     }
 
     /**
@@ -1087,32 +1034,26 @@ final class BgpUpdate {
         //
         // Get the Next-hop address, skip the Reserved field, and get the NLRI
         //
-        byte[] nextHopBuffer = new byte[nextHopLen];
-        message.readBytes(nextHopBuffer, 0, nextHopLen);
-        int reserved = message.readUnsignedByte();
         MpNlri mpNlri = new MpNlri(afi, safi);
+        switch (afi) {
+        case BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV4:
+            mpNlri.nextHop4 = Ip4Address.valueOf(message.readInt());
+            break;
+        case BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV6:
+            byte[] nextHopBuffer = new byte[nextHopLen];
+            message.readBytes(nextHopBuffer, 0, nextHopLen);
+            mpNlri.nextHop6 = Ip6Address.valueOf(nextHopBuffer);
+            break;
+        default:
+            // UNREACHABLE
+            break;
+        }
+        int reserved = message.readUnsignedByte();
         try {
-            switch (afi) {
-            case BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV4:
-                // The next-hop address
-                mpNlri.nextHop4 = Ip4Address.valueOf(nextHopBuffer);
-                // The NLRI
-                mpNlri.nlri4 = parsePackedIp4Prefixes(
-                                        attributeEnd - message.readerIndex(),
-                                        message);
-                break;
-            case BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV6:
-                // The next-hop address
-                mpNlri.nextHop6 = Ip6Address.valueOf(nextHopBuffer);
-                // The NLRI
-                mpNlri.nlri6 = parsePackedIp6Prefixes(
-                                        attributeEnd - message.readerIndex(),
-                                        message);
-                break;
-            default:
-                // UNREACHABLE
-                break;
-            }
+            // The NLRI
+            mpNlri.nlri = readPackedPrefixes(
+                                attributeEnd - message.readerIndex(),
+                                mpNlri.maxPrefixLength(), message);
         } catch (BgpMessage.BgpParseException e) {
             // ERROR: Optional Attribute Error
             message.resetReaderIndex();
@@ -1179,23 +1120,10 @@ final class BgpUpdate {
         //
         MpNlri mpNlri = new MpNlri(afi, safi);
         try {
-            switch (afi) {
-            case BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV4:
-                // The Withdrawn Routes
-                mpNlri.nlri4 = parsePackedIp4Prefixes(
-                                        attributeEnd - message.readerIndex(),
-                                        message);
-                break;
-            case BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV6:
-                // The Withdrawn Routes
-                mpNlri.nlri6 = parsePackedIp6Prefixes(
-                                        attributeEnd - message.readerIndex(),
-                                        message);
-                break;
-            default:
-                // UNREACHABLE
-                break;
-            }
+            // The Withdrawn Routes
+            mpNlri.nlri = readPackedPrefixes(
+                                attributeEnd - message.readerIndex(),
+                                mpNlri.maxPrefixLength(), message);
         } catch (BgpMessage.BgpParseException e) {
             // ERROR: Optional Attribute Error
             message.resetReaderIndex();
@@ -1209,89 +1137,80 @@ final class BgpUpdate {
     }
 
     /**
-     * Parses a message that contains encoded IPv4 network prefixes.
+     * Reads from a message the data that contains encoded network prefixes.
      * <p>
-     * The IPv4 prefixes are encoded in the form:
-     * <Length, Prefix> where Length is the length in bits of the IPv4 prefix,
-     * and Prefix is the IPv4 prefix (padded with trailing bits to the end
+     * The prefixes are encoded in the form:
+     * <Length, Prefix> where Length is the length in bits of the prefix,
+     * and Prefix is the prefix (padded with trailing bits to the end
      * of an octet).
+     * </p>
+     * <p>
+     * The data is verified without decoding the prefixes. The returned buffer
+     * shares its content with the message: the prefixes are decoded from it
+     * one at a time by {@link #readIp4Prefix} or {@link #readIp6Prefix}.
+     * </p>
      *
-     * @param totalLength the total length of the data to parse
-     * @param message the message with data to parse
-     * @return a collection of parsed IPv4 network prefixes
+     * @param totalLength the total length of the data to read
+     * @param maxPrefixLength the maximum length in bits of a prefix
+     * @param message the message with data to read
+     * @return the encoded network prefixes
      * @throws BgpMessage.BgpParseException
      */
-    private static Collection<Ip4Prefix> parsePackedIp4Prefixes(
-                                                int totalLength,
-                                                ChannelBuffer message)
+    private static ChannelBuffer readPackedPrefixes(int totalLength,
+                                                    int maxPrefixLength,
+                                                    ChannelBuffer message)
         throws BgpMessage.BgpParseException {
-        Collection<Ip4Prefix> result = new ArrayList<>();
-
-        if (totalLength == 0) {
-            return result;
+        int dataEnd = message.readerIndex() + totalLength;
+        if (totalLength > message.readableBytes()) {
+            String errorMsg = "Malformed Network Prefixes";
+            throw new BgpMessage.BgpParseException(errorMsg);
         }
 
-        // Parse the data
-        byte[] buffer = new byte[Ip4Address.BYTE_LENGTH];
-        int dataEnd = message.readerIndex() + totalLength;
-        while (message.readerIndex() < dataEnd) {
-            int prefixBitlen = message.readUnsignedByte();
+        // Verify the data
+        int index = message.readerIndex();
+        while (index < dataEnd) {
+            int prefixBitlen = message.getUnsignedByte(index);
             int prefixBytelen = (prefixBitlen + 7) / 8;     // Round-up
-            if (message.readerIndex() + prefixBytelen > dataEnd) {
+            index += 1 + prefixBytelen;
+            if ((prefixBitlen > maxPrefixLength) || (index > dataEnd)) {
                 String errorMsg = "Malformed Network Prefixes";
                 throw new BgpMessage.BgpParseException(errorMsg);
             }
-
-            message.readBytes(buffer, 0, prefixBytelen);
-            Ip4Prefix prefix = Ip4Prefix.valueOf(Ip4Address.valueOf(buffer),
-                                                 prefixBitlen);
-            result.add(prefix);
         }
 
-        return result;
+        return message.readSlice(totalLength);
     }
 
     /**
-     * Parses a message that contains encoded IPv6 network prefixes.
-     * <p>
-     * The IPv6 prefixes are encoded in the form:
-     * <Length, Prefix> where Length is the length in bits of the IPv6 prefix,
-     * and Prefix is the IPv6 prefix (padded with trailing bits to the end
-     * of an octet).
+     * Decodes the next IPv4 network prefix from verified encoded prefixes.
      *
-     * @param totalLength the total length of the data to parse
-     * @param message the message with data to parse
-     * @return a collection of parsed IPv6 network prefixes
-     * @throws BgpMessage.BgpParseException
+     * @param prefixes the encoded prefixes
+     * @return the IPv4 network prefix
      */
-    private static Collection<Ip6Prefix> parsePackedIp6Prefixes(
-                                                int totalLength,
-                                                ChannelBuffer message)
-        throws BgpMessage.BgpParseException {
-        Collection<Ip6Prefix> result = new ArrayList<>();
-
-        if (totalLength == 0) {
-            return result;
-        }
-
-        // Parse the data
-        byte[] buffer = new byte[Ip6Address.BYTE_LENGTH];
-        int dataEnd = message.readerIndex() + totalLength;
-        while (message.readerIndex() < dataEnd) {
-            int prefixBitlen = message.readUnsignedByte();
-            int prefixBytelen = (prefixBitlen + 7) / 8;     // Round-up
-            if (message.readerIndex() + prefixBytelen > dataEnd) {
-                String errorMsg = "Malformed Network Prefixes";
-                throw new BgpMessage.BgpParseException(errorMsg);
-            }
-
-            message.readBytes(buffer, 0, prefixBytelen);
-            Ip6Prefix prefix = Ip6Prefix.valueOf(Ip6Address.valueOf(buffer),
-                                                 prefixBitlen);
-            result.add(prefix);
+    private static Ip4Prefix readIp4Prefix(ChannelBuffer prefixes) {
+        int prefixBitlen = prefixes.readUnsignedByte();
+        int prefixBytelen = (prefixBitlen + 7) / 8;         // Round-up
+        int address = 0;
+        for (int i = 0; i < prefixBytelen; i++) {
+            address |= prefixes.readUnsignedByte() << (24 - 8 * i);
         }
+        return Ip4Prefix.valueOf(address, prefixBitlen);
+    }
 
-        return result;
+    /**
+     * Decodes the next IPv6 network prefix from verified encoded prefixes.
+     *
+     * @param prefixes the encoded prefixes
+     * @param buffer the buffer to decode the prefix address into
+     * @return the IPv6 network prefix
+     */
+    private static Ip6Prefix readIp6Prefix(ChannelBuffer prefixes,
+                                           byte[] buffer) {
+        int prefixBitlen = prefixes.readUnsignedByte();
+        int prefixBytelen = (prefixBitlen + 7) / 8;         // Round-up
+        prefixes.readBytes(buffer, 0, prefixBytelen);
+        // NOTE: Any trailing bytes from a previous prefix are masked out
+        return Ip6Prefix.valueOf(buffer, prefixBitlen);
     }
 
     /**
@@ -1676,8 +1595,8 @@ final class BgpUpdate {
         private final int safi;
         private Ip4Address nextHop4;
         private Ip6Address nextHop6;
-        private Collection<Ip4Prefix> nlri4 = new ArrayList<>();
-        private Collection<Ip6Prefix> nlri6 = new ArrayList<>();
+        private ChannelBuffer nlri = ChannelBuffers.EMPTY_BUFFER;
+        private byte[] buffer;
 
         /**
          * Constructor.
@@ -1689,19 +1608,81 @@ final class BgpUpdate {
             this.afi = afi;
             this.safi = safi;
         }
+
+        /**
+         * Gets the maximum length in bits of the network prefixes.
+         *
+         * @return the maximum length in bits of the network prefixes
+         */
+        private int maxPrefixLength() {
+            if (afi == BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV6) {
+                return Ip6Address.BIT_LENGTH;
+            }
+            return Ip4Address.BIT_LENGTH;
+        }
+
+        /**
+         * Gets the next-hop address.
+         *
+         * @return the next-hop address
+         */
+        private IpAddress nextHop() {
+            if (afi == BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV6) {
+                return nextHop6;
+            }
+            return nextHop4;
+        }
+
+        /**
+         * Decodes the next network prefix.
+         *
+         * @return the network prefix
+         */
+        private IpPrefix readPrefix() {
+            if (afi == BgpConstants.Open.Capabilities.MultiprotocolExtensions.AFI_IPV6) {
+                if (buffer == null) {
+                    buffer = new byte[Ip6Address.BYTE_LENGTH];
+                }
+                return readIp6Prefix(nlri, buffer);
+            }
+            return readIp4Prefix(nlri);
+        }
     }
 
     /**
      * Helper class for storing decoded BGP routing information.
      */
     private static final class DecodedBgpRoutes {
-        private final Map<Ip4Prefix, BgpRouteEntry> addedUnicastRoutes4 =
-            new HashMap<>();
-        private final Map<Ip6Prefix, BgpRouteEntry> addedUnicastRoutes6 =
-            new HashMap<>();
-        private final Map<Ip4Prefix, BgpRouteEntry> deletedUnicastRoutes4 =
+        private final Map<IpPrefix, BgpRouteEntry> deletedRoutes =
             new HashMap<>();
-        private final Map<Ip6Prefix, BgpRouteEntry> deletedUnicastRoutes6 =
+        private final Map<IpPrefix, BgpRouteEntry> addedRoutes =
             new HashMap<>();
+
+        /**
+         * Adds the route for a withdrawn prefix to the deleted routes.
+         *
+         * @param bgpSession the BGP Session the prefix was withdrawn on
+         * @param prefix the withdrawn prefix
+         */
+        private void deleteRoute(BgpSession bgpSession, IpPrefix prefix) {
+            BgpRouteEntry bgpRouteEntry = bgpSession.findBgpRoute(prefix);
+            if (bgpRouteEntry != null) {
+                deletedRoutes.put(prefix, bgpRouteEntry);
+            }
+        }
+
+        /**
+         * Adds a route to the added routes, replacing any earlier route for
+         * the same prefix in the message, and removes it from the deleted
+         * routes.
+         *
+         * @param bgpRouteEntry the added route
+         */
+        private void addRoute(BgpRouteEntry bgpRouteEntry) {
+            if (!deletedRoutes.isEmpty()) {
+                deletedRoutes.remove(bgpRouteEntry.prefix());
+            }
+            addedRoutes.put(bgpRouteEntry.prefix(), bgpRouteEntry);
+        }
     }
 }
@@ -19,20 +19,15 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.googlecode.concurrenttrees.common.KeyValuePair;
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
-import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
-import org.onlab.packet.Ip4Address;
-import org.onlab.packet.Ip6Address;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.IpPrefix;
+import org.onlab.packet.IpPrefixTable;
 import org.onlab.packet.MacAddress;
 import org.onosproject.core.CoreService;
 import org.onosproject.net.Host;
@@ -53,9 +48,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -65,7 +58,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.onosproject.routing.RouteEntry.createBinaryString;
 
 /**
  * This class processes route updates and maintains a Routing Information Base
@@ -83,10 +75,12 @@ public class DefaultRouter implements RoutingService {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultRouter.class);
 
-    // Route entries are stored in a radix tree.
-    // The key in this tree is the binary string of prefix of the route.
-    private InvertedRadixTree<RouteEntry> ribTable4;
-    private InvertedRadixTree<RouteEntry> ribTable6;
+    private static final IpPrefix ALL_IP4 = IpPrefix.valueOf("0.0.0.0/0");
+    private static final IpPrefix ALL_IP6 = IpPrefix.valueOf("::/0");
+
+    // Route entries of both IP versions are stored in a prefix table;
+    // each batch of route updates is applied to it atomically.
+    private final IpPrefixTable<RouteEntry> ribTable = new IpPrefixTable<>();
 
     // Stores all incoming route updates in a queue.
     private final BlockingQueue<Collection<RouteUpdate>> routeUpdatesQueue =
@@ -118,11 +112,6 @@ public class DefaultRouter implements RoutingService {
 
     @Activate
     public void activate() {
-        ribTable4 = new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
-        ribTable6 = new ConcurrentInvertedRadixTree<>(
-                new DefaultByteArrayNodeFactory());
-
         routesWaitingOnArp = Multimaps.synchronizedSetMultimap(
                 HashMultimap.create());
 
@@ -163,10 +152,7 @@ public class DefaultRouter implements RoutingService {
 
         synchronized (this) {
             // Cleanup all local state
-            ribTable4 = new ConcurrentInvertedRadixTree<>(
-                    new DefaultByteArrayNodeFactory());
-            ribTable6 = new ConcurrentInvertedRadixTree<>(
-                    new DefaultByteArrayNodeFactory());
+            ribTable.clear();
             routeUpdatesQueue.clear();
             routesWaitingOnArp.clear();
             ip2Mac.clear();
@@ -219,17 +205,7 @@ public class DefaultRouter implements RoutingService {
      */
     @Override
     public Collection<RouteEntry> getRoutes4() {
-        Iterator<KeyValuePair<RouteEntry>> it =
-                ribTable4.getKeyValuePairsForKeysStartingWith("").iterator();
-
-        List<RouteEntry> routes = new LinkedList<>();
-
-        while (it.hasNext()) {
-            KeyValuePair<RouteEntry> entry = it.next();
-            routes.add(entry.getValue());
-        }
-
-        return routes;
+        return ribTable.covered(ALL_IP4);
     }
 
     /**
@@ -239,17 +215,7 @@ public class DefaultRouter implements RoutingService {
      */
     @Override
     public Collection<RouteEntry> getRoutes6() {
-        Iterator<KeyValuePair<RouteEntry>> it =
-                ribTable6.getKeyValuePairsForKeysStartingWith("").iterator();
-
-        List<RouteEntry> routes = new LinkedList<>();
-
-        while (it.hasNext()) {
-            KeyValuePair<RouteEntry> entry = it.next();
-            routes.add(entry.getValue());
-        }
-
-        return routes;
+        return ribTable.covered(ALL_IP6);
     }
 
     /**
@@ -260,44 +226,7 @@ public class DefaultRouter implements RoutingService {
      * @return the route if found, otherwise null
      */
     RouteEntry findRibRoute(IpPrefix prefix) {
-        String binaryString = createBinaryString(prefix);
-        if (prefix.isIp4()) {
-            // IPv4
-            return ribTable4.getValueForExactKey(binaryString);
-        }
-        // IPv6
-        return ribTable6.getValueForExactKey(binaryString);
-    }
-
-    /**
-     * Adds a route to the RIB. The route can be either IPv4 or IPv6.
-     *
-     * @param routeEntry the route entry to use
-     */
-    void addRibRoute(RouteEntry routeEntry) {
-        if (routeEntry.isIp4()) {
-            // IPv4
-            ribTable4.put(createBinaryString(routeEntry.prefix()), routeEntry);
-        } else {
-            // IPv6
-            ribTable6.put(createBinaryString(routeEntry.prefix()), routeEntry);
-        }
-    }
-
-    /**
-     * Removes a route for a prefix from the RIB. The prefix can be either IPv4
-     * or IPv6.
-     *
-     * @param prefix the prefix to use
-     * @return true if the route was found and removed, otherwise false
-     */
-    boolean removeRibRoute(IpPrefix prefix) {
-        if (prefix.isIp4()) {
-            // IPv4
-            return ribTable4.remove(createBinaryString(prefix));
-        }
-        // IPv6
-        return ribTable6.remove(createBinaryString(prefix));
+        return ribTable.get(prefix);
     }
 
     /**
@@ -311,26 +240,28 @@ public class DefaultRouter implements RoutingService {
             Collection<FibUpdate> fibUpdates = new LinkedList<>();
             Collection<FibUpdate> fibWithdraws = new LinkedList<>();
 
-            for (RouteUpdate update : routeUpdates) {
-                switch (update.type()) {
-                case UPDATE:
-
-                    FibEntry fib = processRouteAdd(update.routeEntry(),
-                            withdrawPrefixes);
-                    if (fib != null) {
-                        fibUpdates.add(new FibUpdate(FibUpdate.Type.UPDATE, fib));
+            ribTable.update(rib -> {
+                for (RouteUpdate update : routeUpdates) {
+                    switch (update.type()) {
+                    case UPDATE:
+
+                        FibEntry fib = processRouteAdd(rib, update.routeEntry(),
+                                withdrawPrefixes);
+                        if (fib != null) {
+                            fibUpdates.add(new FibUpdate(FibUpdate.Type.UPDATE, fib));
+                        }
+
+                        break;
+                    case DELETE:
+                        processRouteDelete(rib, update.routeEntry(), withdrawPrefixes);
+
+                        break;
+                    default:
+                        log.error("Unknown update Type: {}", update.type());
+                        break;
                     }
-
-                    break;
-                case DELETE:
-                    processRouteDelete(update.routeEntry(), withdrawPrefixes);
-
-                    break;
-                default:
-                    log.error("Unknown update Type: {}", update.type());
-                    break;
                 }
-            }
+            });
 
             withdrawPrefixes.forEach(p -> fibWithdraws.add(new FibUpdate(
                     FibUpdate.Type.DELETE, new FibEntry(p, null, null))));
@@ -344,7 +275,7 @@ public class DefaultRouter implements RoutingService {
     /**
      * Processes adding a route entry.
      * <p>
-     * The route entry is added to the radix tree. If there was an existing
+     * The route entry is added to the RIB. If there was an existing
      * next hop for this prefix, but the next hop was different, then the
      * old route entry is deleted.
      * </p>
@@ -353,25 +284,25 @@ public class DefaultRouter implements RoutingService {
      * SDN domain.
      * </p>
      *
+     * @param rib the RIB update batch
      * @param routeEntry the route entry to add
      * @param withdrawPrefixes the collection of accumulated prefixes whose
      * intents will be withdrawn
      * @return the corresponding FIB entry change, or null
      */
-    private FibEntry processRouteAdd(RouteEntry routeEntry,
+    private FibEntry processRouteAdd(IpPrefixTable.Updater<RouteEntry> rib,
+                                     RouteEntry routeEntry,
                                      Collection<IpPrefix> withdrawPrefixes) {
         log.debug("Processing route add: {}", routeEntry);
 
-        // Find the old next-hop if we are updating an old route entry
+        // Add the new route to the RIB, finding the old next-hop if we are
+        // updating an old route entry
         IpAddress oldNextHop = null;
-        RouteEntry oldRouteEntry = findRibRoute(routeEntry.prefix());
+        RouteEntry oldRouteEntry = rib.put(routeEntry.prefix(), routeEntry);
         if (oldRouteEntry != null) {
             oldNextHop = oldRouteEntry.nextHop();
         }
 
-        // Add the new route to the RIB
-        addRibRoute(routeEntry);
-
         if (oldNextHop != null) {
             if (oldNextHop.equals(routeEntry.nextHop())) {
                 return null;            // No change
@@ -425,24 +356,26 @@ public class DefaultRouter implements RoutingService {
     /**
      * Processes the deletion of a route entry.
      * <p>
-     * The prefix for the routing entry is removed from radix tree.
+     * The prefix for the routing entry is removed from the RIB.
      * If the operation is successful, the prefix is added to the collection
      * of prefixes whose intents that will be withdrawn.
      * </p>
      *
+     * @param rib the RIB update batch
      * @param routeEntry the route entry to delete
      * @param withdrawPrefixes the collection of accumulated prefixes whose
      * intents will be withdrawn
      */
-    private void processRouteDelete(RouteEntry routeEntry,
+    private void processRouteDelete(IpPrefixTable.Updater<RouteEntry> rib,
+                                    RouteEntry routeEntry,
                                     Collection<IpPrefix> withdrawPrefixes) {
         log.debug("Processing route delete: {}", routeEntry);
-        boolean isRemoved = removeRibRoute(routeEntry.prefix());
+        boolean isRemoved = rib.remove(routeEntry.prefix()) != null;
 
         if (isRemoved) {
             //
             // Only withdraw intents if an entry was actually removed from the
-            // tree. If no entry was removed, the <prefix, nexthop> wasn't
+            // RIB. If no entry was removed, the <prefix, nexthop> wasn't
             // there so it's probably already been removed and we don't
             // need to do anything.
             //
@@ -466,9 +399,9 @@ public class DefaultRouter implements RoutingService {
                 macAddress);
 
         //
-        // We synchronize on "this" to prevent changes to the Radix tree
-        // while we're pushing intents. If the tree changes, the
-        // tree and the intents could get out of sync.
+        // We synchronize on "this" to prevent changes to the RIB
+        // while we're pushing intents. If the RIB changes, the
+        // RIB and the intents could get out of sync.
         //
         synchronized (this) {
             Collection<FibUpdate> submitFibEntries = new LinkedList<>();
@@ -482,7 +415,7 @@ public class DefaultRouter implements RoutingService {
                 if (foundRouteEntry != null &&
                         foundRouteEntry.nextHop().equals(routeEntry.nextHop())) {
                     // We only push FIB updates if the prefix is still in the
-                    // radix tree and the next hop is the same as our entry.
+                    // RIB and the next hop is the same as our entry.
                     // The prefix could have been removed while we were waiting
                     // for the ARP, or the next hop could have changed.
                     submitFibEntries.add(new FibUpdate(FibUpdate.Type.UPDATE,
@@ -542,26 +475,7 @@ public class DefaultRouter implements RoutingService {
 
     @Override
     public RouteEntry getLongestMatchableRouteEntry(IpAddress ipAddress) {
-        RouteEntry routeEntry = null;
-        Iterable<RouteEntry> routeEntries;
-
-        if (ipAddress.isIp4()) {
-            routeEntries = ribTable4.getValuesForKeysPrefixing(
-                    createBinaryString(
-                    IpPrefix.valueOf(ipAddress, Ip4Address.BIT_LENGTH)));
-        } else {
-            routeEntries = ribTable6.getValuesForKeysPrefixing(
-                    createBinaryString(
-                    IpPrefix.valueOf(ipAddress, Ip6Address.BIT_LENGTH)));
-        }
-        if (routeEntries == null) {
-            return null;
-        }
-        Iterator<RouteEntry> it = routeEntries.iterator();
-        while (it.hasNext()) {
-            routeEntry = it.next();
-        }
-        return routeEntry;
+        return ribTable.longestMatch(ipAddress);
     }
 
 }
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import org.jboss.netty.channel.Channel;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.Ip6Address;
+import org.onosproject.incubator.net.routing.Route;
+import org.onosproject.incubator.net.routing.RouteServiceAdapter;
+import org.onosproject.routing.bgp.BgpConstants;
+import org.onosproject.routing.bgp.BgpConstants.Open.Capabilities;
+import org.onosproject.routing.bgp.BgpConstants.Open.Capabilities.MultiprotocolExtensions;
+import org.onosproject.routing.bgp.BgpConstants.Update;
+import org.onosproject.routing.bgp.BgpSessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the convergence time of the BGP speaker of the routing
+ * application for a full routing table.
+ * <p>
+ * Each invocation connects a peer which sends the whole table as UPDATE
+ * messages, and completes once the last route has been pushed to the route
+ * service. The table is replayed from a recording of the messages received
+ * on a BGP session with the 4-octet AS and IPv6 unicast capabilities, given
+ * by the {@code dump} parameter; only its UPDATE messages are sent. Without
+ * one, tables of the size of the full Internet IPv4 and IPv6 tables are
+ * generated, with the prefixes of each UPDATE sharing one of a limited
+ * number of AS paths.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BgpConvergenceBenchmark {
+
+    private static final int IP4_ROUTES = 700000;
+    private static final int IP6_ROUTES = 100000;
+    private static final int AS_PATHS = 50000;
+    private static final int MAX_PREFIXES_PER_UPDATE = 20;
+
+    private static final int PEER_AS = 65000;
+    private static final int PEER_BGP_ID = 0x0a000001;
+    private static final int NEXT_HOP4 = 0x0a000001;
+    private static final Ip6Address NEXT_HOP6 = Ip6Address.valueOf("2001:db8::1");
+    private static final long LOCAL_PREF = 100;
+
+    // Route sent after the table: once it is pushed, the table has converged
+    private static final Ip4Prefix LAST_PREFIX = Ip4Prefix.valueOf("255.255.255.255/32");
+    private static final long CONVERGENCE_TIMEOUT = 5;
+
+    @Param({""})
+    private String dump;
+
+    private BgpSessionManager bgpSessionManager;
+    private InetSocketAddress address;
+    private byte[] table;
+    private volatile CountDownLatch converged;
+    private Socket peer;
+
+    /**
+     * Starts the BGP speaker and prepares the table to send.
+     *
+     * @throws Exception if the dump cannot be read or the speaker started
+     */
+    @Setup
+    public void setUp() throws Exception {
+        ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        if (dump.isEmpty()) {
+            generate(new Random(1), messages);
+        } else {
+            ByteBuffer recording = ByteBuffer.wrap(Files.readAllBytes(Paths.get(dump)));
+            while (recording.remaining() >= BgpConstants.BGP_HEADER_LENGTH) {
+                int start = recording.position();
+                int length = recording.getShort(start + BgpConstants.BGP_HEADER_MARKER_LENGTH) & 0xffff;
+                int type = recording.get(start + BgpConstants.BGP_HEADER_MARKER_LENGTH + 2);
+                if (type == BgpConstants.BGP_TYPE_UPDATE) {
+                    messages.write(recording.array(), start, length);
+                }
+                recording.position(start + length);
+            }
+        }
+        ByteBuffer last = ByteBuffer.allocate(BgpConstants.BGP_MESSAGE_MAX_LENGTH);
+        writeIp4Prefix(last, LAST_PREFIX.address().toInt(), LAST_PREFIX.prefixLength());
+        messages.write(update(path(new long[]{PEER_AS + 1}), last, false));
+        table = messages.toByteArray();
+
+        // Not being configured, the speaker listens on an ephemeral port.
+        bgpSessionManager = new ReplayBgpSessionManager(new ConvergenceRouteService());
+        bgpSessionManager.start();
+        Field serverChannel = BgpSessionManager.class.getDeclaredField("serverChannel");
+        serverChannel.setAccessible(true);
+        int port = ((InetSocketAddress) ((Channel) serverChannel.get(bgpSessionManager))
+                .getLocalAddress()).getPort();
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Stops the BGP speaker.
+     */
+    @TearDown
+    public void tearDown() {
+        bgpSessionManager.stop();
+    }
+
+    /**
+     * Disconnects the peer, and waits for its routes to be withdrawn.
+     *
+     * @throws Exception if interrupted
+     */
+    @TearDown(Level.Invocation)
+    public void disconnect() throws Exception {
+        peer.close();
+        while (!bgpSessionManager.getBgpSessions().isEmpty() ||
+                !bgpSessionManager.getBgpRoutes4().isEmpty() ||
+                !bgpSessionManager.getBgpRoutes6().isEmpty()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Benchmark
+    public void converge() throws Exception {
+        converged = new CountDownLatch(1);
+        peer = new Socket(address.getAddress(), address.getPort());
+        peer.setTcpNoDelay(true);
+        OutputStream out = peer.getOutputStream();
+        out.write(open());
+        out.write(message(BgpConstants.BGP_TYPE_KEEPALIVE, ByteBuffer.allocate(0)));
+        out.write(table);
+        out.flush();
+        if (!converged.await(CONVERGENCE_TIMEOUT, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("BGP routes did not converge");
+        }
+    }
+
+    // Generates UPDATE messages for a table of the size of the full
+    // Internet table.
+    private static void generate(Random random, ByteArrayOutputStream messages) throws IOException {
+        ByteBuffer[] paths = new ByteBuffer[AS_PATHS];
+        for (int i = 0; i < AS_PATHS; i++) {
+            long[] asNumbers = new long[2 + random.nextInt(6)];
+            for (int j = 0; j < asNumbers.length; j++) {
+                asNumbers[j] = PEER_AS + 1 + random.nextInt(400000);
+            }
+            paths[i] = path(asNumbers);
+        }
+
+        ByteBuffer nlri = ByteBuffer.allocate(BgpConstants.BGP_MESSAGE_MAX_LENGTH);
+        for (int routes = 0; routes < IP4_ROUTES + IP6_ROUTES;) {
+            boolean ip6 = routes >= IP4_ROUTES;
+            int count = 1 + random.nextInt(MAX_PREFIXES_PER_UPDATE);
+            nlri.clear();
+            for (int i = 0; i < count; i++) {
+                if (ip6) {
+                    byte[] octets = new byte[Ip6Address.BYTE_LENGTH];
+                    random.nextBytes(octets);
+                    octets[0] = 0x20;
+                    octets[1] = 0x01;
+                    int length = 32 + random.nextInt(17);
+                    nlri.put((byte) length).put(octets, 0, (length + 7) / 8);
+                } else {
+                    writeIp4Prefix(nlri, random.nextInt(), 20 + random.nextInt(5));
+                }
+            }
+            messages.write(update(paths[random.nextInt(AS_PATHS)], nlri, ip6));
+            routes += count;
+        }
+    }
+
+    private static void writeIp4Prefix(ByteBuffer nlri, int address, int length) {
+        nlri.put((byte) length);
+        for (int i = 0; i < (length + 7) / 8; i++) {
+            nlri.put((byte) (address >>> (24 - 8 * i)));
+        }
+    }
+
+    // Encodes the AS_PATH attribute value for a single AS_SEQUENCE.
+    private static ByteBuffer path(long[] asNumbers) {
+        ByteBuffer path = ByteBuffer.allocate(2 + asNumbers.length * Update.AS_4OCTET_LENGTH);
+        path.put((byte) Update.AsPath.AS_SEQUENCE).put((byte) asNumbers.length);
+        for (long asNumber : asNumbers) {
+            path.putInt((int) asNumber);
+        }
+        path.flip();
+        return path;
+    }
+
+    // Encodes an UPDATE message for the given prefixes, sent in the
+    // MP_REACH_NLRI attribute if IPv6.
+    private static byte[] update(ByteBuffer path, ByteBuffer nlri, boolean ip6) {
+        ByteBuffer attributes = ByteBuffer.allocate(BgpConstants.BGP_MESSAGE_MAX_LENGTH);
+        attributes.put((byte) 0x40).put((byte) Update.Origin.TYPE).put((byte) 1)
+                .put((byte) Update.Origin.IGP);
+        attributes.put((byte) 0x40).put((byte) Update.AsPath.TYPE).put((byte) path.remaining())
+                .put(path.duplicate());
+        attributes.put((byte) 0x40).put((byte) Update.LocalPref.TYPE).put((byte) 4)
+                .putInt((int) LOCAL_PREF);
+        attributes.put((byte) 0x80).put((byte) Update.MultiExitDisc.TYPE).put((byte) 4)
+                .putInt(0);
+        nlri.flip();
+        if (ip6) {
+            attributes.put((byte) 0x90).put((byte) Update.MpReachNlri.TYPE)
+                    .putShort((short) (5 + Ip6Address.BYTE_LENGTH + nlri.remaining()))
+                    .putShort((short) MultiprotocolExtensions.AFI_IPV6)
+                    .put((byte) MultiprotocolExtensions.SAFI_UNICAST)
+                    .put((byte) Ip6Address.BYTE_LENGTH).put(NEXT_HOP6.toOctets())
+                    .put((byte) 0).put(nlri);
+        } else {
+            attributes.put((byte) 0x40).put((byte) Update.NextHop.TYPE).put((byte) 4)
+                    .putInt(NEXT_HOP4);
+        }
+        attributes.flip();
+
+        ByteBuffer body = ByteBuffer.allocate(BgpConstants.BGP_MESSAGE_MAX_LENGTH);
+        body.putShort((short) 0);
+        body.putShort((short) attributes.remaining()).put(attributes);
+        if (!ip6) {
+            body.put(nlri);
+        }
+        body.flip();
+        return message(BgpConstants.BGP_TYPE_UPDATE, body);
+    }
+
+    // Encodes an OPEN message with the 4-octet AS and the IPv4 and IPv6
+    // unicast capabilities.
+    private static byte[] open() {
+        ByteBuffer capabilities = ByteBuffer.allocate(3 * (2 + 4));
+        capabilities.put((byte) Capabilities.As4Octet.CODE).put((byte) 4).putInt(PEER_AS);
+        for (int afi : new int[]{MultiprotocolExtensions.AFI_IPV4, MultiprotocolExtensions.AFI_IPV6}) {
+            capabilities.put((byte) MultiprotocolExtensions.CODE).put((byte) 4)
+                    .putShort((short) afi).put((byte) 0)
+                    .put((byte) MultiprotocolExtensions.SAFI_UNICAST);
+        }
+        capabilities.flip();
+
+        ByteBuffer body = ByteBuffer.allocate(BgpConstants.BGP_MESSAGE_MAX_LENGTH);
+        body.put((byte) BgpConstants.BGP_VERSION).putShort((short) PEER_AS)
+                .putShort((short) 0)                    // No hold time
+                .putInt(PEER_BGP_ID);
+        body.put((byte) (2 + capabilities.remaining()))
+                .put((byte) Capabilities.TYPE).put((byte) capabilities.remaining())
+                .put(capabilities);
+        body.flip();
+        return message(BgpConstants.BGP_TYPE_OPEN, body);
+    }
+
+    private static byte[] message(int type, ByteBuffer body) {
+        ByteBuffer message = ByteBuffer.allocate(BgpConstants.BGP_HEADER_LENGTH + body.remaining());
+        for (int i = 0; i < BgpConstants.BGP_HEADER_MARKER_LENGTH; i++) {
+            message.put((byte) 0xff);
+        }
+        message.putShort((short) message.capacity()).put((byte) type).put(body);
+        return message.array();
+    }
+
+    // BGP speaker pushing its routes to the given route service.
+    private static final class ReplayBgpSessionManager extends BgpSessionManager {
+        private ReplayBgpSessionManager(ConvergenceRouteService routeService) {
+            this.routeService = routeService;
+        }
+    }
+
+    // Route service detecting when the last route of the table is pushed.
+    private final class ConvergenceRouteService extends RouteServiceAdapter {
+        @Override
+        public void update(Collection<Route> routes) {
+            for (Route route : routes) {
+                if (LAST_PREFIX.equals(route.prefix())) {
+                    converged.countDown();
+                }
+            }
+        }
+    }
+}
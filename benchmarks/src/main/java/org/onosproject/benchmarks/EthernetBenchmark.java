@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import org.onlab.packet.ARP;
+import org.onlab.packet.Data;
+import org.onlab.packet.DeserializationException;
+import org.onlab.packet.Deserializer;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPacket;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.TCP;
+import org.onlab.packet.UDP;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the deserialization of Ethernet frames, as done for every
+ * packet-in message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class EthernetBenchmark {
+
+    private static final MacAddress SRC_MAC = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress DST_MAC = MacAddress.valueOf("00:00:00:00:00:02");
+    private static final Ip4Address SRC_IP = Ip4Address.valueOf("10.0.0.1");
+    private static final Ip4Address DST_IP = Ip4Address.valueOf("10.0.0.2");
+
+    @Param({"tcp", "udp", "arp"})
+    private String packet;
+
+    private final Deserializer<Ethernet> deserializer = Ethernet.deserializer();
+    private byte[] frame;
+
+    /**
+     * Serializes the frame to deserialize.
+     */
+    @Setup
+    public void setUp() {
+        Ethernet eth;
+        switch (packet) {
+            case "tcp":
+                eth = ipv4(IPv4.PROTOCOL_TCP, new TCP().setSourcePort(40000).setDestinationPort(80)
+                        .setPayload(new Data(new byte[64])));
+                break;
+            case "udp":
+                eth = ipv4(IPv4.PROTOCOL_UDP, new UDP().setSourcePort(40000).setDestinationPort(53)
+                        .setPayload(new Data(new byte[64])));
+                break;
+            default:
+                eth = arp();
+                break;
+        }
+        frame = eth.serialize();
+    }
+
+    private static Ethernet ipv4(byte protocol, IPacket l4) {
+        IPv4 ip = new IPv4();
+        ip.setSourceAddress(SRC_IP.toInt())
+                .setDestinationAddress(DST_IP.toInt())
+                .setProtocol(protocol)
+                .setTtl((byte) 64)
+                .setPayload(l4);
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(SRC_MAC)
+                .setDestinationMACAddress(DST_MAC)
+                .setEtherType(Ethernet.TYPE_IPV4)
+                .setPayload(ip);
+        return eth;
+    }
+
+    private static Ethernet arp() {
+        ARP arp = new ARP();
+        arp.setHardwareType(ARP.HW_TYPE_ETHERNET)
+                .setProtocolType(ARP.PROTO_TYPE_IP)
+                .setHardwareAddressLength((byte) Ethernet.DATALAYER_ADDRESS_LENGTH)
+                .setProtocolAddressLength((byte) Ip4Address.BYTE_LENGTH)
+                .setOpCode(ARP.OP_REQUEST)
+                .setSenderHardwareAddress(SRC_MAC.toBytes())
+                .setSenderProtocolAddress(SRC_IP.toOctets())
+                .setTargetHardwareAddress(MacAddress.ZERO.toBytes())
+                .setTargetProtocolAddress(DST_IP.toOctets());
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(SRC_MAC)
+                .setDestinationMACAddress(MacAddress.BROADCAST)
+                .setEtherType(Ethernet.TYPE_ARP)
+                .setPayload(arp);
+        return eth;
+    }
+
+    /**
+     * Deserializes the frame.
+     *
+     * @return deserialized frame
+     * @throws DeserializationException if the frame is malformed
+     */
+    @Benchmark
+    public Ethernet deserialize() throws DeserializationException {
+        return deserializer.deserialize(frame, 0, frame.length);
+    }
+}
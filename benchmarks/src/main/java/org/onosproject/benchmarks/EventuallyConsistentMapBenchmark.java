@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import org.onlab.util.KryoNamespace;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationServiceAdapter;
+import org.onosproject.store.persistence.PersistenceServiceAdapter;
+import org.onosproject.store.primitives.impl.EventuallyConsistentMapBuilderImpl;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.EventuallyConsistentMap;
+import org.onosproject.store.service.WallClockTimestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of local updates and reads of an eventually consistent map
+ * without peers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class EventuallyConsistentMapBenchmark {
+
+    @Param({"1000", "100000"})
+    private int keys;
+
+    private EventuallyConsistentMap<String, String> map;
+    private String[] names;
+
+    /**
+     * Creates and fills the map.
+     */
+    @Setup
+    public void setUp() {
+        map = new EventuallyConsistentMapBuilderImpl<String, String>(
+                        new ClusterServiceAdapter(),
+                        new ClusterCommunicationServiceAdapter(),
+                        new PersistenceServiceAdapter())
+                .withName("benchmark")
+                .withSerializer(KryoNamespace.newBuilder().register(KryoNamespaces.API))
+                .withTimestampProvider((k, v) -> new WallClockTimestamp())
+                .build();
+        names = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            names[i] = "key" + i;
+            map.put(names[i], "value" + i);
+        }
+    }
+
+    /**
+     * Destroys the map.
+     */
+    @TearDown
+    public void tearDown() {
+        map.destroy();
+    }
+
+    /**
+     * Updates a random key.
+     */
+    @Benchmark
+    public void put() {
+        map.put(names[ThreadLocalRandom.current().nextInt(keys)], "updated");
+    }
+
+    /**
+     * Reads a random key.
+     *
+     * @return value
+     */
+    @Benchmark
+    public String get() {
+        return map.get(names[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+}
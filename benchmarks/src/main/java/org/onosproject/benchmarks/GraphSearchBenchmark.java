@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import org.onlab.graph.AbstractEdge;
+import org.onlab.graph.AdjacencyListsGraph;
+import org.onlab.graph.DijkstraGraphSearch;
+import org.onlab.graph.EdgeWeight;
+import org.onlab.graph.Graph;
+import org.onlab.graph.GraphPathSearch;
+import org.onlab.graph.SuurballeGraphSearch;
+import org.onlab.graph.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the path searches used for path computation, run between
+ * opposite corners of a grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GraphSearchBenchmark {
+
+    // Random weights keep the number of equally short paths, which the
+    // searches enumerate, from growing with the size of the grid.
+    private static final EdgeWeight<Node, Link> WEIGHT = link -> link.weight;
+
+    @Param({"10", "30"})
+    private int side;
+
+    private final DijkstraGraphSearch<Node, Link> dijkstra = new DijkstraGraphSearch<>();
+    private final SuurballeGraphSearch<Node, Link> suurballe = new SuurballeGraphSearch<>();
+
+    private Graph<Node, Link> graph;
+    private Node src;
+    private Node dst;
+
+    /**
+     * Builds a grid with links in both directions between neighbours.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(side);
+        Node[][] nodes = new Node[side][side];
+        Set<Node> vertexes = new HashSet<>();
+        Set<Link> edges = new HashSet<>();
+        for (int x = 0; x < side; x++) {
+            for (int y = 0; y < side; y++) {
+                nodes[x][y] = new Node(x * side + y);
+                vertexes.add(nodes[x][y]);
+                if (x > 0) {
+                    edges.add(new Link(nodes[x - 1][y], nodes[x][y], random));
+                    edges.add(new Link(nodes[x][y], nodes[x - 1][y], random));
+                }
+                if (y > 0) {
+                    edges.add(new Link(nodes[x][y - 1], nodes[x][y], random));
+                    edges.add(new Link(nodes[x][y], nodes[x][y - 1], random));
+                }
+            }
+        }
+        graph = new AdjacencyListsGraph<>(vertexes, edges);
+        src = nodes[0][0];
+        dst = nodes[side - 1][side - 1];
+    }
+
+    /**
+     * Finds a shortest path between the corners.
+     *
+     * @return search result
+     */
+    @Benchmark
+    public GraphPathSearch.Result<Node, Link> dijkstra() {
+        return dijkstra.search(graph, src, dst, WEIGHT, 1);
+    }
+
+    /**
+     * Finds a pair of disjoint paths between the corners.
+     *
+     * @return search result
+     */
+    @Benchmark
+    public GraphPathSearch.Result<Node, Link> suurballe() {
+        return suurballe.search(graph, src, dst, WEIGHT, 1);
+    }
+
+    // Grid vertex.
+    static final class Node implements Vertex {
+        private final int id;
+
+        Node(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Node && ((Node) obj).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "node" + id;
+        }
+    }
+
+    // Grid edge.
+    static final class Link extends AbstractEdge<Node> {
+        private final double weight;
+
+        Link(Node src, Node dst, Random random) {
+            super(src, dst);
+            this.weight = 1.0 + random.nextDouble();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
+import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
+import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip6Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onlab.packet.IpPrefixTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark of longest-prefix match lookups in full routing tables, held
+ * either in an IP prefix table or in the radix tree of binary strings the
+ * routing application used before.
+ * <p>
+ * The table is loaded from a dump with one prefix per line, given by the
+ * {@code dump} parameter; without one, tables of the size of the full
+ * Internet IPv4 and IPv6 tables are generated. The heap retained by the
+ * table is printed once it is loaded.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class IpPrefixTableBenchmark {
+
+    private static final int IP4_ROUTES = 700000;
+    private static final int IP6_ROUTES = 100000;
+    private static final int ADDRESSES = 1 << 16;
+
+    @Param({"table", "radix"})
+    private String implementation;
+
+    @Param({""})
+    private String dump;
+
+    private IpPrefixTable<IpPrefix> table;
+    private InvertedRadixTree<IpPrefix> radixTree;
+    private IpAddress[] addresses;
+    private int next;
+
+    /**
+     * Loads the routing table.
+     *
+     * @throws IOException if the dump cannot be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(1);
+        List<IpPrefix> prefixes = dump.isEmpty() ? generate(random) :
+                Files.lines(Paths.get(dump))
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .map(IpPrefix::valueOf)
+                        .collect(Collectors.toList());
+
+        long before = usedHeap();
+        if (implementation.equals("table")) {
+            table = new IpPrefixTable<>();
+            table.update(batch -> prefixes.forEach(p -> batch.put(p, p)));
+        } else {
+            radixTree = new ConcurrentInvertedRadixTree<>(new DefaultByteArrayNodeFactory());
+            prefixes.forEach(p -> radixTree.put(binaryString(p), p));
+        }
+        System.out.printf("%n%s: %d prefixes retain %d KiB%n", implementation,
+                          prefixes.size(), (usedHeap() - before) / 1024);
+
+        // Look up addresses within the loaded prefixes.
+        addresses = new IpAddress[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            IpPrefix prefix = prefixes.get(random.nextInt(prefixes.size()));
+            byte[] octets = prefix.address().toOctets();
+            for (int bit = prefix.prefixLength(); bit < octets.length * Byte.SIZE; bit++) {
+                if (random.nextBoolean()) {
+                    octets[bit / Byte.SIZE] |= 1 << (Byte.SIZE - 1 - bit % Byte.SIZE);
+                }
+            }
+            addresses[i] = IpAddress.valueOf(prefix.version(), octets);
+        }
+    }
+
+    /**
+     * Finds the longest prefix containing an address.
+     *
+     * @return longest matching prefix
+     */
+    @Benchmark
+    public IpPrefix longestMatch() {
+        IpAddress address = addresses[next++ & (ADDRESSES - 1)];
+        if (table != null) {
+            return table.longestMatch(address);
+        }
+        IpPrefix match = null;
+        int length = address.isIp4() ? Ip4Address.BIT_LENGTH : Ip6Address.BIT_LENGTH;
+        for (IpPrefix prefix : radixTree.getValuesForKeysPrefixing(
+                binaryString(IpPrefix.valueOf(address, length)))) {
+            match = prefix;
+        }
+        return match;
+    }
+
+    // Generates prefixes with the length distribution of the Internet
+    // routing tables: mostly /24 for IPv4 and /48 for IPv6.
+    private static List<IpPrefix> generate(Random random) {
+        List<IpPrefix> prefixes = new ArrayList<>(IP4_ROUTES + IP6_ROUTES);
+        for (int i = 0; i < IP4_ROUTES; i++) {
+            int length = random.nextInt(10) < 6 ? 24 : 8 + random.nextInt(16);
+            prefixes.add(IpPrefix.valueOf(random.nextInt(), length));
+        }
+        byte[] octets = new byte[Ip6Address.BYTE_LENGTH];
+        for (int i = 0; i < IP6_ROUTES; i++) {
+            random.nextBytes(octets);
+            octets[0] = (byte) (0x20 | octets[0] & 0x0f);
+            int length = random.nextInt(10) < 5 ? 48 : 19 + random.nextInt(29);
+            prefixes.add(IpPrefix.valueOf(IpAddress.Version.INET6, octets, length));
+        }
+        return prefixes;
+    }
+
+    // Key of a prefix in the radix tree, as the routing application used.
+    private static String binaryString(IpPrefix prefix) {
+        byte[] octets = prefix.address().toOctets();
+        StringBuilder result = new StringBuilder(prefix.prefixLength() + 1);
+        result.append('0');
+        for (int i = 0; i < prefix.prefixLength(); i++) {
+            boolean set = (octets[i / Byte.SIZE] & 1 << (Byte.SIZE - 1 - i % Byte.SIZE)) != 0;
+            result.append(set ? '1' : '0');
+        }
+        return result.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import org.onlab.packet.IpPrefix;
+import org.onlab.util.KryoNamespace;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the Kryo serialization of objects commonly exchanged between
+ * cluster members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class KryoNamespaceBenchmark {
+
+    private static final DeviceId DEVICE_ID = DeviceId.deviceId("of:0000000000000001");
+    private static final ConnectPoint SRC = new ConnectPoint(DEVICE_ID, PortNumber.portNumber(1));
+    private static final ConnectPoint DST =
+            new ConnectPoint(DeviceId.deviceId("of:0000000000000002"), PortNumber.portNumber(2));
+
+    @Param({"deviceId", "connectPoint", "link", "flowRule", "ipPrefix"})
+    private String object;
+
+    private final KryoNamespace namespace = KryoNamespace.newBuilder()
+            .register(KryoNamespaces.API)
+            .build();
+
+    private Object value;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+
+    /**
+     * Creates and serializes the object.
+     */
+    @Setup
+    public void setUp() {
+        switch (object) {
+            case "deviceId":
+                value = DEVICE_ID;
+                break;
+            case "connectPoint":
+                value = SRC;
+                break;
+            case "link":
+                value = DefaultLink.builder()
+                        .providerId(new ProviderId("of", "benchmark"))
+                        .src(SRC)
+                        .dst(DST)
+                        .type(Link.Type.DIRECT)
+                        .state(Link.State.ACTIVE)
+                        .build();
+                break;
+            case "flowRule":
+                value = DefaultFlowRule.builder()
+                        .forDevice(DEVICE_ID)
+                        .fromApp(new DefaultApplicationId(1, "org.onosproject.benchmarks"))
+                        .withPriority(40000)
+                        .withSelector(DefaultTrafficSelector.builder()
+                                              .matchInPort(SRC.port())
+                                              .matchIPDst(IpPrefix.valueOf("10.0.1.0/24"))
+                                              .build())
+                        .withTreatment(DefaultTrafficTreatment.builder()
+                                               .setOutput(PortNumber.portNumber(2))
+                                               .build())
+                        .makePermanent()
+                        .build();
+                break;
+            default:
+                value = IpPrefix.valueOf("10.0.1.0/24");
+                break;
+        }
+        bytes = namespace.serialize(value);
+        buffer = ByteBuffer.allocate(bytes.length * 2);
+    }
+
+    /**
+     * Serializes the object into a new array.
+     *
+     * @return serialized bytes
+     */
+    @Benchmark
+    public byte[] serialize() {
+        return namespace.serialize(value);
+    }
+
+    /**
+     * Serializes the object into a reused buffer.
+     *
+     * @return buffer
+     */
+    @Benchmark
+    public ByteBuffer serializeToBuffer() {
+        buffer.clear();
+        namespace.serialize(value, buffer);
+        return buffer;
+    }
+
+    /**
+     * Deserializes the object.
+     *
+     * @return deserialized object
+     */
+    @Benchmark
+    public Object deserialize() {
+        return namespace.deserialize(bytes);
+    }
+}
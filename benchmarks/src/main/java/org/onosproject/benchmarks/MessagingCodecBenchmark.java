@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.onlab.packet.IpAddress;
+import org.onosproject.store.cluster.messaging.Endpoint;
+import org.onosproject.store.cluster.messaging.impl.InternalMessage;
+import org.onosproject.store.cluster.messaging.impl.MessageDecoder;
+import org.onosproject.store.cluster.messaging.impl.MessageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the encoding and decoding of messages exchanged between
+ * cluster members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MessagingCodecBenchmark {
+
+    private static final int PREAMBLE = 0x12345678;
+    private static final Endpoint SENDER = new Endpoint(IpAddress.valueOf("10.0.0.1"), 9876);
+    private static final String TYPE = "onos-benchmark-message";
+
+    @Param({"64", "4096"})
+    private int payloadSize;
+
+    private EmbeddedChannel encoder;
+    private EmbeddedChannel decoder;
+    private InternalMessage message;
+    private ByteBuf encoded;
+
+    /**
+     * Creates the codec channels and encodes the message to decode.
+     */
+    @Setup
+    public void setUp() {
+        encoder = new EmbeddedChannel(new MessageEncoder(PREAMBLE));
+        decoder = new EmbeddedChannel(new MessageDecoder());
+        message = new InternalMessage(PREAMBLE, 1L, SENDER, TYPE, new byte[payloadSize]);
+
+        ByteBuf out = encode();
+        encoded = Unpooled.copiedBuffer(out);
+        out.release();
+    }
+
+    /**
+     * Closes the codec channels.
+     */
+    @TearDown
+    public void tearDown() {
+        encoder.finish();
+        decoder.finish();
+        encoded.release();
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @return encoded length
+     */
+    @Benchmark
+    public int encodeMessage() {
+        ByteBuf out = encode();
+        int length = out.readableBytes();
+        out.release();
+        return length;
+    }
+
+    private ByteBuf encode() {
+        encoder.writeOutbound(message);
+        return (ByteBuf) encoder.readOutbound();
+    }
+
+    /**
+     * Decodes a message.
+     *
+     * @return decoded message
+     */
+    @Benchmark
+    public InternalMessage decodeMessage() {
+        decoder.writeInbound(encoded.duplicate().retain());
+        return (InternalMessage) decoder.readInbound();
+    }
+}
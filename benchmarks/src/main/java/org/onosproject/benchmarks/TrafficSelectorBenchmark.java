@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.IpPrefix;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.TpPort;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.TrafficSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of traffic selectors, which are built, hashed and compared for
+ * every flow rule and intent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TrafficSelectorBenchmark {
+
+    private static final MacAddress SRC_MAC = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress DST_MAC = MacAddress.valueOf("00:00:00:00:00:02");
+    private static final IpPrefix SRC_IP = IpPrefix.valueOf("10.0.0.1/32");
+    private static final IpPrefix DST_IP = IpPrefix.valueOf("10.0.1.0/24");
+
+    private TrafficSelector selector;
+    private TrafficSelector same;
+
+    /**
+     * Builds two equal selectors.
+     */
+    @Setup
+    public void setUp() {
+        selector = build();
+        same = build();
+    }
+
+    /**
+     * Builds a 5-tuple selector.
+     *
+     * @return selector
+     */
+    @Benchmark
+    public TrafficSelector build() {
+        return DefaultTrafficSelector.builder()
+                .matchInPort(PortNumber.portNumber(1))
+                .matchEthSrc(SRC_MAC)
+                .matchEthDst(DST_MAC)
+                .matchEthType(Ethernet.TYPE_IPV4)
+                .matchIPProtocol(IPv4.PROTOCOL_TCP)
+                .matchIPSrc(SRC_IP)
+                .matchIPDst(DST_IP)
+                .matchTcpSrc(TpPort.tpPort(40000))
+                .matchTcpDst(TpPort.tpPort(80))
+                .build();
+    }
+
+    /**
+     * Hashes a selector.
+     *
+     * @return hash code
+     */
+    @Benchmark
+    public int hash() {
+        return selector.hashCode();
+    }
+
+    /**
+     * Compares two distinct but equal selectors.
+     *
+     * @return true
+     */
+    @Benchmark
+    public boolean equal() {
+        return selector.equals(same);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * JMH micro-benchmarks of core data-path classes.
+ * <p>
+ * The benchmarks run in a single JVM without a cluster or devices. Build
+ * the module with {@code mvn package} and run all of them with
+ * {@code java -jar target/onos-benchmarks.jar}, or a subset by passing a
+ * benchmark name pattern. Results are written as JSON to
+ * {@code jmh-result.json} unless other JMH result options are given.
+ * </p>
+ */
+package org.onosproject.benchmarks;
@@ -35,4 +35,21 @@ public interface EventDeliveryService extends EventDispatcher, EventSinkRegistry
      */
     long getDispatchTimeLimit();
 
+    /**
+     * Sets the number of threads used to dispatch events. Events pertaining
+     * to the same subject are always dispatched in order, but with more than
+     * one thread, events for different subjects may be delivered to event
+     * sinks concurrently.
+     *
+     * @param threads number of dispatch threads; must be positive
+     */
+    void setDispatchThreads(int threads);
+
+    /**
+     * Returns the number of threads used to dispatch events.
+     *
+     * @return number of dispatch threads
+     */
+    int getDispatchThreads();
+
 }
@@ -35,6 +35,15 @@ public interface PacketProcessorEntry {
      */
     int priority();
 
+    /**
+     * Returns the filter of the packets handed to the packet processor.
+     *
+     * @return packet processor filter
+     */
+    default PacketProcessorFilter filter() {
+        return PacketProcessorFilter.all();
+    }
+
     /**
      * Returns the number of invocations.
      *
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.packet;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPacket;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.IPv6;
+import org.onlab.packet.TCP;
+import org.onlab.packet.UDP;
+
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Match predicate restricting the inbound packets handed to a packet
+ * processor by ether type, IP protocol and transport port.
+ * <p>
+ * Fields left unspecified match any packet. Packets which do not carry
+ * the headers needed to evaluate a specified field do not match.
+ * </p>
+ */
+public final class PacketProcessorFilter {
+
+    private static final int ANY = -1;
+
+    private static final PacketProcessorFilter ALL =
+            new PacketProcessorFilter(ImmutableSet.of(), ANY, ANY);
+
+    private final Set<Short> ethTypes;
+    private final int ipProtocol;
+    private final int l4Port;
+
+    private PacketProcessorFilter(Set<Short> ethTypes, int ipProtocol, int l4Port) {
+        this.ethTypes = ethTypes;
+        this.ipProtocol = ipProtocol;
+        this.l4Port = l4Port;
+    }
+
+    /**
+     * Returns a filter which matches all packets.
+     *
+     * @return match-all filter
+     */
+    public static PacketProcessorFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a new filter builder.
+     *
+     * @return filter builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the ether types accepted by this filter.
+     *
+     * @return set of ether types; empty if any ether type is accepted
+     */
+    public Set<Short> ethTypes() {
+        return ethTypes;
+    }
+
+    /**
+     * Indicates whether this filter constrains anything beyond the ether
+     * type of the packet.
+     *
+     * @return true if IP protocol or transport port are specified
+     */
+    public boolean matchesBeyondEthType() {
+        return ipProtocol != ANY || l4Port != ANY;
+    }
+
+    /**
+     * Indicates whether the given packet is accepted by this filter.
+     *
+     * @param eth parsed packet; may be null if the packet could not be parsed
+     * @return true if the packet matches
+     */
+    public boolean matches(Ethernet eth) {
+        if (this == ALL) {
+            return true;
+        }
+        if (eth == null) {
+            return false;
+        }
+        if (!ethTypes.isEmpty() && !ethTypes.contains(eth.getEtherType())) {
+            return false;
+        }
+        return !matchesBeyondEthType() || matchesPayload(eth.getPayload());
+    }
+
+    private boolean matchesPayload(IPacket ip) {
+        IPacket l4;
+        if (ip instanceof IPv4) {
+            if (ipProtocol != ANY && ((IPv4) ip).getProtocol() != (byte) ipProtocol) {
+                return false;
+            }
+            l4 = ip.getPayload();
+        } else if (ip instanceof IPv6) {
+            if (ipProtocol != ANY && ((IPv6) ip).getNextHeader() != (byte) ipProtocol) {
+                return false;
+            }
+            l4 = ip.getPayload();
+        } else {
+            return false;
+        }
+
+        if (l4Port == ANY) {
+            return true;
+        }
+        if (l4 instanceof TCP) {
+            TCP tcp = (TCP) l4;
+            return tcp.getSourcePort() == l4Port || tcp.getDestinationPort() == l4Port;
+        }
+        if (l4 instanceof UDP) {
+            UDP udp = (UDP) l4;
+            return udp.getSourcePort() == l4Port || udp.getDestinationPort() == l4Port;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ethTypes, ipProtocol, l4Port);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof PacketProcessorFilter) {
+            final PacketProcessorFilter other = (PacketProcessorFilter) obj;
+            return Objects.equals(this.ethTypes, other.ethTypes) &&
+                    this.ipProtocol == other.ipProtocol &&
+                    this.l4Port == other.l4Port;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .omitNullValues()
+                .add("ethTypes", ethTypes.isEmpty() ? null : ethTypes)
+                .add("ipProtocol", ipProtocol == ANY ? null : ipProtocol)
+                .add("l4Port", l4Port == ANY ? null : l4Port)
+                .toString();
+    }
+
+    /**
+     * Builder of packet processor filters.
+     */
+    public static final class Builder {
+        private final ImmutableSet.Builder<Short> ethTypes = ImmutableSet.builder();
+        private int ipProtocol = ANY;
+        private int l4Port = ANY;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds an ether type to the set of accepted ether types.
+         *
+         * @param ethType ether type
+         * @return this builder
+         */
+        public Builder matchEthType(short ethType) {
+            ethTypes.add(ethType);
+            return this;
+        }
+
+        /**
+         * Restricts the filter to IPv4 or IPv6 packets carrying the given
+         * protocol.
+         *
+         * @param protocol IP protocol number
+         * @return this builder
+         */
+        public Builder matchIpProtocol(byte protocol) {
+            this.ipProtocol = protocol & 0xff;
+            return this;
+        }
+
+        /**
+         * Restricts the filter to TCP or UDP packets with the given source
+         * or destination port.
+         *
+         * @param port transport port
+         * @return this builder
+         */
+        public Builder matchL4Port(int port) {
+            checkArgument(port >= 0 && port <= 0xffff, "Invalid transport port");
+            this.l4Port = port;
+            return this;
+        }
+
+        /**
+         * Builds the packet processor filter.
+         *
+         * @return packet processor filter
+         */
+        public PacketProcessorFilter build() {
+            Set<Short> types = ethTypes.build();
+            if (types.isEmpty() && ipProtocol == ANY && l4Port == ANY) {
+                return ALL;
+            }
+            return new PacketProcessorFilter(types, ipProtocol, l4Port);
+        }
+    }
+}
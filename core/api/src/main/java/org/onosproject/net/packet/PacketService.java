@@ -43,7 +43,24 @@ public interface PacketService {
      */
     void addProcessor(PacketProcessor processor, int priority);
 
-    // TODO allow processors to register for particular types of packets
+    /**
+     * Adds the specified processor to the list of packet processors,
+     * restricting the packets handed to it to those accepted by the given
+     * filter. Processors are still invoked in the order of priority.
+     * <p>
+     * Implementations which do not index processors by filter may fall back
+     * to delivering all packets; processors must therefore remain prepared
+     * to see packets outside of their filter.
+     * </p>
+     *
+     * @param processor processor to be added
+     * @param priority  priority in the reverse natural order
+     * @param filter    filter of the packets of interest to the processor
+     */
+    default void addProcessor(PacketProcessor processor, int priority,
+                              PacketProcessorFilter filter) {
+        addProcessor(processor, priority);
+    }
 
     /**
      * Removes the specified processor from the processing pipeline.
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.statistic;
+
+import com.google.common.base.MoreObjects;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.flow.FlowId;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Recent load history of a single flow on a connect point, as a series of
+ * byte and packet deltas between consecutive flow statistics samples,
+ * oldest first.
+ */
+public final class FlowLoadHistory {
+
+    private final ConnectPoint connectPoint;
+    private final FlowId flowId;
+    private final long[] times;
+    private final long[] durations;
+    private final long[] bytes;
+    private final long[] packets;
+
+    /**
+     * Creates a flow load history from the given samples.
+     *
+     * @param connectPoint connect point the flow is forwarded to
+     * @param flowId       flow identifier
+     * @param times        end time of each sample in millis since the epoch
+     * @param durations    duration of each sample in millis
+     * @param bytes        bytes counted during each sample
+     * @param packets      packets counted during each sample
+     */
+    public FlowLoadHistory(ConnectPoint connectPoint, FlowId flowId,
+                           long[] times, long[] durations, long[] bytes, long[] packets) {
+        this.connectPoint = checkNotNull(connectPoint);
+        this.flowId = checkNotNull(flowId);
+        checkArgument(times.length == durations.length && times.length == bytes.length &&
+                              times.length == packets.length, "Sample arrays must be of the same length");
+        this.times = times.clone();
+        this.durations = durations.clone();
+        this.bytes = bytes.clone();
+        this.packets = packets.clone();
+    }
+
+    /**
+     * Returns the connect point the flow is forwarded to.
+     *
+     * @return connect point
+     */
+    public ConnectPoint connectPoint() {
+        return connectPoint;
+    }
+
+    /**
+     * Returns the flow identifier.
+     *
+     * @return flow id
+     */
+    public FlowId flowId() {
+        return flowId;
+    }
+
+    /**
+     * Returns the number of samples in the history.
+     *
+     * @return number of samples
+     */
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * Returns the end time of the given sample.
+     *
+     * @param sample sample index, 0 being the oldest
+     * @return time in millis since the epoch
+     */
+    public long time(int sample) {
+        return times[sample];
+    }
+
+    /**
+     * Returns the duration of the given sample.
+     *
+     * @param sample sample index, 0 being the oldest
+     * @return duration in millis
+     */
+    public long duration(int sample) {
+        return durations[sample];
+    }
+
+    /**
+     * Returns the number of bytes counted during the given sample.
+     *
+     * @param sample sample index, 0 being the oldest
+     * @return byte count
+     */
+    public long bytes(int sample) {
+        return bytes[sample];
+    }
+
+    /**
+     * Returns the number of packets counted during the given sample.
+     *
+     * @param sample sample index, 0 being the oldest
+     * @return packet count
+     */
+    public long packets(int sample) {
+        return packets[sample];
+    }
+
+    /**
+     * Returns the byte rate of the given sample.
+     *
+     * @param sample sample index, 0 being the oldest
+     * @return bytes per second
+     */
+    public long byteRate(int sample) {
+        return rate(bytes[sample], durations[sample]);
+    }
+
+    /**
+     * Returns the packet rate of the given sample.
+     *
+     * @param sample sample index, 0 being the oldest
+     * @return packets per second
+     */
+    public long packetRate(int sample) {
+        return rate(packets[sample], durations[sample]);
+    }
+
+    private static long rate(long count, long millis) {
+        return millis > 0 ? count * 1000 / millis : 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(connectPoint, flowId, Arrays.hashCode(times), Arrays.hashCode(durations),
+                            Arrays.hashCode(bytes), Arrays.hashCode(packets));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FlowLoadHistory)) {
+            return false;
+        }
+        FlowLoadHistory that = (FlowLoadHistory) obj;
+        return Objects.equals(this.connectPoint, that.connectPoint)
+                && Objects.equals(this.flowId, that.flowId)
+                && Arrays.equals(this.times, that.times)
+                && Arrays.equals(this.durations, that.durations)
+                && Arrays.equals(this.bytes, that.bytes)
+                && Arrays.equals(this.packets, that.packets);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("connectPoint", connectPoint)
+                .add("flowId", flowId)
+                .add("bytes", Arrays.toString(bytes))
+                .add("packets", Arrays.toString(packets))
+                .toString();
+    }
+}
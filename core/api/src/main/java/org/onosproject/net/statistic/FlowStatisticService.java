@@ -19,6 +19,7 @@ package org.onosproject.net.statistic;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.Device;
 import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.flow.TypedStoredFlowEntry;
 import org.onosproject.net.flow.instructions.Instruction;
 
@@ -101,6 +102,29 @@ public interface FlowStatisticService {
                                                 TypedStoredFlowEntry.FlowLiveType liveType,
                                                 Instruction.Type instType,
                                                 int topn);
-}
 
+    /**
+     * Obtain the recent load history of a flow forwarded to the given port.
+     * Histories are only kept by the master of the device; other instances
+     * return none.
+     *
+     * @param device the Device to query.
+     * @param pNumber the port number of the Device to query
+     * @param flowId the flow to query
+     * @return flow load history, or null if none is recorded for the flow
+     */
+    FlowLoadHistory loadHistory(Device device, PortNumber pNumber, FlowId flowId);
 
+    /**
+     * Obtain the recent load history of the topn flows forwarded to the given
+     * port, ordered by descending byte rate of their latest sample.
+     * Histories are only kept by the master of the device; other instances
+     * return none.
+     *
+     * @param device the Device to query.
+     * @param pNumber the port number of the Device to query
+     * @param topn the maximum number of flows to return
+     * @return list of flow load histories
+     */
+    List<FlowLoadHistory> loadTopnHistory(Device device, PortNumber pNumber, int topn);
+}
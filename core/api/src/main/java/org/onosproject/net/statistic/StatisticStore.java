@@ -62,4 +62,21 @@ public interface StatisticStore {
      * @return set of current values
      */
     Set<FlowEntry> getPreviousStatistic(ConnectPoint connectPoint);
+
+    /**
+     * Fetches the load on the port, computed from the byte counts of the
+     * current and previous observed stats values.
+     *
+     * @param connectPoint the port to fetch information for
+     * @return load on the port; invalid unless both stats values are known
+     */
+    default Load getLoad(ConnectPoint connectPoint) {
+        Set<FlowEntry> current = getCurrentStatistic(connectPoint);
+        Set<FlowEntry> previous = getPreviousStatistic(connectPoint);
+        if (current == null || previous == null || current.isEmpty() || previous.isEmpty()) {
+            return new DefaultLoad();
+        }
+        return new DefaultLoad(current.stream().mapToLong(FlowEntry::bytes).sum(),
+                               previous.stream().mapToLong(FlowEntry::bytes).sum());
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.onosproject.store.cluster.messaging;
 
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
@@ -54,6 +55,21 @@ public interface MessagingService {
      */
     CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload, Executor executor);
 
+    /**
+     * Sends a message asynchronously and expects a response within the given time.
+     * @param ep end point to send the message to.
+     * @param type type of message.
+     * @param payload message payload.
+     * @param executor executor over which any follow up actions after completion will be executed.
+     * @param timeout time after which the response future fails with a timeout if no response came.
+     * @return a response future
+     */
+    default CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload,
+                                                     Executor executor, Duration timeout) {
+        // implementations without their own timeout handling apply their default one
+        return sendAndReceive(ep, type, payload, executor);
+    }
+
     /**
      * Registers a new message handler for message type.
      * @param type message type.
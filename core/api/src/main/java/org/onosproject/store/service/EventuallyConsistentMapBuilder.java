@@ -176,6 +176,21 @@ public interface EventuallyConsistentMapBuilder<K, V> {
      */
     EventuallyConsistentMapBuilder<K, V> withPersistence();
 
+    /**
+     * Configure anti-entropy to first exchange hashes of a tree summarizing
+     * the map contents, and to only advertise the entries found to differ.
+     * Suited to large maps, where advertising a digest of every entry in
+     * each anti-entropy cycle is costly, at the expense of hashing each
+     * updated entry.
+     * <p>
+     * The default behavior is to advertise a digest of every entry. All
+     * instances sharing the map must use the same setting.
+     * </p>
+     *
+     * @return this EventuallyConsistentMapBuilder
+     */
+    EventuallyConsistentMapBuilder<K, V> withMerkleAntiEntropy();
+
     /**
      * Builds an eventually consistent map based on the configuration options
      * supplied to this builder.
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.packet;
+
+import com.google.common.testing.EqualsTester;
+import org.junit.Test;
+import org.onlab.packet.ARP;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.UDP;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the packet processor filter.
+ */
+public class PacketProcessorFilterTest {
+
+    private static Ethernet udp(int srcPort, int dstPort) {
+        UDP udp = new UDP();
+        udp.setSourcePort(srcPort);
+        udp.setDestinationPort(dstPort);
+        IPv4 ip = new IPv4();
+        ip.setProtocol(IPv4.PROTOCOL_UDP);
+        ip.setPayload(udp);
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        eth.setPayload(ip);
+        return eth;
+    }
+
+    private static Ethernet arp() {
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_ARP);
+        eth.setPayload(new ARP());
+        return eth;
+    }
+
+    /**
+     * Tests that an empty filter matches everything.
+     */
+    @Test
+    public void matchAll() {
+        PacketProcessorFilter filter = PacketProcessorFilter.builder().build();
+        assertSame(PacketProcessorFilter.all(), filter);
+        assertTrue(filter.matches(null));
+        assertTrue(filter.matches(arp()));
+        assertFalse(filter.matchesBeyondEthType());
+    }
+
+    /**
+     * Tests matching on ether type alone.
+     */
+    @Test
+    public void matchEthType() {
+        PacketProcessorFilter filter = PacketProcessorFilter.builder()
+                .matchEthType(Ethernet.TYPE_ARP)
+                .matchEthType(Ethernet.TYPE_RARP)
+                .build();
+        assertTrue(filter.matches(arp()));
+        assertFalse(filter.matches(udp(1, 2)));
+        assertFalse(filter.matches(null));
+    }
+
+    /**
+     * Tests matching on IP protocol and transport port.
+     */
+    @Test
+    public void matchIpProtocolAndPort() {
+        PacketProcessorFilter filter = PacketProcessorFilter.builder()
+                .matchEthType(Ethernet.TYPE_IPV4)
+                .matchIpProtocol(IPv4.PROTOCOL_UDP)
+                .matchL4Port(UDP.DHCP_SERVER_PORT)
+                .build();
+        assertTrue(filter.matchesBeyondEthType());
+        assertTrue(filter.matches(udp(UDP.DHCP_CLIENT_PORT, UDP.DHCP_SERVER_PORT)));
+        assertTrue(filter.matches(udp(UDP.DHCP_SERVER_PORT, UDP.DHCP_CLIENT_PORT)));
+        assertFalse(filter.matches(udp(1, 2)));
+        assertFalse(filter.matches(arp()));
+
+        PacketProcessorFilter tcp = PacketProcessorFilter.builder()
+                .matchIpProtocol(IPv4.PROTOCOL_TCP)
+                .build();
+        assertFalse(tcp.matches(udp(1, 2)));
+        assertFalse(tcp.matches(arp()));
+    }
+
+    /**
+     * Tests equality of filters.
+     */
+    @Test
+    public void testEquals() {
+        new EqualsTester()
+                .addEqualityGroup(PacketProcessorFilter.all(),
+                                  PacketProcessorFilter.builder().build())
+                .addEqualityGroup(PacketProcessorFilter.builder().matchEthType(Ethernet.TYPE_ARP).build(),
+                                  PacketProcessorFilter.builder().matchEthType(Ethernet.TYPE_ARP).build())
+                .addEqualityGroup(PacketProcessorFilter.builder().matchL4Port(67).build())
+                .testEquals();
+    }
+}
@@ -226,6 +226,11 @@ public final class TestEventuallyConsistentMap<K, V> extends EventuallyConsisten
             return this;
         }
 
+        @Override
+        public EventuallyConsistentMapBuilder<K, V> withMerkleAntiEntropy() {
+            return this;
+        }
+
         @Override
         public EventuallyConsistentMap<K, V> build() {
             if (name == null) {
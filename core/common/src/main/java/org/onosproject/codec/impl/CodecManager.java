@@ -67,6 +67,7 @@ import org.onosproject.net.meter.Band;
 import org.onosproject.net.meter.Meter;
 import org.onosproject.net.meter.MeterRequest;
 import org.onosproject.net.region.Region;
+import org.onosproject.net.statistic.FlowLoadHistory;
 import org.onosproject.net.statistic.Load;
 import org.onosproject.net.topology.Topology;
 import org.onosproject.net.topology.TopologyCluster;
@@ -122,6 +123,7 @@ public class CodecManager implements CodecService {
         registerCodec(Driver.class, new DriverCodec());
         registerCodec(GroupBucket.class, new GroupBucketCodec());
         registerCodec(Load.class, new LoadCodec());
+        registerCodec(FlowLoadHistory.class, new FlowLoadHistoryCodec());
         registerCodec(MeterRequest.class, new MeterRequestCodec());
         registerCodec(Meter.class, new MeterCodec());
         registerCodec(Band.class, new MeterBandCodec());
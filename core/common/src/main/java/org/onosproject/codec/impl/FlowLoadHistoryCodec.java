@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.codec.impl;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.onosproject.codec.CodecContext;
+import org.onosproject.codec.JsonCodec;
+import org.onosproject.net.statistic.FlowLoadHistory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Codec for the FlowLoadHistory class.
+ */
+public class FlowLoadHistoryCodec extends JsonCodec<FlowLoadHistory> {
+
+    private static final String ID = "id";
+    private static final String DEVICE = "device";
+    private static final String PORT = "port";
+    private static final String SAMPLES = "samples";
+    private static final String TIME = "time";
+    private static final String DURATION = "duration";
+    private static final String BYTES = "bytes";
+    private static final String PACKETS = "packets";
+    private static final String BYTE_RATE = "byteRate";
+    private static final String PACKET_RATE = "packetRate";
+
+    @Override
+    public ObjectNode encode(FlowLoadHistory history, CodecContext context) {
+        checkNotNull(history, "Flow load history cannot be null");
+        ObjectNode result = context.mapper().createObjectNode()
+                .put(ID, Long.toString(history.flowId().value()))
+                .put(DEVICE, history.connectPoint().deviceId().toString())
+                .put(PORT, history.connectPoint().port().toString());
+        ArrayNode samples = result.putArray(SAMPLES);
+        for (int i = 0; i < history.size(); i++) {
+            samples.addObject()
+                    .put(TIME, history.time(i))
+                    .put(DURATION, history.duration(i))
+                    .put(BYTES, history.bytes(i))
+                    .put(PACKETS, history.packets(i))
+                    .put(BYTE_RATE, history.byteRate(i))
+                    .put(PACKET_RATE, history.packetRate(i));
+        }
+        return result;
+    }
+}
@@ -18,6 +18,7 @@ package org.onosproject.common;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
@@ -82,6 +83,9 @@ public class DefaultTopology extends AbstractModel implements Topology {
     private static LinkWeight defaultLinkWeight = null;
     private static GraphPathSearch<TopologyVertex, TopologyEdge> defaultGraphPathSearch = null;
 
+    private static final long DEFAULT_PATH_CACHE_SIZE = 10_000;
+    private static long pathCacheSize = DEFAULT_PATH_CACHE_SIZE;
+
     private final long time;
     private final long creationTime;
     private final long computeCost;
@@ -89,12 +93,12 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     private final LinkWeight hopCountWeight;
 
-    private final Supplier<SccResult<TopologyVertex, TopologyEdge>> clusterResults;
     private final Supplier<ImmutableMap<ClusterId, TopologyCluster>> clusters;
     private final Supplier<ImmutableSet<ConnectPoint>> infrastructurePoints;
     private final Supplier<ImmutableSetMultimap<ClusterId, ConnectPoint>> broadcastSets;
     private final Function<ConnectPoint, Boolean> broadcastFunction;
     private final Supplier<ClusterIndexes> clusterIndexes;
+    private final PathCache pathCache;
 
     /**
      * Sets the default link-weight to be used when computing paths. If null is
@@ -119,6 +123,18 @@ public class DefaultTopology extends AbstractModel implements Topology {
         defaultGraphPathSearch = graphPathSearch;
     }
 
+    /**
+     * Sets the maximum number of path query results cached by each
+     * subsequently created topology. Zero disables path caching.
+     *
+     * @param size maximum number of cached path query results
+     */
+    public static void setPathCacheSize(long size) {
+        checkArgument(size >= 0, "Path cache size must not be negative");
+        log.info("Setting path cache size to {}", size);
+        pathCacheSize = size;
+    }
+
 
     /**
      * Creates a topology descriptor attributed to the specified provider.
@@ -129,6 +145,28 @@ public class DefaultTopology extends AbstractModel implements Topology {
      */
     public DefaultTopology(ProviderId providerId, GraphDescription description,
                            Function<ConnectPoint, Boolean> broadcastFunction) {
+        this(providerId, description, broadcastFunction, null);
+    }
+
+    /**
+     * Creates a topology descriptor attributed to the specified provider,
+     * carrying forward those cached paths of the previous topology which
+     * remain valid in the new one.
+     * <p>
+     * When a previous topology is given, the clusters and broadcast sets are
+     * computed eagerly, searching again only the clusters affected by the
+     * differences between the two topologies; otherwise they are computed
+     * on demand from scratch.
+     * </p>
+     *
+     * @param providerId        identity of the provider
+     * @param description       data describing the new topology
+     * @param broadcastFunction broadcast point function
+     * @param previous          previous topology; may be null
+     */
+    public DefaultTopology(ProviderId providerId, GraphDescription description,
+                           Function<ConnectPoint, Boolean> broadcastFunction,
+                           DefaultTopology previous) {
         super(providerId);
         this.broadcastFunction = broadcastFunction;
         this.time = description.timestamp();
@@ -138,14 +176,34 @@ public class DefaultTopology extends AbstractModel implements Topology {
         this.graph = new DefaultTopologyGraph(description.vertexes(),
                                               description.edges());
 
-        this.clusterResults = Suppliers.memoize(() -> searchForClusters());
-        this.clusters = Suppliers.memoize(() -> buildTopologyClusters());
-
-        this.clusterIndexes = Suppliers.memoize(() -> buildIndexes());
-
-        this.hopCountWeight = new HopCountLinkWeight(graph.getVertexes().size());
-        this.broadcastSets = Suppliers.memoize(() -> buildBroadcastSets());
+        // Retain the previous hop-count weight if it is equivalent, so that
+        // paths cached against it remain reachable.
+        int vertexCount = graph.getVertexes().size();
+        this.hopCountWeight = previous != null && previous.deviceCount() == vertexCount ?
+                previous.hopCountWeight : new HopCountLinkWeight(vertexCount);
+
+        if (previous == null) {
+            Supplier<SccResult<TopologyVertex, TopologyEdge>> clusterResults =
+                    Suppliers.memoize(() -> searchForClusters());
+            this.clusters = Suppliers.memoize(() -> buildTopologyClusters(clusterResults.get()));
+            this.clusterIndexes = Suppliers.memoize(() -> buildIndexes(clusterResults.get()));
+            this.broadcastSets = Suppliers.memoize(() -> buildBroadcastSets());
+        } else {
+            IncrementalClusterSearch search =
+                    new IncrementalClusterSearch(previous.graph, previous.clusters.get(),
+                                                 previous.clusterIndexes.get(),
+                                                 graph, new NoIndirectLinksWeight());
+            this.clusters = Suppliers.ofInstance(search.clusters());
+            this.clusterIndexes = Suppliers.ofInstance(search.indexes());
+            this.broadcastSets = Suppliers.ofInstance(
+                    buildBroadcastSets(search, previous.broadcastSets.get()));
+        }
         this.infrastructurePoints = Suppliers.memoize(() -> findInfrastructurePoints());
+
+        this.pathCache = new PathCache(pathCacheSize);
+        if (previous != null) {
+            pathCache.carryForward(previous.pathCache, previous.graph, graph);
+        }
         this.computeCost = Math.max(0, System.nanoTime() - time);
     }
 
@@ -201,6 +259,16 @@ public class DefaultTopology extends AbstractModel implements Topology {
         return clusterIndexes.get().linksByCluster;
     }
 
+    /**
+     * Returns the hit, miss and eviction statistics of the path cache of
+     * this topology.
+     *
+     * @return path cache statistics
+     */
+    public CacheStats pathCacheStats() {
+        return pathCache.stats();
+    }
+
     /**
      * Returns the backing topology graph.
      *
@@ -329,7 +397,8 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     /**
      * Computes on-demand the set of shortest paths between source and
-     * destination devices.
+     * destination devices. Results are cached only for the default
+     * hop-count weight, which depends on nothing but the topology.
      *
      * @param src    source device
      * @param dst    destination device
@@ -337,6 +406,16 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @return set of shortest paths
      */
     public Set<Path> getPaths(DeviceId src, DeviceId dst, LinkWeight weight) {
+        GraphPathSearch<TopologyVertex, TopologyEdge> search = graphPathSearch();
+        if (!isCacheable(weight)) {
+            return computePaths(src, dst, weight, search);
+        }
+        return pathCache.getPaths(src, dst, weight, search,
+                                  () -> computePaths(src, dst, weight, search));
+    }
+
+    private Set<Path> computePaths(DeviceId src, DeviceId dst, LinkWeight weight,
+                                   GraphPathSearch<TopologyVertex, TopologyEdge> search) {
         DefaultTopologyVertex srcV = new DefaultTopologyVertex(src);
         DefaultTopologyVertex dstV = new DefaultTopologyVertex(dst);
         Set<TopologyVertex> vertices = graph.getVertexes();
@@ -346,7 +425,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
         }
 
         GraphPathSearch.Result<TopologyVertex, TopologyEdge> result =
-                graphPathSearch().search(graph, srcV, dstV, weight, ALL_PATHS);
+                search.search(graph, srcV, dstV, weight, ALL_PATHS);
         ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
         for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : result.paths()) {
             builder.add(networkPath(path));
@@ -369,7 +448,8 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     /**
      * Computes on-demand the set of shortest disjoint path pairs between source and
-     * destination devices.
+     * destination devices. Results are cached only for the default
+     * hop-count weight, which depends on nothing but the topology.
      *
      * @param src    source device
      * @param dst    destination device
@@ -377,6 +457,14 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @return set of disjoint shortest path pairs
      */
     public Set<DisjointPath> getDisjointPaths(DeviceId src, DeviceId dst, LinkWeight weight) {
+        if (!isCacheable(weight)) {
+            return computeDisjointPaths(src, dst, weight);
+        }
+        return pathCache.getDisjointPaths(src, dst, weight,
+                                          () -> computeDisjointPaths(src, dst, weight));
+    }
+
+    private Set<DisjointPath> computeDisjointPaths(DeviceId src, DeviceId dst, LinkWeight weight) {
         DefaultTopologyVertex srcV = new DefaultTopologyVertex(src);
         DefaultTopologyVertex dstV = new DefaultTopologyVertex(dst);
         Set<TopologyVertex> vertices = graph.getVertexes();
@@ -490,9 +578,9 @@ public class DefaultTopology extends AbstractModel implements Topology {
     }
 
     // Builds the topology clusters and returns the id-cluster bindings.
-    private ImmutableMap<ClusterId, TopologyCluster> buildTopologyClusters() {
+    private ImmutableMap<ClusterId, TopologyCluster> buildTopologyClusters(
+            SccResult<TopologyVertex, TopologyEdge> results) {
         ImmutableMap.Builder<ClusterId, TopologyCluster> clusterBuilder = ImmutableMap.builder();
-        SccResult<TopologyVertex, TopologyEdge> results = clusterResults.get();
 
         // Extract both vertexes and edges from the results; the lists form
         // pairs along the same index.
@@ -516,10 +604,10 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     // Finds the vertex whose device id is the lexicographical minimum in the
     // specified set.
-    private TopologyVertex findRoot(Set<TopologyVertex> vertexSet) {
+    static TopologyVertex findRoot(Set<TopologyVertex> vertexSet) {
         TopologyVertex minVertex = null;
         for (TopologyVertex vertex : vertexSet) {
-            if ((minVertex == null) || (minVertex.deviceId()
+            if ((minVertex == null) || (vertex.deviceId()
                     .toString().compareTo(minVertex.deviceId().toString()) < 0)) {
                 minVertex = vertex;
             }
@@ -536,6 +624,21 @@ public class DefaultTopology extends AbstractModel implements Topology {
         return builder.build();
     }
 
+    // Processes a map of broadcast sets for each cluster, carrying forward
+    // the sets of the clusters which have not changed.
+    private ImmutableSetMultimap<ClusterId, ConnectPoint> buildBroadcastSets(
+            IncrementalClusterSearch search, ImmutableSetMultimap<ClusterId, ConnectPoint> previous) {
+        Builder<ClusterId, ConnectPoint> builder = ImmutableSetMultimap.builder();
+        for (TopologyCluster cluster : clusters.get().values()) {
+            if (search.isUnchanged(cluster.id())) {
+                builder.putAll(cluster.id(), previous.get(cluster.id()));
+            } else {
+                addClusterBroadcastSet(cluster, builder);
+            }
+        }
+        return builder.build();
+    }
+
     // Finds all broadcast points for the cluster. These are those connection
     // points which lie along the shortest paths between the cluster root and
     // all other devices within the cluster.
@@ -575,7 +678,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
     }
 
     // Builds cluster-devices, cluster-links and device-cluster indexes.
-    private ClusterIndexes buildIndexes() {
+    private ClusterIndexes buildIndexes(SccResult<TopologyVertex, TopologyEdge> results) {
         // Prepare the index builders
         ImmutableMap.Builder<DeviceId, TopologyCluster> clusterBuilder =
                 ImmutableMap.builder();
@@ -589,13 +692,13 @@ public class DefaultTopology extends AbstractModel implements Topology {
             int i = cluster.id().index();
 
             // Scan through all the cluster vertexes.
-            for (TopologyVertex vertex : clusterResults.get().clusterVertexes().get(i)) {
+            for (TopologyVertex vertex : results.clusterVertexes().get(i)) {
                 devicesBuilder.put(cluster, vertex.deviceId());
                 clusterBuilder.put(vertex.deviceId(), cluster);
             }
 
             // Scan through all the cluster edges.
-            for (TopologyEdge edge : clusterResults.get().clusterEdges().get(i)) {
+            for (TopologyEdge edge : results.clusterEdges().get(i)) {
                 linksBuilder.put(cluster, edge.link());
             }
         }
@@ -610,6 +713,12 @@ public class DefaultTopology extends AbstractModel implements Topology {
         return defaultGraphPathSearch != null ? defaultGraphPathSearch : DIJKSTRA;
     }
 
+    // Other weights may read device or link annotations, which change without
+    // a new topology snapshot, or be created per call and never hit.
+    private boolean isCacheable(LinkWeight weight) {
+        return weight == null || weight == hopCountWeight;
+    }
+
     private LinkWeight linkWeight() {
         return defaultLinkWeight != null ? defaultLinkWeight : hopCountWeight;
     }
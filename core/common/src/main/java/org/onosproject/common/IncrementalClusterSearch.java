@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+import org.onlab.graph.TarjanGraphSearch;
+import org.onlab.graph.TarjanGraphSearch.SccResult;
+import org.onosproject.common.DefaultTopology.ClusterIndexes;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.topology.ClusterId;
+import org.onosproject.net.topology.DefaultTopologyCluster;
+import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.TopologyCluster;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Derives the SCC clusters of a topology graph from those of the previous
+ * topology graph, searching again only the clusters affected by the
+ * differences between the two graphs.
+ * <p>
+ * A cluster is affected if any of its devices or of the links incident to
+ * them has been added, removed or changed. Clusters which may merge because
+ * of a link that became traversable between two different clusters are
+ * affected as well. All other clusters keep their identifiers, devices and
+ * links; the affected ones are searched again and given identifiers not in
+ * use by the unaffected ones.
+ * </p>
+ */
+final class IncrementalClusterSearch {
+
+    private static final TarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN = new TarjanGraphSearch<>();
+
+    private final ImmutableMap<ClusterId, TopologyCluster> clusters;
+    private final ClusterIndexes indexes;
+    private final ImmutableSet<ClusterId> recomputed;
+
+    /**
+     * Computes the clusters of the new graph.
+     *
+     * @param oldGraph    previous topology graph
+     * @param oldClusters clusters of the previous graph
+     * @param oldIndexes  cluster indexes of the previous graph
+     * @param newGraph    current topology graph
+     * @param weight      weight of the links which may be traversed within
+     *                    a cluster; negative for the others
+     */
+    IncrementalClusterSearch(TopologyGraph oldGraph,
+                             Map<ClusterId, TopologyCluster> oldClusters,
+                             ClusterIndexes oldIndexes,
+                             TopologyGraph newGraph,
+                             LinkWeight weight) {
+        Set<TopologyCluster> affected = findAffectedClusters(oldGraph, oldIndexes, newGraph, weight);
+
+        // Search for clusters among the new devices and the remaining
+        // devices of the affected clusters.
+        Set<TopologyVertex> region = new HashSet<>();
+        for (TopologyVertex vertex : newGraph.getVertexes()) {
+            TopologyCluster cluster = oldIndexes.clustersByDevice.get(vertex.deviceId());
+            if (cluster == null || affected.contains(cluster)) {
+                region.add(vertex);
+            }
+        }
+        Set<TopologyEdge> regionEdges = new HashSet<>();
+        for (TopologyVertex vertex : region) {
+            for (TopologyEdge edge : newGraph.getEdgesFrom(vertex)) {
+                if (region.contains(edge.dst())) {
+                    regionEdges.add(edge);
+                }
+            }
+        }
+        SccResult<TopologyVertex, TopologyEdge> results =
+                TARJAN.search(new DefaultTopologyGraph(region, regionEdges), weight);
+
+        ImmutableMap.Builder<ClusterId, TopologyCluster> clusterBuilder = ImmutableMap.builder();
+        ImmutableMap.Builder<DeviceId, TopologyCluster> byDeviceBuilder = ImmutableMap.builder();
+        ImmutableSetMultimap.Builder<TopologyCluster, DeviceId> devicesBuilder = ImmutableSetMultimap.builder();
+        ImmutableSetMultimap.Builder<TopologyCluster, Link> linksBuilder = ImmutableSetMultimap.builder();
+
+        // Carry forward the unaffected clusters.
+        Set<Integer> usedIds = new HashSet<>();
+        for (TopologyCluster cluster : oldClusters.values()) {
+            if (affected.contains(cluster)) {
+                continue;
+            }
+            usedIds.add(cluster.id().index());
+            clusterBuilder.put(cluster.id(), cluster);
+            for (DeviceId deviceId : oldIndexes.devicesByCluster.get(cluster)) {
+                byDeviceBuilder.put(deviceId, cluster);
+                devicesBuilder.put(cluster, deviceId);
+            }
+            linksBuilder.putAll(cluster, oldIndexes.linksByCluster.get(cluster));
+        }
+
+        // Add the clusters found in the searched region.
+        ImmutableSet.Builder<ClusterId> recomputedBuilder = ImmutableSet.builder();
+        int nextId = 0;
+        for (int i = 0, n = results.clusterCount(); i < n; i++) {
+            while (usedIds.contains(nextId)) {
+                nextId++;
+            }
+            Set<TopologyVertex> vertexSet = results.clusterVertexes().get(i);
+            Set<TopologyEdge> edgeSet = results.clusterEdges().get(i);
+
+            ClusterId cid = ClusterId.clusterId(nextId++);
+            TopologyCluster cluster = new DefaultTopologyCluster(cid, vertexSet.size(), edgeSet.size(),
+                                                                 DefaultTopology.findRoot(vertexSet));
+            clusterBuilder.put(cid, cluster);
+            recomputedBuilder.add(cid);
+            for (TopologyVertex vertex : vertexSet) {
+                byDeviceBuilder.put(vertex.deviceId(), cluster);
+                devicesBuilder.put(cluster, vertex.deviceId());
+            }
+            for (TopologyEdge edge : edgeSet) {
+                linksBuilder.put(cluster, edge.link());
+            }
+        }
+
+        this.clusters = clusterBuilder.build();
+        this.indexes = new ClusterIndexes(byDeviceBuilder.build(),
+                                          devicesBuilder.build(),
+                                          linksBuilder.build());
+        this.recomputed = recomputedBuilder.build();
+    }
+
+    /**
+     * Returns the clusters of the new graph.
+     *
+     * @return clusters by identifier
+     */
+    ImmutableMap<ClusterId, TopologyCluster> clusters() {
+        return clusters;
+    }
+
+    /**
+     * Returns the cluster indexes of the new graph.
+     *
+     * @return cluster indexes
+     */
+    ClusterIndexes indexes() {
+        return indexes;
+    }
+
+    /**
+     * Indicates whether the given cluster has been carried forward unchanged
+     * from the previous graph.
+     *
+     * @param clusterId cluster identifier
+     * @return true if the cluster is unchanged
+     */
+    boolean isUnchanged(ClusterId clusterId) {
+        return clusters.containsKey(clusterId) && !recomputed.contains(clusterId);
+    }
+
+    // Finds the clusters of the old graph which may have changed.
+    private static Set<TopologyCluster> findAffectedClusters(TopologyGraph oldGraph,
+                                                             ClusterIndexes oldIndexes,
+                                                             TopologyGraph newGraph,
+                                                             LinkWeight weight) {
+        Set<DeviceId> touched = new HashSet<>();
+        for (TopologyVertex vertex : oldGraph.getVertexes()) {
+            if (!newGraph.getVertexes().contains(vertex)) {
+                touched.add(vertex.deviceId());
+            }
+        }
+
+        Map<Link, TopologyEdge> oldEdges = Maps.newHashMapWithExpectedSize(oldGraph.getEdges().size());
+        oldGraph.getEdges().forEach(e -> oldEdges.put(e.link(), e));
+
+        // Links which became traversable; these are the only ones able to
+        // merge clusters.
+        List<TopologyEdge> joining = new ArrayList<>();
+        for (TopologyEdge edge : newGraph.getEdges()) {
+            TopologyEdge oldEdge = oldEdges.remove(edge.link());
+            if (oldEdge != null && sameLink(oldEdge.link(), edge.link())) {
+                continue;
+            }
+            touched.add(edge.src().deviceId());
+            touched.add(edge.dst().deviceId());
+
+            TopologyCluster srcCluster = oldIndexes.clustersByDevice.get(edge.src().deviceId());
+            TopologyCluster dstCluster = oldIndexes.clustersByDevice.get(edge.dst().deviceId());
+            boolean traversable = weight.weight(edge) >= 0 &&
+                    (oldEdge == null || weight.weight(oldEdge) < 0);
+            if (traversable && (srcCluster == null || srcCluster != dstCluster)) {
+                joining.add(edge);
+            }
+        }
+
+        // Whatever remains are the links that have gone away.
+        for (TopologyEdge edge : oldEdges.values()) {
+            touched.add(edge.src().deviceId());
+            touched.add(edge.dst().deviceId());
+        }
+
+        // Any new cycle through a joining link passes only through devices
+        // reachable from the link destination and reaching its source.
+        if (!joining.isEmpty()) {
+            Set<TopologyVertex> forward = reach(joining, TopologyEdge::dst,
+                                                v -> newGraph.getEdgesFrom(v), TopologyEdge::dst, weight);
+            Set<TopologyVertex> backward = reach(joining, TopologyEdge::src,
+                                                 v -> newGraph.getEdgesTo(v), TopologyEdge::src, weight);
+            forward.retainAll(backward);
+            forward.forEach(v -> touched.add(v.deviceId()));
+        }
+
+        Set<TopologyCluster> affected = new HashSet<>();
+        for (DeviceId deviceId : touched) {
+            TopologyCluster cluster = oldIndexes.clustersByDevice.get(deviceId);
+            if (cluster != null) {
+                affected.add(cluster);
+            }
+        }
+        return affected;
+    }
+
+    // Collects the vertexes reachable over traversable edges from the given
+    // end-points of the given edges.
+    private static Set<TopologyVertex> reach(List<TopologyEdge> edges,
+                                             Function<TopologyEdge, TopologyVertex> start,
+                                             Function<TopologyVertex, Set<TopologyEdge>> next,
+                                             Function<TopologyEdge, TopologyVertex> other,
+                                             LinkWeight weight) {
+        Set<TopologyVertex> reached = new HashSet<>();
+        Queue<TopologyVertex> queue = new ArrayDeque<>();
+        for (TopologyEdge edge : edges) {
+            TopologyVertex vertex = start.apply(edge);
+            if (reached.add(vertex)) {
+                queue.add(vertex);
+            }
+        }
+        while (!queue.isEmpty()) {
+            for (TopologyEdge edge : next.apply(queue.remove())) {
+                TopologyVertex vertex = other.apply(edge);
+                if (weight.weight(edge) >= 0 && reached.add(vertex)) {
+                    queue.add(vertex);
+                }
+            }
+        }
+        return reached;
+    }
+
+    // Indicates whether the link has kept all attributes which are exposed
+    // through the cluster link indexes or which affect traversal.
+    private static boolean sameLink(Link oldLink, Link newLink) {
+        return oldLink.state() == newLink.state() &&
+                Objects.equals(oldLink.providerId(), newLink.providerId()) &&
+                Objects.equals(oldLink.annotations(), newLink.annotations());
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.DisjointPath;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of paths computed on a single topology snapshot.
+ * <p>
+ * Entries are keyed by source, destination and the identity of the link
+ * weight and path search functions. Callers must only cache paths computed
+ * with functions that depend on nothing but the topology graph itself.
+ * </p>
+ */
+final class PathCache {
+
+    private final Cache<Key, Set<Path>> paths;
+    private final Cache<Key, Set<DisjointPath>> disjointPaths;
+
+    /**
+     * Creates a new empty path cache.
+     *
+     * @param maxSize maximum number of cached entries of each kind
+     */
+    PathCache(long maxSize) {
+        this.paths = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+        this.disjointPaths = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+    }
+
+    /**
+     * Returns the cached paths for the given key, computing them if needed.
+     *
+     * @param src      source device
+     * @param dst      destination device
+     * @param weight   link weight function
+     * @param search   path search function
+     * @param compute  supplier of the paths on a cache miss
+     * @return set of paths
+     */
+    Set<Path> getPaths(DeviceId src, DeviceId dst, Object weight, Object search,
+                       Supplier<Set<Path>> compute) {
+        return get(paths, new Key(src, dst, weight, search), compute);
+    }
+
+    /**
+     * Returns the cached disjoint paths for the given key, computing them if
+     * needed.
+     *
+     * @param src      source device
+     * @param dst      destination device
+     * @param weight   link weight function
+     * @param compute  supplier of the paths on a cache miss
+     * @return set of disjoint paths
+     */
+    Set<DisjointPath> getDisjointPaths(DeviceId src, DeviceId dst, Object weight,
+                                       Supplier<Set<DisjointPath>> compute) {
+        return get(disjointPaths, new Key(src, dst, weight, null), compute);
+    }
+
+    private static <P> Set<P> get(Cache<Key, Set<P>> cache, Key key, Supplier<Set<P>> compute) {
+        Set<P> result = cache.getIfPresent(key);
+        if (result == null) {
+            result = compute.get();
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the combined hit, miss and eviction statistics of the cache.
+     *
+     * @return cache statistics
+     */
+    CacheStats stats() {
+        return paths.stats().plus(disjointPaths.stats());
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return number of entries
+     */
+    long size() {
+        return paths.size() + disjointPaths.size();
+    }
+
+    /**
+     * Copies into this cache those entries of the previous snapshot's cache
+     * which remain valid for the given graph.
+     * <p>
+     * If the new graph has any link that is new or differs from its previous
+     * incarnation, shorter paths may have appeared anywhere and nothing is
+     * carried forward. Otherwise, only the entries whose paths traverse a link
+     * that no longer exists are dropped.
+     * </p>
+     *
+     * @param previous cache of the previous topology snapshot
+     * @param oldGraph previous topology graph
+     * @param newGraph current topology graph
+     */
+    void carryForward(PathCache previous, TopologyGraph oldGraph, TopologyGraph newGraph) {
+        if (previous.size() == 0) {
+            return;
+        }
+
+        Map<Link, Link> oldLinks = Maps.newHashMapWithExpectedSize(oldGraph.getEdges().size());
+        oldGraph.getEdges().forEach(e -> oldLinks.put(e.link(), e.link()));
+        for (TopologyEdge edge : newGraph.getEdges()) {
+            Link link = edge.link();
+            if (!sameLink(oldLinks.remove(link), link)) {
+                return;
+            }
+        }
+
+        // Whatever remains are the links that have gone away.
+        Set<Link> removed = oldLinks.keySet();
+        previous.paths.asMap().forEach((key, value) -> {
+            if (value.stream().noneMatch(p -> traverses(p, removed))) {
+                paths.put(key, value);
+            }
+        });
+        previous.disjointPaths.asMap().forEach((key, value) -> {
+            if (value.stream().noneMatch(p -> traverses(p.primary(), removed) ||
+                    traverses(p.backup(), removed))) {
+                disjointPaths.put(key, value);
+            }
+        });
+    }
+
+    // Indicates whether the link has kept all attributes which may affect
+    // its weight.
+    private static boolean sameLink(Link oldLink, Link newLink) {
+        return oldLink != null &&
+                oldLink.state() == newLink.state() &&
+                Objects.equals(oldLink.annotations(), newLink.annotations());
+    }
+
+    private static boolean traverses(Path path, Set<Link> links) {
+        return path != null && !links.isEmpty() && path.links().stream().anyMatch(links::contains);
+    }
+
+    // Path query key; weight and search functions are compared by identity.
+    private static final class Key {
+        private final DeviceId src;
+        private final DeviceId dst;
+        private final Object weight;
+        private final Object search;
+
+        private Key(DeviceId src, DeviceId dst, Object weight, Object search) {
+            this.src = src;
+            this.dst = dst;
+            this.weight = weight;
+            this.search = search;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(src, dst, System.identityHashCode(weight),
+                                System.identityHashCode(search));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return Objects.equals(src, other.src) && Objects.equals(dst, other.dst) &&
+                        weight == other.weight && search == other.search;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.codec.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.statistic.FlowLoadHistory;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.onosproject.net.NetTestTools.connectPoint;
+
+/**
+ * Unit tests for FlowLoadHistory codec.
+ */
+public class FlowLoadHistoryCodecTest {
+
+    /**
+     * Tests encoding of a FlowLoadHistory object.
+     */
+    @Test
+    public void testFlowLoadHistoryEncode() {
+        final FlowLoadHistory history =
+                new FlowLoadHistory(connectPoint("1", 2), FlowId.valueOf(7),
+                                    new long[]{1000, 3000}, new long[]{1000, 2000},
+                                    new long[]{100, 400}, new long[]{1, 8});
+        final JsonNode node = new FlowLoadHistoryCodec()
+                .encode(history, new MockCodecContext());
+        assertThat(node.get("id").asText(), is("7"));
+        assertThat(node.get("device").asText(), is("of:1"));
+        assertThat(node.get("port").asText(), is("2"));
+        assertThat(node.get("samples").size(), is(2));
+
+        final JsonNode sample = node.get("samples").get(1);
+        assertThat(sample.get("time").asLong(), is(3000L));
+        assertThat(sample.get("duration").asLong(), is(2000L));
+        assertThat(sample.get("bytes").asLong(), is(400L));
+        assertThat(sample.get("packets").asLong(), is(8L));
+        assertThat(sample.get("byteRate").asLong(), is(200L));
+        assertThat(sample.get("packetRate").asLong(), is(4L));
+    }
+}
@@ -33,6 +33,10 @@ import org.onosproject.net.topology.GraphDescription;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.TopologyCluster;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import static com.google.common.collect.ImmutableSet.of;
@@ -100,6 +104,113 @@ public class DefaultTopologyTest {
         assertEquals("incorrect path count", 1, paths.size());
     }
 
+    @Test
+    public void pathCaching() {
+        Set<Path> paths = dt.getPaths(D1, D3);
+        assertSame("cached paths expected", paths, dt.getPaths(D1, D3));
+        assertEquals("incorrect hit count", 1, dt.pathCacheStats().hitCount());
+        assertEquals("incorrect miss count", 1, dt.pathCacheStats().missCount());
+
+        // Other weights may depend on more than the topology; never cached.
+        Set<Path> weighted = dt.getPaths(D1, D3, WEIGHT);
+        assertNotSame("weighted paths should not be cached", weighted, dt.getPaths(D1, D3, WEIGHT));
+        dt.getDisjointPaths(D1, D3, WEIGHT);
+        assertEquals("weighted paths should bypass the cache", 2, dt.pathCacheStats().requestCount());
+    }
+
+    @Test
+    public void pathCacheCarriedForward() {
+        Set<Path> viaD2 = dt.getPaths(D1, D2);
+        Set<Path> viaD4 = dt.getPaths(D4, D3);
+        dt.getPaths(D1, D3);
+
+        // Drop the links between D1 and D2 only.
+        Set<Link> links = of(link("3", 2, "2", 2), link("2", 2, "3", 2),
+                             link("1", 3, "4", 3), link("4", 3, "1", 3),
+                             link("3", 4, "4", 4), link("4", 4, "3", 4));
+        DefaultTopology next = new DefaultTopology(PID, description(links), null, dt);
+        assertSame("untouched paths should be carried forward", viaD4, next.getPaths(D4, D3));
+        assertNotSame("affected paths should be recomputed", viaD2, next.getPaths(D1, D2));
+        assertEquals("incorrect path count", 1, next.getPaths(D1, D3).size());
+
+        // Adding a link back may shorten any path, so nothing is kept.
+        DefaultTopology last = new DefaultTopology(PID, description(links), null, next);
+        Set<Link> restored = of(link("1", 1, "2", 1), link("2", 1, "1", 1),
+                                link("3", 2, "2", 2), link("2", 2, "3", 2),
+                                link("1", 3, "4", 3), link("4", 3, "1", 3),
+                                link("3", 4, "4", 4), link("4", 4, "3", 4));
+        last.getPaths(D1, D3);
+        DefaultTopology full = new DefaultTopology(PID, description(restored), null, last);
+        assertEquals("incorrect path count", 2, full.getPaths(D1, D3).size());
+        assertEquals("nothing should be carried forward", 0, full.pathCacheStats().hitCount());
+    }
+
+    private static GraphDescription description(Set<Link> links) {
+        Set<Device> devices = of(device("1"), device("2"),
+                                 device("3"), device("4"),
+                                 device("5"));
+        return new DefaultGraphDescription(System.nanoTime(), System.currentTimeMillis(),
+                                           devices, links);
+    }
+
+    @Test
+    public void incrementalClusters() {
+        Random random = new Random(42);
+        List<Device> devices = new ArrayList<>();
+        for (int i = 1; i <= 24; i++) {
+            devices.add(device(Integer.toString(i)));
+        }
+        Set<Device> present = new HashSet<>(devices);
+        Set<Link> links = new HashSet<>();
+        DefaultTopology previous = null;
+
+        for (int round = 0; round < 200; round++) {
+            // Apply a handful of random device and link changes.
+            for (int change = random.nextInt(4); change >= 0; change--) {
+                Device d = devices.get(random.nextInt(devices.size()));
+                Device e = devices.get(random.nextInt(devices.size()));
+                int op = random.nextInt(10);
+                if (op == 0) {
+                    if (!present.remove(d)) {
+                        present.add(d);
+                    }
+                } else if (op < 4 && !links.isEmpty()) {
+                    links.remove(new ArrayList<>(links).get(random.nextInt(links.size())));
+                } else if (d != e) {
+                    int port = 1 + random.nextInt(1000);
+                    Link.Type type = random.nextInt(8) == 0 ? Link.Type.INDIRECT : Link.Type.DIRECT;
+                    Link.State state = random.nextInt(8) == 0 ? Link.State.INACTIVE : Link.State.ACTIVE;
+                    links.add(link(d.id(), port, e.id(), port, type, state));
+                    if (random.nextBoolean()) {
+                        links.add(link(e.id(), port, d.id(), port, type, state));
+                    }
+                }
+            }
+
+            long now = System.nanoTime();
+            GraphDescription desc = new DefaultGraphDescription(now, now, present, links);
+            DefaultTopology full = new DefaultTopology(PID, desc);
+            DefaultTopology incremental = new DefaultTopology(PID, desc, null, previous);
+            assertSameClusters(full, incremental);
+            previous = incremental;
+        }
+    }
+
+    // Checks that both topologies partition the devices and links into the
+    // same clusters with the same roots and broadcast tree sizes.
+    private static void assertSameClusters(DefaultTopology expected, DefaultTopology actual) {
+        assertEquals("incorrect cluster count", expected.clusterCount(), actual.clusterCount());
+        for (TopologyCluster ec : expected.getClusters()) {
+            TopologyCluster ac = actual.getCluster(ec.root().deviceId());
+            assertNotNull("missing cluster", ac);
+            assertEquals("incorrect root", ec.root(), ac.root());
+            assertEquals("incorrect devices", expected.getClusterDevices(ec), actual.getClusterDevices(ac));
+            assertEquals("incorrect links", expected.getClusterLinks(ec), actual.getClusterLinks(ac));
+            assertEquals("incorrect broadcast set size", expected.broadcastSetSize(ec.id()),
+                         actual.broadcastSetSize(ac.id()));
+        }
+    }
+
     @Test
     public void pointRelated() {
         assertTrue("should be infrastructure point",
@@ -129,6 +240,17 @@ public class DefaultTopologyTest {
                 .build();
     }
 
+    // Short-hand for creating a link of the given type and state.
+    private static Link link(DeviceId src, int sp, DeviceId dst, int dp,
+                             Link.Type type, Link.State state) {
+        return DefaultLink.builder().providerId(PID)
+                .src(new ConnectPoint(src, portNumber(sp)))
+                .dst(new ConnectPoint(dst, portNumber(dp)))
+                .type(type)
+                .state(state)
+                .build();
+    }
+
     // Crates a new device with the specified id
     public static Device device(String id) {
         return new DefaultDevice(PID, did(id), Device.Type.SWITCH,
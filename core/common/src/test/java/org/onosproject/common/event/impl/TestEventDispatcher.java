@@ -45,4 +45,13 @@ public class TestEventDispatcher extends DefaultEventSinkRegistry
     public long getDispatchTimeLimit() {
         return 0;
     }
+
+    @Override
+    public void setDispatchThreads(int threads) {
+    }
+
+    @Override
+    public int getDispatchThreads() {
+        return 0;
+    }
 }
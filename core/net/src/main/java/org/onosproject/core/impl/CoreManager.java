@@ -94,6 +94,11 @@ public class CoreManager implements CoreService {
             label = "Maximum number of millis an event sink has to process an event")
     private int maxEventTimeLimit = DEFAULT_EVENT_TIME;
 
+    private static final int DEFAULT_DISPATCH_THREADS = 1;
+    @Property(name = "eventDispatchThreads", intValue = DEFAULT_DISPATCH_THREADS,
+            label = "Number of threads dispatching events; events are ordered per subject only")
+    private int eventDispatchThreads = DEFAULT_DISPATCH_THREADS;
+
     private static final boolean DEFAULT_PERFORMANCE_CHECK = false;
     @Property(name = "sharedThreadPerformanceCheck", boolValue = DEFAULT_PERFORMANCE_CHECK,
             label = "Enable queue performance check on shared pool")
@@ -190,13 +195,22 @@ public class CoreManager implements CoreService {
             log.warn("maxEventTimeLimit must be greater than 1");
         }
 
+        Integer dispatchThreads = Tools.getIntegerProperty(properties, "eventDispatchThreads");
+        if (dispatchThreads != null && dispatchThreads > 0) {
+            eventDispatchThreads = dispatchThreads;
+            eventDeliveryService.setDispatchThreads(eventDispatchThreads);
+        } else if (dispatchThreads != null) {
+            log.warn("eventDispatchThreads must be greater than 0");
+        }
+
         Boolean performanceCheck = Tools.isPropertyEnabled(properties, "sharedThreadPerformanceCheck");
         if (performanceCheck != null) {
             calculatePoolPerformance = performanceCheck;
             SharedExecutors.setCalculatePoolPerformance(calculatePoolPerformance, metricsService);
         }
 
-        log.info("Settings: sharedThreadPoolSize={}, maxEventTimeLimit={}, calculatePoolPerformance={}",
-                 sharedThreadPoolSize, maxEventTimeLimit, calculatePoolPerformance);
+        log.info("Settings: sharedThreadPoolSize={}, maxEventTimeLimit={}, eventDispatchThreads={}, " +
+                         "calculatePoolPerformance={}",
+                 sharedThreadPoolSize, maxEventTimeLimit, eventDispatchThreads, calculatePoolPerformance);
     }
 }
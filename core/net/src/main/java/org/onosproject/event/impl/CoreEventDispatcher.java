@@ -15,23 +15,41 @@
  */
 package org.onosproject.event.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.SharedExecutors;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.DefaultEventSinkRegistry;
 import org.onosproject.event.Event;
 import org.onosproject.event.EventDeliveryService;
 import org.onosproject.event.EventSink;
+import org.onosproject.net.Device;
+import org.onosproject.net.Host;
+import org.onosproject.net.Link;
+import org.onosproject.net.LinkKey;
+import org.onosproject.net.intent.Intent;
 import org.slf4j.Logger;
 
+import java.util.List;
+import java.util.Map;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
@@ -42,6 +60,14 @@ import static org.onosproject.security.AppGuard.checkPermission;
 import static org.onosproject.security.AppPermission.Type.*;
 /**
  * Simple implementation of an event dispatching service.
+ * <p>
+ * Events are dispatched by one or more dispatch shards, each with its own
+ * queue, thread and watchdog. Events are assigned to shards by their subject,
+ * so that events concerning the same device, link, host or intent key are
+ * always delivered in the order in which they were posted. Events with other
+ * subjects are assigned to shards by their event class. With a single shard,
+ * which is the default, all events are delivered in the order of posting.
+ * </p>
  */
 @Component(immediate = true)
 @Service
@@ -54,35 +80,51 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
     private static final long DEFAULT_EXECUTE_MS = 5_000; // ms
     private static final long WATCHDOG_MS = 250; // ms
 
-    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    // Default number of dispatch shards; one preserves total event ordering.
+    private static final int DEFAULT_DISPATCH_THREADS = 1;
 
-    private final ExecutorService executor =
-            newSingleThreadExecutor(groupedThreads("onos/event", "dispatch-%d", log));
+    private static final String METRICS_COMPONENT = "EventDispatcher";
+    private static final String METRICS_SINKS = "sinks";
+    private static final String QUEUE_DEPTH = "queueDepth";
 
     @SuppressWarnings("unchecked")
     private static final Event KILL_PILL = new AbstractEvent(null, 0) {
     };
 
-    private DispatchLoop dispatchLoop;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private volatile List<DispatchShard> shards = ImmutableList.of();
     private long maxProcessMillis = DEFAULT_EXECUTE_MS;
 
     // Means to detect long-running sinks
     private TimerTask watchdog;
-    private EventSink lastSink;
-    private long lastStart = 0;
-    private Future<?> dispatchFuture;
+
+    private MetricsComponent metricsComponent;
+    private final Map<Class<?>, Timer> sinkTimers = Maps.newConcurrentMap();
 
     @Override
     public void post(Event event) {
-        if (!events.add(event)) {
+        List<DispatchShard> current = shards;
+        if (current.isEmpty()) {
+            log.warn("Dispatcher is not active; dropping event {}", event);
+            return;
+        }
+        DispatchShard shard = current.get(shardIndex(event, current.size()));
+        if (!shard.events.add(event)) {
             log.error("Unable to post event {}", event);
+        } else if (shard.retired && shards != current) {
+            // The shard was retired while we were posting; move the event on.
+            redispatch(shard);
         }
     }
 
     @Activate
     public void activate() {
-        dispatchLoop = new DispatchLoop();
-        dispatchFuture = executor.submit(dispatchLoop);
+        if (metricsService != null) {
+            metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        }
+        shards = createShards(DEFAULT_DISPATCH_THREADS);
         watchdog = new Watchdog();
         SharedExecutors.getTimer().schedule(watchdog, WATCHDOG_MS, WATCHDOG_MS);
         log.info("Started");
@@ -90,9 +132,10 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
 
     @Deactivate
     public void deactivate() {
-        dispatchLoop.stop();
         watchdog.cancel();
-        post(KILL_PILL);
+        List<DispatchShard> oldShards = shards;
+        shards = ImmutableList.of();
+        oldShards.forEach(DispatchShard::retire);
         log.info("Stopped");
     }
 
@@ -110,10 +153,160 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
         return maxProcessMillis;
     }
 
-    // Auxiliary event dispatching loop that feeds off the events queue.
+    @Override
+    public synchronized void setDispatchThreads(int threads) {
+        checkPermission(EVENT_WRITE);
+        checkArgument(threads > 0, "Number of dispatch threads must be positive");
+        List<DispatchShard> oldShards = shards;
+        if (oldShards.size() == threads) {
+            return;
+        }
+
+        // Install the new shards, then retire the old ones and re-post
+        // whatever they have not yet dispatched, so that no events are lost.
+        // Events in flight during the switch-over may be dispatched out of
+        // order with respect to the ones posted after it.
+        shards = createShards(threads);
+        oldShards.forEach(DispatchShard::retire);
+        oldShards.forEach(this::redispatch);
+        log.info("Reconfigured with {} dispatch threads", threads);
+    }
+
+    @Override
+    public int getDispatchThreads() {
+        checkPermission(EVENT_READ);
+        return shards.size();
+    }
+
+    // Moves any undelivered events of a retired shard to the current shards.
+    private void redispatch(DispatchShard shard) {
+        List<Event> pending = Lists.newArrayList();
+        shard.events.drainTo(pending);
+        pending.stream().filter(event -> event != KILL_PILL).forEach(this::post);
+    }
+
+    private List<DispatchShard> createShards(int count) {
+        ImmutableList.Builder<DispatchShard> builder = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            builder.add(new DispatchShard(i));
+        }
+        return builder.build();
+    }
+
+    // Selects the shard for the event using a subject key which remains
+    // stable across successive events pertaining to the same entity.
+    private static int shardIndex(Event event, int count) {
+        if (count == 1) {
+            return 0;
+        }
+        return Math.floorMod(shardKey(event).hashCode(), count);
+    }
+
+    private static Object shardKey(Event event) {
+        Object subject = event.subject();
+        if (subject instanceof Device) {
+            return ((Device) subject).id();
+        } else if (subject instanceof Link) {
+            return LinkKey.linkKey((Link) subject);
+        } else if (subject instanceof Host) {
+            return ((Host) subject).id();
+        } else if (subject instanceof Intent) {
+            return ((Intent) subject).key();
+        }
+        return event.getClass();
+    }
+
+    // Returns the latency timer for sinks of the specified event class.
+    private Timer sinkTimer(Class<?> eventClass) {
+        if (metricsComponent == null) {
+            return null;
+        }
+        return sinkTimers.computeIfAbsent(eventClass, c -> {
+            MetricsFeature feature = metricsComponent.registerFeature(METRICS_SINKS);
+            return metricsService.createTimer(metricsComponent, feature, c.getSimpleName());
+        });
+    }
+
+    // Single dispatch lane with its own queue, thread and watchdog state.
+    private final class DispatchShard {
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private final ExecutorService executor;
+        private final MetricsFeature metricsFeature;
+
+        private DispatchLoop dispatchLoop;
+        private Future<?> dispatchFuture;
+        private volatile EventSink lastSink;
+        private volatile long lastStart = 0;
+        private volatile boolean retired = false;
+
+        private DispatchShard(int index) {
+            executor = newSingleThreadExecutor(
+                    groupedThreads("onos/event", "dispatch-" + index + "-%d", log));
+            if (metricsComponent != null) {
+                metricsFeature = metricsComponent.registerFeature("shard-" + index);
+                metricsService.removeMetric(metricsComponent, metricsFeature, QUEUE_DEPTH);
+                metricsService.registerMetric(metricsComponent, metricsFeature, QUEUE_DEPTH,
+                                              (Gauge<Integer>) events::size);
+            } else {
+                metricsFeature = null;
+            }
+            start();
+        }
+
+        private synchronized void start() {
+            dispatchLoop = new DispatchLoop(this);
+            dispatchFuture = executor.submit(dispatchLoop);
+        }
+
+        // Cancels the stuck dispatch loop and submits a new one.
+        private synchronized void restart() {
+            dispatchLoop.stop();
+            dispatchFuture.cancel(true);
+            start();
+        }
+
+        // Stops the dispatch loop; no further events will be taken from
+        // the queue once the event currently being processed is done.
+        private synchronized void retire() {
+            retired = true;
+            dispatchLoop.stop();
+            events.add(KILL_PILL);
+            executor.shutdown();
+            if (metricsFeature != null) {
+                metricsService.removeMetric(metricsComponent, metricsFeature, QUEUE_DEPTH);
+            }
+        }
+
+        private void checkTimeLimit() {
+            if (retired) {
+                return;
+            }
+            long start = lastStart;
+            long delta = System.currentTimeMillis() - start;
+            if (start > 0 && delta > maxProcessMillis) {
+                lastStart = 0;
+                EventSink sink = lastSink;
+                log.warn("Event sink {} exceeded execution time limit: {} ms; spawning new dispatch loop",
+                          sink.getClass().getName(), delta);
+
+                // Notify the sink that it has exceeded its time limit.
+                sink.onProcessLimit();
+
+                // Cancel the old dispatch loop and submit a new one.
+                restart();
+            }
+        }
+    }
+
+    // Auxiliary event dispatching loop that feeds off a shard's events queue.
     private class DispatchLoop implements Runnable {
+        private final DispatchShard shard;
         private volatile boolean stopped;
 
+        DispatchLoop(DispatchShard shard) {
+            this.shard = shard;
+        }
+
         @Override
         public void run() {
             stopped = false;
@@ -121,7 +314,7 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
             while (!stopped) {
                 try {
                     // Fetch the next event and if it is the kill-pill, bail
-                    Event event = events.take();
+                    Event event = shard.events.take();
                     if (event == KILL_PILL) {
                         break;
                     }
@@ -140,10 +333,18 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
         private void process(Event event) {
             EventSink sink = getSink(event.getClass());
             if (sink != null) {
-                lastSink = sink;
-                lastStart = System.currentTimeMillis();
-                sink.process(event);
-                lastStart = 0;
+                shard.lastSink = sink;
+                shard.lastStart = System.currentTimeMillis();
+                long start = System.nanoTime();
+                try {
+                    sink.process(event);
+                } finally {
+                    shard.lastStart = 0;
+                    Timer timer = sinkTimer(event.getClass());
+                    if (timer != null) {
+                        timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
             } else {
                 log.warn("No sink registered for event class {}",
                          event.getClass().getName());
@@ -159,21 +360,7 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
     private class Watchdog extends TimerTask {
         @Override
         public void run() {
-            long delta = System.currentTimeMillis() - lastStart;
-            if (lastStart > 0 && delta > maxProcessMillis) {
-                lastStart = 0;
-                log.warn("Event sink {} exceeded execution time limit: {} ms; spawning new dispatch loop",
-                          lastSink.getClass().getName(), delta);
-
-                // Notify the sink that it has exceeded its time limit.
-                lastSink.onProcessLimit();
-
-                // Cancel the old dispatch loop and submit a new one.
-                dispatchLoop.stop();
-                dispatchLoop = new DispatchLoop();
-                dispatchFuture.cancel(true);
-                dispatchFuture = executor.submit(dispatchLoop);
-            }
+            shards.forEach(DispatchShard::checkTimeLimit);
         }
     }
 }
@@ -15,6 +15,8 @@
  */
 package org.onosproject.net.flowobjective.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.Maps;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -22,9 +24,13 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.osgi.DefaultServiceDirectory;
 import org.onlab.osgi.ServiceDirectory;
 import org.onlab.util.ItemNotFoundException;
+import org.onlab.util.SharedScheduledExecutors;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.mastership.MastershipEvent;
 import org.onosproject.mastership.MastershipListener;
@@ -59,12 +65,18 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.security.AppGuard.checkPermission;
 import static org.onosproject.security.AppPermission.Type.*;
@@ -81,6 +93,13 @@ public class FlowObjectiveManager implements FlowObjectiveService {
     public static final int INSTALL_RETRY_ATTEMPTS = 5;
     public static final long INSTALL_RETRY_INTERVAL = 1000; // ms
 
+    // Maximum number of objectives passed down by one installer task
+    private static final int MAX_BATCH = 100;
+
+    private static final String METRICS_COMPONENT = "FlowObjectiveManager";
+    private static final String QUEUE_DEPTH = "queueDepth";
+    private static final String INSTALL_LATENCY = "installLatency";
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
@@ -113,6 +132,9 @@ public class FlowObjectiveManager implements FlowObjectiveService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DefaultDriverProviderService defaultDriverService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     private final FlowObjectiveStoreDelegate delegate = new InternalStoreDelegate();
 
     private final Map<DeviceId, DriverHandler> driverHandlers = Maps.newConcurrentMap();
@@ -132,8 +154,14 @@ public class FlowObjectiveManager implements FlowObjectiveService {
 
     private ExecutorService executorService;
 
+    private final Map<DeviceId, ObjectiveQueue> objectiveQueues = Maps.newConcurrentMap();
+    private MetricsComponent metricsComponent;
+
     @Activate
     protected void activate() {
+        if (metricsService != null) {
+            metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        }
         executorService = newFixedThreadPool(4, groupedThreads("onos/objective-installer", "%d", log));
         flowObjectiveStore.setDelegate(delegate);
         mastershipService.addListener(mastershipListener);
@@ -148,6 +176,8 @@ public class FlowObjectiveManager implements FlowObjectiveService {
         mastershipService.removeListener(mastershipListener);
         deviceService.removeListener(deviceListener);
         executorService.shutdown();
+        objectiveQueues.values().forEach(ObjectiveQueue::removeMetrics);
+        objectiveQueues.clear();
         pipeliners.clear();
         driverHandlers.clear();
         nextToDevice.clear();
@@ -155,60 +185,151 @@ public class FlowObjectiveManager implements FlowObjectiveService {
     }
 
     /**
-     * Task that passes the flow objective down to the driver. The task will
-     * make a few attempts to find the appropriate driver, then eventually give
-     * up and report an error if no suitable driver could be found.
+     * Queue of the flow objectives submitted for a device. The objectives
+     * are passed down to the driver in the order they were submitted, in
+     * batches drained by a task on the shared installer pool; at most one
+     * such task runs per device at a time. While the device has no pipeliner
+     * the drain is retried on a timer a few times, and the queued objectives
+     * then fail with an error reported back to the user.
      */
-    private class ObjectiveInstaller implements Runnable {
+    private class ObjectiveQueue implements Runnable {
         private final DeviceId deviceId;
-        private final Objective objective;
+        private final Queue<QueuedObjective> objectives = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final MetricsFeature metricsFeature;
+        private final Timer latency;
+
+        // Only accessed by the one task draining the queue
+        private int attempts = 0;
+
+        ObjectiveQueue(DeviceId deviceId) {
+            this.deviceId = deviceId;
+            if (metricsComponent != null) {
+                metricsFeature = metricsComponent.registerFeature(deviceId.toString());
+                metricsService.removeMetric(metricsComponent, metricsFeature, QUEUE_DEPTH);
+                metricsService.registerMetric(metricsComponent, metricsFeature, QUEUE_DEPTH,
+                                              (Gauge<Integer>) depth::get);
+                latency = metricsService.createTimer(metricsComponent, metricsFeature, INSTALL_LATENCY);
+            } else {
+                metricsFeature = null;
+                latency = null;
+            }
+        }
 
-        private final int numAttempts;
+        void add(Objective objective) {
+            objectives.add(new QueuedObjective(objective));
+            depth.incrementAndGet();
+            schedule();
+        }
 
-        public ObjectiveInstaller(DeviceId deviceId, Objective objective) {
-            this(deviceId, objective, 1);
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executorService.execute(this);
+            }
         }
 
-        public ObjectiveInstaller(DeviceId deviceId, Objective objective, int attemps) {
-            this.deviceId = checkNotNull(deviceId);
-            this.objective = checkNotNull(objective);
-            this.numAttempts = checkNotNull(attemps);
+        void removeMetrics() {
+            if (metricsFeature != null) {
+                metricsService.removeMetric(metricsComponent, metricsFeature, QUEUE_DEPTH);
+                metricsService.removeMetric(metricsComponent, metricsFeature, INSTALL_LATENCY);
+            }
         }
 
         @Override
         public void run() {
+            Pipeliner pipeliner = getDevicePipeliner(deviceId);
+            if (pipeliner == null && ++attempts < INSTALL_RETRY_ATTEMPTS) {
+                // Check again later without holding up the installer pool.
+                SharedScheduledExecutors.getSingleThreadExecutor().schedule(() -> {
+                    if (!executorService.isShutdown()) {
+                        executorService.execute(this);
+                    }
+                }, INSTALL_RETRY_INTERVAL, MILLISECONDS);
+                return;
+            }
+
             try {
-                Pipeliner pipeliner = getDevicePipeliner(deviceId);
+                if (pipeliner == null) {
+                    // Otherwise we've tried a few times and failed, report an
+                    // error back to the user for everything queued so far.
+                    failAll();
+                } else {
+                    installBatch(pipeliner);
+                }
+            } finally {
+                attempts = 0;
+
+                // Objectives added while the queue was being drained found it
+                // already scheduled; make sure they are not left behind.
+                scheduled.set(false);
+                if (!objectives.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
 
-                if (pipeliner != null) {
-                    if (objective instanceof NextObjective) {
-                        pipeliner.next((NextObjective) objective);
-                    } else if (objective instanceof ForwardingObjective) {
-                        pipeliner.forward((ForwardingObjective) objective);
-                    } else {
-                        pipeliner.filter((FilteringObjective) objective);
-                    }
-                    //Attempts to check if pipeliner is null for retry attempts
-                } else if (numAttempts < INSTALL_RETRY_ATTEMPTS) {
-                    Thread.sleep(INSTALL_RETRY_INTERVAL);
-                    executorService.execute(new ObjectiveInstaller(deviceId, objective, numAttempts + 1));
+        private void failAll() {
+            QueuedObjective queued;
+            while ((queued = objectives.poll()) != null) {
+                depth.decrementAndGet();
+                Objective objective = queued.objective;
+                objective.context().ifPresent(
+                        c -> c.onError(objective, ObjectiveError.NOPIPELINER));
+            }
+        }
+
+        private void installBatch(Pipeliner pipeliner) {
+            for (int i = 0; i < MAX_BATCH; i++) {
+                QueuedObjective queued = objectives.poll();
+                if (queued == null) {
+                    return;
+                }
+                depth.decrementAndGet();
+                install(pipeliner, queued.objective);
+                if (latency != null) {
+                    latency.update(System.nanoTime() - queued.submitted, NANOSECONDS);
+                }
+            }
+        }
+
+        private void install(Pipeliner pipeliner, Objective objective) {
+            try {
+                if (objective instanceof NextObjective) {
+                    pipeliner.next((NextObjective) objective);
+                } else if (objective instanceof ForwardingObjective) {
+                    pipeliner.forward((ForwardingObjective) objective);
                 } else {
-                    // Otherwise we've tried a few times and failed, report an
-                    // error back to the user.
-                    objective.context().ifPresent(
-                            c -> c.onError(objective, ObjectiveError.NOPIPELINER));
+                    pipeliner.filter((FilteringObjective) objective);
                 }
-                //Excpetion thrown
             } catch (Exception e) {
                 log.warn("Exception while installing flow objective", e);
             }
         }
     }
 
+    // Flow objective waiting in a device queue.
+    private static final class QueuedObjective {
+        private final Objective objective;
+        private final long submitted = System.nanoTime();
+
+        private QueuedObjective(Objective objective) {
+            this.objective = objective;
+        }
+    }
+
+    // Queues the objective behind those previously submitted for the device.
+    private void install(DeviceId deviceId, Objective objective) {
+        checkNotNull(deviceId);
+        checkNotNull(objective);
+        objectiveQueues.computeIfAbsent(deviceId, ObjectiveQueue::new).add(objective);
+    }
+
     @Override
     public void filter(DeviceId deviceId, FilteringObjective filteringObjective) {
         checkPermission(FLOWRULE_WRITE);
-        executorService.execute(new ObjectiveInstaller(deviceId, filteringObjective));
+        install(deviceId, filteringObjective);
     }
 
     @Override
@@ -217,14 +338,14 @@ public class FlowObjectiveManager implements FlowObjectiveService {
         if (queueObjective(deviceId, forwardingObjective)) {
             return;
         }
-        executorService.execute(new ObjectiveInstaller(deviceId, forwardingObjective));
+        install(deviceId, forwardingObjective);
     }
 
     @Override
     public void next(DeviceId deviceId, NextObjective nextObjective) {
         checkPermission(FLOWRULE_WRITE);
         nextToDevice.put(nextObjective.id(), deviceId);
-        executorService.execute(new ObjectiveInstaller(deviceId, nextObjective));
+        install(deviceId, nextObjective);
     }
 
     @Override
@@ -337,6 +458,12 @@ public class FlowObjectiveManager implements FlowObjectiveService {
                 case DEVICE_UPDATED:
                     break;
                 case DEVICE_REMOVED:
+                    // Objectives already queued are still drained, or failed,
+                    // by the task of the detached queue
+                    ObjectiveQueue queue = objectiveQueues.remove(event.subject().id());
+                    if (queue != null) {
+                        queue.removeMetrics();
+                    }
                     break;
                 case DEVICE_SUSPENDED:
                     break;
@@ -404,8 +531,7 @@ public class FlowObjectiveManager implements FlowObjectiveService {
 
                 log.debug("Processing {} pending forwarding objectives for nextId {}",
                          pending.size(), event.subject());
-                pending.forEach(p -> getDevicePipeliner(p.deviceId())
-                                .forward(p.forwardingObjective()));
+                pending.forEach(p -> install(p.deviceId(), p.forwardingObjective()));
             }
         }
     }
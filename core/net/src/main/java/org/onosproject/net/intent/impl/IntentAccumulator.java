@@ -25,10 +25,14 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
- * An accumulator for building batches of intent operations. Only one batch should
- * be in process per instance at a time.
+ * An accumulator for building batches of intent operations. Up to a given
+ * number of batches may be in process per instance at a time; the delegate
+ * signals each completed batch by calling {@link #ready()}.
  */
 public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
@@ -42,23 +46,44 @@ public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
     private final IntentBatchDelegate delegate;
 
-    private volatile boolean ready;
+    private final AtomicInteger inProcess = new AtomicInteger();
+    private volatile int maxInProcess;
 
     /**
-     * Creates an intent operation accumulator.
+     * Creates an intent operation accumulator allowing one batch in process
+     * at a time.
      *
      * @param delegate the intent batch delegate
      */
     protected IntentAccumulator(IntentBatchDelegate delegate) {
+        this(delegate, 1);
+    }
+
+    /**
+     * Creates an intent operation accumulator.
+     *
+     * @param delegate     the intent batch delegate
+     * @param maxInProcess maximum number of batches in process at a time
+     */
+    protected IntentAccumulator(IntentBatchDelegate delegate, int maxInProcess) {
         super(TIMER, DEFAULT_MAX_EVENTS, DEFAULT_MAX_BATCH_MS, DEFAULT_MAX_IDLE_MS);
         this.delegate = delegate;
-        // Assume that the delegate is ready for work at the start
-        ready = true; //TODO validate the assumption that delegate is ready
+        setMaxInProcess(maxInProcess);
+    }
+
+    /**
+     * Sets the maximum number of batches in process at a time.
+     *
+     * @param maxInProcess maximum number of batches in process at a time
+     */
+    public void setMaxInProcess(int maxInProcess) {
+        checkArgument(maxInProcess > 0, "Maximum number of batches must be positive");
+        this.maxInProcess = maxInProcess;
     }
 
     @Override
     public void processItems(List<IntentData> items) {
-        ready = false;
+        inProcess.incrementAndGet();
         delegate.execute(reduce(items));
     }
 
@@ -73,10 +98,13 @@ public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
     @Override
     public boolean isReady() {
-        return ready;
+        return inProcess.get() < maxInProcess;
     }
 
+    /**
+     * Signals that one of the batches in process has completed.
+     */
     public void ready() {
-        ready = true;
+        inProcess.decrementAndGet();
     }
 }
@@ -15,6 +15,9 @@
  */
 package org.onosproject.net.intent.impl;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -23,6 +26,9 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.Tools;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
@@ -42,12 +48,12 @@ import org.onosproject.net.intent.IntentState;
 import org.onosproject.net.intent.IntentStore;
 import org.onosproject.net.intent.IntentStoreDelegate;
 import org.onosproject.net.intent.Key;
-import org.onosproject.net.intent.impl.phase.FinalIntentProcessPhase;
 import org.onosproject.net.intent.impl.phase.IntentProcessPhase;
 import org.osgi.service.component.ComponentContext;
 import org.onosproject.net.resource.ResourceService;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
@@ -55,6 +61,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
@@ -62,10 +69,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.intent.IntentState.*;
 import static org.onosproject.net.intent.constraint.PartialFailureConstraint.intentAllowsPartialFailure;
 import static org.onosproject.net.intent.impl.phase.IntentProcessPhase.newInitialPhase;
+import static org.onosproject.net.intent.impl.phase.IntentProcessPhase.process;
 import static org.onosproject.security.AppGuard.checkPermission;
 import static org.onosproject.security.AppPermission.Type.INTENT_READ;
 import static org.onosproject.security.AppPermission.Type.INTENT_WRITE;
@@ -85,11 +95,18 @@ public class IntentManager
     private static final String INTENT_NULL = "Intent cannot be null";
     private static final String INTENT_ID_NULL = "Intent key cannot be null";
 
+    private static final String METRICS_COMPONENT = "IntentManager";
+    private static final String METRICS_FEATURE = "compiler";
+    private static final String COMPILE_LATENCY = "compileLatency";
+    private static final String AVOIDED_RECOMPILATIONS = "avoidedRecompilations";
+
     private static final EnumSet<IntentState> RECOMPILE
             = EnumSet.of(INSTALL_REQ, FAILED, WITHDRAW_REQ);
     private static final EnumSet<IntentState> WITHDRAW
             = EnumSet.of(WITHDRAW_REQ, WITHDRAWING, WITHDRAWN);
 
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
     private static final boolean DEFAULT_SKIP_RELEASE_RESOURCES_ON_WITHDRAWAL = false;
     @Property(name = "skipReleaseResourcesOnWithdrawal",
             boolValue = DEFAULT_SKIP_RELEASE_RESOURCES_ON_WITHDRAWAL,
@@ -102,6 +119,12 @@ public class IntentManager
             label = "Number of worker threads")
     private int numThreads = DEFAULT_NUM_THREADS;
 
+    private static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 4;
+    @Property(name = "maxInFlightBatches",
+            intValue = DEFAULT_MAX_IN_FLIGHT_BATCHES,
+            label = "Maximum number of intent batches processed at a time")
+    private int maxInFlightBatches = DEFAULT_MAX_IN_FLIGHT_BATCHES;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected CoreService coreService;
 
@@ -123,6 +146,9 @@ public class IntentManager
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ComponentConfigService configService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     private ExecutorService batchExecutor;
     private ExecutorService workerExecutor;
 
@@ -134,12 +160,25 @@ public class IntentManager
     private final TopologyChangeDelegate topoDelegate = new InternalTopoChangeDelegate();
     private final IntentBatchDelegate batchDelegate = new InternalBatchDelegate();
     private IdGenerator idGenerator;
+    private Timer compileLatency;
+    private Counter avoidedRecompilations;
+
+    private final IntentAccumulator accumulator =
+            new IntentAccumulator(batchDelegate, DEFAULT_MAX_IN_FLIGHT_BATCHES);
 
-    private final IntentAccumulator accumulator = new IntentAccumulator(batchDelegate);
+    // Completions of the store writes of the batches in flight, by the keys
+    // of the intents in the batch
+    private final Map<Key, CompletableFuture<Void>> writesInFlight = new ConcurrentHashMap<>();
 
     @Activate
     public void activate() {
         configService.registerProperties(getClass());
+        if (metricsService != null) {
+            MetricsComponent component = metricsService.registerComponent(METRICS_COMPONENT);
+            MetricsFeature feature = component.registerFeature(METRICS_FEATURE);
+            compileLatency = metricsService.createTimer(component, feature, COMPILE_LATENCY);
+            avoidedRecompilations = metricsService.createCounter(component, feature, AVOIDED_RECOMPILATIONS);
+        }
 
         intentInstaller.init(store, trackerService, flowRuleService, flowObjectiveService);
         if (skipReleaseResourcesOnWithdrawal) {
@@ -149,6 +188,7 @@ public class IntentManager
         }
         trackerService.setDelegate(topoDelegate);
         eventDispatcher.addSink(IntentEvent.class, listenerRegistry);
+        // batchExecutor is single-threaded, so batches are written to the store one at a time
         batchExecutor = newSingleThreadExecutor(groupedThreads("onos/intent", "batch", log));
         workerExecutor = newFixedThreadPool(numThreads, groupedThreads("onos/intent", "worker-%d", log));
         idGenerator = coreService.getIdGenerator("intent-ids");
@@ -206,6 +246,14 @@ public class IntentManager
             }
             logConfig("Reconfigured number of worker threads");
         }
+
+        s = Tools.get(context.getProperties(), "maxInFlightBatches");
+        int newMaxInFlightBatches = isNullOrEmpty(s) ? maxInFlightBatches : Integer.parseInt(s.trim());
+        if (newMaxInFlightBatches != maxInFlightBatches && newMaxInFlightBatches > 0) {
+            maxInFlightBatches = newMaxInFlightBatches;
+            accumulator.setMaxInProcess(maxInFlightBatches);
+            log.info("Reconfigured maximum number of intent batches in flight to {}", maxInFlightBatches);
+        }
     }
 
     private void logConfig(String prefix) {
@@ -362,10 +410,20 @@ public class IntentManager
         }
 
         if (compileAllFailed) {
-            // If required, compile all currently failed intents.
+            // If required, compile all currently failed intents, except for
+            // those the tracker will hand over once their end-points are
+            // reachable again. Every instance sees the topology change, so
+            // each only handles the intents it owns, which its own tracker
+            // knows about.
+            int avoided = 0;
             for (Intent intent : getIntents()) {
+                if (!store.isMaster(intent.key())) {
+                    continue;
+                }
                 IntentState state = getIntentState(intent.key());
-                if (RECOMPILE.contains(state) || intentAllowsPartialFailure(intent)) {
+                if (state == FAILED && trackerService.isBlocked(intent.key())) {
+                    avoided++;
+                } else if (RECOMPILE.contains(state) || intentAllowsPartialFailure(intent)) {
                     if (WITHDRAW.contains(state)) {
                         withdraw(intent);
                     } else {
@@ -373,6 +431,12 @@ public class IntentManager
                     }
                 }
             }
+            if (avoided > 0) {
+                log.debug("Skipped recompilation of {} intent(s) with unreachable end-points", avoided);
+                if (avoidedRecompilations != null) {
+                    avoidedRecompilations.inc(avoided);
+                }
+            }
         }
     }
 
@@ -391,25 +455,31 @@ public class IntentManager
             log.debug("Execute {} operation(s).", operations.size());
             log.trace("Execute operations: {}", operations);
 
-            // batchExecutor is single-threaded, so only one batch is in flight at a time
-            CompletableFuture.runAsync(() -> {
+            // Several batches may be in flight at a time, so each operation
+            // waits for any earlier batch with an operation on the same intent
+            // to be written to the store before it is processed.
+            CompletableFuture<Void> written = new CompletableFuture<>();
+            List<CompletableFuture<IntentData>> futures = new ArrayList<>(operations.size());
+            for (IntentData operation : operations) {
+                CompletableFuture<Void> previous = writesInFlight.put(operation.key(), written);
+                CompletableFuture<Void> start = previous != null ? previous : COMPLETED;
                 // process intent until the phase reaches one of the final phases
-                List<CompletableFuture<IntentData>> futures = operations.stream()
-                        .map(x -> CompletableFuture.completedFuture(x)
-                                .thenApply(IntentManager.this::createInitialPhase)
-                                .thenApplyAsync(IntentProcessPhase::process, workerExecutor)
-                                .thenApply(FinalIntentProcessPhase::data)
-                                .exceptionally(e -> {
-                                    //FIXME
-                                    log.warn("Future failed: {}", e);
-                                    return null;
-                                })).collect(Collectors.toList());
-
-                // write multiple data to store in order
-                store.batchWrite(Tools.allOf(futures).join().stream()
-                                         .filter(Objects::nonNull)
-                                         .collect(Collectors.toList()));
-            }, batchExecutor).exceptionally(e -> {
+                futures.add(start.thenApplyAsync(x -> process(createInitialPhase(operation)).data(),
+                                                 workerExecutor)
+                                    .exceptionally(e -> {
+                                        //FIXME
+                                        log.warn("Future failed: {}", e);
+                                        return null;
+                                    }));
+            }
+
+            // write multiple data to store in order, without holding up the
+            // batches that follow
+            Tools.allOf(futures).thenAcceptAsync(
+                    results -> store.batchWrite(results.stream()
+                                                        .filter(Objects::nonNull)
+                                                        .collect(Collectors.toList())),
+                    batchExecutor).exceptionally(e -> {
                 log.error("Error submitting batches:", e);
                 // FIXME incomplete Intents should be cleaned up
                 //       (transition to FAILED, etc.)
@@ -418,8 +488,11 @@ public class IntentManager
                 // TODO: maybe we should do more?
                 log.error("Walk the plank, matey...");
                 return null;
-            }).thenRun(accumulator::ready);
-
+            }).thenRun(() -> {
+                operations.forEach(operation -> writesInFlight.remove(operation.key(), written));
+                written.complete(null);
+                accumulator.ready();
+            });
         }
     }
 
@@ -431,7 +504,12 @@ public class IntentManager
     private class InternalIntentProcessor implements IntentProcessor {
         @Override
         public List<Intent> compile(Intent intent, List<Intent> previousInstallables) {
-            return compilerRegistry.compile(intent, previousInstallables);
+            final Context timer = startTimer(compileLatency);
+            try {
+                return compilerRegistry.compile(intent, previousInstallables);
+            } finally {
+                stopTimer(timer);
+            }
         }
 
         @Override
@@ -15,9 +15,9 @@
  */
 package org.onosproject.net.intent.impl;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -43,23 +43,35 @@ import org.onosproject.net.intent.Intent;
 import org.onosproject.net.intent.IntentData;
 import org.onosproject.net.intent.IntentService;
 import org.onosproject.net.intent.Key;
+import org.onosproject.net.intent.MultiPointToSinglePointIntent;
+import org.onosproject.net.intent.PointToPointIntent;
 import org.onosproject.net.intent.IntentPartitionEvent;
 import org.onosproject.net.intent.IntentPartitionEventListener;
 import org.onosproject.net.intent.IntentPartitionService;
+import org.onosproject.net.intent.impl.compiler.CompiledPathCache;
 import org.onosproject.net.link.LinkEvent;
 import org.onosproject.net.resource.ResourceEvent;
 import org.onosproject.net.resource.ResourceListener;
 import org.onosproject.net.resource.ResourceService;
+import org.onosproject.net.topology.DefaultTopologyVertex;
+import org.onosproject.net.topology.Topology;
+import org.onosproject.net.topology.TopologyEdge;
 import org.onosproject.net.topology.TopologyEvent;
+import org.onosproject.net.topology.TopologyGraph;
 import org.onosproject.net.topology.TopologyListener;
 import org.onosproject.net.topology.TopologyService;
+import org.onosproject.net.topology.TopologyVertex;
 import org.slf4j.Logger;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -68,13 +80,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Multimaps.synchronizedSetMultimap;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onlab.util.Tools.isNullOrEmpty;
 import static org.onosproject.net.LinkKey.linkKey;
+import static org.onosproject.net.intent.IntentState.FAILED;
 import static org.onosproject.net.intent.IntentState.INSTALLED;
 import static org.onosproject.net.intent.IntentState.INSTALLING;
+import static org.onosproject.net.intent.constraint.PartialFailureConstraint.intentAllowsPartialFailure;
 import static org.onosproject.net.link.LinkEvent.Type.LINK_REMOVED;
 import static org.onosproject.net.link.LinkEvent.Type.LINK_UPDATED;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -89,12 +102,18 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
 
     private final Logger log = getLogger(getClass());
 
-    private final SetMultimap<LinkKey, Key> intentsByLink =
-            //TODO this could be slow as a point of synchronization
-            synchronizedSetMultimap(HashMultimap.<LinkKey, Key>create());
+    private final ConcurrentMap<LinkKey, Set<Key>> intentsByLink = Maps.newConcurrentMap();
 
-    private final SetMultimap<ElementId, Key> intentsByDevice =
-            synchronizedSetMultimap(HashMultimap.<ElementId, Key>create());
+    private final ConcurrentMap<ElementId, Set<Key>> intentsByDevice = Maps.newConcurrentMap();
+
+    // Failed intents whose end-points were not reachable, indexed by their
+    // end-point devices
+    private final ConcurrentMap<Endpoints, Set<Key>> blockedIntents = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<Key, Endpoints> blockedEndpoints = Maps.newConcurrentMap();
+
+    // Reachability between the devices of the last topology looked at
+    private volatile Reachability reachability = new Reachability(null, null);
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected TopologyService topologyService;
@@ -115,6 +134,9 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected IntentPartitionService partitionService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CompiledPathCache pathCache;
+
     private ExecutorService executorService =
             newSingleThreadExecutor(groupedThreads("onos/intent", "objectivetracker", log));
     private ScheduledExecutorService executor = Executors
@@ -180,9 +202,9 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                                     Collection<NetworkResource> resources) {
         for (NetworkResource resource : resources) {
             if (resource instanceof Link) {
-                intentsByLink.put(linkKey((Link) resource), intentKey);
+                add(intentsByLink, linkKey((Link) resource), intentKey);
             } else if (resource instanceof ElementId) {
-                intentsByDevice.put((ElementId) resource, intentKey);
+                add(intentsByDevice, (ElementId) resource, intentKey);
             }
         }
     }
@@ -192,13 +214,33 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                                        Collection<NetworkResource> resources) {
         for (NetworkResource resource : resources) {
             if (resource instanceof Link) {
-                intentsByLink.remove(linkKey((Link) resource), intentKey);
+                remove(intentsByLink, linkKey((Link) resource), intentKey);
             } else if (resource instanceof ElementId) {
-                intentsByDevice.remove(resource, intentKey);
+                remove(intentsByDevice, (ElementId) resource, intentKey);
             }
         }
     }
 
+    @Override
+    public boolean isBlocked(Key intentKey) {
+        return blockedEndpoints.containsKey(intentKey);
+    }
+
+    private static <K> void add(ConcurrentMap<K, Set<Key>> index, K resource, Key intentKey) {
+        index.compute(resource, (k, keys) -> {
+            Set<Key> result = keys == null ? Sets.newConcurrentHashSet() : keys;
+            result.add(intentKey);
+            return result;
+        });
+    }
+
+    private static <K> void remove(ConcurrentMap<K, Set<Key>> index, K resource, Key intentKey) {
+        index.computeIfPresent(resource, (k, keys) -> {
+            keys.remove(intentKey);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
     @Override
     public void trackIntent(IntentData intentData) {
 
@@ -215,7 +257,7 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
         if (log.isTraceEnabled()) {
             log.trace("intent {}, old: {}, new: {}, installableCount: {}, resourceCount: {}",
                       key,
-                      intentsByDevice.values().contains(key),
+                      intentsByDevice.values().stream().anyMatch(keys -> keys.contains(key)),
                       isLocal && isInstalled,
                       installables.size(),
                       intent.resources().size() +
@@ -241,6 +283,169 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                 removeTrackedResources(key, installable.resources());
             }
         }
+
+        if (isLocal && intentData.state() == FAILED) {
+            block(key, intent);
+        } else {
+            unblock(key);
+        }
+    }
+
+    /*
+     * Records the failed intent as blocked if its end-points are not
+     * reachable in the current topology.
+     */
+    private void block(Key key, Intent intent) {
+        Endpoints endpoints = endpoints(intent);
+        if (endpoints == null || topologyService == null) {
+            return;
+        }
+        Endpoints previous = blockedEndpoints.put(key, endpoints);
+        if (previous != null && !previous.equals(endpoints)) {
+            remove(blockedIntents, previous, key);
+        }
+        add(blockedIntents, endpoints, key);
+
+        // Checked only once indexed, so that the intent is either seen by the
+        // handler of a topology change that made its end-points reachable or
+        // the change is seen here
+        if (isReachable(endpoints, reachability(topologyService.currentTopology()))) {
+            unblock(key);
+        }
+    }
+
+    private void unblock(Key key) {
+        Endpoints endpoints = blockedEndpoints.remove(key);
+        if (endpoints != null) {
+            remove(blockedIntents, endpoints, key);
+        }
+    }
+
+    /*
+     * Returns the devices which must reach one another for the intent to be
+     * compiled, or null if that is not known.
+     */
+    private static Endpoints endpoints(Intent intent) {
+        if (intentAllowsPartialFailure(intent)) {
+            return null;
+        }
+        if (intent instanceof PointToPointIntent) {
+            PointToPointIntent pointToPoint = (PointToPointIntent) intent;
+            return new Endpoints(ImmutableSet.of(pointToPoint.ingressPoint().deviceId()),
+                                 pointToPoint.egressPoint().deviceId());
+        }
+        if (intent instanceof MultiPointToSinglePointIntent) {
+            MultiPointToSinglePointIntent multiPoint = (MultiPointToSinglePointIntent) intent;
+            ImmutableSet.Builder<DeviceId> builder = ImmutableSet.builder();
+            multiPoint.ingressPoints().forEach(point -> builder.add(point.deviceId()));
+            return new Endpoints(builder.build(), multiPoint.egressPoint().deviceId());
+        }
+        return null;
+    }
+
+    /*
+     * Unblocks and returns the blocked intents whose end-points are
+     * reachable in the given topology.
+     */
+    private Set<Key> unblockReachable(Topology topology) {
+        if (blockedIntents.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Reachability current = reachability(topology);
+        Set<Key> reachable = new HashSet<>();
+        blockedIntents.forEach((endpoints, keys) -> {
+            if (isReachable(endpoints, current)) {
+                reachable.addAll(keys);
+            }
+        });
+        reachable.forEach(this::unblock);
+        return reachable;
+    }
+
+    private static boolean isReachable(Endpoints endpoints, Reachability reachability) {
+        Set<DeviceId> sources = reachability.sources(endpoints.egress);
+        for (DeviceId ingress : endpoints.ingress) {
+            if (!ingress.equals(endpoints.egress) && !sources.contains(ingress)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Reachability reachability(Topology topology) {
+        Reachability current = reachability;
+        if (current.topology != topology) {
+            current = new Reachability(topology, topologyService.getGraph(topology));
+            reachability = current;
+        }
+        return current;
+    }
+
+    /*
+     * Devices from which others can be reached in a topology. Compilers
+     * route over every link of the topology graph, including indirect ones
+     * left out of its clusters, so reachability follows all of its edges.
+     */
+    private static final class Reachability {
+        private final Topology topology;
+        private final TopologyGraph graph;
+        private final ConcurrentMap<DeviceId, Set<DeviceId>> sources = Maps.newConcurrentMap();
+
+        private Reachability(Topology topology, TopologyGraph graph) {
+            this.topology = topology;
+            this.graph = graph;
+        }
+
+        // Returns the devices from which the given one can be reached
+        private Set<DeviceId> sources(DeviceId destination) {
+            if (graph == null) {
+                return Collections.emptySet();
+            }
+            return sources.computeIfAbsent(destination, this::search);
+        }
+
+        private Set<DeviceId> search(DeviceId destination) {
+            Set<DeviceId> found = new HashSet<>();
+            Deque<TopologyVertex> pending = new ArrayDeque<>();
+            pending.add(new DefaultTopologyVertex(destination));
+            while (!pending.isEmpty()) {
+                for (TopologyEdge edge : graph.getEdgesTo(pending.poll())) {
+                    if (found.add(edge.src().deviceId())) {
+                        pending.add(edge.src());
+                    }
+                }
+            }
+            return found;
+        }
+    }
+
+    // Ingress devices which must all reach an egress device
+    private static final class Endpoints {
+        private final Set<DeviceId> ingress;
+        private final DeviceId egress;
+
+        private Endpoints(Set<DeviceId> ingress, DeviceId egress) {
+            this.ingress = ingress;
+            this.egress = egress;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ingress, egress);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Endpoints)) {
+                return false;
+            }
+            Endpoints that = (Endpoints) obj;
+            return Objects.equals(this.ingress, that.ingress)
+                    && Objects.equals(this.egress, that.egress);
+        }
     }
 
     // Internal re-actor to topology change events.
@@ -262,13 +467,18 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
 
         @Override
         public void run() {
+            // Paths computed on the previous topology are of no further use
+            if (pathCache != null) {
+                pathCache.invalidate();
+            }
+
             // If there is no delegate, why bother? Just bail.
             if (delegate == null) {
                 return;
             }
 
             if (event.reasons() == null || event.reasons().isEmpty()) {
-                delegate.triggerCompile(Collections.emptySet(), true);
+                delegate.triggerCompile(unblockReachable(event.subject()), true);
 
             } else {
                 Set<Key> intentsToRecompile = new HashSet<>();
@@ -280,18 +490,19 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                     if (reason instanceof LinkEvent) {
                         LinkEvent linkEvent = (LinkEvent) reason;
                         final LinkKey linkKey = linkKey(linkEvent.subject());
-                        synchronized (intentsByLink) {
-                            Set<Key> intentKeys = intentsByLink.get(linkKey);
-                            log.debug("recompile triggered by LinkEvent {} ({}) for {}",
-                                    linkKey, linkEvent.type(), intentKeys);
-                            intentsToRecompile.addAll(intentKeys);
-                        }
+                        Set<Key> intentKeys = intentsByLink.getOrDefault(linkKey, Collections.emptySet());
+                        log.debug("recompile triggered by LinkEvent {} ({}) for {}",
+                                linkKey, linkEvent.type(), intentKeys);
+                        intentsToRecompile.addAll(intentKeys);
                         dontRecompileAllFailedIntents = dontRecompileAllFailedIntents &&
                                 (linkEvent.type() == LINK_REMOVED ||
                                 (linkEvent.type() == LINK_UPDATED &&
                                 linkEvent.subject().isDurable()));
                     }
                 }
+                if (!dontRecompileAllFailedIntents) {
+                    intentsToRecompile.addAll(unblockReachable(event.subject()));
+                }
                 delegate.triggerCompile(intentsToRecompile, !dontRecompileAllFailedIntents);
             }
         }
@@ -336,10 +547,8 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
 
             // TODO should we recompile on available==true?
 
-            final ImmutableSet<Key> snapshot;
-            synchronized (intentsByDevice) {
-                snapshot = ImmutableSet.copyOf(intentsByDevice.get(id));
-            }
+            final ImmutableSet<Key> snapshot =
+                    ImmutableSet.copyOf(intentsByDevice.getOrDefault(id, Collections.emptySet()));
             delegate.triggerCompile(snapshot, available);
         }
     }
@@ -66,4 +66,15 @@ public interface ObjectiveTrackerService {
      * @param intentData intent data object to be tracked
      */
     void trackIntent(IntentData intentData);
+
+    /**
+     * Indicates whether the specified intent failed for lack of connectivity
+     * between its end-points. Such intents are handed to the topology change
+     * delegate for recompilation once their end-points become reachable
+     * again, and need not be recompiled along with all other failed intents.
+     *
+     * @param intentKey intent identity
+     * @return true if the intent waits for its end-points to become reachable
+     */
+    boolean isBlocked(Key intentKey);
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.intent.impl.compiler;
+
+import com.codahale.metrics.Counter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.net.ElementId;
+import org.onosproject.net.HostId;
+import org.onosproject.net.Path;
+import org.onosproject.net.intent.Constraint;
+import org.onosproject.net.intent.constraint.AnnotationConstraint;
+import org.onosproject.net.intent.constraint.AsymmetricPathConstraint;
+import org.onosproject.net.intent.constraint.EncapsulationConstraint;
+import org.onosproject.net.intent.constraint.LatencyConstraint;
+import org.onosproject.net.intent.constraint.LinkTypeConstraint;
+import org.onosproject.net.intent.constraint.ObstacleConstraint;
+import org.onosproject.net.intent.constraint.WaypointConstraint;
+import org.onosproject.net.topology.Topology;
+import org.onosproject.net.topology.TopologyService;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Cache of the paths chosen by the connectivity intent compilers, shared
+ * by all intents compiled by the same kind of compiler between the same
+ * devices under the same constraints. Entries are kept only for the
+ * current topology; they are dropped as soon as the topology changes.
+ * Paths between hosts are never cached, as hosts move without the topology
+ * changing.
+ */
+@Component(immediate = true)
+@Service(value = CompiledPathCache.class)
+public class CompiledPathCache {
+
+    private static final String METRICS_COMPONENT = "CompiledPathCache";
+    private static final String METRICS_FEATURE = "paths";
+    private static final String HITS = "hits";
+    private static final String MISSES = "misses";
+
+    // Bound on the number of entries kept for one topology
+    private static final int MAX_ENTRIES = 100_000;
+
+    // Constraints whose outcome depends on the topology alone; paths
+    // computed under any other constraint, e.g. bandwidth, are not cached
+    private static final Set<Class<? extends Constraint>> CACHEABLE =
+            ImmutableSet.of(AnnotationConstraint.class,
+                            AsymmetricPathConstraint.class,
+                            EncapsulationConstraint.class,
+                            LatencyConstraint.class,
+                            LinkTypeConstraint.class,
+                            ObstacleConstraint.class,
+                            WaypointConstraint.class);
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected TopologyService topologyService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private volatile Entries entries = new Entries(null);
+
+    private Counter hits;
+    private Counter misses;
+
+    @Activate
+    protected void activate() {
+        if (metricsService != null) {
+            MetricsComponent component = metricsService.registerComponent(METRICS_COMPONENT);
+            MetricsFeature feature = component.registerFeature(METRICS_FEATURE);
+            hits = metricsService.createCounter(component, feature, HITS);
+            misses = metricsService.createCounter(component, feature, MISSES);
+        }
+        log.info("Started");
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        invalidate();
+        log.info("Stopped");
+    }
+
+    /**
+     * Returns the path between the given end-points under the given
+     * constraints, computing it with the supplied function unless a path
+     * was already computed for the same kind, end-points and constraints
+     * on the current topology.
+     *
+     * @param kind        kind of path, telling apart compilers which
+     *                    compute paths differently
+     * @param one         start of the path
+     * @param two         end of the path
+     * @param constraints path constraints
+     * @param compute     function computing the path; returns null if
+     *                    there is no path
+     * @return path between the two, or null if there is none
+     */
+    public Path getPath(Object kind, ElementId one, ElementId two,
+                        List<Constraint> constraints, Supplier<Path> compute) {
+        if (one instanceof HostId || two instanceof HostId || !isCacheable(constraints)) {
+            return compute.get();
+        }
+
+        // Paths computed from here on reflect at least this topology, so
+        // an entry is never recorded against a topology older than its path
+        Topology topology = topologyService.currentTopology();
+        Entries current = entries;
+        if (current.topology != topology) {
+            current = new Entries(topology);
+            entries = current;
+        }
+
+        PathKey key = new PathKey(kind, one, two, constraints);
+        Optional<Path> path = current.paths.get(key);
+        if (path != null) {
+            count(hits);
+            return path.orElse(null);
+        }
+        count(misses);
+        path = Optional.ofNullable(compute.get());
+        if (current.paths.size() < MAX_ENTRIES) {
+            current.paths.put(key, path);
+        }
+        return path.orElse(null);
+    }
+
+    /**
+     * Drops all cached paths.
+     */
+    public void invalidate() {
+        entries = new Entries(null);
+    }
+
+    private static boolean isCacheable(List<Constraint> constraints) {
+        for (Constraint constraint : constraints) {
+            if (!CACHEABLE.contains(constraint.getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void count(Counter counter) {
+        if (counter != null) {
+            counter.inc();
+        }
+    }
+
+    // Paths cached for one topology
+    private static final class Entries {
+        private final Topology topology;
+        private final Map<PathKey, Optional<Path>> paths = Maps.newConcurrentMap();
+
+        private Entries(Topology topology) {
+            this.topology = topology;
+        }
+    }
+
+    private static final class PathKey {
+        private final Object kind;
+        private final ElementId one;
+        private final ElementId two;
+        private final List<Constraint> constraints;
+
+        private PathKey(Object kind, ElementId one, ElementId two, List<Constraint> constraints) {
+            this.kind = kind;
+            this.one = one;
+            this.two = two;
+            this.constraints = constraints;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, one, two, constraints);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PathKey)) {
+                return false;
+            }
+            PathKey that = (PathKey) obj;
+            return Objects.equals(this.kind, that.kind)
+                    && Objects.equals(this.one, that.one)
+                    && Objects.equals(this.two, that.two)
+                    && Objects.equals(this.constraints, that.constraints);
+        }
+    }
+}
@@ -15,7 +15,6 @@
  */
 package org.onosproject.net.intent.impl.compiler;
 
-import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
@@ -57,6 +56,9 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ResourceQueryService resourceService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CompiledPathCache pathCache;
+
     /**
      * Returns an edge-weight capable of evaluating links on the basis of the
      * specified constraints.
@@ -95,16 +97,22 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
      */
     protected Path getPath(ConnectivityIntent intent,
                            ElementId one, ElementId two) {
-        Set<Path> paths = pathService.getPaths(one, two, weight(intent.constraints()));
         final List<Constraint> constraints = intent.constraints();
-        ImmutableList<Path> filtered = FluentIterable.from(paths)
-                .filter(path -> checkPath(path, constraints))
-                .toList();
-        if (filtered.isEmpty()) {
+        Path path = pathCache == null ? computePath(one, two, constraints) :
+                pathCache.getPath(ConnectivityIntentCompiler.class, one, two, constraints,
+                                  () -> computePath(one, two, constraints));
+        if (path == null) {
             throw new PathNotFoundException(one, two);
         }
+        return path;
+    }
+
+    private Path computePath(ElementId one, ElementId two, List<Constraint> constraints) {
+        Set<Path> paths = pathService.getPaths(one, two, weight(constraints));
         // TODO: let's be more intelligent about this eventually
-        return filtered.iterator().next();
+        return paths.stream()
+                .filter(path -> checkPath(path, constraints))
+                .findFirst().orElse(null);
     }
 
     /**
@@ -62,6 +62,9 @@ public class MultiPointToSinglePointIntentCompiler
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DeviceService deviceService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CompiledPathCache pathCache;
+
     @Activate
     public void activate() {
         intentManager.registerCompiler(MultiPointToSinglePointIntent.class, this);
@@ -139,6 +142,14 @@ public class MultiPointToSinglePointIntentCompiler
      * @return Path between the two
      */
     private Path getPath(ConnectPoint one, ConnectPoint two) {
+        if (pathCache == null) {
+            return computePath(one, two);
+        }
+        return pathCache.getPath(getClass(), one.deviceId(), two.deviceId(), Collections.emptyList(),
+                                 () -> computePath(one, two));
+    }
+
+    private Path computePath(ConnectPoint one, ConnectPoint two) {
         Set<Path> paths = pathService.getPaths(one.deviceId(), two.deviceId());
         if (paths.isEmpty()) {
             return null;
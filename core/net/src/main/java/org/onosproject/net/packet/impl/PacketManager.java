@@ -17,6 +17,7 @@ package org.onosproject.net.packet.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -24,6 +25,7 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.Ethernet;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.NodeId;
 import org.onosproject.core.ApplicationId;
@@ -49,6 +51,7 @@ import org.onosproject.net.packet.PacketEvent;
 import org.onosproject.net.packet.PacketPriority;
 import org.onosproject.net.packet.PacketProcessor;
 import org.onosproject.net.packet.PacketProcessorEntry;
+import org.onosproject.net.packet.PacketProcessorFilter;
 import org.onosproject.net.packet.PacketProvider;
 import org.onosproject.net.packet.PacketProviderRegistry;
 import org.onosproject.net.packet.PacketProviderService;
@@ -61,6 +64,7 @@ import org.onosproject.net.provider.AbstractProviderService;
 import org.slf4j.Logger;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -111,6 +115,7 @@ public class PacketManager
     private final DeviceListener deviceListener = new InternalDeviceListener();
 
     private final List<ProcessorEntry> processors = Lists.newCopyOnWriteArrayList();
+    private volatile DispatchIndex dispatchIndex = new DispatchIndex(ImmutableList.of());
 
     private final  PacketDriverProvider defaultProvider = new PacketDriverProvider();
 
@@ -145,9 +150,16 @@ public class PacketManager
 
     @Override
     public void addProcessor(PacketProcessor processor, int priority) {
+        addProcessor(processor, priority, PacketProcessorFilter.all());
+    }
+
+    @Override
+    public synchronized void addProcessor(PacketProcessor processor, int priority,
+                                          PacketProcessorFilter filter) {
         checkPermission(PACKET_EVENT);
         checkNotNull(processor, "Processor cannot be null");
-        ProcessorEntry entry = new ProcessorEntry(processor, priority);
+        checkNotNull(filter, "Filter cannot be null");
+        ProcessorEntry entry = new ProcessorEntry(processor, priority, filter);
 
         // Insert the new processor according to its priority.
         int i = 0;
@@ -157,10 +169,11 @@ public class PacketManager
             }
         }
         processors.add(i, entry);
+        dispatchIndex = new DispatchIndex(processors);
     }
 
     @Override
-    public void removeProcessor(PacketProcessor processor) {
+    public synchronized void removeProcessor(PacketProcessor processor) {
         checkPermission(PACKET_EVENT);
         checkNotNull(processor, "Processor cannot be null");
 
@@ -171,6 +184,7 @@ public class PacketManager
                 break;
             }
         }
+        dispatchIndex = new DispatchIndex(processors);
     }
 
     @Override
@@ -366,8 +380,11 @@ public class PacketManager
 
         @Override
         public void processPacket(PacketContext context) {
-            // TODO filter packets sent to processors based on registrations
-            for (ProcessorEntry entry : processors) {
+            Ethernet eth = context.inPacket().parsed();
+            for (ProcessorEntry entry : dispatchIndex.processors(eth)) {
+                if (entry.checkFilter && !entry.filter.matches(eth)) {
+                    continue;
+                }
                 try {
                     long start = System.nanoTime();
                     entry.processor().process(context);
@@ -445,12 +462,18 @@ public class PacketManager
     private class ProcessorEntry implements PacketProcessorEntry {
         private final PacketProcessor processor;
         private final int priority;
+        private final PacketProcessorFilter filter;
+        // Whether the filter needs evaluating beyond the dispatch index
+        private final boolean checkFilter;
         private long invocations = 0;
         private long nanos = 0;
 
-        public ProcessorEntry(PacketProcessor processor, int priority) {
+        public ProcessorEntry(PacketProcessor processor, int priority,
+                              PacketProcessorFilter filter) {
             this.processor = processor;
             this.priority = priority;
+            this.filter = filter;
+            this.checkFilter = filter.matchesBeyondEthType();
         }
 
         @Override
@@ -463,6 +486,11 @@ public class PacketManager
             return priority;
         }
 
+        @Override
+        public PacketProcessorFilter filter() {
+            return filter;
+        }
+
         @Override
         public long invocations() {
             return invocations;
@@ -483,4 +511,45 @@ public class PacketManager
             this.invocations++;
         }
     }
+
+    /**
+     * Precompiled index of processor entries by the ether type of the
+     * packets they are interested in; each list preserves priority order.
+     */
+    private static final class DispatchIndex {
+        private final Map<Short, List<ProcessorEntry>> byEthType = Maps.newHashMap();
+        private final List<ProcessorEntry> anyEthType;
+        private final List<ProcessorEntry> unparsed;
+
+        private DispatchIndex(List<ProcessorEntry> entries) {
+            ImmutableList.Builder<ProcessorEntry> any = ImmutableList.builder();
+            ImmutableList.Builder<ProcessorEntry> all = ImmutableList.builder();
+            entries.forEach(e -> {
+                if (e.filter.ethTypes().isEmpty()) {
+                    any.add(e);
+                    if (!e.checkFilter) {
+                        all.add(e);
+                    }
+                }
+            });
+            anyEthType = any.build();
+            unparsed = all.build();
+
+            entries.stream().flatMap(e -> e.filter.ethTypes().stream())
+                    .distinct()
+                    .forEach(t -> byEthType.put(t, ImmutableList.copyOf(
+                            entries.stream()
+                                    .filter(e -> e.filter.ethTypes().isEmpty() ||
+                                            e.filter.ethTypes().contains(t))
+                                    .iterator())));
+        }
+
+        // Returns the entries which may be interested in the given packet.
+        private List<ProcessorEntry> processors(Ethernet eth) {
+            if (eth == null) {
+                return unparsed;
+            }
+            return byEthType.getOrDefault(eth.getEtherType(), anyEthType);
+        }
+    }
 }
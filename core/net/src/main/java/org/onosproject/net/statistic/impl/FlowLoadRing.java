@@ -0,0 +1,323 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.statistic.impl;
+
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.statistic.FlowLoadHistory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed-size history of the byte and packet deltas of the flows forwarded
+ * to one connect point.
+ * <p>
+ * Each flow owns a row of primitive arrays holding its last samples in a
+ * ring; rows are packed so that removing a flow moves the last row into
+ * its place. Rows are also kept in an indexed max-heap ordered by the byte
+ * rate of their latest sample, which serves top-n queries without sorting
+ * all the flows of the connect point.
+ */
+final class FlowLoadRing {
+
+    private static final int INITIAL_ROWS = 8;
+
+    private final int window;
+    private final Map<FlowId, Integer> rows = new HashMap<>();
+
+    private int size;
+    private FlowId[] ids;
+
+    // Counters and time of the last statistics seen for each row
+    private long[] lastBytes;
+    private long[] lastPackets;
+    private long[] lastSeen;
+
+    // Samples of each row, laid out as row * window + slot
+    private long[] times;
+    private long[] durations;
+    private long[] bytes;
+    private long[] packets;
+    private int[] next;
+    private int[] count;
+
+    // Indexed max-heap of rows by latest byte rate
+    private long[] rates;
+    private int[] heap;
+    private int[] position;
+
+    /**
+     * Creates a ring keeping the given number of samples per flow.
+     *
+     * @param window number of samples kept per flow
+     */
+    FlowLoadRing(int window) {
+        checkArgument(window > 0, "Window must be greater than 0");
+        this.window = window;
+        allocate(INITIAL_ROWS);
+    }
+
+    /**
+     * Records the latest statistics of a flow. The first statistics of a
+     * flow only set its baseline; later ones add a sample holding the
+     * difference to the previous statistics.
+     *
+     * @param id      flow identifier
+     * @param bytes   byte counter of the flow
+     * @param packets packet counter of the flow
+     * @param time    time the counters were read, in millis
+     */
+    synchronized void record(FlowId id, long bytes, long packets, long time) {
+        Integer existing = rows.get(id);
+        if (existing == null) {
+            int row = add(id);
+            setBaseline(row, bytes, packets, time);
+            return;
+        }
+
+        int row = existing;
+        if (time <= lastSeen[row]) {
+            return;
+        }
+        if (bytes < lastBytes[row] || packets < lastPackets[row]) {
+            // counters were reset, e.g. the flow was re-installed
+            setBaseline(row, bytes, packets, time);
+            return;
+        }
+
+        int slot = row * window + next[row];
+        this.times[slot] = time;
+        this.durations[slot] = time - lastSeen[row];
+        this.bytes[slot] = bytes - lastBytes[row];
+        this.packets[slot] = packets - lastPackets[row];
+        next[row] = (next[row] + 1) % window;
+        count[row] = Math.min(count[row] + 1, window);
+        setBaseline(row, bytes, packets, time);
+
+        long rate = this.bytes[slot] * 1000 / this.durations[slot];
+        long previous = rates[row];
+        rates[row] = rate;
+        if (rate > previous) {
+            siftUp(position[row]);
+        } else {
+            siftDown(position[row]);
+        }
+    }
+
+    /**
+     * Drops the history of a flow.
+     *
+     * @param id flow identifier
+     */
+    synchronized void remove(FlowId id) {
+        Integer removed = rows.remove(id);
+        if (removed == null) {
+            return;
+        }
+        int row = removed;
+        int last = size - 1;
+
+        // take the row out of the heap
+        int pos = position[row];
+        int tail = heap[last];
+        size = last;
+        if (pos < last) {
+            place(tail, pos);
+            siftUp(pos);
+            siftDown(position[tail]);
+        }
+
+        // move the last row into the hole
+        if (row != last) {
+            ids[row] = ids[last];
+            rows.put(ids[row], row);
+            lastBytes[row] = lastBytes[last];
+            lastPackets[row] = lastPackets[last];
+            lastSeen[row] = lastSeen[last];
+            System.arraycopy(times, last * window, times, row * window, window);
+            System.arraycopy(durations, last * window, durations, row * window, window);
+            System.arraycopy(bytes, last * window, bytes, row * window, window);
+            System.arraycopy(packets, last * window, packets, row * window, window);
+            next[row] = next[last];
+            count[row] = count[last];
+            rates[row] = rates[last];
+            position[row] = position[last];
+            heap[position[row]] = row;
+        }
+        ids[last] = null;
+    }
+
+    /**
+     * Returns whether no flow is recorded.
+     *
+     * @return true if empty
+     */
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the history of a flow.
+     *
+     * @param cp connect point the ring belongs to
+     * @param id flow identifier
+     * @return flow load history, or null if the flow is not recorded
+     */
+    synchronized FlowLoadHistory history(ConnectPoint cp, FlowId id) {
+        Integer row = rows.get(id);
+        return row == null ? null : history(cp, (int) row);
+    }
+
+    /**
+     * Returns the histories of the flows with the highest latest byte rate,
+     * in descending order of that rate.
+     *
+     * @param cp   connect point the ring belongs to
+     * @param topn maximum number of flows
+     * @return list of flow load histories
+     */
+    synchronized List<FlowLoadHistory> topn(ConnectPoint cp, int topn) {
+        List<FlowLoadHistory> result = new ArrayList<>(Math.max(0, Math.min(topn, size)));
+        if (topn <= 0 || size == 0) {
+            return result;
+        }
+
+        // walk the heap best-first; only the frontier of visited positions
+        // is ever ordered, so this costs O(n log n) for n results
+        PriorityQueue<Integer> frontier =
+                new PriorityQueue<>((a, b) -> Long.compare(rates[heap[b]], rates[heap[a]]));
+        frontier.add(0);
+        while (result.size() < topn && !frontier.isEmpty()) {
+            int pos = frontier.poll();
+            result.add(history(cp, heap[pos]));
+            int child = 2 * pos + 1;
+            if (child < size) {
+                frontier.add(child);
+            }
+            if (child + 1 < size) {
+                frontier.add(child + 1);
+            }
+        }
+        return result;
+    }
+
+    private FlowLoadHistory history(ConnectPoint cp, int row) {
+        int n = count[row];
+        long[] t = new long[n];
+        long[] d = new long[n];
+        long[] b = new long[n];
+        long[] p = new long[n];
+        int first = (next[row] - n + window) % window;
+        for (int i = 0; i < n; i++) {
+            int slot = row * window + (first + i) % window;
+            t[i] = times[slot];
+            d[i] = durations[slot];
+            b[i] = bytes[slot];
+            p[i] = packets[slot];
+        }
+        return new FlowLoadHistory(cp, ids[row], t, d, b, p);
+    }
+
+    private int add(FlowId id) {
+        if (size == ids.length) {
+            allocate(size * 2);
+        }
+        int row = size++;
+        ids[row] = id;
+        rows.put(id, row);
+        next[row] = 0;
+        count[row] = 0;
+        rates[row] = 0;
+        heap[row] = row;
+        position[row] = row;
+        siftUp(row);
+        return row;
+    }
+
+    private void setBaseline(int row, long bytes, long packets, long time) {
+        lastBytes[row] = bytes;
+        lastPackets[row] = packets;
+        lastSeen[row] = time;
+    }
+
+    private void allocate(int capacity) {
+        ids = ids == null ? new FlowId[capacity] : Arrays.copyOf(ids, capacity);
+        lastBytes = grow(lastBytes, capacity);
+        lastPackets = grow(lastPackets, capacity);
+        lastSeen = grow(lastSeen, capacity);
+        times = grow(times, capacity * window);
+        durations = grow(durations, capacity * window);
+        bytes = grow(bytes, capacity * window);
+        packets = grow(packets, capacity * window);
+        next = grow(next, capacity);
+        count = grow(count, capacity);
+        rates = grow(rates, capacity);
+        heap = grow(heap, capacity);
+        position = grow(position, capacity);
+    }
+
+    private static long[] grow(long[] array, int length) {
+        return array == null ? new long[length] : Arrays.copyOf(array, length);
+    }
+
+    private static int[] grow(int[] array, int length) {
+        return array == null ? new int[length] : Arrays.copyOf(array, length);
+    }
+
+    private void siftUp(int pos) {
+        int row = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) / 2;
+            if (rates[heap[parent]] >= rates[row]) {
+                break;
+            }
+            place(heap[parent], pos);
+            pos = parent;
+        }
+        place(row, pos);
+    }
+
+    private void siftDown(int pos) {
+        int row = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && rates[heap[child + 1]] > rates[heap[child]]) {
+                child++;
+            }
+            if (rates[row] >= rates[heap[child]]) {
+                break;
+            }
+            place(heap[child], pos);
+            pos = child;
+        }
+        place(row, pos);
+    }
+
+    private void place(int row, int pos) {
+        heap[pos] = row;
+        position[row] = pos;
+    }
+}
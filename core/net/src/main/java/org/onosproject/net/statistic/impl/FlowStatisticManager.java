@@ -19,6 +19,8 @@ package org.onosproject.net.statistic.impl;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -26,21 +28,30 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 
+import org.onosproject.mastership.MastershipEvent;
+import org.onosproject.mastership.MastershipListener;
+import org.onosproject.mastership.MastershipService;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.ElementId;
 import org.onosproject.net.Port;
 import org.onosproject.net.PortNumber;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.DefaultTypedFlowEntry;
 import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleEvent;
 import org.onosproject.net.flow.FlowRuleListener;
 import org.onosproject.net.flow.FlowRuleService;
 import org.onosproject.net.flow.TypedStoredFlowEntry;
 import org.onosproject.net.flow.instructions.Instruction;
+import org.onosproject.net.flow.instructions.Instructions;
 import org.onosproject.net.statistic.DefaultLoad;
+import org.onosproject.net.statistic.FlowLoadHistory;
 import org.onosproject.net.statistic.FlowStatisticService;
 import org.onosproject.net.statistic.Load;
 import org.onosproject.net.statistic.FlowStatisticStore;
@@ -50,6 +61,7 @@ import org.onosproject.net.statistic.TypedFlowEntryWithLoad;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -57,7 +69,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.onosproject.security.AppGuard.checkPermission;
@@ -81,7 +93,19 @@ public class FlowStatisticManager implements FlowStatisticService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DeviceService deviceService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MastershipService mastershipService;
+
+    // Number of samples kept in the load history of each flow
+    private static final int HISTORY_WINDOW = 32;
+
     private final InternalFlowRuleStatsListener frListener = new InternalFlowRuleStatsListener();
+    private final InternalDeviceListener deviceListener = new InternalDeviceListener();
+    private final InternalMastershipListener mastershipListener = new InternalMastershipListener();
+
+    // Load history of the flows of the devices this instance is master of,
+    // by output port; flow rule events are only raised on the master
+    private final ConcurrentMap<ConnectPoint, FlowLoadRing> histories = Maps.newConcurrentMap();
 
     // FIXME: refactor these comparators to be shared with the CLI implmentations
     public static final Comparator<ElementId> ELEMENT_ID_COMPARATOR = new Comparator<ElementId>() {
@@ -113,12 +137,17 @@ public class FlowStatisticManager implements FlowStatisticService {
     @Activate
     public void activate() {
         flowRuleService.addListener(frListener);
+        deviceService.addListener(deviceListener);
+        mastershipService.addListener(mastershipListener);
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
         flowRuleService.removeListener(frListener);
+        deviceService.removeListener(deviceListener);
+        mastershipService.removeListener(mastershipListener);
+        histories.clear();
         log.info("Stopped");
     }
 
@@ -219,6 +248,24 @@ public class FlowStatisticManager implements FlowStatisticService {
         return loadTopnPortInternal(cp, liveType, instType, topn);
     }
 
+    @Override
+    public FlowLoadHistory loadHistory(Device device, PortNumber pNumber, FlowId flowId) {
+        checkPermission(STATISTIC_READ);
+
+        ConnectPoint cp = new ConnectPoint(device.id(), pNumber);
+        FlowLoadRing ring = histories.get(cp);
+        return ring == null ? null : ring.history(cp, flowId);
+    }
+
+    @Override
+    public List<FlowLoadHistory> loadTopnHistory(Device device, PortNumber pNumber, int topn) {
+        checkPermission(STATISTIC_READ);
+
+        ConnectPoint cp = new ConnectPoint(device.id(), pNumber);
+        FlowLoadRing ring = histories.get(cp);
+        return ring == null ? Collections.emptyList() : ring.topn(cp, topn);
+    }
+
     private SummaryFlowEntryWithLoad loadSummaryPortInternal(ConnectPoint cp) {
         checkPermission(STATISTIC_READ);
 
@@ -400,12 +447,8 @@ public class FlowStatisticManager implements FlowStatisticService {
                                                              int topn) {
         List<TypedFlowEntryWithLoad> fel = loadAllPortInternal(cp, liveType, instType);
 
-        // Sort with descending order of load
-        List<TypedFlowEntryWithLoad> tfel =
-                fel.stream().sorted(TYPEFLOWENTRY_WITHLOAD_COMPARATOR).
-                        limit(topn).collect(Collectors.toList());
-
-        return tfel;
+        // Select with descending order of load, without sorting all entries
+        return Ordering.from(TYPEFLOWENTRY_WITHLOAD_COMPARATOR).leastOf(fel, topn);
     }
 
     private long aggregateBytesSet(Set<FlowEntry> setFE) {
@@ -631,6 +674,44 @@ public class FlowStatisticManager implements FlowStatisticService {
         };
     }
 
+    private void recordHistory(FlowEntry entry) {
+        ConnectPoint cp = buildConnectPoint(entry);
+        if (cp == null || !mastershipService.isLocalMaster(cp.deviceId())) {
+            return;
+        }
+        histories.compute(cp, (c, ring) -> {
+            FlowLoadRing r = ring == null ? new FlowLoadRing(HISTORY_WINDOW) : ring;
+            r.record(entry.id(), entry.bytes(), entry.packets(), entry.lastSeen());
+            return r;
+        });
+    }
+
+    private void removeHistory(FlowRule rule) {
+        ConnectPoint cp = buildConnectPoint(rule);
+        if (cp == null) {
+            return;
+        }
+        histories.computeIfPresent(cp, (c, ring) -> {
+            ring.remove(rule.id());
+            return ring.isEmpty() ? null : ring;
+        });
+    }
+
+    // Flows of a device which is gone, or mastered elsewhere, are purged
+    // without any rule removal event
+    private void removeHistories(DeviceId deviceId) {
+        histories.keySet().removeIf(cp -> cp.deviceId().equals(deviceId));
+    }
+
+    private static ConnectPoint buildConnectPoint(FlowRule rule) {
+        for (Instruction i : rule.treatment().allInstructions()) {
+            if (i.type() == Instruction.Type.OUTPUT) {
+                return new ConnectPoint(rule.deviceId(), ((Instructions.OutputInstruction) i).port());
+            }
+        }
+        return null;
+    }
+
     /**
      * Internal flow rule event listener for FlowStatisticManager.
      */
@@ -643,10 +724,12 @@ public class FlowStatisticManager implements FlowStatisticService {
                 case RULE_ADDED:
                     if (rule instanceof FlowEntry) {
                         flowStatisticStore.addFlowStatistic((FlowEntry) rule);
+                        recordHistory((FlowEntry) rule);
                     }
                     break;
                 case RULE_UPDATED:
                     flowStatisticStore.updateFlowStatistic((FlowEntry) rule);
+                    recordHistory((FlowEntry) rule);
                     break;
                 case RULE_ADD_REQUESTED:
                     break;
@@ -654,10 +737,30 @@ public class FlowStatisticManager implements FlowStatisticService {
                     break;
                 case RULE_REMOVED:
                     flowStatisticStore.removeFlowStatistic(rule);
+                    removeHistory(rule);
                     break;
                 default:
                     log.warn("Unknown flow rule event {}", event);
             }
         }
     }
+
+    private class InternalDeviceListener implements DeviceListener {
+        @Override
+        public void event(DeviceEvent event) {
+            if (event.type() == DeviceEvent.Type.DEVICE_REMOVED) {
+                removeHistories(event.subject().id());
+            }
+        }
+    }
+
+    private class InternalMastershipListener implements MastershipListener {
+        @Override
+        public void event(MastershipEvent event) {
+            if (event.type() == MastershipEvent.Type.MASTER_CHANGED &&
+                    !mastershipService.isLocalMaster(event.subject())) {
+                removeHistories(event.subject());
+            }
+        }
+    }
 }
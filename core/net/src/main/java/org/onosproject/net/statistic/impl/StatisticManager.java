@@ -176,12 +176,8 @@ public class StatisticManager implements StatisticService {
     }
 
     private Load loadInternal(ConnectPoint connectPoint) {
-        Statistics stats = getStatistics(connectPoint);
-        if (!stats.isValid()) {
-            return new DefaultLoad();
-        }
-
-        return new DefaultLoad(aggregate(stats.current), aggregate(stats.previous));
+        Load load = statisticStore.getLoad(connectPoint);
+        return load != null ? load : new DefaultLoad();
     }
 
     /**
@@ -69,6 +69,29 @@ public class CoreEventDispatcherTest {
         validate(prickleSink);
     }
 
+    @Test
+    public void postWithMultipleDispatchThreads() throws Exception {
+        dispatcher.setDispatchThreads(4);
+        assertEquals("incorrect thread count", 4, dispatcher.getDispatchThreads());
+        prickleSink.latch = new CountDownLatch(3);
+        dispatcher.post(new Prickle("a"));
+        dispatcher.post(new Prickle("b"));
+        dispatcher.post(new Prickle("c"));
+        prickleSink.latch.await(100, TimeUnit.MILLISECONDS);
+        validate(prickleSink, "a", "b", "c");
+        validate(gooSink);
+    }
+
+    @Test
+    public void changeDispatchThreads() throws Exception {
+        prickleSink.latch = new CountDownLatch(2);
+        dispatcher.post(new Prickle("before"));
+        dispatcher.setDispatchThreads(2);
+        dispatcher.post(new Prickle("after"));
+        prickleSink.latch.await(100, TimeUnit.MILLISECONDS);
+        validate(prickleSink, "before", "after");
+    }
+
     @Test
     public void postEventWithNoSink() throws Exception {
         dispatcher.post(new Thing("boom"));
@@ -76,6 +99,17 @@ public class CoreEventDispatcherTest {
         validate(prickleSink);
     }
 
+    @Test
+    public void postWhenInactive() throws Exception {
+        dispatcher.deactivate();
+        dispatcher.post(new Prickle("late"));
+        validate(prickleSink);
+
+        CoreEventDispatcher inactive = new CoreEventDispatcher();
+        inactive.post(new Prickle("early"));
+        dispatcher.activate();
+    }
+
     private void validate(Sink sink, String... strings) {
         int i = 0;
         assertEquals("incorrect event count", strings.length, sink.subjects.size());
@@ -16,7 +16,9 @@
 package org.onosproject.net.flowobjective.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
@@ -64,6 +66,7 @@ import org.onosproject.net.flowobjective.ObjectiveEvent;
 import org.onosproject.net.intent.TestTools;
 
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.notNullValue;
@@ -91,6 +94,7 @@ public class FlowObjectiveManagerTest {
     List<String> filteringObjectives;
     List<String> forwardingObjectives;
     List<String> nextObjectives;
+    List<ForwardingObjective> forwarded;
 
     private class TestDeviceService extends DeviceServiceAdapter {
 
@@ -170,6 +174,7 @@ public class FlowObjectiveManagerTest {
         @Override
         public void forward(ForwardingObjective forwardObjective) {
             forwardingObjectives.add(deviceId.toString());
+            forwarded.add(forwardObjective);
         }
 
         @Override
@@ -198,6 +203,7 @@ public class FlowObjectiveManagerTest {
         filteringObjectives = new ArrayList<>();
         forwardingObjectives = new ArrayList<>();
         nextObjectives = new ArrayList<>();
+        forwarded = Collections.synchronizedList(new ArrayList<>());
         manager.activate();
     }
 
@@ -413,4 +419,84 @@ public class FlowObjectiveManagerTest {
         assertThat(filteringObjectives, hasSize(0));
         assertThat(nextObjectives, hasSize(0));
     }
+
+    /**
+     * Tests that the objectives of a device are installed in the order in
+     * which they were submitted.
+     */
+    @Test
+    public void objectivesInSubmissionOrder() {
+        List<ForwardingObjective> submitted = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ForwardingObjective forward =
+                    DefaultForwardingObjective.builder()
+                            .fromApp(NetTestTools.APP_ID)
+                            .withFlag(ForwardingObjective.Flag.SPECIFIC)
+                            .withSelector(DefaultTrafficSelector.emptySelector())
+                            .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                            .withPriority(i)
+                            .makePermanent()
+                            .add();
+            submitted.add(forward);
+            manager.forward(id1, forward);
+        }
+
+        TestTools.assertAfter(RETRY_MS, () ->
+                assertThat(forwarded, hasSize(submitted.size())));
+        assertThat(forwarded, is(submitted));
+    }
+
+    /**
+     * Tests that objectives submitted before the device pipeliner is set up
+     * are installed once it is.
+     *
+     * @throws TestUtilsException if lookup of a field fails
+     */
+    @Test
+    public void objectiveRetriedUntilPipeliner() throws TestUtilsException {
+        ForwardingObjective forward =
+                DefaultForwardingObjective.builder()
+                        .fromApp(NetTestTools.APP_ID)
+                        .withFlag(ForwardingObjective.Flag.SPECIFIC)
+                        .withSelector(DefaultTrafficSelector.emptySelector())
+                        .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                        .makePermanent()
+                        .add();
+        manager.forward(id2, forward);
+
+        DeviceListener listener = TestUtils.getField(manager, "deviceListener");
+        listener.event(new DeviceEvent(DeviceEvent.Type.DEVICE_ADDED, d2));
+
+        TestTools.assertAfter((int) FlowObjectiveManager.INSTALL_RETRY_INTERVAL + RETRY_MS, () ->
+                assertThat(forwardingObjectives, hasSize(1)));
+        assertThat(forwardingObjectives, hasItem("of:d2"));
+    }
+
+    /**
+     * Tests that the objective queue of a device is dropped once the device
+     * is removed.
+     *
+     * @throws TestUtilsException if lookup of a field fails
+     */
+    @Test
+    public void deviceRemovedEvent() throws TestUtilsException {
+        ForwardingObjective forward =
+                DefaultForwardingObjective.builder()
+                        .fromApp(NetTestTools.APP_ID)
+                        .withFlag(ForwardingObjective.Flag.SPECIFIC)
+                        .withSelector(DefaultTrafficSelector.emptySelector())
+                        .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                        .makePermanent()
+                        .add();
+        manager.forward(id1, forward);
+        TestTools.assertAfter(RETRY_MS, () ->
+                assertThat(forwardingObjectives, hasSize(1)));
+
+        Map<DeviceId, ?> queues = TestUtils.getField(manager, "objectiveQueues");
+        assertThat(queues.containsKey(id1), is(true));
+
+        DeviceListener listener = TestUtils.getField(manager, "deviceListener");
+        listener.event(new DeviceEvent(DeviceEvent.Type.DEVICE_REMOVED, d1));
+        assertThat(queues.containsKey(id1), is(false));
+    }
 }
@@ -36,6 +36,8 @@ import com.google.common.collect.ImmutableList;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for the intent accumulator.
@@ -156,5 +158,24 @@ public class IntentAccumulatorTest {
         accumulator.processItems(intentDataItems);
     }
 
+    /**
+     * Tests that the accumulator is ready only while fewer than the maximum
+     * number of batches are in process.
+     */
+    @Test
+    public void checkBatchesInProcess() {
+        IntentAccumulator accumulator = new IntentAccumulator(operations -> { }, 2);
+        List<IntentData> batch = ImmutableList.of(
+                new IntentData(intent1, IntentState.INSTALLING, new MockTimestamp(1)));
+
+        assertTrue(accumulator.isReady());
+        accumulator.processItems(batch);
+        assertTrue(accumulator.isReady());
+        accumulator.processItems(batch);
+        assertFalse(accumulator.isReady());
+        accumulator.ready();
+        assertTrue(accumulator.isReady());
+    }
+
 
 }
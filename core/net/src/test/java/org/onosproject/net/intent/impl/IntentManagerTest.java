@@ -153,6 +153,11 @@ public class IntentManagerTest {
         public void trackIntent(IntentData intentData) {
             //TODO
         }
+
+        @Override
+        public boolean isBlocked(Key intentKey) {
+            return false;
+        }
     }
 
     private static class MockInstallableIntent extends FlowRuleIntent {
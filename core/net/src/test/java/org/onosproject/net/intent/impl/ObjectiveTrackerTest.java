@@ -16,8 +16,10 @@
 package org.onosproject.net.intent.impl;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -26,8 +28,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onlab.junit.TestUtils;
 import org.onlab.junit.TestUtils.TestUtilsException;
+import org.onosproject.common.DefaultTopologyGraph;
 import org.onosproject.core.IdGenerator;
 import org.onosproject.event.Event;
+import org.onosproject.net.DefaultLink;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.Link;
@@ -36,26 +40,40 @@ import org.onosproject.net.PortNumber;
 import org.onosproject.net.device.DeviceEvent;
 import org.onosproject.net.device.DeviceListener;
 import org.onosproject.net.intent.Intent;
+import org.onosproject.net.intent.IntentData;
+import org.onosproject.net.intent.IntentServiceAdapter;
+import org.onosproject.net.intent.IntentState;
 import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.MockIdGenerator;
+import org.onosproject.net.intent.PointToPointIntent;
 import org.onosproject.net.link.LinkEvent;
 import org.onosproject.net.resource.ResourceEvent;
 import org.onosproject.net.resource.ResourceListener;
 import org.onosproject.net.resource.Resources;
+import org.onosproject.net.topology.DefaultTopologyEdge;
+import org.onosproject.net.topology.DefaultTopologyVertex;
 import org.onosproject.net.topology.Topology;
+import org.onosproject.net.topology.TopologyEdge;
 import org.onosproject.net.topology.TopologyEvent;
+import org.onosproject.net.topology.TopologyGraph;
 import org.onosproject.net.topology.TopologyListener;
+import org.onosproject.net.topology.TopologyServiceAdapter;
+import org.onosproject.net.topology.TopologyVertex;
+import org.onosproject.store.trivial.SystemClockTimestamp;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
 import static org.easymock.EasyMock.createMock;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.onosproject.net.resource.ResourceEvent.Type.*;
 import static org.onosproject.net.NetTestTools.APP_ID;
+import static org.onosproject.net.NetTestTools.PID;
+import static org.onosproject.net.NetTestTools.connectPoint;
 import static org.onosproject.net.NetTestTools.device;
 import static org.onosproject.net.NetTestTools.link;
 
@@ -324,5 +342,92 @@ public class ObjectiveTrackerTest {
         assertThat(delegate.compileAllFailedFromEvent, is(true));
     }
 
+    // Serves a topology graph made of the given links.
+    private void useLinks(Set<Link> links) {
+        tracker.topologyService = new TopologyServiceAdapter() {
+            @Override
+            public Topology currentTopology() {
+                return topology;
+            }
+
+            @Override
+            public TopologyGraph getGraph(Topology topology) {
+                Set<TopologyVertex> vertexes = new HashSet<>();
+                Set<TopologyEdge> edges = new HashSet<>();
+                for (Link link : links) {
+                    TopologyVertex src = new DefaultTopologyVertex(link.src().deviceId());
+                    TopologyVertex dst = new DefaultTopologyVertex(link.dst().deviceId());
+                    vertexes.add(src);
+                    vertexes.add(dst);
+                    edges.add(new DefaultTopologyEdge(src, dst, link));
+                }
+                return new DefaultTopologyGraph(vertexes, edges);
+            }
+        };
+        tracker.intentService = new IntentServiceAdapter() {
+            @Override
+            public boolean isLocal(Key intentKey) {
+                return true;
+            }
+        };
+    }
+
+    private static Intent pointToPoint(String ingress, String egress) {
+        return PointToPointIntent.builder().appId(APP_ID)
+                .ingressPoint(connectPoint(ingress, 1)).egressPoint(connectPoint(egress, 1)).build();
+    }
+
+    private static Link indirect(String src, int sp, String dst, int dp) {
+        return DefaultLink.builder().providerId(PID).src(connectPoint(src, sp))
+                .dst(connectPoint(dst, dp)).type(Link.Type.INDIRECT).build();
+    }
+
+    /**
+     * Tests that failed intents with unreachable end-points are recompiled
+     * only once their end-points become reachable.
+     *
+     * @throws InterruptedException if the latch wait fails.
+     */
+    @Test
+    public void testBlockedIntentRecovery() throws InterruptedException {
+        Set<Link> links = new HashSet<>();
+        links.add(link("c", 2, "a", 2));
+        useLinks(links);
+
+        Intent recovered = pointToPoint("a", "b");
+        Intent unreachable = pointToPoint("a", "c");
+        tracker.trackIntent(new IntentData(recovered, IntentState.FAILED, new SystemClockTimestamp(1L)));
+        tracker.trackIntent(new IntentData(unreachable, IntentState.FAILED, new SystemClockTimestamp(1L)));
+        assertThat(tracker.isBlocked(recovered.key()), is(true));
+        assertThat(tracker.isBlocked(unreachable.key()), is(true));
+
+        links.add(link("a", 3, "b", 3));
+        topology = createMock(Topology.class);
+        reasons.add(new LinkEvent(LinkEvent.Type.LINK_ADDED, link("a", 3, "b", 3)));
+        listener.event(new TopologyEvent(TopologyEvent.Type.TOPOLOGY_CHANGED, topology, reasons));
+        assertThat(
+                delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                is(true));
 
+        assertThat(delegate.intentIdsFromEvent, contains(recovered.key()));
+        assertThat(delegate.compileAllFailedFromEvent, is(true));
+        assertThat(tracker.isBlocked(recovered.key()), is(false));
+        assertThat(tracker.isBlocked(unreachable.key()), is(true));
+    }
+
+    /**
+     * Tests that end-points joined only by indirect links, in one direction,
+     * are deemed reachable.
+     */
+    @Test
+    public void testIndirectReachability() {
+        useLinks(ImmutableSet.of(indirect("a", 2, "b", 2), indirect("b", 3, "c", 3)));
+
+        Intent forward = pointToPoint("a", "c");
+        Intent backward = pointToPoint("c", "a");
+        tracker.trackIntent(new IntentData(forward, IntentState.FAILED, new SystemClockTimestamp(1L)));
+        tracker.trackIntent(new IntentData(backward, IntentState.FAILED, new SystemClockTimestamp(1L)));
+        assertThat(tracker.isBlocked(forward.key()), is(false));
+        assertThat(tracker.isBlocked(backward.key()), is(true));
+    }
 }
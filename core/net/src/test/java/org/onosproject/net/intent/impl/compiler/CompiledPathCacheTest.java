@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.intent.impl.compiler;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.util.Bandwidth;
+import org.onosproject.net.HostId;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.intent.Constraint;
+import org.onosproject.net.intent.constraint.BandwidthConstraint;
+import org.onosproject.net.intent.constraint.LinkTypeConstraint;
+import org.onosproject.net.topology.Topology;
+import org.onosproject.net.topology.TopologyServiceAdapter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.createMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.onosproject.net.NetTestTools.createPath;
+import static org.onosproject.net.NetTestTools.did;
+import static org.onosproject.net.NetTestTools.hid;
+
+/**
+ * Unit tests for the compiled path cache.
+ */
+public class CompiledPathCacheTest {
+
+    private static final Object KIND = "connectivity";
+
+    private final CompiledPathCache cache = new CompiledPathCache();
+    private final AtomicInteger computed = new AtomicInteger();
+    private final Path path = createPath("one", "two", "three");
+
+    private Topology topology = createMock(Topology.class);
+
+    @Before
+    public void setUp() {
+        cache.topologyService = new TopologyServiceAdapter() {
+            @Override
+            public Topology currentTopology() {
+                return topology;
+            }
+        };
+        cache.activate();
+    }
+
+    private Path compute() {
+        computed.incrementAndGet();
+        return path;
+    }
+
+    private Path get(String one, String two, List<Constraint> constraints) {
+        return cache.getPath(KIND, did(one), did(two), constraints, this::compute);
+    }
+
+    /**
+     * Tests that paths are shared between lookups with the same end-points
+     * and constraints on the same topology.
+     */
+    @Test
+    public void sharedPaths() {
+        List<Constraint> constraints = ImmutableList.of(new LinkTypeConstraint(false, Link.Type.OPTICAL));
+
+        assertSame(path, get("one", "three", constraints));
+        assertSame(path, get("one", "three", ImmutableList.of(new LinkTypeConstraint(false, Link.Type.OPTICAL))));
+        assertEquals(1, computed.get());
+
+        get("one", "three", Collections.emptyList());
+        get("three", "one", constraints);
+        assertEquals(3, computed.get());
+    }
+
+    /**
+     * Tests that paths of distinct kinds are kept apart.
+     */
+    @Test
+    public void distinctKinds() {
+        assertSame(path, get("one", "three", Collections.emptyList()));
+        cache.getPath("other", did("one"), did("three"), Collections.emptyList(), this::compute);
+        assertEquals(2, computed.get());
+    }
+
+    /**
+     * Tests that paths between hosts are not cached, as hosts may move
+     * without the topology changing.
+     */
+    @Test
+    public void hostPaths() {
+        HostId host = hid("00:00:00:00:00:01/None");
+        cache.getPath(KIND, host, did("three"), Collections.emptyList(), this::compute);
+        cache.getPath(KIND, host, did("three"), Collections.emptyList(), this::compute);
+        cache.getPath(KIND, did("three"), host, Collections.emptyList(), this::compute);
+        cache.getPath(KIND, did("three"), host, Collections.emptyList(), this::compute);
+        assertEquals(4, computed.get());
+    }
+
+    /**
+     * Tests that missing paths are cached as well.
+     */
+    @Test
+    public void missingPaths() {
+        assertNull(cache.getPath(KIND, did("one"), did("two"), Collections.emptyList(), () -> {
+            computed.incrementAndGet();
+            return null;
+        }));
+        assertNull(get("one", "two", Collections.emptyList()));
+        assertEquals(1, computed.get());
+    }
+
+    /**
+     * Tests that paths are recomputed after the topology changes or the
+     * cache is invalidated.
+     */
+    @Test
+    public void invalidation() {
+        get("one", "three", Collections.emptyList());
+        topology = createMock(Topology.class);
+        get("one", "three", Collections.emptyList());
+        assertEquals(2, computed.get());
+
+        cache.invalidate();
+        get("one", "three", Collections.emptyList());
+        get("one", "three", Collections.emptyList());
+        assertEquals(3, computed.get());
+    }
+
+    /**
+     * Tests that paths depending on resource availability are not cached.
+     */
+    @Test
+    public void resourceConstraints() {
+        List<Constraint> constraints = ImmutableList.of(new BandwidthConstraint(Bandwidth.bps(1000)));
+        get("one", "three", constraints);
+        get("one", "three", constraints);
+        assertEquals(2, computed.get());
+    }
+}
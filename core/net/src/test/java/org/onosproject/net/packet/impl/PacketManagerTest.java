@@ -18,32 +18,47 @@ package org.onosproject.net.packet.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
 import org.onosproject.cluster.ClusterServiceAdapter;
 import org.onosproject.common.event.impl.TestEventDispatcher;
 import org.onosproject.core.CoreServiceAdapter;
 import org.onosproject.core.IdGenerator;
 import org.onosproject.event.TestListener;
 import org.onosproject.net.AnnotationKeys;
+import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultAnnotations;
 import org.onosproject.net.DefaultDevice;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.device.DeviceServiceAdapter;
 import org.onosproject.net.driver.AbstractHandlerBehaviour;
 import org.onosproject.net.driver.DefaultDriver;
 import org.onosproject.net.driver.impl.DriverManager;
 import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.packet.DefaultInboundPacket;
 import org.onosproject.net.packet.DefaultOutboundPacket;
+import org.onosproject.net.packet.DefaultPacketContext;
+import org.onosproject.net.packet.InboundPacket;
 import org.onosproject.net.packet.OutboundPacket;
+import org.onosproject.net.packet.PacketContext;
+import org.onosproject.net.packet.PacketProcessor;
+import org.onosproject.net.packet.PacketProcessorFilter;
 import org.onosproject.net.packet.PacketProgrammable;
+import org.onosproject.net.packet.PacketProvider;
 import org.onosproject.net.packet.PacketProviderRegistry;
+import org.onosproject.net.packet.PacketProviderService;
+import org.onosproject.net.provider.AbstractProvider;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.provider.TestProvider;
 import org.onosproject.store.trivial.SimplePacketStore;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
@@ -102,6 +117,80 @@ public class PacketManagerTest {
         assertEquals("Packet not emitted correctly", packet, emittedPacket);
     }
 
+    /**
+     * Tests that packets are only dispatched to processors whose filter
+     * accepts them, in the order of processor priority.
+     */
+    @Test
+    public void filteredDispatch() {
+        List<String> invoked = Lists.newArrayList();
+        mgr.addProcessor(context -> invoked.add("arp"), PacketProcessor.director(1),
+                         PacketProcessorFilter.builder().matchEthType(Ethernet.TYPE_ARP).build());
+        mgr.addProcessor(context -> invoked.add("all"), PacketProcessor.director(2));
+        mgr.addProcessor(context -> invoked.add("udp"), PacketProcessor.advisor(0),
+                         PacketProcessorFilter.builder()
+                                 .matchEthType(Ethernet.TYPE_IPV4)
+                                 .matchIpProtocol(IPv4.PROTOCOL_UDP)
+                                 .build());
+        PacketProcessor tcp = context -> invoked.add("tcp");
+        mgr.addProcessor(tcp, PacketProcessor.observer(0),
+                         PacketProcessorFilter.builder().matchIpProtocol(IPv4.PROTOCOL_TCP).build());
+
+        PacketProviderService providerService = providerRegistry.register(new TestPacketProvider());
+
+        Ethernet arp = new Ethernet();
+        arp.setEtherType(Ethernet.TYPE_ARP);
+        providerService.processPacket(context(arp));
+        assertEquals("incorrect ARP dispatch", ImmutableList.of("arp", "all"), invoked);
+
+        invoked.clear();
+        providerService.processPacket(context(ip(IPv4.PROTOCOL_UDP)));
+        assertEquals("incorrect UDP dispatch", ImmutableList.of("udp", "all"), invoked);
+
+        invoked.clear();
+        providerService.processPacket(context(ip(IPv4.PROTOCOL_TCP)));
+        assertEquals("incorrect TCP dispatch", ImmutableList.of("all", "tcp"), invoked);
+
+        invoked.clear();
+        providerService.processPacket(context(null));
+        assertEquals("incorrect unparsed dispatch", ImmutableList.of("all"), invoked);
+
+        invoked.clear();
+        mgr.removeProcessor(tcp);
+        providerService.processPacket(context(ip(IPv4.PROTOCOL_TCP)));
+        assertEquals("incorrect dispatch after removal", ImmutableList.of("all"), invoked);
+        assertEquals("incorrect processor count", 3, mgr.getProcessors().size());
+    }
+
+    private static Ethernet ip(byte protocol) {
+        IPv4 ip = new IPv4();
+        ip.setProtocol(protocol);
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        eth.setPayload(ip);
+        return eth;
+    }
+
+    private static PacketContext context(Ethernet eth) {
+        InboundPacket inPacket = new DefaultInboundPacket(new ConnectPoint(FOO_DID, PortNumber.portNumber(1)),
+                                                          eth, ByteBuffer.allocate(5));
+        return new DefaultPacketContext(0, inPacket, null, false) {
+            @Override
+            public void send() {
+            }
+        };
+    }
+
+    private static class TestPacketProvider extends AbstractProvider implements PacketProvider {
+        TestPacketProvider() {
+            super(new ProviderId("bar", "bar"));
+        }
+
+        @Override
+        public void emit(OutboundPacket packet) {
+        }
+    }
+
     private static class TestDeviceService extends DeviceServiceAdapter {
         @Override
         public int getDeviceCount() {
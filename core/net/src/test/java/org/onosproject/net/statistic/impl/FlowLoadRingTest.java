@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.statistic.impl;
+
+import org.junit.Test;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.statistic.FlowLoadHistory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.NetTestTools.connectPoint;
+
+/**
+ * Unit tests for the per-port flow load history.
+ */
+public class FlowLoadRingTest {
+
+    private final ConnectPoint cp = connectPoint("one", 1);
+    private final FlowLoadRing ring = new FlowLoadRing(3);
+
+    private static FlowId fid(long id) {
+        return FlowId.valueOf(id);
+    }
+
+    /**
+     * Tests that only the last samples of a flow are kept, oldest first.
+     */
+    @Test
+    public void window() {
+        ring.record(fid(1), 0, 0, 1000);
+        assertEquals(0, ring.history(cp, fid(1)).size());
+
+        for (int i = 1; i <= 5; i++) {
+            ring.record(fid(1), i * 100, i * 10, 1000 + i * 1000);
+        }
+        FlowLoadHistory history = ring.history(cp, fid(1));
+        assertEquals(3, history.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(4000 + i * 1000, history.time(i));
+            assertEquals(1000, history.duration(i));
+            assertEquals(100, history.bytes(i));
+            assertEquals(10, history.packets(i));
+            assertEquals(100, history.byteRate(i));
+        }
+    }
+
+    /**
+     * Tests that stale and reset counters do not produce samples.
+     */
+    @Test
+    public void resets() {
+        ring.record(fid(1), 500, 50, 1000);
+        ring.record(fid(1), 400, 40, 1000);
+        ring.record(fid(1), 100, 10, 2000);
+        ring.record(fid(1), 300, 30, 3000);
+
+        FlowLoadHistory history = ring.history(cp, fid(1));
+        assertEquals(1, history.size());
+        assertEquals(200, history.bytes(0));
+        assertEquals(20, history.packets(0));
+    }
+
+    /**
+     * Tests that top-n queries follow the latest byte rates as flows are
+     * updated and removed.
+     */
+    @Test
+    public void topn() {
+        for (long id = 1; id <= 20; id++) {
+            ring.record(fid(id), 0, 0, 1000);
+            ring.record(fid(id), id * 1000, id, 2000);
+        }
+        assertEquals(ids(20, 19, 18), topIds(3));
+
+        ring.record(fid(3), 1_000_000, 1000, 3000);
+        ring.record(fid(20), 20_000, 20, 3000);
+        assertEquals(ids(3, 19, 18, 17), topIds(4));
+
+        ring.remove(fid(3));
+        ring.remove(fid(18));
+        assertNull(ring.history(cp, fid(3)));
+        assertEquals(ids(19, 17, 16), topIds(3));
+        assertEquals(18, topIds(100).size());
+
+        for (long id = 1; id <= 20; id++) {
+            ring.remove(fid(id));
+        }
+        assertTrue(ring.isEmpty());
+        assertTrue(ring.topn(cp, 3).isEmpty());
+    }
+
+    private List<FlowId> topIds(int topn) {
+        return ring.topn(cp, topn).stream()
+                .map(FlowLoadHistory::flowId)
+                .collect(Collectors.toList());
+    }
+
+    private static List<FlowId> ids(long... ids) {
+        return Arrays.stream(ids).mapToObj(FlowId::valueOf).collect(Collectors.toList());
+    }
+}
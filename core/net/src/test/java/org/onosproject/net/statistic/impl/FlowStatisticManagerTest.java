@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.statistic.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.MacAddress;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.mastership.MastershipEvent;
+import org.onosproject.mastership.MastershipListener;
+import org.onosproject.mastership.MastershipServiceAdapter;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
+import org.onosproject.net.device.DeviceServiceAdapter;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleServiceAdapter;
+import org.onosproject.net.statistic.FlowStatisticStore;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.onosproject.net.NetTestTools.device;
+
+/**
+ * Unit tests for the flow load history kept by the flow statistic manager.
+ */
+public class FlowStatisticManagerTest {
+
+    private static final PortNumber PORT = PortNumber.portNumber(1);
+
+    private final Device dev1 = device("1");
+    private final Device dev2 = device("2");
+    private final Set<DeviceId> mastered = new HashSet<>();
+
+    private FlowStatisticManager manager;
+    private FlowRuleListener flowRuleListener;
+    private DeviceListener deviceListener;
+    private MastershipListener mastershipListener;
+
+    @Before
+    public void setUp() {
+        manager = new FlowStatisticManager();
+        manager.flowStatisticStore = new TestFlowStatisticStore();
+        manager.flowRuleService = new FlowRuleServiceAdapter() {
+            @Override
+            public void addListener(FlowRuleListener listener) {
+                flowRuleListener = listener;
+            }
+        };
+        manager.deviceService = new DeviceServiceAdapter() {
+            @Override
+            public void addListener(DeviceListener listener) {
+                deviceListener = listener;
+            }
+        };
+        manager.mastershipService = new MastershipServiceAdapter() {
+            @Override
+            public boolean isLocalMaster(DeviceId deviceId) {
+                return mastered.contains(deviceId);
+            }
+
+            @Override
+            public void addListener(MastershipListener listener) {
+                mastershipListener = listener;
+            }
+        };
+        manager.activate();
+        mastered.add(dev1.id());
+        mastered.add(dev2.id());
+    }
+
+    @After
+    public void tearDown() {
+        manager.deactivate();
+    }
+
+    private static FlowRule rule(Device device) {
+        return DefaultFlowRule.builder()
+                .forDevice(device.id())
+                .withSelector(DefaultTrafficSelector.builder()
+                                      .matchEthDst(MacAddress.valueOf(1)).build())
+                .withTreatment(DefaultTrafficTreatment.builder().setOutput(PORT).build())
+                .withPriority(10)
+                .fromApp(new DefaultApplicationId(1, "test"))
+                .makePermanent()
+                .build();
+    }
+
+    private void poll(FlowRule rule) {
+        FlowEntry entry = new DefaultFlowEntry(rule, FlowEntry.FlowEntryState.ADDED, 1, 10, 100);
+        flowRuleListener.event(new FlowRuleEvent(FlowRuleEvent.Type.RULE_UPDATED, entry));
+    }
+
+    /**
+     * Tests that the histories of a device are dropped once it is removed.
+     */
+    @Test
+    public void deviceRemoved() {
+        FlowRule rule1 = rule(dev1);
+        FlowRule rule2 = rule(dev2);
+        poll(rule1);
+        poll(rule2);
+        assertNotNull(manager.loadHistory(dev1, PORT, rule1.id()));
+        assertNotNull(manager.loadHistory(dev2, PORT, rule2.id()));
+
+        deviceListener.event(new DeviceEvent(DeviceEvent.Type.DEVICE_REMOVED, dev1));
+        assertNull(manager.loadHistory(dev1, PORT, rule1.id()));
+        assertNotNull(manager.loadHistory(dev2, PORT, rule2.id()));
+    }
+
+    /**
+     * Tests that histories are only kept for the devices this instance
+     * is master of.
+     */
+    @Test
+    public void mastershipLost() {
+        FlowRule rule1 = rule(dev1);
+        FlowRule rule2 = rule(dev2);
+        poll(rule1);
+        poll(rule2);
+
+        mastered.remove(dev1.id());
+        mastershipListener.event(new MastershipEvent(MastershipEvent.Type.MASTER_CHANGED, dev1.id(), null));
+        assertNull(manager.loadHistory(dev1, PORT, rule1.id()));
+        assertNotNull(manager.loadHistory(dev2, PORT, rule2.id()));
+
+        poll(rule1);
+        assertNull(manager.loadHistory(dev1, PORT, rule1.id()));
+        assertEquals(0, manager.loadTopnHistory(dev1, PORT, 10).size());
+    }
+
+    private static final class TestFlowStatisticStore implements FlowStatisticStore {
+        @Override
+        public void removeFlowStatistic(FlowRule rule) {
+        }
+
+        @Override
+        public void addFlowStatistic(FlowEntry rule) {
+        }
+
+        @Override
+        public void updateFlowStatistic(FlowEntry rule) {
+        }
+
+        @Override
+        public Set<FlowEntry> getCurrentFlowStatistic(ConnectPoint connectPoint) {
+            return null;
+        }
+
+        @Override
+        public Set<FlowEntry> getPreviousFlowStatistic(ConnectPoint connectPoint) {
+            return null;
+        }
+    }
+}
@@ -28,15 +28,23 @@ import org.onosproject.store.cluster.messaging.impl.InternalMessage.Status;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Decoder for inbound messages.
+ * <p>
+ * Message handlers consume payloads as byte arrays, so the content of each
+ * message is copied once out of the inbound buffer, which is released as
+ * soon as it is decoded; the header is read in place.
+ * </p>
  */
 public class MessageDecoder extends ReplayingDecoder<DecoderState> {
 
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private long messageId;
@@ -49,6 +57,9 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
     private Status status;
     private int contentLength;
 
+    // Message types interned by the peer, indexed by their identifier
+    private final List<String> types = new ArrayList<>();
+
     public MessageDecoder() {
         super(DecoderState.READ_MESSAGE_PREAMBLE);
     }
@@ -82,9 +93,19 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
             messageTypeLength = buffer.readInt();
             checkpoint(DecoderState.READ_MESSAGE_TYPE);
         case READ_MESSAGE_TYPE:
-            byte[] messageTypeBytes = new byte[messageTypeLength];
-            buffer.readBytes(messageTypeBytes);
-            messageType = new String(messageTypeBytes, Charsets.UTF_8);
+            if (messageTypeLength >= 0) {
+                messageType = readType(buffer, messageTypeLength);
+            } else if (messageTypeLength == MessageEncoder.TYPE_DEFINITION) {
+                int typeId = buffer.readInt();
+                String type = readType(buffer, buffer.readInt());
+                checkState(typeId == types.size(), "Unexpected message type id %s", typeId);
+                types.add(type);
+                messageType = type;
+            } else {
+                int typeId = MessageEncoder.TYPE_DEFINITION - 1 - messageTypeLength;
+                checkState(typeId < types.size(), "Unknown message type id %s", typeId);
+                messageType = types.get(typeId);
+            }
             checkpoint(DecoderState.READ_MESSAGE_STATUS);
         case READ_MESSAGE_STATUS:
             status = Status.values()[buffer.readInt()];
@@ -96,10 +117,11 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
             byte[] payload;
             if (contentLength > 0) {
                 //TODO Perform a sanity check on the size before allocating
+                // single copy, handed over as is to the message handler
                 payload = new byte[contentLength];
                 buffer.readBytes(payload);
             } else {
-                payload = new byte[0];
+                payload = EMPTY_PAYLOAD;
             }
             InternalMessage message = new InternalMessage(preamble,
                                                           messageId,
@@ -115,6 +137,12 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
         }
     }
 
+    private static String readType(ByteBuf buffer, int length) {
+        byte[] messageTypeBytes = new byte[length];
+        buffer.readBytes(messageTypeBytes);
+        return new String(messageTypeBytes, Charsets.UTF_8);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext context, Throwable cause) {
         log.error("Exception inside channel handling pipeline.", cause);
@@ -16,10 +16,13 @@
 package org.onosproject.store.cluster.messaging.impl;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.util.AttributeKey;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.IpAddress.Version;
 import org.onosproject.store.cluster.messaging.Endpoint;
@@ -27,15 +30,49 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Encode InternalMessage out into a byte buffer.
+ * <p>
+ * Once the peer has acknowledged support for it, message types are sent
+ * as integer identifiers assigned per connection: the first message of a
+ * given type carries a type definition, encoded with a length of
+ * {@link #TYPE_DEFINITION} followed by the identifier and the type string;
+ * subsequent ones carry a reference, encoded as a negative length below
+ * {@link #TYPE_DEFINITION}. Legacy peers never see either.
+ * </p>
  */
 @Sharable
-public class MessageEncoder extends MessageToByteEncoder<InternalMessage> {
+public class MessageEncoder extends MessageToMessageEncoder<InternalMessage> {
+
+    /**
+     * Message type length denoting an interned type definition.
+     */
+    public static final int TYPE_DEFINITION = -1;
+
+    /**
+     * Maximum number of message types interned per connection.
+     */
+    public static final int MAX_INTERNED_TYPES = 1024;
+
+    /**
+     * Identifiers of the message types interned on a connection; present
+     * only once the peer has acknowledged support for interning.
+     */
+    static final AttributeKey<Map<String, Integer>> TYPE_IDS =
+            AttributeKey.valueOf("onosMessageTypeIds");
+
+    // Largest header: preamble, id, IPv6 sender, port, type definition,
+    // status and payload length; type bytes come on top.
+    private static final int MAX_HEADER_LENGTH = 4 + 8 + 1 + 16 + 4 + 12 + 4 + 4;
 
     private final int preamble;
 
+    // UTF-8 encoding of the message types seen so far
+    private final Map<String, byte[]> typeBytes = Maps.newConcurrentMap();
+
     public MessageEncoder(int preamble) {
         super();
         this.preamble = preamble;
@@ -43,48 +80,80 @@ public class MessageEncoder extends MessageToByteEncoder<InternalMessage> {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    /**
+     * Enables interning of message types on the channel of the given context.
+     *
+     * @param context channel handler context
+     */
+    static void enableTypeInterning(ChannelHandlerContext context) {
+        context.channel().attr(TYPE_IDS).setIfAbsent(Maps.newHashMap());
+    }
+
     @Override
     protected void encode(
             ChannelHandlerContext context,
             InternalMessage message,
-            ByteBuf out) throws Exception {
+            List<Object> out) throws Exception {
+
+        byte[] messageTypeBytes = typeBytes.computeIfAbsent(message.type(),
+                                                            t -> t.getBytes(Charsets.UTF_8));
+        ByteBuf header = context.alloc().buffer(MAX_HEADER_LENGTH + messageTypeBytes.length);
 
-        out.writeInt(this.preamble);
+        header.writeInt(this.preamble);
 
         // write message id
-        out.writeLong(message.id());
+        header.writeLong(message.id());
 
         Endpoint sender = message.sender();
 
         IpAddress senderIp = sender.host();
         if (senderIp.version() == Version.INET) {
-            out.writeByte(0);
+            header.writeByte(0);
         } else {
-            out.writeByte(1);
+            header.writeByte(1);
         }
-        out.writeBytes(senderIp.toOctets());
+        header.writeBytes(senderIp.toOctets());
 
         // write sender port
-        out.writeInt(sender.port());
-
-        byte[] messageTypeBytes = message.type().getBytes(Charsets.UTF_8);
+        header.writeInt(sender.port());
 
-        // write length of message type
-        out.writeInt(messageTypeBytes.length);
-
-        // write message type bytes
-        out.writeBytes(messageTypeBytes);
+        writeType(context, message.type(), messageTypeBytes, header);
 
         // write message status value
-        out.writeInt(message.status().ordinal());
+        header.writeInt(message.status().ordinal());
 
         byte[] payload = message.payload();
 
         // write payload length
-        out.writeInt(payload.length);
+        header.writeInt(payload.length);
+
+        // hand the payload over as is, rather than copying it
+        out.add(payload.length > 0 ?
+                        Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(payload)) : header);
+    }
+
+    private void writeType(ChannelHandlerContext context, String type,
+                           byte[] messageTypeBytes, ByteBuf out) {
+        Map<String, Integer> typeIds = context.channel().attr(TYPE_IDS).get();
+        if (typeIds != null) {
+            Integer typeId = typeIds.get(type);
+            if (typeId != null) {
+                out.writeInt(TYPE_DEFINITION - 1 - typeId);
+                return;
+            }
+            if (typeIds.size() < MAX_INTERNED_TYPES) {
+                typeId = typeIds.size();
+                typeIds.put(type, typeId);
+                out.writeInt(TYPE_DEFINITION);
+                out.writeInt(typeId);
+            }
+        }
 
-        // write payload.
-        out.writeBytes(payload);
+        // write length of message type
+        out.writeInt(messageTypeBytes.length);
+
+        // write message type bytes
+        out.writeBytes(messageTypeBytes);
     }
 
     @Override
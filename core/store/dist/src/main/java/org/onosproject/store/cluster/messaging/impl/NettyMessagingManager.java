@@ -15,11 +15,9 @@
  */
 package org.onosproject.store.cluster.messaging.impl;
 
+import com.codahale.metrics.Histogram;
 import com.google.common.base.Strings;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
+import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import io.netty.bootstrap.Bootstrap;
@@ -41,6 +39,7 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.Future;
 
 import org.apache.commons.pool.KeyedPoolableObjectFactory;
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
@@ -50,6 +49,9 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.Tools;
 import org.onosproject.cluster.ClusterMetadataService;
 import org.onosproject.cluster.ControllerNode;
@@ -68,6 +70,7 @@ import javax.net.ssl.TrustManagerFactory;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.KeyStore;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -75,7 +78,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
@@ -92,29 +94,28 @@ import static org.onosproject.security.AppPermission.Type.CLUSTER_WRITE;
 @Service
 public class NettyMessagingManager implements MessagingService {
 
-    private static final int REPLY_TIME_OUT_SEC = 2;
+    private static final long DEFAULT_REPLY_TIMEOUT_MILLIS = 2000;
     private static final short MIN_KS_LENGTH = 6;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private static final String REPLY_MESSAGE_TYPE = "NETTY_MESSAGING_REQUEST_REPLY";
 
+    // Sent by the connecting side to learn which wire format extensions the
+    // peer supports; legacy peers treat it as a message with no handler.
+    private static final String HELLO_MESSAGE_TYPE = "NETTY_MESSAGING_HELLO";
+    private static final String HELLO_ACK_MESSAGE_TYPE = "NETTY_MESSAGING_HELLO_ACK";
+
+    // Wire format version supporting interned message types
+    private static final int TYPE_INTERNING_VERSION = 1;
+    private static final int PROTOCOL_VERSION = TYPE_INTERNING_VERSION;
+
     private Endpoint localEp;
     private int preamble;
     private final AtomicBoolean started = new AtomicBoolean(false);
     private final Map<String, Consumer<InternalMessage>> handlers = new ConcurrentHashMap<>();
     private final AtomicLong messageIdGenerator = new AtomicLong(0);
-    private final Cache<Long, Callback> callbacks = CacheBuilder.newBuilder()
-            .expireAfterWrite(REPLY_TIME_OUT_SEC, TimeUnit.SECONDS)
-            .removalListener(new RemovalListener<Long, Callback>() {
-                @Override
-                public void onRemoval(RemovalNotification<Long, Callback> entry) {
-                    if (entry.wasEvicted()) {
-                        entry.getValue().completeExceptionally(new TimeoutException("Timedout waiting for reply"));
-                    }
-                }
-            })
-            .build();
+    protected RequestTracker requests;
 
     private final GenericKeyedObjectPool<Endpoint, Connection> channels
             = new GenericKeyedObjectPool<Endpoint, Connection>(new OnosCommunicationChannelFactory());
@@ -127,6 +128,19 @@ public class NettyMessagingManager implements MessagingService {
     protected static final boolean TLS_DISABLED = false;
     protected boolean enableNettyTls = TLS_DISABLED;
 
+    protected static final boolean BATCHING_DISABLED = false;
+    protected static final int DEFAULT_BATCH_MAX_BYTES = 64 * 1024;
+    protected static final int DEFAULT_BATCH_MAX_DELAY_MICROS = 100;
+    protected boolean enableNettyBatching = BATCHING_DISABLED;
+    protected int batchMaxBytes = DEFAULT_BATCH_MAX_BYTES;
+    protected int batchMaxDelayMicros = DEFAULT_BATCH_MAX_DELAY_MICROS;
+
+    private static final String METRICS_COMPONENT = "NettyMessaging";
+    private static final String METRICS_FEATURE_BATCH = "batch";
+    private MetricsComponent metricsComponent;
+    private Histogram batchMessages;
+    private Histogram batchBytes;
+
     protected String ksLocation;
     protected String tsLocation;
     protected char[] ksPwd;
@@ -135,10 +149,17 @@ public class NettyMessagingManager implements MessagingService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ClusterMetadataService clusterMetadataService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     @Activate
     public void activate() throws Exception {
         ControllerNode localNode = clusterMetadataService.getLocalNode();
         getTlsParameters();
+        if (metricsService != null) {
+            metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        }
+        getBatchingParameters();
 
         if (started.get()) {
             log.warn("Already running at local endpoint: {}", localEp);
@@ -151,10 +172,10 @@ public class NettyMessagingManager implements MessagingService {
         channels.setTestOnReturn(true);
         channels.setMinEvictableIdleTimeMillis(60_000L);
         channels.setTimeBetweenEvictionRunsMillis(30_000L);
+        requests = new RequestTracker(metricsService, metricsComponent);
         initEventLoopGroup();
         startAcceptingConnections();
         started.set(true);
-        serverGroup.scheduleWithFixedDelay(callbacks::cleanUp, 0, REPLY_TIME_OUT_SEC, TimeUnit.SECONDS);
         log.info("Started");
     }
 
@@ -164,6 +185,7 @@ public class NettyMessagingManager implements MessagingService {
             channels.close();
             serverGroup.shutdownGracefully();
             clientGroup.shutdownGracefully();
+            requests.stop();
             started.set(false);
         }
         log.info("Stopped");
@@ -196,6 +218,21 @@ public class NettyMessagingManager implements MessagingService {
             }
         }
     }
+    private void getBatchingParameters() {
+        String tempString = System.getProperty("enableNettyBatching");
+        enableNettyBatching = Strings.isNullOrEmpty(tempString) ?
+                BATCHING_DISABLED : Boolean.parseBoolean(tempString);
+        batchMaxBytes = Integer.getInteger("nettyBatchMaxBytes", DEFAULT_BATCH_MAX_BYTES);
+        batchMaxDelayMicros = Integer.getInteger("nettyBatchMaxDelayMicros", DEFAULT_BATCH_MAX_DELAY_MICROS);
+        log.info("enableNettyBatching = {}, nettyBatchMaxBytes = {}, nettyBatchMaxDelayMicros = {}",
+                 enableNettyBatching, batchMaxBytes, batchMaxDelayMicros);
+        if (enableNettyBatching && metricsComponent != null) {
+            MetricsFeature feature = metricsComponent.registerFeature(METRICS_FEATURE_BATCH);
+            batchMessages = metricsService.createHistogram(metricsComponent, feature, "messages");
+            batchBytes = metricsService.createHistogram(metricsComponent, feature, "bytes");
+        }
+    }
+
     private void initEventLoopGroup() {
         // try Epoll first and if that does work, use nio.
         try {
@@ -260,16 +297,23 @@ public class NettyMessagingManager implements MessagingService {
     @Override
     public CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload, Executor executor) {
         checkPermission(CLUSTER_WRITE);
+        return sendAndReceive(ep, type, payload, executor, Duration.ofMillis(DEFAULT_REPLY_TIMEOUT_MILLIS));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload,
+                                                    Executor executor, Duration timeout) {
+        checkPermission(CLUSTER_WRITE);
         CompletableFuture<byte[]> response = new CompletableFuture<>();
-        Callback callback = new Callback(response, executor);
-        Long messageId = messageIdGenerator.incrementAndGet();
-        callbacks.put(messageId, callback);
+        long messageId = messageIdGenerator.incrementAndGet();
+        requests.register(messageId, type, response, executor, timeout.toMillis());
         InternalMessage message = new InternalMessage(preamble, messageId, localEp, type, payload);
-        return sendAsync(ep, message).whenComplete((r, e) -> {
+        sendAsync(ep, message).whenComplete((r, e) -> {
             if (e != null) {
-                callbacks.invalidate(messageId);
+                requests.fail(messageId, e);
             }
-        }).thenCompose(v -> response);
+        });
+        return response;
     }
 
     @Override
@@ -376,6 +420,8 @@ public class NettyMessagingManager implements MessagingService {
 
             f.addListener(future -> {
                 if (future.isSuccess()) {
+                    // the hello goes out before any message sent on this connection
+                    f.channel().writeAndFlush(helloMessage(HELLO_MESSAGE_TYPE, messageIdGenerator.incrementAndGet()));
                     retFuture.complete(f.channel());
                 } else {
                     retFuture.completeExceptionally(future.cause());
@@ -484,6 +530,10 @@ public class NettyMessagingManager implements MessagingService {
 
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, InternalMessage message) throws Exception {
+            if (HELLO_MESSAGE_TYPE.equals(message.type()) || HELLO_ACK_MESSAGE_TYPE.equals(message.type())) {
+                handleHello(ctx, message);
+                return;
+            }
             try {
                 dispatchLocally(message);
             } catch (RejectedExecutionException e) {
@@ -497,6 +547,27 @@ public class NettyMessagingManager implements MessagingService {
             context.close();
         }
     }
+
+    private InternalMessage helloMessage(String type, long messageId) {
+        return new InternalMessage(preamble, messageId, localEp, type,
+                                   Ints.toByteArray(PROTOCOL_VERSION));
+    }
+
+    // Negotiates the wire format extensions used on a connection; the
+    // connecting side only uses those acknowledged by the accepting side.
+    private void handleHello(ChannelHandlerContext ctx, InternalMessage message) {
+        if (message.preamble() != preamble || message.payload().length < Integer.BYTES) {
+            log.debug("Ignoring invalid {} from {}", message.type(), message.sender());
+            return;
+        }
+        int version = Math.min(PROTOCOL_VERSION, Ints.fromByteArray(message.payload()));
+        if (HELLO_MESSAGE_TYPE.equals(message.type())) {
+            ctx.writeAndFlush(helloMessage(HELLO_ACK_MESSAGE_TYPE, message.id()));
+        } else if (version >= TYPE_INTERNING_VERSION) {
+            MessageEncoder.enableTypeInterning(ctx);
+        }
+    }
+
     private void dispatchLocally(InternalMessage message) throws IOException {
         if (message.preamble() != preamble) {
             log.debug("Received {} with invalid preamble from {}", message.type(), message.sender());
@@ -504,26 +575,21 @@ public class NettyMessagingManager implements MessagingService {
         }
         String type = message.type();
         if (REPLY_MESSAGE_TYPE.equals(type)) {
-            try {
-                Callback callback =
-                        callbacks.getIfPresent(message.id());
-                if (callback != null) {
-                    if (message.status() == Status.OK) {
-                        callback.complete(message.payload());
-                    } else if (message.status() == Status.ERROR_NO_HANDLER) {
-                        callback.completeExceptionally(new MessagingException.NoRemoteHandler());
-                    } else if (message.status() == Status.ERROR_HANDLER_EXCEPTION) {
-                        callback.completeExceptionally(new MessagingException.RemoteHandlerFailure());
-                    } else if (message.status() == Status.PROTOCOL_EXCEPTION) {
-                        callback.completeExceptionally(new MessagingException.ProcotolException());
-                    }
-                } else {
-                    log.debug("Received a reply for message id:[{}]. "
-                                     + " from {}. But was unable to locate the"
-                                     + " request handle", message.id(), message.sender());
+            RequestTracker.PendingRequest request = requests.remove(message.id());
+            if (request != null) {
+                if (message.status() == Status.OK) {
+                    request.complete(message.payload());
+                } else if (message.status() == Status.ERROR_NO_HANDLER) {
+                    request.completeExceptionally(new MessagingException.NoRemoteHandler());
+                } else if (message.status() == Status.ERROR_HANDLER_EXCEPTION) {
+                    request.completeExceptionally(new MessagingException.RemoteHandlerFailure());
+                } else if (message.status() == Status.PROTOCOL_EXCEPTION) {
+                    request.completeExceptionally(new MessagingException.ProcotolException());
                 }
-            } finally {
-                callbacks.invalidate(message.id());
+            } else {
+                log.debug("Received a reply for message id:[{}]. "
+                                 + " from {}. But was unable to locate the"
+                                 + " request handle", message.id(), message.sender());
             }
             return;
         }
@@ -550,26 +616,14 @@ public class NettyMessagingManager implements MessagingService {
         });
     }
 
-    private final class Callback {
-        private final CompletableFuture<byte[]> future;
-        private final Executor executor;
-
-        public Callback(CompletableFuture<byte[]> future, Executor executor) {
-            this.future = future;
-            this.executor = executor;
-        }
-
-        public void complete(byte[] value) {
-            executor.execute(() -> future.complete(value));
-        }
-
-        public void completeExceptionally(Throwable error) {
-            executor.execute(() -> future.completeExceptionally(error));
-        }
-    }
     private final class Connection {
         private final CompletableFuture<Channel> internalFuture;
 
+        // Messages written but not flushed yet; only accessed on the event loop
+        private int pendingMessages;
+        private int pendingBytes;
+        private boolean flushScheduled;
+
         public Connection(CompletableFuture<Channel> internalFuture) {
             this.internalFuture = internalFuture;
         }
@@ -581,22 +635,58 @@ public class NettyMessagingManager implements MessagingService {
          * @param future a future that is completed normally or exceptionally if
          *               message sending succeeds or fails respectively
          */
-        public void send(Object message, CompletableFuture<Void> future) {
+        public void send(InternalMessage message, CompletableFuture<Void> future) {
             internalFuture.whenComplete((channel, throwable) -> {
                 if (throwable == null) {
-                    channel.writeAndFlush(message).addListener(channelFuture -> {
-                        if (!channelFuture.isSuccess()) {
-                            future.completeExceptionally(channelFuture.cause());
-                        } else {
-                            future.complete(null);
-                        }
-                    });
+                    if (enableNettyBatching) {
+                        channel.eventLoop().execute(() -> batch(channel, message, future));
+                    } else {
+                        channel.writeAndFlush(message).addListener(channelFuture -> complete(channelFuture, future));
+                    }
                 } else {
                     future.completeExceptionally(throwable);
                 }
             });
         }
 
+        private void complete(Future<?> channelFuture, CompletableFuture<Void> future) {
+            if (!channelFuture.isSuccess()) {
+                future.completeExceptionally(channelFuture.cause());
+            } else {
+                future.complete(null);
+            }
+        }
+
+        // Writes the message and flushes once enough bytes are pending or the
+        // oldest pending message has waited long enough.
+        private void batch(Channel channel, InternalMessage message, CompletableFuture<Void> future) {
+            channel.write(message).addListener(channelFuture -> complete(channelFuture, future));
+            pendingMessages++;
+            pendingBytes += message.payload().length + message.type().length();
+            if (pendingBytes >= batchMaxBytes) {
+                flush(channel);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                channel.eventLoop().schedule(() -> {
+                    flushScheduled = false;
+                    flush(channel);
+                }, batchMaxDelayMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+
+        private void flush(Channel channel) {
+            if (pendingMessages == 0) {
+                return;
+            }
+            if (batchMessages != null) {
+                batchMessages.update(pendingMessages);
+                batchBytes.update(pendingBytes);
+            }
+            pendingMessages = 0;
+            pendingBytes = 0;
+            channel.flush();
+        }
+
         /**
          * Destroys a channel by closing its channel (if it exists) and
          * cancelling its future.
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.cluster.messaging.impl;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.collect.Maps;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Table of requests awaiting a reply, with timeouts driven by a hashed
+ * timer wheel.
+ */
+final class RequestTracker {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private static final String METRICS_FEATURE = "requests";
+    private static final String IN_FLIGHT = "inFlight";
+    private static final String TIMED_OUT = "timedOut";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ConcurrentMap<Long, PendingRequest> requests = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, TypeStats> stats = Maps.newConcurrentMap();
+    private final HashedWheelTimer timer;
+
+    private final MetricsService metricsService;
+    private final MetricsComponent metricsComponent;
+    private final MetricsFeature metricsFeature;
+
+    /**
+     * Creates a new request tracker.
+     *
+     * @param metricsService   metrics service; null if metrics are not reported
+     * @param metricsComponent metrics component under which to report
+     */
+    RequestTracker(MetricsService metricsService, MetricsComponent metricsComponent) {
+        this.metricsService = metricsService;
+        this.metricsComponent = metricsService != null ? metricsComponent : null;
+        this.metricsFeature = this.metricsComponent != null ?
+                this.metricsComponent.registerFeature(METRICS_FEATURE) : null;
+        this.timer = new HashedWheelTimer(groupedThreads("onos/messaging", "timeouts", log),
+                                          TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Registers a request awaiting a reply.
+     *
+     * @param id            message id of the request
+     * @param type          message type of the request
+     * @param future        future to complete with the reply payload
+     * @param executor      executor on which to complete the future
+     * @param timeoutMillis time after which the request fails if no reply came
+     */
+    void register(long id, String type, CompletableFuture<byte[]> future,
+                  Executor executor, long timeoutMillis) {
+        TypeStats typeStats = stats.computeIfAbsent(type, this::newStats);
+        PendingRequest request = new PendingRequest(future, executor, typeStats);
+        requests.put(id, request);
+        typeStats.inFlight.increment();
+        request.timeout = timer.newTimeout(t -> {
+            if (requests.remove(id, request)) {
+                typeStats.inFlight.decrement();
+                typeStats.timedOut.increment();
+                request.completeExceptionally(new TimeoutException("Timedout waiting for reply"));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Removes the request with the given id, if it is still pending.
+     *
+     * @param id message id of the request
+     * @return pending request; null if unknown or already timed out
+     */
+    PendingRequest remove(long id) {
+        PendingRequest request = requests.remove(id);
+        if (request != null) {
+            // the timeout may not be set yet if the reply came back very fast
+            Timeout timeout = request.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            request.stats.inFlight.decrement();
+        }
+        return request;
+    }
+
+    /**
+     * Fails the request with the given id, if it is still pending.
+     *
+     * @param id    message id of the request
+     * @param error cause of the failure
+     */
+    void fail(long id, Throwable error) {
+        PendingRequest request = remove(id);
+        if (request != null) {
+            request.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Returns the number of requests of the given type awaiting a reply.
+     *
+     * @param type message type
+     * @return in-flight request count
+     */
+    long inFlight(String type) {
+        TypeStats typeStats = stats.get(type);
+        return typeStats != null ? typeStats.inFlight.sum() : 0;
+    }
+
+    /**
+     * Returns the number of requests of the given type which timed out.
+     *
+     * @param type message type
+     * @return timed out request count
+     */
+    long timedOut(String type) {
+        TypeStats typeStats = stats.get(type);
+        return typeStats != null ? typeStats.timedOut.sum() : 0;
+    }
+
+    /**
+     * Stops the timer; pending requests are left to their fate.
+     */
+    void stop() {
+        timer.stop();
+        if (metricsFeature != null) {
+            stats.keySet().forEach(this::removeMetrics);
+        }
+    }
+
+    private TypeStats newStats(String type) {
+        TypeStats typeStats = new TypeStats();
+        if (metricsFeature != null) {
+            removeMetrics(type);
+            metricsService.registerMetric(metricsComponent, metricsFeature, type + "." + IN_FLIGHT,
+                                          (Gauge<Long>) typeStats.inFlight::sum);
+            metricsService.registerMetric(metricsComponent, metricsFeature, type + "." + TIMED_OUT,
+                                          (Gauge<Long>) typeStats.timedOut::sum);
+        }
+        return typeStats;
+    }
+
+    private void removeMetrics(String type) {
+        metricsService.removeMetric(metricsComponent, metricsFeature, type + "." + IN_FLIGHT);
+        metricsService.removeMetric(metricsComponent, metricsFeature, type + "." + TIMED_OUT);
+    }
+
+    private static final class TypeStats {
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+    }
+
+    /**
+     * Request awaiting a reply.
+     */
+    static final class PendingRequest {
+        private final CompletableFuture<byte[]> future;
+        private final Executor executor;
+        private final TypeStats stats;
+        private volatile Timeout timeout;
+
+        private PendingRequest(CompletableFuture<byte[]> future, Executor executor, TypeStats stats) {
+            this.future = future;
+            this.executor = executor;
+            this.stats = stats;
+        }
+
+        void complete(byte[] value) {
+            executor.execute(() -> future.complete(value));
+        }
+
+        void completeExceptionally(Throwable error) {
+            executor.execute(() -> future.completeExceptionally(error));
+        }
+    }
+}
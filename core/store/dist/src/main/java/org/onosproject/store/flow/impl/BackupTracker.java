@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Tracks the flow table changes of a mastered device which the backup
+ * node has not yet acknowledged.
+ * <p>
+ * The first backup to a node is a full snapshot; later ones carry only
+ * the changes made since the last acknowledged version. At most one
+ * backup is in flight at a time, and acknowledgements of any other
+ * version are ignored.
+ * </p>
+ */
+final class BackupTracker {
+    private NodeId backupNode;
+    private long ackedVersion = FlowTableDelta.NO_VERSION;
+    private long sentVersion = FlowTableDelta.NO_VERSION;
+    private boolean inFlight = false;
+    private Map<StoredFlowEntry, StoredFlowEntry> updates = Maps.newHashMap();
+    private Set<StoredFlowEntry> removals = Sets.newHashSet();
+
+    /**
+     * Returns the node which acknowledged the last backup.
+     *
+     * @return backup node, or null if none
+     */
+    synchronized NodeId backupNode() {
+        return backupNode;
+    }
+
+    // Changes are only worth tracking once there is a base to apply them to.
+    private boolean isTracking() {
+        return ackedVersion != FlowTableDelta.NO_VERSION || inFlight;
+    }
+
+    /**
+     * Records the addition or update of a flow entry.
+     *
+     * @param entry flow entry
+     */
+    synchronized void update(StoredFlowEntry entry) {
+        if (isTracking()) {
+            removals.remove(entry);
+            updates.put(entry, entry);
+        }
+    }
+
+    /**
+     * Records the removal of a flow entry.
+     *
+     * @param entry flow entry
+     */
+    synchronized void remove(StoredFlowEntry entry) {
+        if (isTracking()) {
+            updates.remove(entry);
+            removals.add(entry);
+        }
+    }
+
+    /**
+     * Indicates whether a backup to the given node is due.
+     *
+     * @param target backup node
+     * @return true if a backup should be sent
+     */
+    synchronized boolean needsBackup(NodeId target) {
+        return !inFlight && (ackedVersion == FlowTableDelta.NO_VERSION
+                || !Objects.equals(backupNode, target)
+                || !updates.isEmpty() || !removals.isEmpty());
+    }
+
+    /**
+     * Returns the delta to send to the given node, and marks it in flight.
+     *
+     * @param target backup node
+     * @param table  current flow table of the device
+     * @return flow table delta, or null if no backup is due
+     */
+    synchronized FlowTableDelta prepare(NodeId target,
+                                        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table) {
+        if (!needsBackup(target)) {
+            return null;
+        }
+        FlowTableDelta delta;
+        sentVersion++;
+        if (ackedVersion == FlowTableDelta.NO_VERSION || !Objects.equals(backupNode, target)) {
+            delta = FlowTableDelta.snapshot(sentVersion, table);
+        } else {
+            delta = FlowTableDelta.delta(ackedVersion, sentVersion, updates.values(), removals);
+        }
+        updates = Maps.newHashMap();
+        removals = Sets.newHashSet();
+        inFlight = true;
+        return delta;
+    }
+
+    /**
+     * Records that the given node applied the backup of the given version.
+     * Acknowledgements of any version but the one in flight are ignored.
+     *
+     * @param target  backup node
+     * @param version acknowledged version
+     */
+    synchronized void acknowledge(NodeId target, long version) {
+        if (inFlight && version == sentVersion) {
+            backupNode = target;
+            ackedVersion = version;
+            inFlight = false;
+        }
+    }
+
+    /**
+     * Forces a full resync on the next backup run.
+     */
+    synchronized void reset() {
+        backupNode = null;
+        ackedVersion = FlowTableDelta.NO_VERSION;
+        inFlight = false;
+        updates = Maps.newHashMap();
+        removals = Sets.newHashSet();
+    }
+}
@@ -16,7 +16,6 @@
 package org.onosproject.store.flow.impl;
 
  import com.google.common.collect.ImmutableList;
- import com.google.common.collect.ImmutableMap;
  import com.google.common.collect.Iterables;
  import com.google.common.collect.Maps;
  import com.google.common.collect.Sets;
@@ -182,6 +181,7 @@ public class DistributedFlowRuleStore
             serializerPool = KryoNamespace.newBuilder()
                     .register(DistributedStoreSerializers.STORE_COMMON)
                     .nextId(DistributedStoreSerializers.STORE_CUSTOM_BEGIN)
+                    .register(FlowTableDelta.class)
                     .build();
         }
     };
@@ -500,6 +500,7 @@ public class DistributedFlowRuleStore
                             if (entry != null) {
                                 //FIXME modification of "stored" flow entry outside of flow table
                                 entry.setState(FlowEntryState.PENDING_REMOVE);
+                                flowTable.recordUpdate(entry.deviceId(), entry);
                                 log.debug("Setting state of rule to pending remove: {}", entry);
                                 return op;
                             }
@@ -532,6 +533,7 @@ public class DistributedFlowRuleStore
             if (stored != null &&
                     stored.state() != FlowEntryState.PENDING_ADD) {
                 stored.setState(FlowEntryState.PENDING_ADD);
+                flowTable.recordUpdate(stored.deviceId(), stored);
                 return new FlowRuleEvent(Type.RULE_UPDATED, rule);
             }
         }
@@ -561,6 +563,7 @@ public class DistributedFlowRuleStore
             stored.setLastSeen();
             if (stored.state() == FlowEntryState.PENDING_ADD) {
                 stored.setState(FlowEntryState.ADDED);
+                flowTable.recordUpdate(stored.deviceId(), stored);
                 return new FlowRuleEvent(Type.RULE_ADDED, rule);
             }
             return new FlowRuleEvent(Type.RULE_UPDATED, rule);
@@ -662,9 +665,10 @@ public class DistributedFlowRuleStore
         private final Map<DeviceId, Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>
                 flowEntries = Maps.newConcurrentMap();
 
-        private final Map<DeviceId, Long> lastBackupTimes = Maps.newConcurrentMap();
-        private final Map<DeviceId, Long> lastUpdateTimes = Maps.newConcurrentMap();
-        private final Map<DeviceId, NodeId> lastBackupNodes = Maps.newConcurrentMap();
+        // changes not yet acknowledged by the backup node of mastered devices
+        private final Map<DeviceId, BackupTracker> backupTrackers = Maps.newConcurrentMap();
+        // versions of the flow tables backed up on behalf of other nodes
+        private final Map<DeviceId, Long> backupVersions = Maps.newConcurrentMap();
 
         @Override
         public void event(ReplicaInfoEvent event) {
@@ -679,7 +683,7 @@ public class DistributedFlowRuleStore
                     return;
                 }
                 NodeId newBackupNode = getBackupNode(deviceId);
-                NodeId currentBackupNode = lastBackupNodes.get(deviceId);
+                NodeId currentBackupNode = getBackupTracker(deviceId).backupNode();
                 if (Objects.equals(newBackupNode, currentBackupNode)) {
                     // ignore since backup location hasn't changed.
                     return;
@@ -691,8 +695,7 @@ public class DistributedFlowRuleStore
                     // is chosen.
                     log.warn("Lost backup location {} for deviceId {} and no alternate backup node exists. "
                             + "Flows can be lost if the master goes down", currentBackupNode, deviceId);
-                    lastBackupNodes.remove(deviceId);
-                    lastBackupTimes.remove(deviceId);
+                    getBackupTracker(deviceId).reset();
                     return;
                     // TODO: Pick any available node as backup and ensure hand-off occurs when
                     // a new master is elected.
@@ -715,35 +718,59 @@ public class DistributedFlowRuleStore
             if (deviceIds.isEmpty()) {
                 return;
             }
-            log.debug("Sending flowEntries for devices {} to {} as backup.", deviceIds, nodeId);
-            Map<DeviceId, Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>
-                    deviceFlowEntries = Maps.newConcurrentMap();
-            deviceIds.forEach(id -> deviceFlowEntries.put(id, ImmutableMap.copyOf(getFlowTable(id))));
-            clusterCommunicator.<Map<DeviceId,
-                                 Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>,
-                                 Set<DeviceId>>
-                    sendAndReceive(deviceFlowEntries,
+            Map<DeviceId, FlowTableDelta> deviceFlowDeltas = Maps.newHashMap();
+            deviceIds.forEach(id -> {
+                FlowTableDelta delta = getBackupTracker(id).prepare(nodeId, getFlowTable(id));
+                if (delta != null) {
+                    deviceFlowDeltas.put(id, delta);
+                }
+            });
+            if (deviceFlowDeltas.isEmpty()) {
+                return;
+            }
+            log.debug("Sending flow table deltas {} to {} as backup.", deviceFlowDeltas, nodeId);
+            clusterCommunicator.<Map<DeviceId, FlowTableDelta>, Set<DeviceId>>
+                    sendAndReceive(deviceFlowDeltas,
                                    FLOW_TABLE_BACKUP,
                                    SERIALIZER::encode,
                                    SERIALIZER::decode,
                                    nodeId)
                     .whenComplete((backedupDevices, error) -> {
                         Set<DeviceId> devicesNotBackedup = error != null ?
-                            deviceFlowEntries.keySet() :
-                            Sets.difference(deviceFlowEntries.keySet(), backedupDevices);
+                            deviceFlowDeltas.keySet() :
+                            Sets.difference(deviceFlowDeltas.keySet(), backedupDevices);
                         if (devicesNotBackedup.size() > 0) {
-                            log.warn("Failed to backup devices: {}. Reason: {}",
-                                     devicesNotBackedup, error.getMessage());
-                        }
-                        if (backedupDevices != null) {
-                            backedupDevices.forEach(id -> {
-                                lastBackupTimes.put(id, System.currentTimeMillis());
-                                lastBackupNodes.put(id, nodeId);
-                            });
+                            // A full resync of these devices will follow on the next run.
+                            log.warn("Failed to backup devices: {}. Reason: {}", devicesNotBackedup,
+                                     error != null ? error.getMessage() : "version mismatch");
                         }
+                        deviceFlowDeltas.forEach((id, delta) -> {
+                            BackupTracker tracker = getBackupTracker(id);
+                            if (devicesNotBackedup.contains(id)) {
+                                tracker.reset();
+                            } else {
+                                tracker.acknowledge(nodeId, delta.version());
+                            }
+                        });
                     });
         }
 
+        private BackupTracker getBackupTracker(DeviceId deviceId) {
+            return backupTrackers.computeIfAbsent(deviceId, id -> new BackupTracker());
+        }
+
+        // Records a local change to the flow table of the specified device.
+        private void recordUpdate(DeviceId deviceId, StoredFlowEntry entry) {
+            getBackupTracker(deviceId).update(entry);
+            // local table no longer matches what the previous master sent us
+            backupVersions.remove(deviceId);
+        }
+
+        private void recordRemoval(DeviceId deviceId, StoredFlowEntry entry) {
+            getBackupTracker(deviceId).remove(entry);
+            backupVersions.remove(deviceId);
+        }
+
         /**
          * Returns the flow table for specified device.
          *
@@ -801,7 +828,7 @@ public class DistributedFlowRuleStore
                         //TODO the key is not updated
                         return (StoredFlowEntry) rule;
                     });
-            lastUpdateTimes.put(rule.deviceId(), System.currentTimeMillis());
+            recordUpdate(rule.deviceId(), (StoredFlowEntry) rule);
         }
 
         public FlowEntry remove(DeviceId deviceId, FlowEntry rule) {
@@ -825,7 +852,7 @@ public class DistributedFlowRuleStore
                 });
 
             if (removedRule.get() != null) {
-                lastUpdateTimes.put(deviceId, System.currentTimeMillis());
+                recordRemoval(deviceId, (StoredFlowEntry) removedRule.get());
                 return removedRule.get();
             } else {
                 return null;
@@ -834,6 +861,8 @@ public class DistributedFlowRuleStore
 
         public void purgeFlowRule(DeviceId deviceId) {
             flowEntries.remove(deviceId);
+            backupTrackers.remove(deviceId);
+            backupVersions.remove(deviceId);
         }
 
         private NodeId getBackupNode(DeviceId deviceId) {
@@ -848,17 +877,14 @@ public class DistributedFlowRuleStore
             }
             try {
                 // determine the set of devices that we need to backup during this run.
-                Set<DeviceId> devicesToBackup = mastershipService.getDevicesOf(local)
+                Set<DeviceId> mastered = mastershipService.getDevicesOf(local);
+                // forget progress made for devices we no longer master, so that
+                // a full resync happens if we regain mastership
+                backupTrackers.keySet().retainAll(mastered);
+                Set<DeviceId> devicesToBackup = mastered
                             .stream()
-                            .filter(deviceId -> {
-                                Long lastBackupTime = lastBackupTimes.get(deviceId);
-                                Long lastUpdateTime = lastUpdateTimes.get(deviceId);
-                                NodeId lastBackupNode = lastBackupNodes.get(deviceId);
-                                NodeId newBackupNode = getBackupNode(deviceId);
-                                return lastBackupTime == null
-                                        ||  !Objects.equals(lastBackupNode, newBackupNode)
-                                        || (lastUpdateTime != null && lastUpdateTime > lastBackupTime);
-                            })
+                            .filter(deviceId -> getBackupTracker(deviceId)
+                                    .needsBackup(getBackupNode(deviceId)))
                             .collect(Collectors.toSet());
 
                 // compute a mapping from node to the set of devices whose flow entries it should backup
@@ -877,19 +903,26 @@ public class DistributedFlowRuleStore
             }
         }
 
-        private Set<DeviceId> onBackupReceipt(Map<DeviceId,
-                Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>> flowTables) {
-            log.debug("Received flowEntries for {} to backup", flowTables.keySet());
+        private Set<DeviceId> onBackupReceipt(Map<DeviceId, FlowTableDelta> flowDeltas) {
+            log.debug("Received flow table deltas {} to backup", flowDeltas);
             Set<DeviceId> backedupDevices = Sets.newHashSet();
             try {
-                flowTables.forEach((deviceId, deviceFlowTable) -> {
+                flowDeltas.forEach((deviceId, delta) -> {
                     // Only process those devices are that not managed by the local node.
-                    if (!Objects.equals(local, mastershipService.getMasterFor(deviceId))) {
-                        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backupFlowTable =
-                                getFlowTable(deviceId);
-                        backupFlowTable.clear();
-                        backupFlowTable.putAll(deviceFlowTable);
+                    if (Objects.equals(local, mastershipService.getMasterFor(deviceId))) {
+                        return;
+                    }
+                    // Deltas can only be applied on top of the version they were computed
+                    // against; otherwise leave the device out so the master resyncs it fully.
+                    long version = backupVersions.getOrDefault(deviceId, FlowTableDelta.NO_VERSION);
+                    if (delta.appliesTo(version)) {
+                        delta.applyTo(getFlowTable(deviceId));
+                        backupVersions.put(deviceId, delta.version());
+                        backupTrackers.remove(deviceId);
                         backedupDevices.add(deviceId);
+                    } else {
+                        log.debug("Backup version gap for {}: have {}, delta {}", deviceId, version, delta);
+                        backupVersions.remove(deviceId);
                     }
                 });
             } catch (Exception e) {
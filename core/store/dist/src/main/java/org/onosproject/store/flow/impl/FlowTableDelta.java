@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Versioned set of changes to the flow table of a single device, sent by
+ * the device master to the backup node.
+ * <p>
+ * A delta with no base version is a full snapshot of the flow table and
+ * replaces whatever the backup node holds. Any other delta may only be
+ * applied on top of a backup table whose version equals the base version.
+ * </p>
+ */
+public final class FlowTableDelta {
+
+    /**
+     * Version denoting absence of a previous backup.
+     */
+    public static final long NO_VERSION = 0;
+
+    private final long baseVersion;
+    private final long version;
+    private final List<StoredFlowEntry> updates;
+    private final List<StoredFlowEntry> removals;
+
+    private FlowTableDelta(long baseVersion, long version,
+                           List<StoredFlowEntry> updates,
+                           List<StoredFlowEntry> removals) {
+        checkArgument(version > baseVersion, "Version must be greater than base version");
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.updates = checkNotNull(updates);
+        this.removals = checkNotNull(removals);
+    }
+
+    /**
+     * Creates a full snapshot of the given flow table.
+     *
+     * @param version version of the snapshot
+     * @param table   device flow table
+     * @return flow table delta
+     */
+    public static FlowTableDelta snapshot(long version,
+                                          Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table) {
+        List<StoredFlowEntry> entries = Lists.newArrayList();
+        table.values().forEach(m -> entries.addAll(m.values()));
+        return new FlowTableDelta(NO_VERSION, version, entries, Lists.newArrayList());
+    }
+
+    /**
+     * Creates an incremental delta on top of the given base version.
+     *
+     * @param baseVersion version the delta applies to
+     * @param version     version of the backup table once the delta is applied
+     * @param updates     entries added or updated since the base version
+     * @param removals    entries removed since the base version
+     * @return flow table delta
+     */
+    public static FlowTableDelta delta(long baseVersion, long version,
+                                       Collection<StoredFlowEntry> updates,
+                                       Collection<StoredFlowEntry> removals) {
+        checkArgument(baseVersion != NO_VERSION, "Base version must be specified");
+        return new FlowTableDelta(baseVersion, version,
+                                  Lists.newArrayList(updates),
+                                  Lists.newArrayList(removals));
+    }
+
+    /**
+     * Returns the version the delta applies to.
+     *
+     * @return base version; {@link #NO_VERSION} for full snapshots
+     */
+    public long baseVersion() {
+        return baseVersion;
+    }
+
+    /**
+     * Returns the version of the backup table once the delta is applied.
+     *
+     * @return version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Indicates whether this delta is a full snapshot of the flow table.
+     *
+     * @return true if full snapshot
+     */
+    public boolean isSnapshot() {
+        return baseVersion == NO_VERSION;
+    }
+
+    /**
+     * Returns the entries added or updated by this delta.
+     *
+     * @return flow entries
+     */
+    public List<StoredFlowEntry> updates() {
+        return updates;
+    }
+
+    /**
+     * Returns the entries removed by this delta.
+     *
+     * @return flow entries
+     */
+    public List<StoredFlowEntry> removals() {
+        return removals;
+    }
+
+    /**
+     * Indicates whether this delta may be applied to a backup table of the
+     * given version. Snapshots apply to any table; other deltas only to the
+     * table they were computed against, so a stale or out-of-order delta
+     * is refused and the master has to resync the table fully.
+     *
+     * @param backupVersion version of the backup table
+     * @return true if the delta applies
+     */
+    public boolean appliesTo(long backupVersion) {
+        return isSnapshot() || baseVersion == backupVersion;
+    }
+
+    /**
+     * Applies the delta to the given backup flow table.
+     *
+     * @param table backup flow table
+     */
+    public void applyTo(Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table) {
+        if (isSnapshot()) {
+            table.clear();
+        }
+        removals.forEach(entry -> table.computeIfPresent(entry.id(), (id, entries) -> {
+            entries.remove(entry);
+            return entries.isEmpty() ? null : entries;
+        }));
+        updates.forEach(entry -> table.compute(entry.id(), (id, entries) -> {
+            Map<StoredFlowEntry, StoredFlowEntry> result =
+                    entries != null ? entries : Maps.newConcurrentMap();
+            result.put(entry, entry);
+            return result;
+        }));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("baseVersion", baseVersion)
+                .add("version", version)
+                .add("updates", updates.size())
+                .add("removals", removals.size())
+                .toString();
+    }
+
+    // For serializer
+    @SuppressWarnings("unused")
+    private FlowTableDelta() {
+        this.baseVersion = NO_VERSION;
+        this.version = NO_VERSION;
+        this.updates = null;
+        this.removals = null;
+    }
+}
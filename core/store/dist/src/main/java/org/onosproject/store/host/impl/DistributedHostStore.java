@@ -53,15 +53,15 @@ import org.onosproject.store.service.StorageService;
 import org.onosproject.store.service.Versioned;
 import org.slf4j.Logger;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -89,6 +89,14 @@ public class DistributedHostStore
     private final ConcurrentHashMap<HostId, DefaultHost> prevHosts =
             new ConcurrentHashMap<>();
 
+    // Secondary indexes of host identifiers; updated both by the writers and
+    // by the map listener, and always resolved against hosts on lookup
+    private final HostIndex<MacAddress> hostsByMac = new HostIndex<>();
+    private final HostIndex<IpAddress> hostsByIp = new HostIndex<>();
+    private final HostIndex<VlanId> hostsByVlan = new HostIndex<>();
+    private final HostIndex<ConnectPoint> hostsByLocation = new HostIndex<>();
+    private final HostIndex<DeviceId> hostsByDevice = new HostIndex<>();
+
     private MapEventListener<HostId, DefaultHost> hostLocationTracker =
             new HostLocationTracker();
 
@@ -106,6 +114,7 @@ public class DistributedHostStore
         hosts = host.asJavaMap();
 
         prevHosts.putAll(hosts);
+        prevHosts.values().forEach(h -> updateIndexes(h.id(), null, h));
 
         host.addListener(hostLocationTracker);
 
@@ -115,6 +124,7 @@ public class DistributedHostStore
     @Deactivate
     public void deactivate() {
         host.removeListener(hostLocationTracker);
+        prevHosts.values().forEach(h -> updateIndexes(h.id(), h, null));
         prevHosts.clear();
 
         log.info("Stopped");
@@ -194,18 +204,26 @@ public class DistributedHostStore
                                                   annotations);
                        });
 
-        Tools.retryable(supplier,
+        Versioned<DefaultHost> current = Tools.retryable(supplier,
                         ConsistentMapException.ConcurrentModification.class,
                         Integer.MAX_VALUE,
                         50).get();
 
+        // Index the new keys right away so that lookups see the host as soon
+        // as this returns; stale keys are dropped once the map event arrives
+        if (current != null) {
+            updateIndexes(hostId, null, current.value());
+        }
         return null;
     }
 
     // TODO No longer need to return HostEvent
     @Override
     public HostEvent removeHost(HostId hostId) {
-        hosts.remove(hostId);
+        DefaultHost removed = hosts.remove(hostId);
+        if (removed != null) {
+            updateIndexes(hostId, removed, null);
+        }
         return null;
     }
 
@@ -256,39 +274,89 @@ public class DistributedHostStore
 
     @Override
     public Set<Host> getHosts(VlanId vlanId) {
-        return filter(hosts.values(), host -> Objects.equals(host.vlan(), vlanId));
+        return lookup(hostsByVlan, vlanId, host -> Objects.equals(host.vlan(), vlanId));
     }
 
     @Override
     public Set<Host> getHosts(MacAddress mac) {
-        return filter(hosts.values(), host -> Objects.equals(host.mac(), mac));
+        return lookup(hostsByMac, mac, host -> Objects.equals(host.mac(), mac));
     }
 
     @Override
     public Set<Host> getHosts(IpAddress ip) {
-        return filter(hosts.values(), host -> host.ipAddresses().contains(ip));
+        return lookup(hostsByIp, ip, host -> host.ipAddresses().contains(ip));
     }
 
     @Override
     public Set<Host> getConnectedHosts(ConnectPoint connectPoint) {
-        Set<Host> filtered = hosts.entrySet().stream()
-                .filter(entry -> entry.getValue().location().equals(connectPoint))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet());
-        return ImmutableSet.copyOf(filtered);
+        return lookup(hostsByLocation, connectPoint, host -> host.location().equals(connectPoint));
     }
 
     @Override
     public Set<Host> getConnectedHosts(DeviceId deviceId) {
-        Set<Host> filtered = hosts.entrySet().stream()
-                .filter(entry -> entry.getValue().location().deviceId().equals(deviceId))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet());
-        return ImmutableSet.copyOf(filtered);
+        return lookup(hostsByDevice, deviceId, host -> host.location().deviceId().equals(deviceId));
+    }
+
+    // Looks up the hosts by the given index, resolving the identifiers
+    // against hosts so that lookups agree with getHost; the predicate weeds
+    // out any host updated since the index was written.
+    private <K> Set<Host> lookup(HostIndex<K> index, K key, Predicate<DefaultHost> predicate) {
+        ImmutableSet.Builder<Host> builder = ImmutableSet.builder();
+        for (HostId hostId : index.get(key)) {
+            DefaultHost host = hosts.get(hostId);
+            if (host != null && predicate.test(host)) {
+                builder.add(host);
+            }
+        }
+        return builder.build();
+    }
+
+    private void updateIndexes(HostId hostId, Host previous, Host current) {
+        hostsByMac.update(hostId, attribute(previous, Host::mac), attribute(current, Host::mac));
+        hostsByVlan.update(hostId, attribute(previous, Host::vlan), attribute(current, Host::vlan));
+        hostsByLocation.update(hostId, attribute(previous, Host::location), attribute(current, Host::location));
+        hostsByDevice.update(hostId, attribute(previous, h -> h.location().deviceId()),
+                             attribute(current, h -> h.location().deviceId()));
+        hostsByIp.update(hostId,
+                         previous == null ? ImmutableSet.of() : previous.ipAddresses(),
+                         current == null ? ImmutableSet.of() : current.ipAddresses());
     }
 
-    private Set<Host> filter(Collection<DefaultHost> collection, Predicate<DefaultHost> predicate) {
-        return collection.stream().filter(predicate).collect(Collectors.toSet());
+    private static <K> Set<K> attribute(Host host, Function<Host, K> function) {
+        return host == null ? ImmutableSet.of() : ImmutableSet.of(function.apply(host));
+    }
+
+    /**
+     * Index of host identifiers by some attribute of the hosts.
+     *
+     * @param <K> type of the attribute
+     */
+    private static final class HostIndex<K> {
+        private final ConcurrentMap<K, Set<HostId>> index = new ConcurrentHashMap<>();
+
+        private Set<HostId> get(K key) {
+            return index.getOrDefault(key, ImmutableSet.of());
+        }
+
+        // Moves the host from the previous keys to the current ones; keys in
+        // both are left in place so that lookups never miss the host
+        private void update(HostId hostId, Set<K> previous, Set<K> current) {
+            for (K key : current) {
+                index.compute(key, (k, ids) -> {
+                    Set<HostId> result = ids == null ? Sets.newConcurrentHashSet() : ids;
+                    result.add(hostId);
+                    return result;
+                });
+            }
+            for (K key : previous) {
+                if (!current.contains(key)) {
+                    index.computeIfPresent(key, (k, ids) -> {
+                        ids.remove(hostId);
+                        return ids.isEmpty() ? null : ids;
+                    });
+                }
+            }
+        }
     }
 
     private class HostLocationTracker implements MapEventListener<HostId, DefaultHost> {
@@ -296,6 +364,7 @@ public class DistributedHostStore
         public void event(MapEvent<HostId, DefaultHost> event) {
             DefaultHost host = checkNotNull(event.value().value());
             Host prevHost = prevHosts.put(host.id(), host);
+            updateIndexes(host.id(), prevHost, host);
             switch (event.type()) {
                 case INSERT:
                     notifyDelegate(new HostEvent(HOST_ADDED, host));
@@ -308,6 +377,7 @@ public class DistributedHostStore
                     }
                     break;
                 case REMOVE:
+                    updateIndexes(host.id(), host, null);
                     if (prevHosts.remove(host.id()) != null) {
                         notifyDelegate(new HostEvent(HOST_REMOVED, host));
                     }
@@ -102,6 +102,7 @@ public class GossipIntentStore
                                             new MultiValuedTimestamp<>(intentData.version(),
                                                                        sequenceNumber.getAndIncrement()))
                 .withPeerUpdateFunction((key, intentData) -> getPeerNodes(key, intentData))
+                .withMerkleAntiEntropy()
                 .build();
 
         pendingMap = storageService.<Key, IntentData>eventuallyConsistentMapBuilder()
@@ -15,6 +15,7 @@
  */
 package org.onosproject.store.statistic.impl;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
 import org.apache.felix.scr.annotations.Activate;
@@ -37,6 +38,8 @@ import org.onosproject.net.flow.FlowEntry;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.instructions.Instruction;
 import org.onosproject.net.flow.instructions.Instructions;
+import org.onosproject.net.statistic.DefaultLoad;
+import org.onosproject.net.statistic.Load;
 import org.onosproject.net.statistic.StatisticStore;
 import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
 import org.onosproject.store.serializers.KryoNamespaces;
@@ -51,6 +54,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -58,9 +62,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.onlab.util.GuavaCollectors.toImmutableSet;
 import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.store.statistic.impl.StatisticStoreMessageSubjects.GET_CURRENT;
+import static org.onosproject.store.statistic.impl.StatisticStoreMessageSubjects.GET_LOAD;
 import static org.onosproject.store.statistic.impl.StatisticStoreMessageSubjects.GET_PREVIOUS;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -89,10 +95,9 @@ public class DistributedStatisticStore implements StatisticStore {
     private Map<ConnectPoint, InternalStatisticRepresentation> representations =
             new ConcurrentHashMap<>();
 
-    private Map<ConnectPoint, Set<FlowEntry>> previous =
-            new ConcurrentHashMap<>();
-
-    private Map<ConnectPoint, Set<FlowEntry>> current =
+    // Current and previous stats values of each port, replaced as a whole
+    // on every update so that readers never wait for writers
+    private final ConcurrentMap<ConnectPoint, PublishedStatistics> published =
             new ConcurrentHashMap<>();
 
     protected static final KryoSerializer SERIALIZER = new KryoSerializer() {
@@ -115,6 +120,8 @@ public class DistributedStatisticStore implements StatisticStore {
 
     private static final long STATISTIC_STORE_TIMEOUT_MILLIS = 3000;
 
+    private static final long[] NO_LOAD = new long[0];
+
     @Activate
     public void activate() {
 
@@ -134,11 +141,18 @@ public class DistributedStatisticStore implements StatisticStore {
                 SERIALIZER::encode,
                 messageHandlingExecutor);
 
+        clusterCommunicator.<ConnectPoint, long[]>addSubscriber(GET_LOAD,
+                SERIALIZER::decode,
+                this::getLoadInternal,
+                SERIALIZER::encode,
+                messageHandlingExecutor);
+
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
+        clusterCommunicator.removeSubscriber(GET_LOAD);
         clusterCommunicator.removeSubscriber(GET_PREVIOUS);
         clusterCommunicator.removeSubscriber(GET_CURRENT);
         messageHandlingExecutor.shutdown();
@@ -186,7 +200,7 @@ public class DistributedStatisticStore implements StatisticStore {
     }
 
     @Override
-    public synchronized void removeFromStatistics(FlowRule rule) {
+    public void removeFromStatistics(FlowRule rule) {
         ConnectPoint cp = buildConnectPoint(rule);
         if (cp == null) {
             return;
@@ -195,15 +209,7 @@ public class DistributedStatisticStore implements StatisticStore {
         if (rep != null && rep.remove(rule)) {
             updatePublishedStats(cp, Collections.emptySet());
         }
-        Set<FlowEntry> values = current.get(cp);
-        if (values != null) {
-            values.remove(rule);
-        }
-        values = previous.get(cp);
-        if (values != null) {
-            values.remove(rule);
-        }
-
+        published.computeIfPresent(cp, (k, stats) -> stats.without(rule));
     }
 
     @Override
@@ -218,15 +224,11 @@ public class DistributedStatisticStore implements StatisticStore {
         }
     }
 
-    private synchronized void updatePublishedStats(ConnectPoint cp,
-                                                   Set<FlowEntry> flowEntries) {
-        Set<FlowEntry> curr = current.get(cp);
-        if (curr == null) {
-            curr = new HashSet<>();
-        }
-        previous.put(cp, curr);
-        current.put(cp, flowEntries);
-
+    private void updatePublishedStats(ConnectPoint cp,
+                                      Set<FlowEntry> flowEntries) {
+        published.compute(cp, (k, stats) -> stats == null
+                ? new PublishedStatistics(ImmutableSet.copyOf(flowEntries), ImmutableSet.of())
+                : stats.next(flowEntries));
     }
 
     @Override
@@ -253,8 +255,9 @@ public class DistributedStatisticStore implements StatisticStore {
 
     }
 
-    private synchronized Set<FlowEntry> getCurrentStatisticInternal(ConnectPoint connectPoint) {
-        return current.get(connectPoint);
+    private Set<FlowEntry> getCurrentStatisticInternal(ConnectPoint connectPoint) {
+        PublishedStatistics stats = published.get(connectPoint);
+        return stats == null ? null : stats.current;
     }
 
     @Override
@@ -280,8 +283,47 @@ public class DistributedStatisticStore implements StatisticStore {
         }
     }
 
-    private synchronized Set<FlowEntry> getPreviousStatisticInternal(ConnectPoint connectPoint) {
-        return previous.get(connectPoint);
+    private Set<FlowEntry> getPreviousStatisticInternal(ConnectPoint connectPoint) {
+        PublishedStatistics stats = published.get(connectPoint);
+        return stats == null ? null : stats.previous;
+    }
+
+    @Override
+    public Load getLoad(ConnectPoint connectPoint) {
+        final DeviceId deviceId = connectPoint.deviceId();
+        NodeId master = mastershipService.getMasterFor(deviceId);
+        if (master == null) {
+            log.warn("No master for {}", deviceId);
+            return new DefaultLoad();
+        }
+        long[] bytes;
+        if (master.equals(clusterService.getLocalNode().id())) {
+            bytes = getLoadInternal(connectPoint);
+        } else {
+            // A master running a version without GET_LOAD never answers, so
+            // during a rolling upgrade this gives up after the timeout and
+            // reports an invalid load
+            bytes = Tools.futureGetOrElse(clusterCommunicator.sendAndReceive(
+                                        connectPoint,
+                                        GET_LOAD,
+                                        SERIALIZER::encode,
+                                        SERIALIZER::decode,
+                                        master),
+                                   STATISTIC_STORE_TIMEOUT_MILLIS,
+                                   TimeUnit.MILLISECONDS,
+                                   NO_LOAD);
+        }
+        return bytes.length == 2 ? new DefaultLoad(bytes[0], bytes[1]) : new DefaultLoad();
+    }
+
+    // Byte counts of the current and previous stats values, or none unless
+    // both are known
+    private long[] getLoadInternal(ConnectPoint connectPoint) {
+        PublishedStatistics stats = published.get(connectPoint);
+        if (stats == null || stats.current.isEmpty() || stats.previous.isEmpty()) {
+            return NO_LOAD;
+        }
+        return new long[] {stats.currentBytes, stats.previousBytes};
     }
 
     private InternalStatisticRepresentation getOrCreateRepresentation(ConnectPoint cp) {
@@ -316,6 +358,55 @@ public class DistributedStatisticStore implements StatisticStore {
         return null;
     }
 
+    /**
+     * Current and previous stats values of a port, with their byte counts.
+     */
+    private static final class PublishedStatistics {
+        private final Set<FlowEntry> current;
+        private final Set<FlowEntry> previous;
+        private final long currentBytes;
+        private final long previousBytes;
+
+        private PublishedStatistics(Set<FlowEntry> current, Set<FlowEntry> previous) {
+            this(current, previous, bytes(current), bytes(previous));
+        }
+
+        private PublishedStatistics(Set<FlowEntry> current, Set<FlowEntry> previous,
+                                    long currentBytes, long previousBytes) {
+            this.current = current;
+            this.previous = previous;
+            this.currentBytes = currentBytes;
+            this.previousBytes = previousBytes;
+        }
+
+        // Moves the current values to previous
+        private PublishedStatistics next(Set<FlowEntry> flowEntries) {
+            Set<FlowEntry> values = ImmutableSet.copyOf(flowEntries);
+            return new PublishedStatistics(values, current, bytes(values), currentBytes);
+        }
+
+        private PublishedStatistics without(FlowRule rule) {
+            if (!current.contains(rule) && !previous.contains(rule)) {
+                return this;
+            }
+            return new PublishedStatistics(without(current, rule), without(previous, rule));
+        }
+
+        private static Set<FlowEntry> without(Set<FlowEntry> values, FlowRule rule) {
+            return values.contains(rule)
+                    ? values.stream().filter(v -> !v.equals(rule)).collect(toImmutableSet())
+                    : values;
+        }
+
+        private static long bytes(Set<FlowEntry> values) {
+            long sum = 0;
+            for (FlowEntry value : values) {
+                sum += value.bytes();
+            }
+            return sum;
+        }
+    }
+
     private class InternalStatisticRepresentation {
 
         private final AtomicInteger counter = new AtomicInteger(0);
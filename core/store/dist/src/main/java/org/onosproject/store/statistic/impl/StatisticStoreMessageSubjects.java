@@ -26,5 +26,9 @@ public final class StatisticStoreMessageSubjects {
                 new MessageSubject("peer-return-current");
         public static final MessageSubject GET_PREVIOUS =
             new MessageSubject("peer-return-previous");
+        // Not served by older instances; in a mixed-version cluster load
+        // queries sent to them time out and report no load
+        public static final MessageSubject GET_LOAD =
+            new MessageSubject("peer-return-load");
 
 }
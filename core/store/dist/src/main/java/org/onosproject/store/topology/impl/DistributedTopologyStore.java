@@ -25,6 +25,7 @@ import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 import org.onlab.graph.GraphPathSearch;
 import org.onlab.util.KryoNamespace;
+import org.onlab.util.Tools;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.common.DefaultTopology;
 import org.onosproject.event.Event;
@@ -91,7 +92,7 @@ public class DistributedTopologyStore
 
     private final Logger log = getLogger(getClass());
 
-    private static final String FORMAT = "Settings: linkWeightFunction={}";
+    private static final String FORMAT = "Settings: linkWeightFunction={}, pathCacheSize={}";
 
     private volatile DefaultTopology current =
             new DefaultTopology(ProviderId.NONE,
@@ -123,6 +124,11 @@ public class DistributedTopologyStore
             label = "Default link-weight function: hopCount, linkMetric, geoDistance")
     private String linkWeightFunction = DEFAULT_LINK_WEIGHT_FUNCTION;
 
+    private static final int DEFAULT_PATH_CACHE_SIZE = 10_000;
+    @Property(name = "pathCacheSize", intValue = DEFAULT_PATH_CACHE_SIZE,
+            label = "Maximum number of path query results cached per topology snapshot")
+    private int pathCacheSize = DEFAULT_PATH_CACHE_SIZE;
+
     // Cluster root to broadcast points bindings to allow convergence to
     // a shared broadcast tree; node that is the master of the cluster root
     // is the primary.
@@ -168,7 +174,13 @@ public class DistributedTopologyStore
                             new GeoDistanceLinkWeight(deviceService) : null;
             setDefaultLinkWeight(weight);
         }
-        log.info(FORMAT, linkWeightFunction);
+
+        Integer newPathCacheSize = Tools.getIntegerProperty(properties, "pathCacheSize");
+        if (newPathCacheSize != null && newPathCacheSize >= 0 && newPathCacheSize != pathCacheSize) {
+            pathCacheSize = newPathCacheSize;
+            DefaultTopology.setPathCacheSize(pathCacheSize);
+        }
+        log.info(FORMAT, linkWeightFunction, pathCacheSize);
     }
 
     @Override
@@ -279,7 +291,7 @@ public class DistributedTopologyStore
 
         // Have the default topology construct self from the description data.
         DefaultTopology newTopology =
-                new DefaultTopology(providerId, graphDescription, this::isBroadcastPoint);
+                new DefaultTopology(providerId, graphDescription, this::isBroadcastPoint, current);
         updateBroadcastPoints(newTopology);
 
         // Promote the new topology to current and return a ready-to-send event.
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.cluster.messaging.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.store.cluster.messaging.Endpoint;
+import org.onosproject.store.cluster.messaging.impl.InternalMessage.Status;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the cluster messaging wire format.
+ */
+public class MessageCodecTest {
+
+    private static final int PREAMBLE = 42;
+    private static final Endpoint SENDER = new Endpoint(IpAddress.valueOf("10.0.0.1"), 9876);
+
+    private final EmbeddedChannel sender = new EmbeddedChannel(new MessageEncoder(PREAMBLE));
+    private final EmbeddedChannel receiver = new EmbeddedChannel(new MessageDecoder());
+
+    private InternalMessage message(long id, String type, String payload) {
+        return new InternalMessage(PREAMBLE, id, SENDER, type, payload.getBytes(), Status.OK);
+    }
+
+    // Encodes the message and returns the number of bytes it took.
+    private int send(InternalMessage message) {
+        assertTrue(sender.writeOutbound(message));
+        ByteBuf encoded = (ByteBuf) sender.readOutbound();
+        int length = encoded.readableBytes();
+        receiver.writeInbound(encoded);
+        return length;
+    }
+
+    private void assertReceived(InternalMessage expected) {
+        InternalMessage message = (InternalMessage) receiver.readInbound();
+        assertEquals(expected.preamble(), message.preamble());
+        assertEquals(expected.id(), message.id());
+        assertEquals(expected.sender(), message.sender());
+        assertEquals(expected.type(), message.type());
+        assertEquals(expected.status(), message.status());
+        assertArrayEquals(expected.payload(), message.payload());
+    }
+
+    private void enableTypeInterning() {
+        sender.pipeline().addFirst(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void handlerAdded(ChannelHandlerContext ctx) {
+                MessageEncoder.enableTypeInterning(ctx);
+            }
+        });
+    }
+
+    @Test
+    public void legacyFormat() {
+        InternalMessage m1 = message(1, "type-a", "hello");
+        InternalMessage m2 = message(2, "type-a", "");
+        int length1 = send(m1);
+        int length2 = send(m2);
+        assertReceived(m1);
+        assertReceived(m2);
+        assertEquals("type should not be interned", length1 - "hello".length(), length2);
+    }
+
+    @Test
+    public void internedTypes() {
+        enableTypeInterning();
+        InternalMessage m1 = message(1, "type-a", "hello");
+        InternalMessage m2 = message(2, "type-b", "world");
+        InternalMessage m3 = message(3, "type-a", "again");
+        InternalMessage m4 = message(4, "type-b", "");
+        int length1 = send(m1);
+        send(m2);
+        int length3 = send(m3);
+        send(m4);
+        assertReceived(m1);
+        assertReceived(m2);
+        assertReceived(m3);
+        assertReceived(m4);
+        assertEquals("type should be sent by reference", length1 - 8 - "type-a".length(), length3);
+    }
+
+    @Test
+    public void partialDelivery() {
+        enableTypeInterning();
+        InternalMessage m1 = message(1, "type-a", "hello");
+        assertTrue(sender.writeOutbound(m1));
+        ByteBuf encoded = (ByteBuf) sender.readOutbound();
+        while (encoded.isReadable()) {
+            receiver.writeInbound(encoded.readSlice(1).retain());
+        }
+        encoded.release();
+        assertReceived(m1);
+    }
+}
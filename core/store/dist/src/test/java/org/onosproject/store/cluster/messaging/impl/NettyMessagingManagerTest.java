@@ -15,13 +15,18 @@
  */
 package org.onosproject.store.cluster.messaging.impl;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
 import com.google.common.collect.Sets;
@@ -122,6 +127,41 @@ public class NettyMessagingManagerTest {
         assertEquals(ep1, sender.get());
     }
 
+    @Test
+    public void testSendAndReceiveTimeout() {
+        BiFunction<Endpoint, byte[], CompletableFuture<byte[]>> handler = (ep, data) -> new CompletableFuture<>();
+        netty2.registerHandler("test-subject", handler);
+
+        CompletableFuture<byte[]> response = netty1.sendAndReceive(ep2, "test-subject", "hello world".getBytes(),
+                                                                  MoreExecutors.directExecutor(),
+                                                                  Duration.ofMillis(100));
+        try {
+            response.join();
+            fail("request should have timed out");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, netty1.requests.timedOut("test-subject"));
+        assertEquals(0, netty1.requests.inFlight("test-subject"));
+    }
+
+    @Test
+    public void testBatchedSend() {
+        netty1.enableNettyBatching = true;
+        netty1.batchMaxBytes = 100;
+        int count = 50;
+        CountDownLatch received = new CountDownLatch(count);
+        BiConsumer<Endpoint, byte[]> handler = (ep, data) -> received.countDown();
+        netty2.registerHandler("test-subject", handler, MoreExecutors.directExecutor());
+
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[count];
+        for (int i = 0; i < count; i++) {
+            sends[i] = netty1.sendAsync(ep2, "test-subject", new byte[i]);
+        }
+        CompletableFuture.allOf(sends).join();
+        assertTrue(Uninterruptibles.awaitUninterruptibly(received, 5, TimeUnit.SECONDS));
+    }
+
     /*
      * Supplies executors when registering a handler and calling sendAndReceive and verifies the request handling
      * and response completion occurs on the expected thread.
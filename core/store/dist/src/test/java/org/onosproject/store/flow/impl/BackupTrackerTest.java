@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.store.flow.impl.FlowTableDeltaTest.entry;
+import static org.onosproject.store.flow.impl.FlowTableDeltaTest.table;
+
+/**
+ * Unit tests for the flow table backup version tracking, covering both the
+ * master side tracker and the version check made by the backup node.
+ */
+public class BackupTrackerTest {
+
+    private static final NodeId NODE1 = new NodeId("node1");
+    private static final NodeId NODE2 = new NodeId("node2");
+
+    private final StoredFlowEntry e1 = entry(1);
+    private final StoredFlowEntry e2 = entry(2);
+    private final StoredFlowEntry e3 = entry(3);
+
+    private final BackupTracker tracker = new BackupTracker();
+    private final Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> master = table(e1, e2);
+
+    // Backup node state
+    private final Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backup = table();
+    private long backupVersion = FlowTableDelta.NO_VERSION;
+
+    // Mirrors the handling of a received delta by the backup node.
+    private boolean receive(FlowTableDelta delta) {
+        if (!delta.appliesTo(backupVersion)) {
+            backupVersion = FlowTableDelta.NO_VERSION;
+            return false;
+        }
+        delta.applyTo(backup);
+        backupVersion = delta.version();
+        return true;
+    }
+
+    private void send() {
+        FlowTableDelta delta = tracker.prepare(NODE1, master);
+        if (receive(delta)) {
+            tracker.acknowledge(NODE1, delta.version());
+        } else {
+            tracker.reset();
+        }
+    }
+
+    private void put(StoredFlowEntry entry) {
+        master.computeIfAbsent(entry.id(), id -> Maps.newConcurrentMap()).put(entry, entry);
+        tracker.update(entry);
+    }
+
+    private void remove(StoredFlowEntry entry) {
+        master.remove(entry.id());
+        tracker.remove(entry);
+    }
+
+    /**
+     * Tests that changes made after the first snapshot are backed up as an
+     * in-order delta on top of the acknowledged version.
+     */
+    @Test
+    public void inOrderDelta() {
+        assertTrue("first backup should be due", tracker.needsBackup(NODE1));
+        FlowTableDelta snapshot = tracker.prepare(NODE1, master);
+        assertTrue("first backup should be a snapshot", snapshot.isSnapshot());
+        assertTrue(receive(snapshot));
+        tracker.acknowledge(NODE1, snapshot.version());
+        assertEquals(NODE1, tracker.backupNode());
+        assertFalse("nothing changed", tracker.needsBackup(NODE1));
+
+        put(e3);
+        remove(e1);
+        FlowTableDelta delta = tracker.prepare(NODE1, master);
+        assertFalse("should be incremental", delta.isSnapshot());
+        assertEquals(snapshot.version(), delta.baseVersion());
+        assertEquals(ImmutableList.of(e3), delta.updates());
+        assertEquals(ImmutableList.of(e1), delta.removals());
+
+        assertTrue(receive(delta));
+        tracker.acknowledge(NODE1, delta.version());
+        assertEquals("backup should match master", table(e2, e3), backup);
+        assertFalse(tracker.needsBackup(NODE1));
+    }
+
+    /**
+     * Tests that a delta which does not apply on top of the backup version
+     * is refused and followed by a full resync.
+     */
+    @Test
+    public void gapTriggersResync() {
+        send();
+        put(e3);
+
+        // backup node lost its copy, e.g. because it modified it locally
+        backupVersion = FlowTableDelta.NO_VERSION;
+        backup.clear();
+
+        FlowTableDelta delta = tracker.prepare(NODE1, master);
+        assertFalse(delta.isSnapshot());
+        assertFalse("delta should be refused", receive(delta));
+        tracker.reset();
+
+        assertTrue("resync should be due", tracker.needsBackup(NODE1));
+        FlowTableDelta resync = tracker.prepare(NODE1, master);
+        assertTrue("resync should be a snapshot", resync.isSnapshot());
+        assertTrue(receive(resync));
+        tracker.acknowledge(NODE1, resync.version());
+        assertEquals("backup should match master", table(e1, e2, e3), backup);
+    }
+
+    /**
+     * Tests that stale versions are ignored on both ends: the backup node
+     * refuses deltas computed against an older version, and the tracker
+     * ignores acknowledgements of versions other than the one in flight.
+     */
+    @Test
+    public void staleVersionIgnored() {
+        send();
+        put(e3);
+        FlowTableDelta first = tracker.prepare(NODE1, master);
+        assertTrue(receive(first));
+        tracker.acknowledge(NODE1, first.version());
+
+        // replay of an already applied delta
+        assertFalse("stale delta should be refused", first.appliesTo(backupVersion));
+
+        remove(e2);
+        FlowTableDelta second = tracker.prepare(NODE1, master);
+        assertFalse("backup in flight", tracker.needsBackup(NODE1));
+        assertNull("backup in flight", tracker.prepare(NODE1, master));
+
+        tracker.acknowledge(NODE1, first.version());
+        assertFalse("stale acknowledgement should be ignored", tracker.needsBackup(NODE1));
+        tracker.acknowledge(NODE1, second.version());
+        remove(e1);
+        FlowTableDelta third = tracker.prepare(NODE1, master);
+        assertEquals("delta should build on the acknowledged version",
+                     second.version(), third.baseVersion());
+    }
+
+    /**
+     * Tests that a change of backup node triggers a full snapshot.
+     */
+    @Test
+    public void newBackupNode() {
+        send();
+        assertTrue("new node should need a backup", tracker.needsBackup(NODE2));
+        assertTrue(tracker.prepare(NODE2, master).isSnapshot());
+    }
+}
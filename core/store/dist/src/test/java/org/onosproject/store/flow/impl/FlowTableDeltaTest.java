@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.onlab.packet.MacAddress;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the flow table backup delta.
+ */
+public class FlowTableDeltaTest {
+
+    private static final DeviceId DID = DeviceId.deviceId("of:1");
+
+    private final StoredFlowEntry e1 = entry(1);
+    private final StoredFlowEntry e2 = entry(2);
+    private final StoredFlowEntry e3 = entry(3);
+
+    static StoredFlowEntry entry(int mac) {
+        return new DefaultFlowEntry(DefaultFlowRule.builder()
+                .forDevice(DID)
+                .withSelector(DefaultTrafficSelector.builder()
+                                      .matchEthDst(MacAddress.valueOf(mac)).build())
+                .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                .withPriority(10)
+                .fromApp(new DefaultApplicationId(1, "test"))
+                .makePermanent()
+                .build());
+    }
+
+    static Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table(StoredFlowEntry... entries) {
+        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table = Maps.newConcurrentMap();
+        for (StoredFlowEntry entry : entries) {
+            table.computeIfAbsent(entry.id(), id -> Maps.newConcurrentMap()).put(entry, entry);
+        }
+        return table;
+    }
+
+    @Test
+    public void snapshotReplacesTable() {
+        FlowTableDelta delta = FlowTableDelta.snapshot(1, table(e1, e2));
+        assertTrue("should be a snapshot", delta.isSnapshot());
+        assertEquals("incorrect update count", 2, delta.updates().size());
+
+        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backup = table(e3);
+        delta.applyTo(backup);
+        assertEquals("incorrect backup table", table(e1, e2), backup);
+    }
+
+    @Test
+    public void deltaAppliesChanges() {
+        FlowTableDelta delta = FlowTableDelta.delta(1, 2, ImmutableList.of(e3), ImmutableList.of(e1));
+        assertFalse("should not be a snapshot", delta.isSnapshot());
+        assertEquals("incorrect base version", 1, delta.baseVersion());
+        assertEquals("incorrect version", 2, delta.version());
+
+        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backup = table(e1, e2);
+        delta.applyTo(backup);
+        assertEquals("incorrect backup table", table(e2, e3), backup);
+        assertNull("empty flow id entries should be dropped", backup.get(e1.id()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deltaRequiresBaseVersion() {
+        FlowTableDelta.delta(FlowTableDelta.NO_VERSION, 1, ImmutableList.of(e1), ImmutableList.of());
+    }
+}
@@ -15,18 +15,26 @@
  */
 package org.onosproject.store.host.impl;
 
+import com.google.common.collect.ImmutableSet;
 import junit.framework.TestCase;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.junit.TestUtils;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.Host;
 import org.onosproject.net.HostId;
 import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.host.DefaultHostDescription;
 import org.onosproject.net.host.HostDescription;
 import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.MapEventListener;
 import org.onosproject.store.service.TestStorageService;
 
 import java.util.HashSet;
@@ -80,4 +88,82 @@ public class DistributedHostStoreTest extends TestCase {
         assertTrue(host.ipAddresses().contains(IP2));
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests the lookups of hosts by attribute as hosts are added, moved
+     * and removed.
+     */
+    @Test
+    public void testHostLookups() {
+        HostLocation location1 = new HostLocation(DeviceId.deviceId("of:1"), PortNumber.portNumber(1), 0);
+        HostLocation location2 = new HostLocation(DeviceId.deviceId("of:2"), PortNumber.portNumber(1), 0);
+        HostId hostId2 = HostId.hostId(MacAddress.valueOf("2b:2b:2b:2b:2b:2b"), VlanId.vlanId((short) 10));
+
+        ecXHostStore.createOrUpdateHost(PID, HOSTID, new DefaultHostDescription(
+                HOSTID.mac(), HOSTID.vlanId(), location1, ImmutableSet.of(IP1)), false);
+        ecXHostStore.createOrUpdateHost(PID, hostId2, new DefaultHostDescription(
+                hostId2.mac(), hostId2.vlanId(), location1, ImmutableSet.of(IP1, IP2)), false);
+
+        Host host = ecXHostStore.getHost(HOSTID);
+        Host host2 = ecXHostStore.getHost(hostId2);
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(HOSTID.mac()));
+        assertEquals(ImmutableSet.of(host2), ecXHostStore.getHosts(VlanId.vlanId((short) 10)));
+        assertEquals(ImmutableSet.of(host, host2), ecXHostStore.getHosts(IP1));
+        assertEquals(ImmutableSet.of(host2), ecXHostStore.getHosts(IP2));
+        assertEquals(ImmutableSet.of(host, host2), ecXHostStore.getConnectedHosts(location1));
+        assertEquals(ImmutableSet.of(host, host2), ecXHostStore.getConnectedHosts(location1.deviceId()));
+
+        ecXHostStore.createOrUpdateHost(PID, hostId2, new DefaultHostDescription(
+                hostId2.mac(), hostId2.vlanId(), location2, ImmutableSet.of(IP2)), true);
+        host2 = ecXHostStore.getHost(hostId2);
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(IP1));
+        assertEquals(ImmutableSet.of(host2), ecXHostStore.getHosts(IP2));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getConnectedHosts(location1));
+        assertEquals(ImmutableSet.of(host2), ecXHostStore.getConnectedHosts(
+                new ConnectPoint(location2.elementId(), location2.port())));
+        assertEquals(ImmutableSet.of(host2), ecXHostStore.getConnectedHosts(location2.deviceId()));
+
+        ecXHostStore.removeHost(HOSTID);
+        assertTrue(ecXHostStore.getHosts(HOSTID.mac()).isEmpty());
+        assertTrue(ecXHostStore.getHosts(IP1).isEmpty());
+        assertTrue(ecXHostStore.getConnectedHosts(location1.deviceId()).isEmpty());
+        assertEquals(ImmutableSet.of(host2), ecXHostStore.getHosts(hostId2.mac()));
+    }
+
+    /**
+     * Tests that the lookups of hosts by attribute agree with getHost
+     * before the map events have been delivered.
+     */
+    @Test
+    public void testHostLookupsBeforeEvents() throws TestUtils.TestUtilsException {
+        ConsistentMap<HostId, ?> map = TestUtils.getField(ecXHostStore, "host");
+        MapEventListener listener = TestUtils.getField(ecXHostStore, "hostLocationTracker");
+        map.removeListener(listener);
+
+        HostLocation location1 = new HostLocation(DeviceId.deviceId("of:1"), PortNumber.portNumber(1), 0);
+        HostLocation location2 = new HostLocation(DeviceId.deviceId("of:2"), PortNumber.portNumber(1), 0);
+
+        ecXHostStore.createOrUpdateHost(PID, HOSTID, new DefaultHostDescription(
+                HOSTID.mac(), HOSTID.vlanId(), location1, ImmutableSet.of(IP1)), false);
+        Host host = ecXHostStore.getHost(HOSTID);
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(HOSTID.mac()));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(IP1));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getConnectedHosts(location1.deviceId()));
+
+        ecXHostStore.createOrUpdateHost(PID, HOSTID, new DefaultHostDescription(
+                HOSTID.mac(), HOSTID.vlanId(), location2, ImmutableSet.of(IP2)), true);
+        host = ecXHostStore.getHost(HOSTID);
+        assertTrue(ecXHostStore.getHosts(IP1).isEmpty());
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(IP2));
+        assertTrue(ecXHostStore.getConnectedHosts(location1.deviceId()).isEmpty());
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getConnectedHosts(location2.deviceId()));
+
+        ecXHostStore.removeHost(HOSTID);
+        assertNull(ecXHostStore.getHost(HOSTID));
+        assertTrue(ecXHostStore.getHosts(HOSTID.mac()).isEmpty());
+        assertTrue(ecXHostStore.getHosts(IP2).isEmpty());
+        assertTrue(ecXHostStore.getConnectedHosts(location2.deviceId()).isEmpty());
+
+        map.addListener(listener);
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.statistic.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.MacAddress;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.mastership.MastershipServiceAdapter;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.statistic.Load;
+import org.onosproject.net.statistic.StatisticStore;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationServiceAdapter;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the distributed statistic store.
+ */
+public class DistributedStatisticStoreTest {
+
+    private static final DeviceId DID = DeviceId.deviceId("of:1");
+    private static final PortNumber PORT = PortNumber.portNumber(1);
+    private static final ConnectPoint CP = new ConnectPoint(DID, PORT);
+
+    private final FlowRule rule1 = rule(1);
+    private final FlowRule rule2 = rule(2);
+
+    private DistributedStatisticStore store;
+
+    private static FlowRule rule(int mac) {
+        return DefaultFlowRule.builder()
+                .forDevice(DID)
+                .withSelector(DefaultTrafficSelector.builder()
+                                      .matchEthDst(MacAddress.valueOf(mac)).build())
+                .withTreatment(DefaultTrafficTreatment.builder().setOutput(PORT).build())
+                .withPriority(10)
+                .fromApp(new DefaultApplicationId(1, "test"))
+                .makePermanent()
+                .build();
+    }
+
+    private static FlowEntry entry(FlowRule rule, long bytes) {
+        return new DefaultFlowEntry(rule, FlowEntry.FlowEntryState.ADDED, 0, 0, bytes);
+    }
+
+    @Before
+    public void setUp() {
+        store = new DistributedStatisticStore();
+        store.clusterService = new ClusterServiceAdapter();
+        store.clusterCommunicator = new ClusterCommunicationServiceAdapter();
+        store.mastershipService = new MastershipServiceAdapter() {
+            @Override
+            public NodeId getMasterFor(DeviceId deviceId) {
+                return store.clusterService.getLocalNode().id();
+            }
+        };
+        store.activate();
+        store.prepareForStatistics(rule1);
+        store.prepareForStatistics(rule2);
+    }
+
+    @After
+    public void tearDown() {
+        store.deactivate();
+    }
+
+    // Submits one stats poll of both rules.
+    private void poll(long bytes1, long bytes2) {
+        store.addOrUpdateStatistic(entry(rule1, bytes1));
+        store.addOrUpdateStatistic(entry(rule2, bytes2));
+    }
+
+    private static long bytes(Set<FlowEntry> entries) {
+        return entries.stream().mapToLong(FlowEntry::bytes).sum();
+    }
+
+    // Load as StatisticManager used to compute it from the stats values.
+    private Load expectedLoad() {
+        return new StatisticStore() {
+            @Override
+            public void prepareForStatistics(FlowRule rule) {
+            }
+
+            @Override
+            public void removeFromStatistics(FlowRule rule) {
+            }
+
+            @Override
+            public void addOrUpdateStatistic(FlowEntry rule) {
+            }
+
+            @Override
+            public Set<FlowEntry> getCurrentStatistic(ConnectPoint connectPoint) {
+                return store.getCurrentStatistic(connectPoint);
+            }
+
+            @Override
+            public Set<FlowEntry> getPreviousStatistic(ConnectPoint connectPoint) {
+                return store.getPreviousStatistic(connectPoint);
+            }
+        }.getLoad(CP);
+    }
+
+    private void assertLoad(long current) {
+        Load load = store.getLoad(CP);
+        Load expected = expectedLoad();
+        assertTrue(load.isValid());
+        assertEquals(current, load.latest());
+        assertEquals(expected.latest(), load.latest());
+        assertEquals(expected.rate(), load.rate());
+    }
+
+    /**
+     * Tests that each completed poll replaces the published values as a
+     * whole, leaving values handed out earlier untouched.
+     */
+    @Test
+    public void snapshotSwap() {
+        store.addOrUpdateStatistic(entry(rule1, 100));
+        assertEquals(null, store.getCurrentStatistic(CP));
+
+        store.addOrUpdateStatistic(entry(rule2, 200));
+        Set<FlowEntry> first = store.getCurrentStatistic(CP);
+        assertEquals(ImmutableSet.of(rule1, rule2), first);
+        assertTrue(store.getPreviousStatistic(CP).isEmpty());
+        assertFalse(store.getLoad(CP).isValid());
+        assertFalse(expectedLoad().isValid());
+
+        poll(600, 700);
+        assertSame(first, store.getPreviousStatistic(CP));
+        assertEquals(300, bytes(first));
+        assertEquals(1300, bytes(store.getCurrentStatistic(CP)));
+        assertLoad(1300);
+    }
+
+    /**
+     * Tests that removed rules are dropped from both published values and
+     * from the load.
+     */
+    @Test
+    public void without() {
+        poll(100, 200);
+        poll(600, 700);
+
+        store.removeFromStatistics(rule1);
+        Set<FlowEntry> current = store.getCurrentStatistic(CP);
+        Set<FlowEntry> previous = store.getPreviousStatistic(CP);
+        assertEquals(ImmutableSet.of(rule2), current);
+        assertEquals(ImmutableSet.of(rule2), previous);
+        assertEquals(700, bytes(current));
+        assertEquals(200, bytes(previous));
+        assertLoad(700);
+    }
+}
@@ -17,10 +17,13 @@ package org.onosproject.store.primitives.impl;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import org.onosproject.cluster.NodeId;
 
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -31,6 +34,7 @@ public class AntiEntropyAdvertisement<K> {
 
     private final NodeId sender;
     private final Map<K, MapValue.Digest> digest;
+    private final Set<Integer> buckets;
 
     /**
      * Creates a new anti entropy advertisement message.
@@ -42,6 +46,23 @@ public class AntiEntropyAdvertisement<K> {
                                     Map<K, MapValue.Digest> digest) {
         this.sender = checkNotNull(sender);
         this.digest = ImmutableMap.copyOf(checkNotNull(digest));
+        this.buckets = null;
+    }
+
+    /**
+     * Creates a new anti entropy advertisement message covering only the
+     * entries within the given buckets of the {@link MerkleTree}.
+     *
+     * @param sender  the sender's node ID
+     * @param digest  for map entries within the buckets
+     * @param buckets buckets covered by the advertisement
+     */
+    public AntiEntropyAdvertisement(NodeId sender,
+                                    Map<K, MapValue.Digest> digest,
+                                    Set<Integer> buckets) {
+        this.sender = checkNotNull(sender);
+        this.digest = ImmutableMap.copyOf(checkNotNull(digest));
+        this.buckets = ImmutableSet.copyOf(checkNotNull(buckets));
     }
 
     /**
@@ -62,6 +83,15 @@ public class AntiEntropyAdvertisement<K> {
         return digest;
     }
 
+    /**
+     * Returns the buckets covered by the advertisement.
+     *
+     * @return buckets; empty if the advertisement covers the entire map
+     */
+    public Optional<Set<Integer>> buckets() {
+        return Optional.ofNullable(buckets);
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(getClass())
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import com.google.common.base.MoreObjects;
+
+import org.onosproject.cluster.NodeId;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Anti-entropy message carrying the hashes of some nodes of one level of
+ * the sender's {@link MerkleTree}. The receiver replies with the indices
+ * of the nodes whose hashes differ from its own.
+ */
+public class AntiEntropyDigest {
+
+    private final NodeId sender;
+    private final int level;
+    private final int[] nodes;
+    private final long[] hashes;
+
+    /**
+     * Creates a new anti-entropy digest message.
+     *
+     * @param sender the sender's node ID
+     * @param level  tree level of the nodes
+     * @param nodes  node indices within the level
+     * @param hashes hashes of the nodes
+     */
+    public AntiEntropyDigest(NodeId sender, int level, int[] nodes, long[] hashes) {
+        checkArgument(nodes.length == hashes.length, "Nodes and hashes do not match");
+        this.sender = checkNotNull(sender);
+        this.level = level;
+        this.nodes = nodes;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Returns the sender's node ID.
+     *
+     * @return the sender's node ID
+     */
+    public NodeId sender() {
+        return sender;
+    }
+
+    /**
+     * Returns the tree level of the nodes.
+     *
+     * @return tree level
+     */
+    public int level() {
+        return level;
+    }
+
+    /**
+     * Returns the node indices within the level.
+     *
+     * @return node indices
+     */
+    public int[] nodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the hashes of the nodes, in the order of the node indices.
+     *
+     * @return node hashes
+     */
+    public long[] hashes() {
+        return hashes;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("sender", sender)
+                .add("level", level)
+                .add("totalNodes", nodes.length)
+                .toString();
+    }
+}
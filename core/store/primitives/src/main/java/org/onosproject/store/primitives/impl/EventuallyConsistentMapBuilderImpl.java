@@ -54,6 +54,7 @@ public class EventuallyConsistentMapBuilderImpl<K, V>
     private boolean convergeFaster = false;
     private boolean persistent = false;
     private boolean persistentMap = false;
+    private boolean merkleAntiEntropy = false;
     private final PersistenceService persistenceService;
 
     /**
@@ -144,6 +145,12 @@ public class EventuallyConsistentMapBuilderImpl<K, V>
         return this;
     }
 
+    @Override
+    public EventuallyConsistentMapBuilder<K, V> withMerkleAntiEntropy() {
+        merkleAntiEntropy = true;
+        return this;
+    }
+
     @Override
     public EventuallyConsistentMap<K, V> build() {
         checkNotNull(name, "name is a mandatory parameter");
@@ -164,6 +171,7 @@ public class EventuallyConsistentMapBuilderImpl<K, V>
                                                  antiEntropyTimeUnit,
                                                  convergeFaster,
                                                  persistent,
-                                                 persistenceService);
+                                                 persistenceService,
+                                                 merkleAntiEntropy);
     }
 }
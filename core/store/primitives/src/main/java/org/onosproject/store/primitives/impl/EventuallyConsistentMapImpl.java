@@ -40,6 +40,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.onlab.util.AbstractAccumulator;
@@ -69,6 +70,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 
 /**
  * Distributed Map implementation which uses optimistic replication and gossip
@@ -91,6 +93,12 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private final MessageSubject updateMessageSubject;
     private final MessageSubject antiEntropyAdvertisementSubject;
+    private final MessageSubject antiEntropyDigestSubject;
+
+    // Hash tree of the map contents and hashes of the keys it covers;
+    // null unless Merkle anti-entropy is enabled.
+    private final MerkleTree merkleTree;
+    private final Map<K, Long> keyHashes;
 
     private final Set<EventuallyConsistentMapListener<K, V>> listeners
             = Sets.newCopyOnWriteArraySet();
@@ -155,6 +163,7 @@ public class EventuallyConsistentMapImpl<K, V>
      * @param convergeFaster        make anti-entropy try to converge faster
      * @param persistent            persist data to disk
      * @param persistenceService    persistence service
+     * @param merkleAntiEntropy     exchange hash tree digests during anti-entropy
      */
     EventuallyConsistentMapImpl(String mapName,
                                 ClusterService clusterService,
@@ -170,7 +179,8 @@ public class EventuallyConsistentMapImpl<K, V>
                                 TimeUnit antiEntropyTimeUnit,
                                 boolean convergeFaster,
                                 boolean persistent,
-                                PersistenceService persistenceService) {
+                                PersistenceService persistenceService,
+                                boolean merkleAntiEntropy) {
         this.mapName = mapName;
         this.serializer = createSerializer(serializerBuilder);
         this.persistenceService = persistenceService;
@@ -195,6 +205,14 @@ public class EventuallyConsistentMapImpl<K, V>
         } else {
             items = Maps.newConcurrentMap();
         }
+        if (merkleAntiEntropy) {
+            merkleTree = new MerkleTree();
+            keyHashes = Maps.newConcurrentMap();
+            items.forEach((key, value) -> updateDigest(key, null, value));
+        } else {
+            merkleTree = null;
+            keyHashes = null;
+        }
         senderPending = Maps.newConcurrentMap();
         destroyedMessage = mapName + ERROR_DESTROYED;
 
@@ -256,6 +274,15 @@ public class EventuallyConsistentMapImpl<K, V>
                                           serializer::encode,
                                           this.backgroundExecutor);
 
+        antiEntropyDigestSubject = new MessageSubject("ecm-" + mapName + "-anti-entropy-digest");
+        if (merkleTree != null) {
+            clusterCommunicator.addSubscriber(antiEntropyDigestSubject,
+                                              serializer::decode,
+                                              this::handleAntiEntropyDigest,
+                                              serializer::encode,
+                                              this.backgroundExecutor);
+        }
+
         if (!tombstonesDisabled) {
             previousTombstonePurgeTime = 0;
             this.backgroundExecutor.scheduleWithFixedDelay(this::purgeTombstones,
@@ -280,6 +307,7 @@ public class EventuallyConsistentMapImpl<K, V>
                         .register(WallClockTimestamp.class)
                         .register(AntiEntropyAdvertisement.class)
                         .register(AntiEntropyResponse.class)
+                        .register(AntiEntropyDigest.class)
                         .register(UpdateEntry.class)
                         .register(MapValue.class)
                         .register(MapValue.Digest.class)
@@ -404,6 +432,7 @@ public class EventuallyConsistentMapImpl<K, V>
             }
             if (updated.get()) {
                 previousValue.set(existing);
+                updateDigest(k, existing, tombstone.orElse(null));
                 return tombstone.orElse(null);
             } else {
                 return existing;
@@ -428,7 +457,9 @@ public class EventuallyConsistentMapImpl<K, V>
                 updated.set(true);
                 // We return a copy to ensure updates to peers can be serialized.
                 // This prevents replica divergence due to serialization failures.
-                return serializer.copy(newValue);
+                MapValue<V> copy = serializer.copy(newValue);
+                updateDigest(k, mv, copy);
+                return copy;
             } else {
                 return mv;
             }
@@ -499,6 +530,7 @@ public class EventuallyConsistentMapImpl<K, V>
         items.compute(key, (k, existing) -> {
             if (existing == null || newValue.isNewerThan(existing)) {
                 updated.set(true);
+                updateDigest(k, existing, newValue);
                 return newValue;
             }
             return existing;
@@ -532,6 +564,9 @@ public class EventuallyConsistentMapImpl<K, V>
 
         clusterCommunicator.removeSubscriber(updateMessageSubject);
         clusterCommunicator.removeSubscriber(antiEntropyAdvertisementSubject);
+        if (merkleTree != null) {
+            clusterCommunicator.removeSubscriber(antiEntropyDigestSubject);
+        }
         return CompletableFuture.completedFuture(null);
     }
 
@@ -582,7 +617,50 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private void sendAdvertisementToPeer(NodeId peer) {
         long adCreationTime = System.currentTimeMillis();
-        AntiEntropyAdvertisement<K> ad = createAdvertisement();
+        if (merkleTree == null) {
+            sendAdvertisementToPeer(peer, createAdvertisement(), adCreationTime);
+            return;
+        }
+        // Descend from the root only into the subtrees that differ and
+        // advertise just the entries of the differing buckets.
+        compareDigests(peer, MerkleTree.ROOT_LEVEL, new int[]{0})
+                .whenComplete((buckets, error) -> {
+                    if (error != null) {
+                        log.debug("Failed to send anti-entropy digest to {}", peer, error);
+                    } else if (buckets != null && !destroyed) {
+                        if (buckets.length == 0) {
+                            antiEntropyTimes.put(peer, adCreationTime);
+                        } else {
+                            sendAdvertisementToPeer(peer, createAdvertisement(buckets), adCreationTime);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Sends the hashes of the given tree nodes to the peer and recurses into
+     * the children of the nodes reported to differ.
+     *
+     * @return future of the differing leaf buckets; completes with null if
+     * the peer ignored the digest
+     */
+    private CompletableFuture<int[]> compareDigests(NodeId peer, int level, int[] nodes) {
+        AntiEntropyDigest digest =
+                new AntiEntropyDigest(localNodeId, level, nodes, merkleTree.hashes(level, nodes));
+        return clusterCommunicator.<AntiEntropyDigest, int[]>sendAndReceive(digest,
+                antiEntropyDigestSubject,
+                serializer::encode,
+                serializer::decode,
+                peer)
+                .thenCompose(differing -> {
+                    if (differing == null || differing.length == 0 || level == MerkleTree.LEAF_LEVEL) {
+                        return CompletableFuture.completedFuture(differing);
+                    }
+                    return compareDigests(peer, level + 1, MerkleTree.children(differing));
+                });
+    }
+
+    private void sendAdvertisementToPeer(NodeId peer, AntiEntropyAdvertisement<K> ad, long adCreationTime) {
         clusterCommunicator.sendAndReceive(ad,
                 antiEntropyAdvertisementSubject,
                 serializer::encode,
@@ -602,6 +680,69 @@ public class EventuallyConsistentMapImpl<K, V>
                 ImmutableMap.copyOf(Maps.transformValues(items, MapValue::digest)));
     }
 
+    private AntiEntropyAdvertisement<K> createAdvertisement(int[] buckets) {
+        Set<Integer> covered = IntStream.of(buckets).boxed().collect(Collectors.toSet());
+        Map<K, MapValue.Digest> digest = Maps.newHashMap();
+        keyHashes.forEach((key, hash) -> {
+            if (covered.contains(MerkleTree.bucket(hash))) {
+                MapValue<V> value = items.get(key);
+                if (value != null) {
+                    digest.put(key, value.digest());
+                }
+            }
+        });
+        return new AntiEntropyAdvertisement<K>(localNodeId, digest, covered);
+    }
+
+    /**
+     * Returns the tree nodes of the digest whose hashes differ from the local
+     * ones; null if the digest is ignored.
+     */
+    private int[] handleAntiEntropyDigest(AntiEntropyDigest digest) {
+        if (destroyed || underHighLoad()) {
+            return null;
+        }
+        return merkleTree.diff(digest.level(), digest.nodes(), digest.hashes());
+    }
+
+    /**
+     * Applies a change of the value of the given key to the hash tree.
+     * Must be called while the key's entry in the items map is locked.
+     */
+    private void updateDigest(K key, MapValue<V> oldValue, MapValue<V> newValue) {
+        if (merkleTree == null || oldValue == newValue) {
+            return;
+        }
+        long keyHash = keyHashes.computeIfAbsent(key, this::hashKey);
+        merkleTree.update(keyHash, entryHash(keyHash, oldValue), entryHash(keyHash, newValue));
+        if (newValue == null) {
+            keyHashes.remove(key);
+        }
+    }
+
+    // Hashes of keys and digests are computed from their serialized form,
+    // which unlike Object.hashCode() is identical on all instances.
+    private long hashKey(K key) {
+        return Hashing.murmur3_128().hashBytes(serializer.encode(key)).asLong();
+    }
+
+    private long entryHash(long keyHash, MapValue<V> value) {
+        if (value == null) {
+            return 0;
+        }
+        long digestHash = Hashing.murmur3_128().hashBytes(serializer.encode(value.digest())).asLong();
+        return MerkleTree.entryHash(keyHash, digestHash);
+    }
+
+    // Indicates whether the key falls within the buckets covered by the advertisement.
+    private boolean isCovered(K key, Optional<Set<Integer>> buckets) {
+        if (!buckets.isPresent() || merkleTree == null) {
+            return true;
+        }
+        Long keyHash = keyHashes.get(key);
+        return buckets.get().contains(MerkleTree.bucket(keyHash != null ? keyHash : hashKey(key)));
+    }
+
     private AntiEntropyResponse handleAntiEntropyAdvertisement(AntiEntropyAdvertisement<K> ad) {
         if (destroyed || underHighLoad()) {
             return AntiEntropyResponse.IGNORED;
@@ -639,6 +780,9 @@ public class EventuallyConsistentMapImpl<K, V>
         final List<EventuallyConsistentMapEvent<K, V>> externalEvents = Lists.newLinkedList();
         final NodeId sender = ad.sender();
         items.forEach((key, localValue) -> {
+            if (!isCovered(key, ad.buckets())) {
+                return;
+            }
             MapValue.Digest remoteValueDigest = ad.digest().get(key);
             if (remoteValueDigest == null || localValue.isNewerThan(remoteValueDigest.timestamp())) {
                 // local value is more recent, push to sender
@@ -683,7 +827,13 @@ public class EventuallyConsistentMapImpl<K, V>
                                           .filter(e -> e.getValue().creationTime() <= currentSafeTombstonePurgeTime)
                                           .collect(Collectors.toList());
         previousTombstonePurgeTime = currentSafeTombstonePurgeTime;
-        tombStonesToDelete.forEach(entry -> items.remove(entry.getKey(), entry.getValue()));
+        tombStonesToDelete.forEach(entry -> items.computeIfPresent(entry.getKey(), (key, value) -> {
+            if (value.equals(entry.getValue())) {
+                updateDigest(key, value, null);
+                return null;
+            }
+            return value;
+        }));
     }
 
     private void processUpdates(Collection<UpdateEntry<K, V>> updates) {
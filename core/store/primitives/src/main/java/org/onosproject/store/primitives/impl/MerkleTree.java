@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed-shape hash tree summarizing the contents of an eventually
+ * consistent map, used to locate the entries in which two replicas differ
+ * without exchanging a digest of every entry.
+ * <p>
+ * Entries are assigned to leaf buckets by the hash of their key. The hash
+ * of every node is the exclusive or of the hashes of the entries below it,
+ * so the tree is updated in constant time whenever an entry changes and
+ * replicas holding the same entries have identical trees regardless of the
+ * order in which the entries were written.
+ * </p>
+ */
+final class MerkleTree {
+
+    /**
+     * Number of children of each inner node.
+     */
+    static final int FANOUT = 64;
+
+    /**
+     * Level of the root node.
+     */
+    static final int ROOT_LEVEL = 0;
+
+    /**
+     * Level of the leaf buckets.
+     */
+    static final int LEAF_LEVEL = 2;
+
+    private final AtomicLongArray[] levels = new AtomicLongArray[LEAF_LEVEL + 1];
+
+    /**
+     * Creates an empty tree.
+     */
+    MerkleTree() {
+        int width = 1;
+        for (int level = ROOT_LEVEL; level <= LEAF_LEVEL; level++) {
+            levels[level] = new AtomicLongArray(width);
+            width *= FANOUT;
+        }
+    }
+
+    /**
+     * Returns the leaf bucket holding the entry with the given key hash.
+     *
+     * @param keyHash hash of the entry key
+     * @return bucket index
+     */
+    static int bucket(long keyHash) {
+        return (int) ((keyHash & Long.MAX_VALUE) % (FANOUT * FANOUT));
+    }
+
+    /**
+     * Returns the hash representing an entry in the tree.
+     *
+     * @param keyHash    hash of the entry key
+     * @param digestHash hash of the entry value digest
+     * @return entry hash
+     */
+    static long entryHash(long keyHash, long digestHash) {
+        // Finalizer of MurmurHash3; spreads the combined bits so that the
+        // exclusive or of unrelated entries is unlikely to cancel out.
+        long h = keyHash * 31 + digestHash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Applies a change of an entry to the tree.
+     *
+     * @param keyHash  hash of the entry key
+     * @param oldHash  previous entry hash; 0 if the entry did not exist
+     * @param newHash  new entry hash; 0 if the entry was removed
+     */
+    void update(long keyHash, long oldHash, long newHash) {
+        long delta = oldHash ^ newHash;
+        if (delta == 0) {
+            return;
+        }
+        int node = bucket(keyHash);
+        for (int level = LEAF_LEVEL; level >= ROOT_LEVEL; level--) {
+            levels[level].accumulateAndGet(node, delta, (a, b) -> a ^ b);
+            node /= FANOUT;
+        }
+    }
+
+    /**
+     * Returns the hashes of the given nodes of a level.
+     *
+     * @param level tree level
+     * @param nodes node indices within the level
+     * @return node hashes
+     */
+    long[] hashes(int level, int[] nodes) {
+        checkArgument(level >= ROOT_LEVEL && level <= LEAF_LEVEL, "Invalid tree level");
+        long[] hashes = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            hashes[i] = levels[level].get(nodes[i]);
+        }
+        return hashes;
+    }
+
+    /**
+     * Returns those of the given nodes whose hashes differ from the local
+     * ones.
+     *
+     * @param level  tree level
+     * @param nodes  node indices within the level
+     * @param hashes remote node hashes
+     * @return indices of the differing nodes
+     */
+    int[] diff(int level, int[] nodes, long[] hashes) {
+        checkArgument(nodes.length == hashes.length, "Nodes and hashes do not match");
+        long[] local = hashes(level, nodes);
+        return IntStream.range(0, nodes.length)
+                .filter(i -> local[i] != hashes[i])
+                .map(i -> nodes[i])
+                .toArray();
+    }
+
+    /**
+     * Returns the children of the given nodes.
+     *
+     * @param nodes node indices within a level other than the leaf level
+     * @return node indices within the next level
+     */
+    static int[] children(int[] nodes) {
+        return IntStream.of(nodes)
+                .flatMap(node -> IntStream.range(node * FANOUT, (node + 1) * FANOUT))
+                .toArray();
+    }
+}
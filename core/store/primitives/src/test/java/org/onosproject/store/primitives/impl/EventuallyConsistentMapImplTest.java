@@ -73,6 +73,7 @@ import org.onosproject.store.service.WallClockTimestamp;
 
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.MoreExecutors;
 
@@ -93,6 +94,8 @@ public class EventuallyConsistentMapImplTest {
             = new MessageSubject("ecm-" + MAP_NAME + "-update");
     private static final MessageSubject ANTI_ENTROPY_MESSAGE_SUBJECT
             = new MessageSubject("ecm-" + MAP_NAME + "-anti-entropy");
+    private static final MessageSubject ANTI_ENTROPY_DIGEST_SUBJECT
+            = new MessageSubject("ecm-" + MAP_NAME + "-anti-entropy-digest");
 
     private static final String KEY1 = "one";
     private static final String KEY2 = "two";
@@ -104,6 +107,7 @@ public class EventuallyConsistentMapImplTest {
 
     private Consumer<Collection<UpdateEntry<String, String>>> updateHandler;
     private Function<AntiEntropyAdvertisement<String>, AntiEntropyResponse> antiEntropyHandler;
+    private Function<AntiEntropyDigest, int[]> antiEntropyDigestHandler;
 
     /*
      * Serialization is a bit tricky here. We need to serialize in the tests
@@ -680,6 +684,91 @@ public class EventuallyConsistentMapImplTest {
         }
     }
 
+    @Test
+    public void testMerkleAntiEntropy() throws Exception {
+        ClusterCommunicationService communicator = createMock(ClusterCommunicationService.class);
+        communicator.<Object>addSubscriber(anyObject(MessageSubject.class),
+                anyObject(Function.class), anyObject(Consumer.class), anyObject(Executor.class));
+        expectLastCall().andDelegateTo(new TestClusterCommunicationService()).times(1);
+        communicator.<Object, Object>addSubscriber(anyObject(MessageSubject.class),
+                                                   anyObject(Function.class),
+                                                   anyObject(Function.class),
+                                                   anyObject(Function.class),
+                                                   anyObject(Executor.class));
+        expectLastCall().andDelegateTo(new TestClusterCommunicationService()).times(2);
+        replay(communicator);
+
+        EventuallyConsistentMap<String, String> merkleMap =
+                new EventuallyConsistentMapBuilderImpl<String, String>(
+                        clusterService, communicator, persistenceService)
+                        .withName(MAP_NAME)
+                        .withSerializer(KryoNamespace.newBuilder()
+                                                .register(KryoNamespaces.API)
+                                                .register(TestTimestamp.class))
+                        .withTimestampProvider((k, v) -> clockService.getTimestamp(k, v))
+                        .withCommunicationExecutor(MoreExecutors.newDirectExecutorService())
+                        .withTombstonesDisabled()
+                        .withMerkleAntiEntropy()
+                        .build();
+        verify(communicator);
+        expectPeerMessage(communicator);
+
+        try {
+            int[] root = {0};
+            long[] empty = {0};
+            assertEquals(0, antiEntropyDigestHandler.apply(digest(0, root, empty)).length);
+
+            merkleMap.put(KEY2, VALUE2);
+            merkleMap.remove(KEY2);
+            merkleMap.put(KEY1, VALUE1);
+            // Digests are ignored for a while after updates
+            assertNull(antiEntropyDigestHandler.apply(digest(0, root, empty)));
+            assertEquals(1, awaitDigest(digest(0, root, empty)).length);
+
+            // Exactly one branch and one bucket hold the remaining entry
+            int[] branches = MerkleTree.children(root);
+            int[] differing = awaitDigest(digest(1, branches, new long[branches.length]));
+            assertEquals(1, differing.length);
+            int[] buckets = MerkleTree.children(differing);
+            differing = awaitDigest(digest(MerkleTree.LEAF_LEVEL, buckets, new long[buckets.length]));
+            assertEquals(1, differing.length);
+            int bucket = differing[0];
+
+            // Advertisements restricted to other buckets leave the entry alone
+            Timestamp newer = clockService.peek(10);
+            Map<String, MapValue.Digest> tombstone =
+                    ImmutableMap.of(KEY1, new MapValue.Digest(newer, true));
+            antiEntropyHandler.apply(new AntiEntropyAdvertisement<>(
+                    new NodeId("peer"), tombstone, ImmutableSet.of(bucket + 1)));
+            assertEquals(VALUE1, merkleMap.get(KEY1));
+            antiEntropyHandler.apply(new AntiEntropyAdvertisement<>(
+                    new NodeId("peer"), tombstone, ImmutableSet.of(bucket)));
+            assertNull(merkleMap.get(KEY1));
+        } finally {
+            reset(communicator);
+            communicator.removeSubscriber(anyObject(MessageSubject.class));
+            expectLastCall().times(3);
+            replay(communicator);
+            merkleMap.destroy();
+            verify(communicator);
+        }
+    }
+
+    // Waits for the map to leave high load and handle the digest.
+    private int[] awaitDigest(AntiEntropyDigest digest) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        int[] differing = antiEntropyDigestHandler.apply(digest);
+        while (differing == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            differing = antiEntropyDigestHandler.apply(digest);
+        }
+        return differing;
+    }
+
+    private AntiEntropyDigest digest(int level, int[] nodes, long[] hashes) {
+        return new AntiEntropyDigest(new NodeId("peer"), level, nodes, hashes);
+    }
+
     private UpdateEntry<String, String> generatePutMessage(String key, String value, Timestamp timestamp) {
         return new UpdateEntry<>(key, new MapValue<>(value, timestamp));
     }
@@ -814,6 +903,8 @@ public class EventuallyConsistentMapImplTest {
                 Function<byte[], M> decoder, Function<M, R> handler, Function<R, byte[]> encoder, Executor executor) {
             if (subject.equals(ANTI_ENTROPY_MESSAGE_SUBJECT)) {
                 antiEntropyHandler = (Function<AntiEntropyAdvertisement<String>, AntiEntropyResponse>) handler;
+            } else if (subject.equals(ANTI_ENTROPY_DIGEST_SUBJECT)) {
+                antiEntropyDigestHandler = (Function<AntiEntropyDigest, int[]>) handler;
             } else {
                 throw new RuntimeException("Unexpected message subject " + subject.toString());
             }
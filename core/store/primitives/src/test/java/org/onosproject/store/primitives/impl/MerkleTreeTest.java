@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Unit tests for the anti-entropy hash tree.
+ */
+public class MerkleTreeTest {
+
+    private static final int[] ROOT = {0};
+
+    private static long root(MerkleTree tree) {
+        return tree.hashes(MerkleTree.ROOT_LEVEL, ROOT)[0];
+    }
+
+    @Test
+    public void orderIndependent() {
+        MerkleTree tree1 = new MerkleTree();
+        MerkleTree tree2 = new MerkleTree();
+        for (long key = 1; key <= 100; key++) {
+            tree1.update(key, 0, MerkleTree.entryHash(key, 7));
+        }
+        for (long key = 100; key >= 1; key--) {
+            tree2.update(key, 0, MerkleTree.entryHash(key, 7));
+        }
+        assertEquals(root(tree1), root(tree2));
+        assertEquals(0, tree1.diff(MerkleTree.ROOT_LEVEL, ROOT, new long[]{root(tree2)}).length);
+    }
+
+    @Test
+    public void updateAndRemove() {
+        MerkleTree tree = new MerkleTree();
+        long key = 42;
+        tree.update(key, 0, MerkleTree.entryHash(key, 1));
+        long first = root(tree);
+        tree.update(key, MerkleTree.entryHash(key, 1), MerkleTree.entryHash(key, 2));
+        long second = root(tree);
+        tree.update(key, MerkleTree.entryHash(key, 2), 0);
+
+        assertEquals(0, root(tree));
+        assertNotEquals(first, second);
+        assertNotEquals(0, first);
+    }
+
+    @Test
+    public void locateDifference() {
+        MerkleTree tree = new MerkleTree();
+        long key = 12345;
+        tree.update(key, 0, MerkleTree.entryHash(key, 1));
+
+        int[] differing = tree.diff(MerkleTree.ROOT_LEVEL, ROOT, new long[1]);
+        assertArrayEquals(ROOT, differing);
+        for (int level = MerkleTree.ROOT_LEVEL + 1; level <= MerkleTree.LEAF_LEVEL; level++) {
+            int[] children = MerkleTree.children(differing);
+            assertEquals(MerkleTree.FANOUT * differing.length, children.length);
+            differing = tree.diff(level, children, new long[children.length]);
+            assertEquals(1, differing.length);
+        }
+        assertArrayEquals(new int[]{MerkleTree.bucket(key)}, differing);
+    }
+}
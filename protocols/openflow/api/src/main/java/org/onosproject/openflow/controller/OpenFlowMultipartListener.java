@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller;
+
+import org.projectfloodlight.openflow.protocol.OFStatsReply;
+
+import java.util.List;
+
+/**
+ * Notifies providers about openflow msg events, delivering multi-part
+ * statistics replies as the sequence of their segments rather than as a
+ * single reply merged by the controller.
+ */
+public interface OpenFlowMultipartListener extends OpenFlowEventListener {
+
+    /**
+     * Handles a complete multi-part statistics reply. Replies handed over
+     * through this method are not also delivered through
+     * {@link #handleMessage(Dpid, org.projectfloodlight.openflow.protocol.OFMessage)}.
+     *
+     * @param dpid switch data path identifier
+     * @param segments reply segments, all sharing the same type and xid,
+     *                 in the order they were received
+     */
+    void handleMultipartReply(Dpid dpid, List<OFStatsReply> segments);
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.openflow.controller.Dpid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Schedules the handling of messages received from switches on separate
+ * lanes, so that bursts of statistics cannot starve control messages.
+ * <p>
+ * Each lane has a number of single-threaded workers; all messages of a
+ * given switch on a given lane are handled by the same worker and hence in
+ * the order they were received. Statistics and bulk lanes have bounded
+ * queues and drop messages once full, whereas control and barrier lanes
+ * never drop nor hold back the caller, which is usually an I/O thread.
+ * Statistics which are superseded by a fresher reply before being handled
+ * may be coalesced.
+ * </p>
+ */
+class OFMessageScheduler {
+
+    /**
+     * Priority classes of messages.
+     */
+    enum Lane {
+        /** Flow removed and error messages. */
+        CONTROL(true),
+        /** Barrier replies. */
+        BARRIER(true),
+        /** Port, meter and table statistics replies. */
+        STATS(false),
+        /** Flow and group statistics replies. */
+        BULK(false);
+
+        private final boolean lossless;
+
+        Lane(boolean lossless) {
+            this.lossless = lossless;
+        }
+    }
+
+    static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    private static final String METRICS_COMPONENT = "OpenFlowController";
+    private static final String QUEUE_DEPTH = "queueDepth";
+    private static final String DROPPED = "dropped";
+    private static final String COALESCED = "coalesced";
+
+    private static final Logger log = LoggerFactory.getLogger(OFMessageScheduler.class);
+
+    // Latest pending task for each coalescing key
+    private final ConcurrentMap<CoalesceKey, Runnable> latest = Maps.newConcurrentMap();
+
+    private volatile Map<Lane, LaneWorkers> lanes;
+    private volatile boolean coalesce;
+
+    private MetricsService metricsService;
+    private MetricsComponent metricsComponent;
+
+    /**
+     * Creates a scheduler with the given number of workers per lane.
+     *
+     * @param threads   number of workers for each lane
+     * @param queueSize capacity of each worker queue
+     */
+    OFMessageScheduler(Map<Lane, Integer> threads, int queueSize) {
+        configure(threads, queueSize);
+    }
+
+    /**
+     * Starts reporting queue metrics to the given metrics service.
+     *
+     * @param metricsService metrics service; null to stop reporting
+     */
+    synchronized void setMetricsService(MetricsService metricsService) {
+        lanes.values().forEach(LaneWorkers::unregisterMetrics);
+        this.metricsService = metricsService;
+        this.metricsComponent = metricsService != null ?
+                metricsService.registerComponent(METRICS_COMPONENT) : null;
+        lanes.values().forEach(LaneWorkers::registerMetrics);
+    }
+
+    /**
+     * Enables or disables coalescing of superseded statistics.
+     *
+     * @param coalesce true to coalesce
+     */
+    void setCoalesce(boolean coalesce) {
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Replaces the lane workers with new ones of the given sizes. Messages
+     * already queued are still handled by the previous workers.
+     *
+     * @param threads   number of workers for each lane
+     * @param queueSize capacity of each worker queue
+     */
+    synchronized void configure(Map<Lane, Integer> threads, int queueSize) {
+        checkArgument(queueSize > 0, "Queue size must be positive");
+        Map<Lane, LaneWorkers> newLanes = new EnumMap<>(Lane.class);
+        for (Lane lane : Lane.values()) {
+            int count = threads.getOrDefault(lane, 1);
+            checkArgument(count > 0, "Number of %s workers must be positive", lane);
+            newLanes.put(lane, new LaneWorkers(lane, count, queueSize));
+        }
+        Map<Lane, LaneWorkers> oldLanes = lanes;
+        lanes = newLanes;
+        if (oldLanes != null) {
+            oldLanes.values().forEach(LaneWorkers::shutdown);
+        }
+        newLanes.values().forEach(LaneWorkers::registerMetrics);
+    }
+
+    /**
+     * Stops all lane workers.
+     */
+    synchronized void shutdown() {
+        lanes.values().forEach(LaneWorkers::shutdown);
+    }
+
+    /**
+     * Schedules the given task on the given lane.
+     * <p>
+     * If a coalescing key is given and a task with the same key for the same
+     * switch is still pending, that task is superseded by the new one.
+     * </p>
+     *
+     * @param dpid        switch the message was received from
+     * @param lane        lane to use
+     * @param coalesceKey coalescing key; null if the task must not be coalesced
+     * @param task        task handling the message
+     */
+    void execute(Dpid dpid, Lane lane, Object coalesceKey, Runnable task) {
+        LaneWorkers workers = lanes.get(lane);
+        if (coalesceKey != null && coalesce) {
+            CoalesceKey key = new CoalesceKey(dpid, coalesceKey);
+            if (latest.put(key, task) != null) {
+                // The pending task will run the new one instead.
+                workers.coalesced.increment();
+                return;
+            }
+            task = new CoalescedTask(key);
+        }
+        workers.worker(dpid).execute(task);
+    }
+
+    /**
+     * Returns the number of messages waiting to be handled on the given lane.
+     *
+     * @param lane lane
+     * @return queue depth
+     */
+    int queueDepth(Lane lane) {
+        return lanes.get(lane).queueDepth();
+    }
+
+    /**
+     * Returns the number of messages dropped on the given lane since the
+     * lane was last configured.
+     *
+     * @param lane lane
+     * @return dropped message count
+     */
+    long dropped(Lane lane) {
+        return lanes.get(lane).dropped.sum();
+    }
+
+    /**
+     * Returns the number of messages superseded on the given lane since the
+     * lane was last configured.
+     *
+     * @param lane lane
+     * @return coalesced message count
+     */
+    long coalesced(Lane lane) {
+        return lanes.get(lane).coalesced.sum();
+    }
+
+    private final class LaneWorkers implements RejectedExecutionHandler {
+        private final Lane lane;
+        private final List<ThreadPoolExecutor> workers;
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private MetricsFeature metricsFeature;
+
+        private LaneWorkers(Lane lane, int count, int queueSize) {
+            this.lane = lane;
+            ImmutableList.Builder<ThreadPoolExecutor> builder = ImmutableList.builder();
+            String prefix = "event-" + lane.name().toLowerCase() + "-";
+            for (int i = 0; i < count; i++) {
+                // lossless lanes carry little traffic and must not block
+                // the I/O threads, so their queues are left unbounded
+                builder.add(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                                                   lane.lossless ? new LinkedBlockingQueue<>() :
+                                                           new LinkedBlockingQueue<>(queueSize),
+                                                   groupedThreads("onos/of", prefix + i + "-%d", log),
+                                                   this));
+            }
+            this.workers = builder.build();
+        }
+
+        private ThreadPoolExecutor worker(Dpid dpid) {
+            return workers.get((dpid.hashCode() & Integer.MAX_VALUE) % workers.size());
+        }
+
+        private int queueDepth() {
+            return workers.stream().mapToInt(w -> w.getQueue().size()).sum();
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            dropped.increment();
+            if (task instanceof CoalescedTask) {
+                latest.remove(((CoalescedTask) task).key);
+            }
+            log.debug("Dropped message on {} lane", lane);
+        }
+
+        private void shutdown() {
+            workers.forEach(ThreadPoolExecutor::shutdown);
+            unregisterMetrics();
+        }
+
+        private void registerMetrics() {
+            if (metricsComponent == null) {
+                return;
+            }
+            metricsFeature = metricsComponent.registerFeature(lane.name().toLowerCase());
+            removeMetrics();
+            metricsService.registerMetric(metricsComponent, metricsFeature, QUEUE_DEPTH,
+                                          (Gauge<Integer>) this::queueDepth);
+            metricsService.registerMetric(metricsComponent, metricsFeature, DROPPED,
+                                          (Gauge<Long>) dropped::sum);
+            metricsService.registerMetric(metricsComponent, metricsFeature, COALESCED,
+                                          (Gauge<Long>) coalesced::sum);
+        }
+
+        private void unregisterMetrics() {
+            if (metricsFeature != null) {
+                removeMetrics();
+                metricsFeature = null;
+            }
+        }
+
+        private void removeMetrics() {
+            metricsService.removeMetric(metricsComponent, metricsFeature, QUEUE_DEPTH);
+            metricsService.removeMetric(metricsComponent, metricsFeature, DROPPED);
+            metricsService.removeMetric(metricsComponent, metricsFeature, COALESCED);
+        }
+    }
+
+    // Runs whichever task was last scheduled under the given key.
+    private final class CoalescedTask implements Runnable {
+        private final CoalesceKey key;
+
+        private CoalescedTask(CoalesceKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            Runnable task = latest.remove(key);
+            if (task != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static final class CoalesceKey {
+        private final Dpid dpid;
+        private final Object kind;
+
+        private CoalesceKey(Dpid dpid, Object kind) {
+            this.dpid = dpid;
+            this.kind = kind;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dpid, kind);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof CoalesceKey) {
+                CoalesceKey that = (CoalesceKey) obj;
+                return Objects.equals(dpid, that.dpid) && Objects.equals(kind, that.kind);
+            }
+            return false;
+        }
+    }
+}
@@ -15,9 +15,13 @@
  */
 package org.onosproject.openflow.controller.impl;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -26,6 +30,7 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
 import org.onosproject.net.driver.DefaultDriverProviderService;
@@ -35,53 +40,57 @@ import org.onosproject.openflow.controller.Dpid;
 import org.onosproject.openflow.controller.OpenFlowController;
 import org.onosproject.openflow.controller.OpenFlowEventListener;
 import org.onosproject.openflow.controller.OpenFlowMessageListener;
+import org.onosproject.openflow.controller.OpenFlowMultipartListener;
 import org.onosproject.openflow.controller.OpenFlowPacketContext;
 import org.onosproject.openflow.controller.OpenFlowSwitch;
 import org.onosproject.openflow.controller.OpenFlowSwitchListener;
 import org.onosproject.openflow.controller.PacketListener;
 import org.onosproject.openflow.controller.RoleState;
 import org.onosproject.openflow.controller.driver.OpenFlowAgent;
+import org.onosproject.openflow.controller.impl.OFMessageScheduler.Lane;
 import org.osgi.service.component.ComponentContext;
 import org.projectfloodlight.openflow.protocol.OFCalientFlowStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFCalientFlowStatsReply;
 import org.projectfloodlight.openflow.protocol.OFCircuitPortStatus;
 import org.projectfloodlight.openflow.protocol.OFExperimenter;
 import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
 import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFFlowStatsReply;
-import org.projectfloodlight.openflow.protocol.OFGroupDescStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFGroupDescStatsReply;
-import org.projectfloodlight.openflow.protocol.OFGroupStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFGroupStatsReply;
 import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
 import org.projectfloodlight.openflow.protocol.OFPortDesc;
-import org.projectfloodlight.openflow.protocol.OFPortStatsEntry;
-import org.projectfloodlight.openflow.protocol.OFPortStatsReply;
 import org.projectfloodlight.openflow.protocol.OFPortStatus;
 import org.projectfloodlight.openflow.protocol.OFStatsReply;
 import org.projectfloodlight.openflow.protocol.OFStatsReplyFlags;
-import org.projectfloodlight.openflow.protocol.OFTableStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFStatsType;
 import org.projectfloodlight.openflow.protocol.OFTableStatsReply;
 import org.projectfloodlight.openflow.protocol.action.OFActionOutput;
 import org.projectfloodlight.openflow.protocol.instruction.OFInstruction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Dictionary;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
-import static org.onlab.util.Tools.groupedThreads;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.onlab.util.Tools.get;
+import static org.onlab.util.Tools.getIntegerProperty;
+import static org.onlab.util.Tools.isPropertyEnabled;
 
 @Component(immediate = true)
 @Service
@@ -89,6 +98,30 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     private static final String APP_ID = "org.onosproject.openflow-base";
     private static final String DEFAULT_OFPORT = "6633,6653";
     private static final int DEFAULT_WORKER_THREADS = 16;
+    private static final int DEFAULT_CONTROL_THREADS = 4;
+    private static final int DEFAULT_BARRIER_THREADS = 4;
+    private static final int DEFAULT_STATS_THREADS = 16;
+    private static final int DEFAULT_BULK_THREADS = 8;
+    private static final int DEFAULT_EVENT_QUEUE_SIZE = OFMessageScheduler.DEFAULT_QUEUE_SIZE;
+    private static final boolean DEFAULT_COALESCE_STATS = false;
+    private static final int DEFAULT_PACKET_IN_THREADS = 0;
+    private static final int DEFAULT_PACKET_IN_QUEUE_SIZE = PacketInPipeline.DEFAULT_QUEUE_SIZE;
+    private static final String DEFAULT_PACKET_IN_DROP_POLICY = "NEWEST";
+
+    // Bounds on multi-part replies whose last segment is still awaited
+    static final long PENDING_REPLY_TIMEOUT_SECONDS = 60;
+    static final long MAX_PENDING_REPLIES = 10000;
+
+    // Stats replies which fully supersede older ones of the same type; flow
+    // stats are left out as replies to requests for distinct matches, such
+    // as partial and full polls, do not supersede one another
+    private static final Set<OFStatsType> COALESCED_STATS =
+            Sets.immutableEnumSet(OFStatsType.TABLE);
+
+    // Stats replies which grow with the size of the switch tables; the lane
+    // follows the type alone so that replies of one type stay in order
+    private static final Set<OFStatsType> BULK_STATS =
+            Sets.immutableEnumSet(OFStatsType.FLOW, OFStatsType.GROUP, OFStatsType.GROUP_DESC);
 
     private static final Logger log =
             LoggerFactory.getLogger(OpenFlowControllerImpl.class);
@@ -106,6 +139,9 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ComponentConfigService cfgService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     @Property(name = "openflowPorts", value = DEFAULT_OFPORT,
             label = "Port numbers (comma separated) used by OpenFlow protocol; default is 6633,6653")
     private String openflowPorts = DEFAULT_OFPORT;
@@ -114,11 +150,49 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             label = "Number of controller worker threads; default is 16")
     private int workerThreads = DEFAULT_WORKER_THREADS;
 
-    protected ExecutorService executorMsgs =
-        Executors.newFixedThreadPool(32, groupedThreads("onos/of", "event-stats-%d", log));
+    @Property(name = "controlThreads", intValue = DEFAULT_CONTROL_THREADS,
+            label = "Number of threads handling flow removed and error messages; default is 4")
+    private int controlThreads = DEFAULT_CONTROL_THREADS;
+
+    @Property(name = "barrierThreads", intValue = DEFAULT_BARRIER_THREADS,
+            label = "Number of threads handling barrier replies; default is 4")
+    private int barrierThreads = DEFAULT_BARRIER_THREADS;
+
+    @Property(name = "statsThreads", intValue = DEFAULT_STATS_THREADS,
+            label = "Number of threads handling port, meter and table stats replies; default is 16")
+    private int statsThreads = DEFAULT_STATS_THREADS;
+
+    @Property(name = "bulkThreads", intValue = DEFAULT_BULK_THREADS,
+            label = "Number of threads handling flow and group stats replies; default is 8")
+    private int bulkThreads = DEFAULT_BULK_THREADS;
+
+    @Property(name = "eventQueueSize", intValue = DEFAULT_EVENT_QUEUE_SIZE,
+            label = "Capacity of each message handling queue; default is 10000")
+    private int eventQueueSize = DEFAULT_EVENT_QUEUE_SIZE;
+
+    @Property(name = "coalesceStats", boolValue = DEFAULT_COALESCE_STATS,
+            label = "Discard table stats replies superseded before being handled; default is false")
+    private boolean coalesceStats = DEFAULT_COALESCE_STATS;
+
+    @Property(name = "packetInThreads", intValue = DEFAULT_PACKET_IN_THREADS,
+            label = "Number of threads processing packet-ins; 0 processes them " +
+                    "on the I/O threads; default is 0")
+    private int packetInThreads = DEFAULT_PACKET_IN_THREADS;
+
+    @Property(name = "packetInQueueSize", intValue = DEFAULT_PACKET_IN_QUEUE_SIZE,
+            label = "Capacity of each packet-in processing queue; default is 1000")
+    private int packetInQueueSize = DEFAULT_PACKET_IN_QUEUE_SIZE;
+
+    @Property(name = "packetInDropPolicy", value = DEFAULT_PACKET_IN_DROP_POLICY,
+            label = "Packet-in dropped when a queue is full, NEWEST or OLDEST; default is NEWEST")
+    private String packetInDropPolicy = DEFAULT_PACKET_IN_DROP_POLICY;
+
+    protected OFMessageScheduler scheduler =
+            new OFMessageScheduler(laneThreads(), DEFAULT_EVENT_QUEUE_SIZE);
 
-    private final ExecutorService executorBarrier =
-        Executors.newFixedThreadPool(4, groupedThreads("onos/of", "event-barrier-%d", log));
+    protected PacketInPipeline packetInPipeline =
+            new PacketInPipeline(DEFAULT_PACKET_IN_THREADS, DEFAULT_PACKET_IN_QUEUE_SIZE,
+                                 PacketInPipeline.DropPolicy.valueOf(DEFAULT_PACKET_IN_DROP_POLICY));
 
     protected ConcurrentMap<Dpid, OpenFlowSwitch> connectedSwitches =
             new ConcurrentHashMap<>();
@@ -137,20 +211,15 @@ public class OpenFlowControllerImpl implements OpenFlowController {
 
     protected Set<OpenFlowMessageListener> ofMessageListener = new CopyOnWriteArraySet<>();
 
-    protected Multimap<Dpid, OFFlowStatsEntry> fullFlowStats =
-            ArrayListMultimap.create();
-
-    protected Multimap<Dpid, OFTableStatsEntry> fullTableStats =
-            ArrayListMultimap.create();
+    // Multi-part stats replies whose earlier segments were evicted; their
+    // remaining segments are dropped rather than passed on as a whole reply
+    protected Cache<MultipartKey, Boolean> lostReplies =
+            lostReplyCache(Ticker.systemTicker());
 
-    protected Multimap<Dpid, OFGroupStatsEntry> fullGroupStats =
-            ArrayListMultimap.create();
-
-    protected Multimap<Dpid, OFGroupDescStatsEntry> fullGroupDescStats =
-            ArrayListMultimap.create();
-
-    protected Multimap<Dpid, OFPortStatsEntry> fullPortStats =
-            ArrayListMultimap.create();
+    // Segments of multi-part stats replies which are still being received;
+    // replies whose last segment never shows up are eventually evicted
+    protected Cache<MultipartKey, List<OFStatsReply>> pendingReplies =
+            pendingReplyCache(Ticker.systemTicker(), lostReplies);
 
     private final Controller ctrl = new Controller();
 
@@ -158,7 +227,11 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     public void activate(ComponentContext context) {
         coreService.registerApplication(APP_ID, this::cleanup);
         cfgService.registerProperties(getClass());
-        ctrl.setConfigParams(context.getProperties());
+        scheduler.setMetricsService(metricsService);
+        packetInPipeline.setMetricsService(metricsService);
+        Dictionary<?, ?> properties = context.getProperties();
+        readComponentConfiguration(properties);
+        ctrl.setConfigParams(properties);
         ctrl.start(agent, driverService);
     }
 
@@ -178,15 +251,92 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             cleanup();
         }
         cfgService.unregisterProperties(getClass(), false);
+        scheduler.setMetricsService(null);
+        packetInPipeline.setMetricsService(null);
+        scheduler.shutdown();
+        packetInPipeline.shutdown();
     }
 
     @Modified
     public void modified(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+        readComponentConfiguration(properties);
         ctrl.stop();
-        ctrl.setConfigParams(context.getProperties());
+        ctrl.setConfigParams(properties);
         ctrl.start(agent, driverService);
     }
 
+    /**
+     * Extracts message handling properties from the component configuration.
+     *
+     * @param properties the component properties
+     */
+    private void readComponentConfiguration(Dictionary<?, ?> properties) {
+        readPacketInConfiguration(properties);
+
+        int newControlThreads = getIntegerProperty(properties, "controlThreads", controlThreads);
+        int newBarrierThreads = getIntegerProperty(properties, "barrierThreads", barrierThreads);
+        int newStatsThreads = getIntegerProperty(properties, "statsThreads", statsThreads);
+        int newBulkThreads = getIntegerProperty(properties, "bulkThreads", bulkThreads);
+        int newQueueSize = getIntegerProperty(properties, "eventQueueSize", eventQueueSize);
+        coalesceStats = isPropertyEnabled(properties, "coalesceStats", coalesceStats);
+        scheduler.setCoalesce(coalesceStats);
+
+        if (newControlThreads != controlThreads || newBarrierThreads != barrierThreads ||
+                newStatsThreads != statsThreads || newBulkThreads != bulkThreads ||
+                newQueueSize != eventQueueSize) {
+            if (Math.min(Math.min(newControlThreads, newBarrierThreads),
+                         Math.min(newStatsThreads, newBulkThreads)) <= 0 || newQueueSize <= 0) {
+                log.warn("Ignoring invalid message handling configuration");
+                return;
+            }
+            controlThreads = newControlThreads;
+            barrierThreads = newBarrierThreads;
+            statsThreads = newStatsThreads;
+            bulkThreads = newBulkThreads;
+            eventQueueSize = newQueueSize;
+            scheduler.configure(laneThreads(), eventQueueSize);
+        }
+        log.info("Settings: controlThreads={}, barrierThreads={}, statsThreads={}, " +
+                         "bulkThreads={}, eventQueueSize={}, coalesceStats={}",
+                 controlThreads, barrierThreads, statsThreads, bulkThreads,
+                 eventQueueSize, coalesceStats);
+    }
+
+    /**
+     * Extracts packet-in pipeline properties from the component configuration.
+     *
+     * @param properties the component properties
+     */
+    private void readPacketInConfiguration(Dictionary<?, ?> properties) {
+        int newThreads = getIntegerProperty(properties, "packetInThreads", packetInThreads);
+        int newQueueSize = getIntegerProperty(properties, "packetInQueueSize", packetInQueueSize);
+        String newPolicy = get(properties, "packetInDropPolicy");
+        newPolicy = isNullOrEmpty(newPolicy) ? packetInDropPolicy : newPolicy.trim().toUpperCase();
+
+        if (newThreads == packetInThreads && newQueueSize == packetInQueueSize &&
+                newPolicy.equals(packetInDropPolicy)) {
+            return;
+        }
+        try {
+            packetInPipeline.configure(newThreads, newQueueSize,
+                                       PacketInPipeline.DropPolicy.valueOf(newPolicy));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalid packet-in configuration", e);
+            return;
+        }
+        packetInThreads = newThreads;
+        packetInQueueSize = newQueueSize;
+        packetInDropPolicy = newPolicy;
+        log.info("Settings: packetInThreads={}, packetInQueueSize={}, packetInDropPolicy={}",
+                 packetInThreads, packetInQueueSize, packetInDropPolicy);
+    }
+
+    private Map<Lane, Integer> laneThreads() {
+        return ImmutableMap.of(Lane.CONTROL, controlThreads, Lane.BARRIER, barrierThreads,
+                               Lane.STATS, statsThreads, Lane.BULK, bulkThreads);
+    }
+
     @Override
     public Iterable<OpenFlowSwitch> getSwitches() {
         return connectedSwitches.values();
@@ -266,11 +416,7 @@ public class OpenFlowControllerImpl implements OpenFlowController {
 
     @Override
     public void processPacket(Dpid dpid, OFMessage msg) {
-        Collection<OFFlowStatsEntry> flowStats;
-        Collection<OFTableStatsEntry> tableStats;
-        Collection<OFGroupStatsEntry> groupStats;
-        Collection<OFGroupDescStatsEntry> groupDescStats;
-        Collection<OFPortStatsEntry> portStats;
+        List<OFStatsReply> segments;
 
         switch (msg.getType()) {
         case PORT_STATUS:
@@ -284,18 +430,18 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             }
             break;
         case PACKET_IN:
+            OFPacketIn pktIn = (OFPacketIn) msg;
             OpenFlowPacketContext pktCtx = DefaultOpenFlowPacketContext
-            .packetContextFromPacketIn(this.getSwitch(dpid),
-                    (OFPacketIn) msg);
-            for (PacketListener p : ofPacketListener.values()) {
-                p.handlePacket(pktCtx);
-            }
+            .packetContextFromPacketIn(this.getSwitch(dpid), pktIn);
+            packetInPipeline.execute(dpid, pktIn.getData(), () -> {
+                for (PacketListener p : ofPacketListener.values()) {
+                    p.handlePacket(pktCtx);
+                }
+            });
             break;
-        // TODO: Consider using separate threadpool for sensitive messages.
-        //    ie. Back to back error could cause us to starve.
         case FLOW_REMOVED:
         case ERROR:
-            executorMsgs.execute(new OFMessageHandler(dpid, msg));
+            scheduler.execute(dpid, Lane.CONTROL, null, new OFMessageHandler(dpid, msg));
             break;
         case STATS_REPLY:
             OFStatsReply reply = (OFStatsReply) msg;
@@ -306,57 +452,24 @@ public class OpenFlowControllerImpl implements OpenFlowController {
                     }
                     break;
                 case FLOW:
-                    flowStats = publishFlowStats(dpid, (OFFlowStatsReply) reply);
-                    if (flowStats != null) {
-                        OFFlowStatsReply.Builder rep =
-                                OFFactories.getFactory(msg.getVersion()).buildFlowStatsReply();
-                        rep.setEntries(Lists.newLinkedList(flowStats));
-                        rep.setXid(reply.getXid());
-                        executorMsgs.execute(new OFMessageHandler(dpid, rep.build()));
-                    }
-                    break;
                 case TABLE:
-                    tableStats = publishTableStats(dpid, (OFTableStatsReply) reply);
-                    if (tableStats != null) {
-                        OFTableStatsReply.Builder rep =
-                                OFFactories.getFactory(msg.getVersion()).buildTableStatsReply();
-                        rep.setEntries(Lists.newLinkedList(tableStats));
-                        executorMsgs.execute(new OFMessageHandler(dpid, rep.build()));
-                    }
-                    break;
                 case GROUP:
-                    groupStats = publishGroupStats(dpid, (OFGroupStatsReply) reply);
-                    if (groupStats != null) {
-                        OFGroupStatsReply.Builder rep =
-                                OFFactories.getFactory(msg.getVersion()).buildGroupStatsReply();
-                        rep.setEntries(Lists.newLinkedList(groupStats));
-                        rep.setXid(reply.getXid());
-                        executorMsgs.execute(new OFMessageHandler(dpid, rep.build()));
-                    }
-                    break;
                 case GROUP_DESC:
-                    groupDescStats = publishGroupDescStats(dpid,
-                            (OFGroupDescStatsReply) reply);
-                    if (groupDescStats != null) {
-                        OFGroupDescStatsReply.Builder rep =
-                                OFFactories.getFactory(msg.getVersion()).buildGroupDescStatsReply();
-                        rep.setEntries(Lists.newLinkedList(groupDescStats));
-                        rep.setXid(reply.getXid());
-                        executorMsgs.execute(new OFMessageHandler(dpid, rep.build()));
+                    segments = aggregate(dpid, reply);
+                    if (segments != null) {
+                        dispatchStats(dpid, segments);
                     }
                     break;
                 case PORT:
-                    executorMsgs.execute(new OFMessageHandler(dpid, reply));
-                    break;
                 case METER:
-                    executorMsgs.execute(new OFMessageHandler(dpid, reply));
+                    scheduler.execute(dpid, Lane.STATS, null, new OFMessageHandler(dpid, reply));
                     break;
                 case EXPERIMENTER:
                     if (reply instanceof OFCalientFlowStatsReply) {
                         // Convert Calient flow statistics to regular flow stats
                         // TODO: parse remaining fields such as power levels etc. when we have proper monitoring API
                         OFFlowStatsReply.Builder fsr = getSwitch(dpid).factory().buildFlowStatsReply();
-                        List<OFFlowStatsEntry> entries = new LinkedList<>();
+                        List<OFFlowStatsEntry> entries = new ArrayList<>();
                         for (OFCalientFlowStatsEntry entry : ((OFCalientFlowStatsReply) msg).getEntries()) {
 
                             // Single instruction, i.e., output to port
@@ -385,16 +498,15 @@ public class OpenFlowControllerImpl implements OpenFlowController {
                             entries.add(fs);
                         }
                         fsr.setEntries(entries);
+                        fsr.setXid(reply.getXid());
+                        fsr.setFlags(reply.getFlags());
 
-                        flowStats = publishFlowStats(dpid, fsr.build());
-                        if (flowStats != null) {
-                            OFFlowStatsReply.Builder rep =
-                                    OFFactories.getFactory(msg.getVersion()).buildFlowStatsReply();
-                            rep.setEntries(Lists.newLinkedList(flowStats));
-                            executorMsgs.execute(new OFMessageHandler(dpid, rep.build()));
+                        segments = aggregate(dpid, fsr.build());
+                        if (segments != null) {
+                            dispatchStats(dpid, segments);
                         }
                     } else {
-                        executorMsgs.execute(new OFMessageHandler(dpid, reply));
+                        scheduler.execute(dpid, Lane.STATS, null, new OFMessageHandler(dpid, reply));
                     }
                     break;
                 default:
@@ -403,7 +515,7 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             }
             break;
         case BARRIER_REPLY:
-            executorBarrier.execute(new OFMessageHandler(dpid, msg));
+            scheduler.execute(dpid, Lane.BARRIER, null, new OFMessageHandler(dpid, msg));
             break;
         case EXPERIMENTER:
             long experimenter = ((OFExperimenter) msg).getExperimenter();
@@ -432,53 +544,140 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         }
     }
 
-    private synchronized Collection<OFFlowStatsEntry> publishFlowStats(Dpid dpid,
-                                                                       OFFlowStatsReply reply) {
-        //TODO: Get rid of synchronized
-        fullFlowStats.putAll(dpid, reply.getEntries());
-        if (!reply.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
-            return fullFlowStats.removeAll(dpid);
-        }
-        return null;
+    /**
+     * Schedules the handling of a complete multi-part stats reply. Flow and
+     * group stats go on the bulk lane so as not to hold back smaller ones,
+     * whatever the number of their segments; table stats may be coalesced
+     * with older ones still pending.
+     *
+     * @param dpid     switch data path identifier
+     * @param segments reply segments
+     */
+    private void dispatchStats(Dpid dpid, List<OFStatsReply> segments) {
+        OFStatsType type = segments.get(0).getStatsType();
+        Lane lane = BULK_STATS.contains(type) ? Lane.BULK : Lane.STATS;
+        Object coalesceKey = COALESCED_STATS.contains(type) ? type : null;
+        scheduler.execute(dpid, lane, coalesceKey, new OFMessageHandler(dpid, segments));
     }
 
-    private synchronized Collection<OFTableStatsEntry> publishTableStats(Dpid dpid,
-                                                                       OFTableStatsReply reply) {
-        //TODO: Get rid of synchronized
-        fullTableStats.putAll(dpid, reply.getEntries());
-        if (!reply.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
-            return fullTableStats.removeAll(dpid);
+    /**
+     * Adds the given segment to the multi-part reply it belongs to.
+     * <p>
+     * Segments of a reply arrive on the same switch channel one after the
+     * other, so replies of distinct switches or transactions never contend.
+     * Replies left incomplete for a while, or evicted to bound memory, are
+     * dropped along with their segments; any segments of theirs received
+     * afterwards are dropped too, so that a partial reply is never handed
+     * over as a complete one.
+     * </p>
+     *
+     * @param dpid  switch data path identifier
+     * @param reply reply segment
+     * @return all segments of the reply once its last one is received;
+     * null otherwise
+     */
+    private List<OFStatsReply> aggregate(Dpid dpid, OFStatsReply reply) {
+        MultipartKey key = new MultipartKey(dpid, reply.getStatsType(), reply.getXid());
+        if (reply.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
+            pendingReplies.asMap().computeIfAbsent(key, k -> new ArrayList<>()).add(reply);
+            // evictions are notified by the cache operation itself
+            if (lostReplies.getIfPresent(key) != null) {
+                pendingReplies.invalidate(key);
+            }
+            return null;
         }
-        return null;
+        List<OFStatsReply> segments = pendingReplies.asMap().remove(key);
+        if (lostReplies.asMap().remove(key) != null) {
+            log.warn("Dropping {} stats reply {} from {} whose earlier segments were lost",
+                     reply.getStatsType(), reply.getXid(), dpid);
+            return null;
+        }
+        if (segments == null) {
+            return Collections.singletonList(reply);
+        }
+        segments.add(reply);
+        return segments;
     }
 
-    private synchronized Collection<OFGroupStatsEntry> publishGroupStats(Dpid dpid,
-                                                                      OFGroupStatsReply reply) {
-        //TODO: Get rid of synchronized
-        fullGroupStats.putAll(dpid, reply.getEntries());
-        if (!reply.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
-            return fullGroupStats.removeAll(dpid);
-        }
-        return null;
+    /**
+     * Creates the cache of multi-part replies being received.
+     *
+     * @param ticker time source
+     * @param lost   cache recording the replies evicted before completion
+     * @return cache keyed on switch, stats type and xid
+     */
+    static Cache<MultipartKey, List<OFStatsReply>> pendingReplyCache(Ticker ticker,
+                                                                     Cache<MultipartKey, Boolean> lost) {
+        return CacheBuilder.newBuilder()
+                .expireAfterAccess(PENDING_REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .maximumSize(MAX_PENDING_REPLIES)
+                .ticker(ticker)
+                .<MultipartKey, List<OFStatsReply>>removalListener(notification -> {
+                    if (notification.wasEvicted()) {
+                        lost.put(notification.getKey(), Boolean.TRUE);
+                    }
+                })
+                .build();
     }
 
-    private synchronized Collection<OFGroupDescStatsEntry> publishGroupDescStats(Dpid dpid,
-                                                                  OFGroupDescStatsReply reply) {
-        //TODO: Get rid of synchronized
-        fullGroupDescStats.putAll(dpid, reply.getEntries());
-        if (!reply.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
-            return fullGroupDescStats.removeAll(dpid);
-        }
-        return null;
+    /**
+     * Creates the cache of multi-part replies evicted before completion.
+     *
+     * @param ticker time source
+     * @return cache keyed on switch, stats type and xid
+     */
+    static Cache<MultipartKey, Boolean> lostReplyCache(Ticker ticker) {
+        return CacheBuilder.newBuilder()
+                .expireAfterAccess(PENDING_REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .maximumSize(MAX_PENDING_REPLIES)
+                .ticker(ticker)
+                .build();
     }
 
-    private synchronized Collection<OFPortStatsEntry> publishPortStats(Dpid dpid,
-                                                                 OFPortStatsReply reply) {
-        fullPortStats.putAll(dpid, reply.getEntries());
-        if (!reply.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
-            return fullPortStats.removeAll(dpid);
+    /**
+     * Merges the segments of a multi-part reply into a single reply.
+     *
+     * @param segments reply segments
+     * @return merged reply
+     */
+    private static OFStatsReply merge(List<OFStatsReply> segments) {
+        OFStatsReply first = segments.get(0);
+        if (segments.size() == 1) {
+            return first;
         }
-        return null;
+        OFFactory factory = OFFactories.getFactory(first.getVersion());
+        switch (first.getStatsType()) {
+            case FLOW:
+                return factory.buildFlowStatsReply()
+                        .setXid(first.getXid())
+                        .setEntries(entries(segments, r -> ((OFFlowStatsReply) r).getEntries()))
+                        .build();
+            case TABLE:
+                return factory.buildTableStatsReply()
+                        .setXid(first.getXid())
+                        .setEntries(entries(segments, r -> ((OFTableStatsReply) r).getEntries()))
+                        .build();
+            case GROUP:
+                return factory.buildGroupStatsReply()
+                        .setXid(first.getXid())
+                        .setEntries(entries(segments, r -> ((OFGroupStatsReply) r).getEntries()))
+                        .build();
+            case GROUP_DESC:
+                return factory.buildGroupDescStatsReply()
+                        .setXid(first.getXid())
+                        .setEntries(entries(segments, r -> ((OFGroupDescStatsReply) r).getEntries()))
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unsupported multi-part reply type " +
+                                                           first.getStatsType());
+        }
+    }
+
+    private static <E> List<E> entries(List<OFStatsReply> segments,
+                                       Function<OFStatsReply, List<E>> getter) {
+        List<E> entries = new ArrayList<>();
+        segments.forEach(r -> entries.addAll(getter.apply(r)));
+        return entries;
     }
 
     @Override
@@ -625,6 +824,8 @@ public class OpenFlowControllerImpl implements OpenFlowController {
                 log.debug("sw was null for {}", dpid);
                 sw = activeEqualSwitches.remove(dpid);
             }
+            pendingReplies.asMap().keySet().removeIf(key -> key.dpid.equals(dpid));
+            lostReplies.asMap().keySet().removeIf(key -> key.dpid.equals(dpid));
             for (OpenFlowSwitchListener l : ofSwitchListener) {
                 l.switchRemoved(dpid);
             }
@@ -661,18 +862,82 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     protected final class OFMessageHandler implements Runnable {
 
         protected final OFMessage msg;
+        protected final List<OFStatsReply> segments;
         protected final Dpid dpid;
 
         public OFMessageHandler(Dpid dpid, OFMessage msg) {
             this.msg = msg;
+            this.segments = null;
             this.dpid = dpid;
         }
 
+        /**
+         * Creates a handler for a complete multi-part stats reply.
+         *
+         * @param dpid     switch data path identifier
+         * @param segments reply segments
+         */
+        public OFMessageHandler(Dpid dpid, List<OFStatsReply> segments) {
+            this.msg = null;
+            this.segments = segments;
+            this.dpid = dpid;
+        }
+
+        /**
+         * Returns the message as seen by plain event listeners.
+         *
+         * @return message; merged reply in case of multi-part replies
+         */
+        protected OFMessage message() {
+            return segments == null ? msg : merge(segments);
+        }
+
         @Override
         public void run() {
+            // Only build a merged reply for listeners unable to consume segments
+            OFMessage merged = msg;
             for (OpenFlowEventListener listener : ofEventListener) {
-                listener.handleMessage(dpid, msg);
+                if (segments != null && listener instanceof OpenFlowMultipartListener) {
+                    ((OpenFlowMultipartListener) listener).handleMultipartReply(dpid, segments);
+                } else {
+                    if (merged == null) {
+                        merged = merge(segments);
+                    }
+                    listener.handleMessage(dpid, merged);
+                }
+            }
+        }
+    }
+
+    /**
+     * Key of a multi-part reply being received.
+     */
+    protected static final class MultipartKey {
+        private final Dpid dpid;
+        private final OFStatsType type;
+        private final long xid;
+
+        MultipartKey(Dpid dpid, OFStatsType type, long xid) {
+            this.dpid = dpid;
+            this.type = type;
+            this.xid = xid;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dpid, type, xid);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof MultipartKey) {
+                MultipartKey that = (MultipartKey) obj;
+                return xid == that.xid && type == that.type && Objects.equals(dpid, that.dpid);
             }
+            return false;
         }
     }
 }
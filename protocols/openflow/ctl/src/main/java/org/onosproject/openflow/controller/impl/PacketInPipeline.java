@@ -0,0 +1,320 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.google.common.collect.ImmutableList;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.openflow.controller.Dpid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Staged pipeline for packet-in messages.
+ * <p>
+ * The flow a packet belongs to is decoded on the I/O thread which received
+ * it; the packet is then handed to one of a number of single-threaded
+ * workers picked by the switch and the flow 5-tuple, so that packets of the
+ * same flow are processed in the order they were received while a slow
+ * packet processor no longer stalls the I/O thread. Each worker has a
+ * bounded queue; when it is full, either the newest or the oldest packet
+ * is dropped. With no workers, packets are processed inline on the I/O
+ * thread.
+ * </p>
+ */
+class PacketInPipeline {
+
+    /**
+     * Policy applied to packets arriving at a full worker queue.
+     */
+    enum DropPolicy {
+        /** Drops the arriving packet. */
+        NEWEST,
+        /** Drops the packet which has been waiting longest. */
+        OLDEST
+    }
+
+    static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private static final String METRICS_COMPONENT = "OpenFlowController";
+    private static final String METRICS_FEATURE = "packetIn";
+    private static final String DECODE = "decodeMicros";
+    private static final String QUEUE = "queueMicros";
+    private static final String PROCESS = "processMicros";
+    private static final String QUEUE_DEPTH = "queueDepth";
+    private static final String DROPPED = "dropped";
+
+    private static final int ETH_TYPE_OFFSET = 12;
+    private static final int VLAN_TAG_LENGTH = 4;
+    private static final int TYPE_VLAN = 0x8100;
+    private static final int TYPE_QINQ = 0x88a8;
+    private static final int TYPE_IPV4 = 0x0800;
+    private static final int TYPE_IPV6 = 0x86dd;
+    private static final int PROTOCOL_TCP = 6;
+    private static final int PROTOCOL_UDP = 17;
+    private static final int PROTOCOL_SCTP = 132;
+    private static final int IPV6_HEADER_LENGTH = 40;
+
+    private static final Logger log = LoggerFactory.getLogger(PacketInPipeline.class);
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile List<ThreadPoolExecutor> workers = ImmutableList.of();
+    private volatile DropPolicy dropPolicy = DropPolicy.NEWEST;
+
+    private MetricsService metricsService;
+    private MetricsComponent metricsComponent;
+    private MetricsFeature metricsFeature;
+    private volatile Histogram decodeLatency;
+    private volatile Histogram queueLatency;
+    private volatile Histogram processLatency;
+
+    /**
+     * Creates a pipeline with the given number of workers.
+     *
+     * @param threads    number of workers; 0 to process packets inline
+     * @param queueSize  capacity of each worker queue
+     * @param dropPolicy policy applied when a worker queue is full
+     */
+    PacketInPipeline(int threads, int queueSize, DropPolicy dropPolicy) {
+        configure(threads, queueSize, dropPolicy);
+    }
+
+    /**
+     * Starts reporting latency and queue metrics to the given metrics
+     * service.
+     *
+     * @param metricsService metrics service; null to stop reporting
+     */
+    synchronized void setMetricsService(MetricsService metricsService) {
+        if (metricsFeature != null) {
+            removeMetrics();
+            metricsFeature = null;
+        }
+        decodeLatency = null;
+        queueLatency = null;
+        processLatency = null;
+
+        this.metricsService = metricsService;
+        if (metricsService == null) {
+            metricsComponent = null;
+            return;
+        }
+        metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        metricsFeature = metricsComponent.registerFeature(METRICS_FEATURE);
+        removeMetrics();
+        metricsService.registerMetric(metricsComponent, metricsFeature, QUEUE_DEPTH,
+                                      (Gauge<Integer>) this::queueDepth);
+        metricsService.registerMetric(metricsComponent, metricsFeature, DROPPED,
+                                      (Gauge<Long>) this::dropped);
+        decodeLatency = metricsService.createHistogram(metricsComponent, metricsFeature, DECODE);
+        queueLatency = metricsService.createHistogram(metricsComponent, metricsFeature, QUEUE);
+        processLatency = metricsService.createHistogram(metricsComponent, metricsFeature, PROCESS);
+    }
+
+    private void removeMetrics() {
+        metricsService.removeMetric(metricsComponent, metricsFeature, QUEUE_DEPTH);
+        metricsService.removeMetric(metricsComponent, metricsFeature, DROPPED);
+    }
+
+    /**
+     * Replaces the workers with new ones. Packets already queued are still
+     * processed by the previous workers.
+     *
+     * @param threads    number of workers; 0 to process packets inline
+     * @param queueSize  capacity of each worker queue
+     * @param dropPolicy policy applied when a worker queue is full
+     */
+    synchronized void configure(int threads, int queueSize, DropPolicy dropPolicy) {
+        checkArgument(threads >= 0, "Number of workers must not be negative");
+        checkArgument(queueSize > 0, "Queue size must be positive");
+        this.dropPolicy = checkNotNull(dropPolicy);
+
+        ImmutableList.Builder<ThreadPoolExecutor> builder = ImmutableList.builder();
+        RejectedExecutionHandler handler = this::rejected;
+        for (int i = 0; i < threads; i++) {
+            builder.add(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                                               new LinkedBlockingQueue<>(queueSize),
+                                               groupedThreads("onos/of", "packet-in-" + i + "-%d", log),
+                                               handler));
+        }
+        List<ThreadPoolExecutor> oldWorkers = workers;
+        workers = builder.build();
+        oldWorkers.forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    /**
+     * Stops all workers.
+     */
+    synchronized void shutdown() {
+        workers.forEach(ThreadPoolExecutor::shutdown);
+        workers = ImmutableList.of();
+    }
+
+    /**
+     * Submits a packet for processing.
+     *
+     * @param dpid      switch the packet was received from
+     * @param data      raw packet data, used to determine the flow
+     * @param processor task processing the packet
+     */
+    void execute(Dpid dpid, byte[] data, Runnable processor) {
+        List<ThreadPoolExecutor> current = workers;
+        if (current.isEmpty()) {
+            process(processor);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int hash = 31 * dpid.hashCode() + flowHash(data);
+        ThreadPoolExecutor worker = current.get((hash & Integer.MAX_VALUE) % current.size());
+        long now = System.nanoTime();
+        update(decodeLatency, now - start);
+        worker.execute(new QueuedPacket(now, processor));
+    }
+
+    private void process(Runnable processor) {
+        long start = System.nanoTime();
+        try {
+            processor.run();
+        } catch (Exception e) {
+            log.warn("Unable to process packet-in", e);
+        }
+        update(processLatency, System.nanoTime() - start);
+    }
+
+    private static void update(Histogram histogram, long nanos) {
+        if (histogram != null) {
+            histogram.update(TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+    }
+
+    private void rejected(Runnable task, ThreadPoolExecutor executor) {
+        dropped.increment();
+        if (dropPolicy == DropPolicy.OLDEST && !executor.isShutdown()) {
+            executor.getQueue().poll();
+            if (executor.getQueue().offer(task)) {
+                return;
+            }
+        }
+        log.debug("Dropped packet-in");
+    }
+
+    /**
+     * Returns the number of packets waiting to be processed.
+     *
+     * @return queue depth
+     */
+    int queueDepth() {
+        return workers.stream().mapToInt(w -> w.getQueue().size()).sum();
+    }
+
+    /**
+     * Returns the number of packets dropped because of full queues.
+     *
+     * @return dropped packet count
+     */
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns a hash of the 5-tuple of the given packet, or of its ether
+     * type and MAC addresses if it carries no IP header. Only the headers
+     * needed are read; nothing is deserialized.
+     *
+     * @param data raw Ethernet frame
+     * @return flow hash
+     */
+    static int flowHash(byte[] data) {
+        if (data == null || data.length < ETH_TYPE_OFFSET + 2) {
+            return 0;
+        }
+        int offset = ETH_TYPE_OFFSET;
+        int ethType = uint16(data, offset);
+        while ((ethType == TYPE_VLAN || ethType == TYPE_QINQ) &&
+                data.length >= offset + VLAN_TAG_LENGTH + 2) {
+            offset += VLAN_TAG_LENGTH;
+            ethType = uint16(data, offset);
+        }
+        offset += 2;
+
+        int protocol;
+        int l4Offset;
+        int hash;
+        if (ethType == TYPE_IPV4 && data.length >= offset + 20) {
+            protocol = data[offset + 9] & 0xff;
+            hash = hash(data, offset + 12, 8);
+            l4Offset = offset + (data[offset] & 0x0f) * 4;
+        } else if (ethType == TYPE_IPV6 && data.length >= offset + IPV6_HEADER_LENGTH) {
+            protocol = data[offset + 6] & 0xff;
+            hash = hash(data, offset + 8, 32);
+            l4Offset = offset + IPV6_HEADER_LENGTH;
+        } else {
+            return 31 * ethType + hash(data, 0, ETH_TYPE_OFFSET);
+        }
+
+        hash = 31 * hash + protocol;
+        if ((protocol == PROTOCOL_TCP || protocol == PROTOCOL_UDP || protocol == PROTOCOL_SCTP) &&
+                data.length >= l4Offset + 4) {
+            hash = 31 * hash + hash(data, l4Offset, 4);
+        }
+        return hash;
+    }
+
+    private static int uint16(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+    }
+
+    private static int hash(byte[] data, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + data[i];
+        }
+        return hash;
+    }
+
+    // Packet waiting in a worker queue.
+    private final class QueuedPacket implements Runnable {
+        private final long enqueued;
+        private final Runnable processor;
+
+        private QueuedPacket(long enqueued, Runnable processor) {
+            this.enqueued = enqueued;
+            this.processor = processor;
+        }
+
+        @Override
+        public void run() {
+            update(queueLatency, System.nanoTime() - enqueued);
+            process(processor);
+        }
+    }
+}
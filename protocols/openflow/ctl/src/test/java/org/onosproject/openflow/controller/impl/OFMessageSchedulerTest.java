@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.openflow.controller.Dpid;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.onosproject.openflow.controller.impl.OFMessageScheduler.Lane.BULK;
+import static org.onosproject.openflow.controller.impl.OFMessageScheduler.Lane.CONTROL;
+import static org.onosproject.openflow.controller.impl.OFMessageScheduler.Lane.STATS;
+
+/**
+ * Unit tests for the message scheduler.
+ */
+public class OFMessageSchedulerTest {
+
+    private static final Dpid DPID = new Dpid(1);
+    private static final String KIND = "flow";
+
+    private OFMessageScheduler scheduler;
+    private final List<Integer> handled = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        scheduler = new OFMessageScheduler(ImmutableMap.of(CONTROL, 4, STATS, 2), 2);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    // Occupies the worker of the given lane serving DPID until released.
+    private CountDownLatch block(OFMessageScheduler.Lane lane) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(DPID, lane, null, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+        return release;
+    }
+
+    // Waits for all tasks scheduled on the lane for DPID to be handled.
+    private void await(OFMessageScheduler.Lane lane) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.queueDepth(lane) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(DPID, lane, null, done::countDown);
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void orderedPerSwitch() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            scheduler.execute(DPID, CONTROL, null, () -> handled.add(n));
+        }
+        await(CONTROL);
+        assertThat(handled.size(), is(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(handled.get(i), is(i));
+        }
+    }
+
+    @Test
+    public void losslessWhenFull() throws InterruptedException {
+        CountDownLatch release = block(CONTROL);
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            // must neither block nor drop although the queue is full
+            scheduler.execute(DPID, CONTROL, null, () -> handled.add(n));
+        }
+        assertThat(scheduler.queueDepth(CONTROL), is(10));
+        release.countDown();
+        await(CONTROL);
+
+        assertThat(handled, contains(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+        assertThat(scheduler.dropped(CONTROL), is(0L));
+    }
+
+    @Test
+    public void coalesceStaleStats() throws InterruptedException {
+        scheduler.setCoalesce(true);
+        CountDownLatch release = block(STATS);
+        scheduler.execute(DPID, STATS, KIND, () -> handled.add(1));
+        scheduler.execute(DPID, STATS, KIND, () -> handled.add(2));
+        release.countDown();
+        await(STATS);
+
+        assertThat(handled, contains(2));
+        assertThat(scheduler.coalesced(STATS), is(1L));
+    }
+
+    @Test
+    public void dropWhenFull() throws InterruptedException {
+        CountDownLatch release = block(BULK);
+        for (int i = 0; i < 4; i++) {
+            int n = i;
+            scheduler.execute(DPID, BULK, null, () -> handled.add(n));
+        }
+        assertThat(scheduler.queueDepth(BULK), is(2));
+        release.countDown();
+        await(BULK);
+
+        assertThat(handled, contains(0, 1));
+        assertThat(scheduler.dropped(BULK), is(2L));
+    }
+
+    @Test
+    public void coalescingResumesAfterDrop() throws InterruptedException {
+        scheduler.setCoalesce(true);
+        CountDownLatch release = block(STATS);
+        scheduler.execute(DPID, STATS, null, () -> handled.add(0));
+        scheduler.execute(DPID, STATS, null, () -> handled.add(1));
+        scheduler.execute(DPID, STATS, KIND, () -> handled.add(2));
+        release.countDown();
+        await(STATS);
+        scheduler.execute(DPID, STATS, KIND, () -> handled.add(3));
+        await(STATS);
+
+        assertThat(handled, contains(0, 1, 3));
+        assertThat(scheduler.dropped(STATS), is(1L));
+    }
+}
@@ -15,43 +15,60 @@
  */
 package org.onosproject.openflow.controller.impl;
 
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
 import org.junit.Before;
 import org.junit.Test;
-import org.onosproject.openflow.ExecutorServiceAdapter;
 import org.onosproject.openflow.MockOfFeaturesReply;
 import org.onosproject.openflow.MockOfPortStatus;
 import org.onosproject.openflow.OfMessageAdapter;
 import org.onosproject.openflow.OpenFlowSwitchListenerAdapter;
 import org.onosproject.openflow.OpenflowSwitchDriverAdapter;
 import org.onosproject.openflow.controller.Dpid;
+import org.onosproject.openflow.controller.OpenFlowMultipartListener;
 import org.onosproject.openflow.controller.OpenFlowPacketContext;
 import org.onosproject.openflow.controller.OpenFlowSwitch;
 import org.onosproject.openflow.controller.PacketListener;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsReply;
 import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFStatsReply;
+import org.projectfloodlight.openflow.protocol.OFStatsReplyFlags;
 import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.types.TableId;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.TestCase.fail;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 /**
  * Tests for packet processing in the open flow controller impl class.
  */
 public class OpenFlowControllerImplPacketsTest {
+    private static final OFFactory FACTORY = OFFactories.getFactory(OFVersion.OF_13);
+
     OpenFlowControllerImpl controller;
     OpenFlowControllerImpl.OpenFlowSwitchAgent agent;
     Dpid dpid1;
     OpenFlowSwitch switch1;
     OpenFlowSwitchListenerAdapter switchListener;
     TestPacketListener packetListener;
-    TestExecutorService statsExecutorService;
+    TestScheduler testScheduler;
 
     /**
      * Mock packet listener that accumulates packets.
@@ -70,20 +87,60 @@ public class OpenFlowControllerImplPacketsTest {
     }
 
     /**
-     * Mock executor service that tracks submits.
+     * Mock message scheduler that tracks submits.
      */
-    static class TestExecutorService extends ExecutorServiceAdapter {
+    static class TestScheduler extends OFMessageScheduler {
         private List<OFMessage> submittedMessages = new ArrayList<>();
+        private List<Runnable> submittedTasks = new ArrayList<>();
+        private List<OFMessageScheduler.Lane> submittedLanes = new ArrayList<>();
+        private List<Object> coalesceKeys = new ArrayList<>();
+
+        TestScheduler() {
+            super(ImmutableMap.of(), 1);
+        }
 
         List<OFMessage> submittedMessages() {
             return submittedMessages;
         }
 
+        List<Runnable> submittedTasks() {
+            return submittedTasks;
+        }
+
+        List<OFMessageScheduler.Lane> submittedLanes() {
+            return submittedLanes;
+        }
+
+        List<Object> coalesceKeys() {
+            return coalesceKeys;
+        }
+
         @Override
-        public void execute(Runnable task) {
+        void execute(Dpid dpid, OFMessageScheduler.Lane lane, Object coalesceKey, Runnable task) {
             OpenFlowControllerImpl.OFMessageHandler handler =
                     (OpenFlowControllerImpl.OFMessageHandler) task;
-            submittedMessages.add(handler.msg);
+            submittedMessages.add(handler.message());
+            submittedTasks.add(task);
+            submittedLanes.add(lane);
+            coalesceKeys.add(coalesceKey);
+        }
+    }
+
+    /**
+     * Mock event listener that accumulates multi-part reply segments.
+     */
+    static class TestMultipartListener implements OpenFlowMultipartListener {
+        private List<List<OFStatsReply>> replies = new ArrayList<>();
+        private List<OFMessage> messages = new ArrayList<>();
+
+        @Override
+        public void handleMultipartReply(Dpid dpid, List<OFStatsReply> segments) {
+            replies.add(segments);
+        }
+
+        @Override
+        public void handleMessage(Dpid dpid, OFMessage msg) {
+            messages.add(msg);
         }
     }
 
@@ -108,9 +165,9 @@ public class OpenFlowControllerImplPacketsTest {
         packetListener = new TestPacketListener();
         controller.addPacketListener(100, packetListener);
 
-        statsExecutorService = new TestExecutorService();
+        testScheduler = new TestScheduler();
 
-        controller.executorMsgs = statsExecutorService;
+        controller.scheduler = testScheduler;
     }
 
     /**
@@ -147,7 +204,141 @@ public class OpenFlowControllerImplPacketsTest {
         agent.addConnectedSwitch(dpid1, switch1);
         OfMessageAdapter errorPacket = new OfMessageAdapter(OFType.ERROR);
         controller.processPacket(dpid1, errorPacket);
-        assertThat(statsExecutorService.submittedMessages(), hasSize(1));
-        assertThat(statsExecutorService.submittedMessages().get(0), is(errorPacket));
+        assertThat(testScheduler.submittedMessages(), hasSize(1));
+        assertThat(testScheduler.submittedMessages().get(0), is(errorPacket));
+        assertThat(testScheduler.submittedLanes().get(0), is(OFMessageScheduler.Lane.CONTROL));
+    }
+
+    private static OFFlowStatsReply flowStatsReply(long xid, boolean more, int... tables) {
+        List<OFFlowStatsEntry> entries = new ArrayList<>();
+        for (int table : tables) {
+            entries.add(FACTORY.buildFlowStatsEntry().setTableId(TableId.of(table)).build());
+        }
+        return FACTORY.buildFlowStatsReply()
+                .setXid(xid)
+                .setFlags(more ? EnumSet.of(OFStatsReplyFlags.REPLY_MORE) :
+                                  EnumSet.noneOf(OFStatsReplyFlags.class))
+                .setEntries(entries)
+                .build();
+    }
+
+    /**
+     * Tests that a single segment stats reply is handed over as is.
+     */
+    @Test
+    public void testSingleSegmentStatsReply() {
+        OFFlowStatsReply reply = flowStatsReply(1, false, 1, 2);
+        controller.processPacket(dpid1, reply);
+        assertThat(testScheduler.submittedMessages(), hasSize(1));
+        assertThat(testScheduler.submittedMessages().get(0), sameInstance(reply));
+        // flow stats share one lane whatever their size, so as to stay in order
+        assertThat(testScheduler.submittedLanes().get(0), is(OFMessageScheduler.Lane.BULK));
+        // replies to partial and full flow polls must not supersede each other
+        assertThat(testScheduler.coalesceKeys().get(0), nullValue());
+    }
+
+    /**
+     * Tests aggregation of interleaved multi-part stats replies.
+     */
+    @Test
+    public void testMultipartStatsReply() {
+        controller.processPacket(dpid1, flowStatsReply(1, true, 1));
+        controller.processPacket(dpid1, flowStatsReply(2, true, 5));
+        controller.processPacket(dpid1, flowStatsReply(1, true, 2));
+        assertThat(testScheduler.submittedMessages(), hasSize(0));
+
+        controller.processPacket(dpid1, flowStatsReply(1, false, 3));
+        assertThat(testScheduler.submittedMessages(), hasSize(1));
+        OFFlowStatsReply merged = (OFFlowStatsReply) testScheduler.submittedMessages().get(0);
+        assertThat(merged.getXid(), is(1L));
+        assertThat(merged.getEntries(), hasSize(3));
+        assertThat(merged.getEntries().get(2).getTableId(), is(TableId.of(3)));
+        assertThat(testScheduler.submittedLanes().get(0), is(OFMessageScheduler.Lane.BULK));
+
+        controller.processPacket(dpid1, flowStatsReply(2, false, 6));
+        assertThat(testScheduler.submittedMessages(), hasSize(2));
+        merged = (OFFlowStatsReply) testScheduler.submittedMessages().get(1);
+        assertThat(merged.getXid(), is(2L));
+        assertThat(merged.getEntries(), hasSize(2));
+        assertThat(controller.pendingReplies.size(), is(0L));
+    }
+
+    // Makes the multi-part reply caches run on the given clock.
+    private void useClock(long[] now) {
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return now[0];
+            }
+        };
+        controller.lostReplies = OpenFlowControllerImpl.lostReplyCache(ticker);
+        controller.pendingReplies = OpenFlowControllerImpl.pendingReplyCache(ticker, controller.lostReplies);
+    }
+
+    /**
+     * Tests that multi-part replies whose last segment never arrives are
+     * eventually dropped, along with any late segment of theirs.
+     */
+    @Test
+    public void testIncompleteMultipartStatsReply() {
+        long[] now = {0};
+        useClock(now);
+
+        controller.processPacket(dpid1, flowStatsReply(1, true, 1));
+        assertThat(controller.pendingReplies.size(), is(1L));
+
+        now[0] = TimeUnit.SECONDS.toNanos(OpenFlowControllerImpl.PENDING_REPLY_TIMEOUT_SECONDS + 1);
+        controller.pendingReplies.cleanUp();
+        assertThat(controller.pendingReplies.size(), is(0L));
+
+        // a late last segment is not a complete reply
+        controller.processPacket(dpid1, flowStatsReply(1, false, 2));
+        assertThat(testScheduler.submittedMessages(), hasSize(0));
+        assertThat(controller.lostReplies.size(), is(0L));
+
+        // later replies are unaffected
+        controller.processPacket(dpid1, flowStatsReply(2, false, 3));
+        assertThat(testScheduler.submittedMessages(), hasSize(1));
+    }
+
+    /**
+     * Tests that the segments following an evicted one are dropped rather
+     * than aggregated into a partial reply.
+     */
+    @Test
+    public void testEvictedMultipartStatsReply() {
+        long[] now = {0};
+        useClock(now);
+
+        controller.processPacket(dpid1, flowStatsReply(1, true, 1));
+        now[0] = TimeUnit.SECONDS.toNanos(OpenFlowControllerImpl.PENDING_REPLY_TIMEOUT_SECONDS + 1);
+
+        controller.processPacket(dpid1, flowStatsReply(1, true, 2));
+        assertThat(controller.pendingReplies.size(), is(0L));
+        controller.processPacket(dpid1, flowStatsReply(1, false, 3));
+        assertThat(testScheduler.submittedMessages(), hasSize(0));
+        assertThat(controller.pendingReplies.size(), is(0L));
+        assertThat(controller.lostReplies.size(), is(0L));
+    }
+
+    /**
+     * Tests that multi-part listeners get the reply segments rather than
+     * a merged reply.
+     */
+    @Test
+    public void testMultipartListener() {
+        TestMultipartListener listener = new TestMultipartListener();
+        controller.addEventListener(listener);
+
+        OFFlowStatsReply first = flowStatsReply(1, true, 1);
+        OFFlowStatsReply last = flowStatsReply(1, false, 2);
+        controller.processPacket(dpid1, first);
+        controller.processPacket(dpid1, last);
+        assertThat(testScheduler.submittedTasks(), hasSize(1));
+        testScheduler.submittedTasks().get(0).run();
+
+        assertThat(listener.messages, hasSize(0));
+        assertThat(listener.replies, hasSize(1));
+        assertThat(listener.replies.get(0), contains(first, last));
     }
 }
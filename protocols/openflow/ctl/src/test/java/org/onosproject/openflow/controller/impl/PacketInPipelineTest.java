@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.UDP;
+import org.onosproject.openflow.controller.Dpid;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.onosproject.openflow.controller.impl.PacketInPipeline.DropPolicy.NEWEST;
+import static org.onosproject.openflow.controller.impl.PacketInPipeline.DropPolicy.OLDEST;
+
+/**
+ * Unit tests for the packet-in pipeline.
+ */
+public class PacketInPipelineTest {
+
+    private static final Dpid DPID = new Dpid(1);
+
+    private PacketInPipeline pipeline;
+    private final List<Integer> handled = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    private static byte[] udp(int srcPort, int dstPort) {
+        UDP udp = new UDP();
+        udp.setSourcePort(srcPort);
+        udp.setDestinationPort(dstPort);
+        IPv4 ip = new IPv4();
+        ip.setSourceAddress("10.0.0.1");
+        ip.setDestinationAddress("10.0.0.2");
+        ip.setProtocol(IPv4.PROTOCOL_UDP);
+        ip.setPayload(udp);
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(MacAddress.valueOf(1));
+        eth.setDestinationMACAddress(MacAddress.valueOf(2));
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        eth.setPayload(ip);
+        return eth.serialize();
+    }
+
+    // Occupies the single worker until released.
+    private CountDownLatch block() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.execute(DPID, udp(1, 2), () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+        return release;
+    }
+
+    // Waits for all packets queued for the flow to be processed.
+    private void await(byte[] data) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pipeline.queueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        pipeline.execute(DPID, data, done::countDown);
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void flowHash() {
+        assertThat(PacketInPipeline.flowHash(udp(1, 2)), is(PacketInPipeline.flowHash(udp(1, 2))));
+        assertThat(PacketInPipeline.flowHash(udp(1, 2)), not(PacketInPipeline.flowHash(udp(1, 3))));
+        assertThat(PacketInPipeline.flowHash(new byte[4]), is(0));
+    }
+
+    @Test
+    public void inline() {
+        pipeline = new PacketInPipeline(0, 1, NEWEST);
+        Thread caller = Thread.currentThread();
+        pipeline.execute(DPID, udp(1, 2), () -> handled.add(Thread.currentThread() == caller ? 1 : 0));
+        assertThat(handled, contains(1));
+    }
+
+    @Test
+    public void orderedPerFlow() throws InterruptedException {
+        pipeline = new PacketInPipeline(4, 1000, NEWEST);
+        byte[] data = udp(1, 2);
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            pipeline.execute(DPID, data, () -> handled.add(n));
+        }
+        await(data);
+        assertThat(handled.size(), is(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(handled.get(i), is(i));
+        }
+    }
+
+    @Test
+    public void dropNewest() throws InterruptedException {
+        pipeline = new PacketInPipeline(1, 2, NEWEST);
+        CountDownLatch release = block();
+        for (int i = 0; i < 4; i++) {
+            int n = i;
+            pipeline.execute(DPID, udp(1, 2), () -> handled.add(n));
+        }
+        release.countDown();
+        await(udp(1, 2));
+
+        assertThat(handled, contains(0, 1));
+        assertThat(pipeline.dropped(), is(2L));
+    }
+
+    @Test
+    public void dropOldest() throws InterruptedException {
+        pipeline = new PacketInPipeline(1, 2, OLDEST);
+        CountDownLatch release = block();
+        for (int i = 0; i < 4; i++) {
+            int n = i;
+            pipeline.execute(DPID, udp(1, 2), () -> handled.add(n));
+        }
+        release.countDown();
+        await(udp(1, 2));
+
+        assertThat(handled, contains(2, 3));
+        assertThat(pipeline.dropped(), is(2L));
+    }
+}
@@ -60,6 +60,7 @@ import org.onosproject.net.link.LinkService;
 import org.onosproject.net.packet.PacketContext;
 import org.onosproject.net.packet.PacketPriority;
 import org.onosproject.net.packet.PacketProcessor;
+import org.onosproject.net.packet.PacketProcessorFilter;
 import org.onosproject.net.packet.PacketService;
 import org.onosproject.net.provider.AbstractProvider;
 import org.onosproject.net.provider.ProviderId;
@@ -334,7 +335,11 @@ public class LldpLinkProvider extends AbstractProvider implements LinkProvider {
         providerService = providerRegistry.register(this);
         masterService.addListener(roleListener);
         deviceService.addListener(deviceListener);
-        packetService.addProcessor(packetProcessor, PacketProcessor.advisor(0));
+        packetService.addProcessor(packetProcessor, PacketProcessor.advisor(0),
+                                   PacketProcessorFilter.builder()
+                                           .matchEthType(TYPE_LLDP)
+                                           .matchEthType(TYPE_BSN)
+                                           .build());
 
         loadDevices();
 
@@ -15,6 +15,7 @@
  */
 package org.onosproject.provider.lldpcommon;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 
 import org.jboss.netty.util.Timeout;
@@ -37,7 +38,11 @@ import org.onosproject.net.packet.PacketContext;
 import org.slf4j.Logger;
 
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.onosproject.net.PortNumber.portNumber;
@@ -46,10 +51,9 @@ import static org.slf4j.LoggerFactory.getLogger;
 import static org.onosproject.cluster.ClusterMetadata.NO_NAME;
 
 /**
- * Run discovery process from a physical switch. Ports are initially labeled as
- * slow ports. When an LLDP is successfully received, label the remote port as
- * fast. Every probeRate milliseconds, loop over all fast ports and send an
- * LLDP, send an LLDP for a single slow port. Based on FlowVisor topology
+ * Run discovery process from a physical switch. Every probeRate milliseconds,
+ * send an LLDP, and a BDDP if enabled, out of every port of the switch, in
+ * batches of ports spread across the interval. Based on FlowVisor topology
  * discovery implementation.
  */
 public class LinkDiscovery implements TimerTask {
@@ -58,12 +62,28 @@ public class LinkDiscovery implements TimerTask {
 
     private static final String SRC_MAC = "DE:AD:BE:EF:BA:11";
 
+    // Offset of the port number in a serialized probe: Ethernet header,
+    // chassis TLV, port TLV header and port TLV subtype
+    private static final int PORT_OFFSET = 14 + 2 + 7 + 2 + 1;
+
+    // Maximum number of ports probed at a time
+    private static final int PROBE_BATCH = 8;
+
     private final Device device;
     private final LinkDiscoveryContext context;
 
     private final Ethernet ethPacket;
     private final Ethernet bddpEth;
 
+    // Serialized LLDP and BDDP probes, rebuilt whenever the fingerprint
+    // changes; probes for a port are copies with the port number patched
+    private volatile ProbeTemplates templates;
+
+    // Ports probed in the current round, and the index of the next batch
+    // of them; only accessed by the timer task
+    private List<Long> round = Collections.emptyList();
+    private int nextInRound = 0;
+
     private Timeout timeout;
     private volatile boolean isStopped;
     // This LinkDiscovery can handle remote link probes (default false).
@@ -112,7 +132,10 @@ public class LinkDiscovery implements TimerTask {
     public synchronized void start() {
         if (isStopped) {
             isStopped = false;
-            timeout = Timer.getTimer().newTimeout(this, 0, MILLISECONDS);
+            // Start at a random point of the probe interval so that the
+            // probes of all devices do not go out at the same time
+            timeout = Timer.getTimer().newTimeout(this, ThreadLocalRandom.current().nextLong(
+                    Math.max(context.probeRate(), 1)), MILLISECONDS);
         } else {
             log.warn("LinkDiscovery started multiple times?");
         }
@@ -209,9 +232,8 @@ public class LinkDiscovery implements TimerTask {
     }
 
     /**
-     * Execute this method every t milliseconds. Loops over all ports
-     * labeled as fast and sends out an LLDP. Send out an LLDP on a single slow
-     * port.
+     * Probes all ports once every probeRate milliseconds. The ports are
+     * probed in batches spread evenly across the probe interval.
      *
      * @param t timeout
      */
@@ -221,13 +243,29 @@ public class LinkDiscovery implements TimerTask {
             return;
         }
 
+        long delay = context.probeRate();
         if (context.mastershipService().isLocalMaster(device.id())) {
-            log.trace("Sending probes from {}", device.id());
-            ports.forEach(this::sendProbes);
+            if (nextInRound >= round.size()) {
+                round = ImmutableList.copyOf(ports);
+                nextInRound = 0;
+            }
+            int end = Math.min(nextInRound + PROBE_BATCH, round.size());
+            log.trace("Sending probes from {} to {} port(s)", device.id(), end - nextInRound);
+            for (Long port : round.subList(nextInRound, end)) {
+                if (ports.contains(port)) {
+                    sendProbes(port);
+                }
+            }
+            nextInRound = end;
+            int batches = (round.size() + PROBE_BATCH - 1) / PROBE_BATCH;
+            delay = Math.max(delay / Math.max(batches, 1), 1);
+        } else {
+            round = Collections.emptyList();
+            nextInRound = 0;
         }
 
         if (!isStopped()) {
-            timeout = Timer.getTimer().newTimeout(this, context.probeRate(), MILLISECONDS);
+            timeout = Timer.getTimer().newTimeout(this, delay, MILLISECONDS);
         }
     }
 
@@ -241,11 +279,9 @@ public class LinkDiscovery implements TimerTask {
         if (port == null) {
             return null;
         }
-        ONOSLLDP lldp = getLinkProbe(port);
-        ethPacket.setSourceMACAddress(SRC_MAC).setPayload(lldp);
         return new DefaultOutboundPacket(device.id(),
                                          builder().setOutput(portNumber(port)).build(),
-                                         ByteBuffer.wrap(ethPacket.serialize()));
+                                         probeTemplates().lldp(port));
     }
 
     /**
@@ -258,21 +294,61 @@ public class LinkDiscovery implements TimerTask {
         if (port == null) {
             return null;
         }
-        ONOSLLDP lldp = getLinkProbe(port);
-        bddpEth.setSourceMACAddress(SRC_MAC).setPayload(lldp);
         return new DefaultOutboundPacket(device.id(),
                                          builder().setOutput(portNumber(port)).build(),
-                                         ByteBuffer.wrap(bddpEth.serialize()));
+                                         probeTemplates().bddp(port));
     }
 
-    private ONOSLLDP getLinkProbe(Long port) {
-        return fingerprinted
+    private ProbeTemplates probeTemplates() {
+        String fingerprint = fingerprinted ? context.fingerprint() : null;
+        ProbeTemplates current = templates;
+        if (current == null || !Objects.equals(current.fingerprint, fingerprint)) {
+            current = new ProbeTemplates(fingerprint);
+            templates = current;
+        }
+        return current;
+    }
+
+    private ONOSLLDP getLinkProbe(Long port, String fingerprint) {
+        return fingerprint != null
                 ? ONOSLLDP.fingerprintedLLDP(device.id().toString(), device.chassisId(),
-                                             port.intValue(), context.fingerprint())
+                                             port.intValue(), fingerprint)
                 : ONOSLLDP.onosLLDP(device.id().toString(), device.chassisId(),
                                     port.intValue());
     }
 
+    /**
+     * Serialized LLDP and BDDP probes of the device for a given fingerprint.
+     */
+    private final class ProbeTemplates {
+        private final String fingerprint;
+        private final byte[] lldp;
+        private final byte[] bddp;
+
+        private ProbeTemplates(String fingerprint) {
+            this.fingerprint = fingerprint;
+            synchronized (LinkDiscovery.this) {
+                ONOSLLDP probe = getLinkProbe(0L, fingerprint);
+                lldp = ethPacket.setSourceMACAddress(SRC_MAC).setPayload(probe).serialize();
+                bddp = bddpEth.setSourceMACAddress(SRC_MAC).setPayload(probe).serialize();
+            }
+        }
+
+        private ByteBuffer lldp(long port) {
+            return forPort(lldp, port);
+        }
+
+        private ByteBuffer bddp(long port) {
+            return forPort(bddp, port);
+        }
+
+        private ByteBuffer forPort(byte[] template, long port) {
+            ByteBuffer probe = ByteBuffer.wrap(template.clone());
+            probe.putInt(PORT_OFFSET, (int) port);
+            return probe;
+        }
+    }
+
     private void sendProbes(Long portNumber) {
         log.trace("Sending probes out to {}@{}", portNumber, device.id());
         OutboundPacket pkt = createOutBoundLldp(portNumber);
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.provider.lldpcommon;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.ChassisId;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.ONOSLLDP;
+import org.onosproject.mastership.MastershipService;
+import org.onosproject.mastership.MastershipServiceAdapter;
+import org.onosproject.net.DefaultDevice;
+import org.onosproject.net.DefaultPort;
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.LinkKey;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.net.flow.instructions.Instructions.OutputInstruction;
+import org.onosproject.net.link.LinkProviderService;
+import org.onosproject.net.packet.OutboundPacket;
+import org.onosproject.net.packet.PacketService;
+import org.onosproject.net.packet.PacketServiceAdapter;
+import org.onosproject.net.provider.ProviderId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.net.DeviceId.deviceId;
+import static org.onosproject.net.PortNumber.portNumber;
+
+/**
+ * Tests of the LLDP and BDDP probes sent by the link discovery.
+ */
+public class LinkDiscoveryTest {
+
+    private static final ProviderId PID = new ProviderId("of", "foo");
+    private static final DeviceId DID = deviceId("of:0000000000000001");
+    private static final ChassisId CHASSIS = new ChassisId(0x1234L);
+    private static final String SRC_MAC = "DE:AD:BE:EF:BA:11";
+    private static final String FINGERPRINT = "cluster";
+
+    // Long enough for the timer never to fire while a test runs
+    private static final long PROBE_RATE = 3_600_000;
+
+    private final Device device = new DefaultDevice(PID, DID, Device.Type.SWITCH,
+                                                    "mfg", "1.0", "1.1", "1234", CHASSIS);
+    private final List<OutboundPacket> emitted = new ArrayList<>();
+    private final TestContext context = new TestContext();
+
+    private boolean master;
+    private LinkDiscovery discovery;
+
+    @Before
+    public void setUp() {
+        discovery = new LinkDiscovery(device, context);
+    }
+
+    @After
+    public void tearDown() {
+        discovery.stop();
+    }
+
+    private void addPorts(long... ports) {
+        for (long port : ports) {
+            discovery.addPort(new DefaultPort(device, portNumber(port), true));
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        ByteBuffer copy = buffer.duplicate();
+        copy.rewind();
+        byte[] bytes = new byte[copy.remaining()];
+        copy.get(bytes);
+        return bytes;
+    }
+
+    private static long output(OutboundPacket packet) {
+        return ((OutputInstruction) packet.treatment().allInstructions().get(0)).port().toLong();
+    }
+
+    private static byte[] probe(short etherType, byte[] destination, ONOSLLDP lldp) {
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(etherType);
+        eth.setDestinationMACAddress(destination);
+        eth.setSourceMACAddress(SRC_MAC);
+        eth.setPad(true);
+        eth.setPayload(lldp);
+        return eth.serialize();
+    }
+
+    private void assertProbes(long[] ports, boolean fingerprinted) {
+        assertEquals(2 * ports.length, emitted.size());
+        for (int i = 0; i < ports.length; i++) {
+            int port = (int) ports[i];
+            ONOSLLDP lldp = fingerprinted ?
+                    ONOSLLDP.fingerprintedLLDP(DID.toString(), CHASSIS, port, FINGERPRINT) :
+                    ONOSLLDP.onosLLDP(DID.toString(), CHASSIS, port);
+            OutboundPacket lldpPacket = emitted.get(2 * i);
+            OutboundPacket bddpPacket = emitted.get(2 * i + 1);
+            assertEquals(port, output(lldpPacket));
+            assertArrayEquals(probe(Ethernet.TYPE_LLDP, ONOSLLDP.LLDP_NICIRA, lldp),
+                              bytes(lldpPacket.data()));
+            assertEquals(port, output(bddpPacket));
+            assertArrayEquals(probe(Ethernet.TYPE_BSN, ONOSLLDP.BDDP_MULTICAST, lldp),
+                              bytes(bddpPacket.data()));
+        }
+    }
+
+    /**
+     * Tests that probes built from the templates are identical to freshly
+     * serialized ones.
+     */
+    @Test
+    public void probesMatchSerialized() {
+        master = true;
+        long[] ports = {1, 2, 255, 4096, 65534};
+        addPorts(ports);
+        assertProbes(ports, false);
+    }
+
+    /**
+     * Tests that fingerprinted probes built from the templates are
+     * identical to freshly serialized ones.
+     */
+    @Test
+    public void fingerprintedProbesMatchSerialized() {
+        master = true;
+        discovery.enableFingerprint();
+        long[] ports = {3, 128, 1000, 65534};
+        addPorts(ports);
+        assertProbes(ports, true);
+    }
+
+    /**
+     * Tests that every port is probed once per round, the round being
+     * spread across several batches.
+     */
+    @Test
+    public void probesAllPortsOncePerRound() {
+        context.bddp = false;
+        long[] ports = new long[20];
+        for (int i = 0; i < ports.length; i++) {
+            ports[i] = i + 1;
+        }
+        addPorts(ports);
+        assertEquals(0, emitted.size());
+
+        master = true;
+        for (int round = 1; round <= 2; round++) {
+            for (int batch = 0; batch < 3; batch++) {
+                discovery.run(null);
+            }
+            Map<Long, Integer> probed = new HashMap<>();
+            emitted.forEach(packet -> probed.merge(output(packet), 1, Integer::sum));
+            assertEquals(ports.length, probed.size());
+            Arrays.stream(ports).forEach(port -> assertEquals(Integer.valueOf(1), probed.get(port)));
+            emitted.clear();
+        }
+    }
+
+    private final class TestContext implements LinkDiscoveryContext {
+        private boolean bddp = true;
+
+        private final MastershipService mastershipService = new MastershipServiceAdapter() {
+            @Override
+            public boolean isLocalMaster(DeviceId deviceId) {
+                return master;
+            }
+        };
+
+        private final PacketService packetService = new PacketServiceAdapter() {
+            @Override
+            public void emit(OutboundPacket packet) {
+                emitted.add(packet);
+            }
+        };
+
+        @Override
+        public MastershipService mastershipService() {
+            return mastershipService;
+        }
+
+        @Override
+        public LinkProviderService providerService() {
+            return null;
+        }
+
+        @Override
+        public PacketService packetService() {
+            return packetService;
+        }
+
+        @Override
+        public DeviceService deviceService() {
+            return null;
+        }
+
+        @Override
+        public long probeRate() {
+            return PROBE_RATE;
+        }
+
+        @Override
+        public boolean useBddp() {
+            return bddp;
+        }
+
+        @Override
+        public void touchLink(LinkKey key) {
+        }
+
+        @Override
+        public String fingerprint() {
+            return FINGERPRINT;
+        }
+    }
+}
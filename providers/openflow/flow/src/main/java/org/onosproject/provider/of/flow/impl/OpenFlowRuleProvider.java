@@ -48,7 +48,7 @@ import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.statistic.DefaultLoad;
 import org.onosproject.openflow.controller.Dpid;
 import org.onosproject.openflow.controller.OpenFlowController;
-import org.onosproject.openflow.controller.OpenFlowEventListener;
+import org.onosproject.openflow.controller.OpenFlowMultipartListener;
 import org.onosproject.openflow.controller.OpenFlowSwitch;
 import org.onosproject.openflow.controller.OpenFlowSwitchListener;
 import org.onosproject.openflow.controller.RoleState;
@@ -61,6 +61,7 @@ import org.projectfloodlight.openflow.protocol.OFErrorMsg;
 import org.projectfloodlight.openflow.protocol.OFErrorType;
 import org.projectfloodlight.openflow.protocol.OFFlowMod;
 import org.projectfloodlight.openflow.protocol.OFFlowRemoved;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFFlowStatsReply;
 import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFPortStatus;
@@ -82,6 +83,7 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -394,7 +396,7 @@ public class OpenFlowRuleProvider extends AbstractProvider
     }
 
     private class InternalFlowProvider
-            implements OpenFlowSwitchListener, OpenFlowEventListener {
+            implements OpenFlowSwitchListener, OpenFlowMultipartListener {
 
         @Override
         public void switchAdded(Dpid dpid) {
@@ -516,11 +518,31 @@ public class OpenFlowRuleProvider extends AbstractProvider
             // Do nothing here for now.
         }
 
+        @Override
+        public void handleMultipartReply(Dpid dpid, List<OFStatsReply> segments) {
+            if (providerService == null) {
+                // We are shutting down, nothing to be done
+                return;
+            }
+            OFStatsReply first = segments.get(0);
+            if (first.getStatsType() == OFStatsType.FLOW) {
+                pushFlowMetrics(dpid, first.getXid(), segments.stream()
+                        .flatMap(r -> ((OFFlowStatsReply) r).getEntries().stream()));
+            } else if (first.getStatsType() == OFStatsType.TABLE) {
+                pushTableStatistics(dpid, segments.stream()
+                        .flatMap(r -> ((OFTableStatsReply) r).getEntries().stream()));
+            }
+        }
+
         private void pushFlowMetrics(Dpid dpid, OFFlowStatsReply replies) {
+            pushFlowMetrics(dpid, replies.getXid(), replies.getEntries().stream());
+        }
+
+        private void pushFlowMetrics(Dpid dpid, long xid, Stream<OFFlowStatsEntry> entries) {
 
             DeviceId did = DeviceId.deviceId(Dpid.uri(dpid));
 
-            List<FlowEntry> flowEntries = replies.getEntries().stream()
+            List<FlowEntry> flowEntries = entries
                     .map(entry -> new FlowEntryBuilder(did, entry, driverService).build())
                     .collect(Collectors.toList());
 
@@ -531,12 +553,12 @@ public class OpenFlowRuleProvider extends AbstractProvider
                     if (afsc.getFlowMissingXid() != NewAdaptiveFlowStatsCollector.NO_FLOW_MISSING_XID) {
                         log.debug("OpenFlowRuleProvider:pushFlowMetrics, flowMissingXid={}, "
                                         + "OFFlowStatsReply Xid={}, for {}",
-                                afsc.getFlowMissingXid(), replies.getXid(), dpid);
+                                afsc.getFlowMissingXid(), xid, dpid);
                     }
 
                     // Check that OFFlowStatsReply Xid is same with the one of OFFlowStatsRequest?
                     if (afsc.getFlowMissingXid() != NewAdaptiveFlowStatsCollector.NO_FLOW_MISSING_XID) {
-                        if (afsc.getFlowMissingXid() == replies.getXid()) {
+                        if (afsc.getFlowMissingXid() == xid) {
                             // call entire flow stats update with flowMissing synchronization.
                             // used existing pushFlowMetrics
                             providerService.pushFlowMetrics(did, flowEntries);
@@ -559,9 +581,13 @@ public class OpenFlowRuleProvider extends AbstractProvider
         }
 
         private void pushTableStatistics(Dpid dpid, OFTableStatsReply replies) {
+            pushTableStatistics(dpid, replies.getEntries().stream());
+        }
+
+        private void pushTableStatistics(Dpid dpid, Stream<OFTableStatsEntry> entries) {
 
             DeviceId did = DeviceId.deviceId(Dpid.uri(dpid));
-            List<TableStatisticsEntry> tableStatsEntries = replies.getEntries().stream()
+            List<TableStatisticsEntry> tableStatsEntries = entries
                     .map(entry -> buildTableStatistics(did, entry))
                     .filter(Objects::nonNull)
                     .collect(Collectors.toList());
@@ -141,6 +141,24 @@ public class IpAddress implements Comparable<IpAddress> {
         return Arrays.copyOf(octets, octets.length);
     }
 
+    /**
+     * Returns eight octets of the IP address as a long, without copying
+     * the octets. Octets past the end of the address are zero.
+     *
+     * @param offset index of the first octet
+     * @return the octets, most significant first
+     */
+    long octetsAsLong(int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value <<= Byte.SIZE;
+            if (i < octets.length) {
+                value |= octets[i] & BIT_MASK;
+            }
+        }
+        return value;
+    }
+
     /**
      * Computes the IP address byte length for a given IP version.
      *
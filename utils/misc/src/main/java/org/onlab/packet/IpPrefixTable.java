@@ -0,0 +1,575 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Table of values keyed by IPv4 and IPv6 prefixes, supporting exact,
+ * longest-prefix and covered-prefix lookups.
+ * <p>
+ * The prefixes of each IP version are kept in a path-compressed binary
+ * (Patricia) trie whose nodes hold the prefix bits inline, so that a
+ * table holds no prefix objects of its own and uses a single node per
+ * entry plus at most one branching node per entry. Lookups run without
+ * allocating.
+ * </p>
+ * <p>
+ * Readers never block: every lookup runs against an immutable
+ * {@link Snapshot}, which remains valid and unchanged for as long as it is
+ * held. Updates copy the paths they change and publish a new snapshot
+ * once done; a batch of updates applied through
+ * {@link #update(Consumer)} becomes visible atomically. Updates are
+ * serialized.
+ * </p>
+ *
+ * @param <V> type of the values
+ */
+public final class IpPrefixTable<V> {
+
+    private static final Snapshot<?> EMPTY = new Snapshot<>(null, null, 0);
+
+    @SuppressWarnings("unchecked")
+    private volatile Snapshot<V> snapshot = (Snapshot<V>) EMPTY;
+
+    /**
+     * Returns the current contents of the table.
+     *
+     * @return immutable snapshot of the table
+     */
+    public Snapshot<V> snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of entries in the table.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Indicates whether the table is empty.
+     *
+     * @return true if the table has no entries
+     */
+    public boolean isEmpty() {
+        return snapshot.isEmpty();
+    }
+
+    /**
+     * Returns the value of the given prefix.
+     *
+     * @param prefix IP prefix
+     * @return value; null if the prefix is not in the table
+     */
+    public V get(IpPrefix prefix) {
+        return snapshot.get(prefix);
+    }
+
+    /**
+     * Returns the value of the longest prefix containing the given address.
+     *
+     * @param address IP address
+     * @return value; null if no prefix contains the address
+     */
+    public V longestMatch(IpAddress address) {
+        return snapshot.longestMatch(address);
+    }
+
+    /**
+     * Returns the value of the longest prefix containing the given prefix,
+     * which may be the prefix itself.
+     *
+     * @param prefix IP prefix
+     * @return value; null if no prefix contains the given one
+     */
+    public V longestMatch(IpPrefix prefix) {
+        return snapshot.longestMatch(prefix);
+    }
+
+    /**
+     * Applies an action to the values of all prefixes contained in the
+     * given prefix, including the prefix itself, in address order.
+     *
+     * @param prefix IP prefix
+     * @param action action to apply
+     */
+    public void forEachCovered(IpPrefix prefix, Consumer<? super V> action) {
+        snapshot.forEachCovered(prefix, action);
+    }
+
+    /**
+     * Returns the values of all prefixes contained in the given prefix,
+     * including the prefix itself, in address order.
+     *
+     * @param prefix IP prefix
+     * @return list of values
+     */
+    public List<V> covered(IpPrefix prefix) {
+        return snapshot.covered(prefix);
+    }
+
+    /**
+     * Returns all values of the table, those of IPv4 prefixes first, in
+     * address order.
+     *
+     * @return list of values
+     */
+    public List<V> values() {
+        return snapshot.values();
+    }
+
+    /**
+     * Associates a value with a prefix.
+     *
+     * @param prefix IP prefix
+     * @param value  value
+     * @return previous value; null if the prefix was not in the table
+     */
+    public V put(IpPrefix prefix, V value) {
+        return apply(u -> u.put(prefix, value)).previous;
+    }
+
+    /**
+     * Removes a prefix from the table.
+     *
+     * @param prefix IP prefix
+     * @return removed value; null if the prefix was not in the table
+     */
+    public V remove(IpPrefix prefix) {
+        return apply(u -> u.remove(prefix)).previous;
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void clear() {
+        snapshot = (Snapshot<V>) EMPTY;
+    }
+
+    /**
+     * Applies a batch of updates to the table. The updates become visible
+     * to readers together once the batch completes; if the batch throws,
+     * none of them does. The updater must not be used once the batch is
+     * over.
+     *
+     * @param updates batch of updates
+     */
+    public void update(Consumer<? super Updater<V>> updates) {
+        apply(updates);
+    }
+
+    private synchronized Updater<V> apply(Consumer<? super Updater<V>> updates) {
+        Updater<V> updater = new Updater<>(snapshot);
+        try {
+            updates.accept(updater);
+        } finally {
+            updater.closed = true;
+        }
+        snapshot = new Snapshot<>(updater.root4, updater.root6, updater.size);
+        return updater;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("size", size())
+                .toString();
+    }
+
+    /**
+     * Immutable contents of a table at a point in time.
+     *
+     * @param <V> type of the values
+     */
+    public static final class Snapshot<V> {
+
+        private final Node<V> root4;
+        private final Node<V> root6;
+        private final int size;
+
+        private Snapshot(Node<V> root4, Node<V> root6, int size) {
+            this.root4 = root4;
+            this.root6 = root6;
+            this.size = size;
+        }
+
+        /**
+         * Returns the number of entries.
+         *
+         * @return number of entries
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Indicates whether there are no entries.
+         *
+         * @return true if there are no entries
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Returns the value of the given prefix.
+         *
+         * @param prefix IP prefix
+         * @return value; null if the prefix is not present
+         */
+        public V get(IpPrefix prefix) {
+            IpAddress address = prefix.address();
+            return find(root(address), address.octetsAsLong(0), address.octetsAsLong(Long.BYTES),
+                        prefix.prefixLength(), false);
+        }
+
+        /**
+         * Returns the value of the longest prefix containing the given
+         * address.
+         *
+         * @param address IP address
+         * @return value; null if no prefix contains the address
+         */
+        public V longestMatch(IpAddress address) {
+            return find(root(address), address.octetsAsLong(0), address.octetsAsLong(Long.BYTES),
+                        address.isIp4() ? IpAddress.INET_BIT_LENGTH : IpAddress.INET6_BIT_LENGTH, true);
+        }
+
+        /**
+         * Returns the value of the longest prefix containing the given
+         * prefix, which may be the prefix itself.
+         *
+         * @param prefix IP prefix
+         * @return value; null if no prefix contains the given one
+         */
+        public V longestMatch(IpPrefix prefix) {
+            IpAddress address = prefix.address();
+            return find(root(address), address.octetsAsLong(0), address.octetsAsLong(Long.BYTES),
+                        prefix.prefixLength(), true);
+        }
+
+        /**
+         * Applies an action to the values of all prefixes contained in the
+         * given prefix, including the prefix itself, in address order.
+         *
+         * @param prefix IP prefix
+         * @param action action to apply
+         */
+        public void forEachCovered(IpPrefix prefix, Consumer<? super V> action) {
+            IpAddress address = prefix.address();
+            long hi = address.octetsAsLong(0);
+            long lo = address.octetsAsLong(Long.BYTES);
+            int length = prefix.prefixLength();
+
+            Node<V> node = root(address);
+            while (node != null) {
+                if (node.length >= length) {
+                    if (matches(hi, lo, length, node.hi, node.lo)) {
+                        forEach(node, action);
+                    }
+                    return;
+                }
+                if (!matches(node.hi, node.lo, node.length, hi, lo)) {
+                    return;
+                }
+                node = bit(hi, lo, node.length) ? node.right : node.left;
+            }
+        }
+
+        /**
+         * Returns the values of all prefixes contained in the given prefix,
+         * including the prefix itself, in address order.
+         *
+         * @param prefix IP prefix
+         * @return list of values
+         */
+        public List<V> covered(IpPrefix prefix) {
+            ImmutableList.Builder<V> builder = ImmutableList.builder();
+            forEachCovered(prefix, builder::add);
+            return builder.build();
+        }
+
+        /**
+         * Returns all values, those of IPv4 prefixes first, in address
+         * order.
+         *
+         * @return list of values
+         */
+        public List<V> values() {
+            ImmutableList.Builder<V> builder = ImmutableList.builder();
+            forEach(root4, builder::add);
+            forEach(root6, builder::add);
+            return builder.build();
+        }
+
+        private Node<V> root(IpAddress address) {
+            return address.isIp4() ? root4 : root6;
+        }
+    }
+
+    /**
+     * Batch of updates to a table.
+     *
+     * @param <V> type of the values
+     */
+    public static final class Updater<V> {
+
+        // Owner of the nodes created by this batch; nodes never refer to the
+        // updater itself, so that surviving nodes do not retain the tries
+        // and values it held once superseded.
+        private final Object token = new Object();
+
+        private Node<V> root4;
+        private Node<V> root6;
+        private int size;
+        private V previous;
+        private boolean closed;
+
+        private Updater(Snapshot<V> snapshot) {
+            this.root4 = snapshot.root4;
+            this.root6 = snapshot.root6;
+            this.size = snapshot.size;
+        }
+
+        /**
+         * Returns the value of the given prefix, as updated so far.
+         *
+         * @param prefix IP prefix
+         * @return value; null if the prefix is not present
+         */
+        public V get(IpPrefix prefix) {
+            IpAddress address = prefix.address();
+            return find(address.isIp4() ? root4 : root6, address.octetsAsLong(0),
+                        address.octetsAsLong(Long.BYTES), prefix.prefixLength(), false);
+        }
+
+        /**
+         * Associates a value with a prefix.
+         *
+         * @param prefix IP prefix
+         * @param value  value
+         * @return previous value; null if the prefix was not present
+         */
+        public V put(IpPrefix prefix, V value) {
+            checkNotNull(value, "Value cannot be null");
+            checkState(!closed, "Batch is over");
+            IpAddress address = prefix.address();
+            long hi = address.octetsAsLong(0);
+            long lo = address.octetsAsLong(Long.BYTES);
+            previous = null;
+            if (address.isIp4()) {
+                root4 = put(root4, hi, lo, prefix.prefixLength(), value);
+            } else {
+                root6 = put(root6, hi, lo, prefix.prefixLength(), value);
+            }
+            return previous;
+        }
+
+        /**
+         * Removes a prefix.
+         *
+         * @param prefix IP prefix
+         * @return removed value; null if the prefix was not present
+         */
+        public V remove(IpPrefix prefix) {
+            checkState(!closed, "Batch is over");
+            IpAddress address = prefix.address();
+            long hi = address.octetsAsLong(0);
+            long lo = address.octetsAsLong(Long.BYTES);
+            previous = null;
+            if (address.isIp4()) {
+                root4 = remove(root4, hi, lo, prefix.prefixLength());
+            } else {
+                root6 = remove(root6, hi, lo, prefix.prefixLength());
+            }
+            return previous;
+        }
+
+        private Node<V> put(Node<V> node, long hi, long lo, int length, V value) {
+            if (node == null) {
+                size++;
+                return new Node<>(token, hi, lo, length, value, null, null);
+            }
+            int common = commonLength(node.hi, node.lo, hi, lo, Math.min(node.length, length));
+            if (common == node.length) {
+                Node<V> copy = writable(node);
+                if (length == node.length) {
+                    previous = node.value;
+                    if (previous == null) {
+                        size++;
+                    }
+                    copy.value = value;
+                } else if (bit(hi, lo, node.length)) {
+                    copy.right = put(node.right, hi, lo, length, value);
+                } else {
+                    copy.left = put(node.left, hi, lo, length, value);
+                }
+                return copy;
+            }
+
+            size++;
+            if (common == length) {
+                // The new prefix contains the node.
+                return bit(node.hi, node.lo, length) ?
+                        new Node<>(token, hi, lo, length, value, null, node) :
+                        new Node<>(token, hi, lo, length, value, node, null);
+            }
+
+            // The new prefix and the node diverge; branch where they do.
+            Node<V> leaf = new Node<>(token, hi, lo, length, value, null, null);
+            long branchHi = hi & maskHi(common);
+            long branchLo = lo & maskLo(common);
+            return bit(hi, lo, common) ?
+                    new Node<>(token, branchHi, branchLo, common, null, node, leaf) :
+                    new Node<>(token, branchHi, branchLo, common, null, leaf, node);
+        }
+
+        private Node<V> remove(Node<V> node, long hi, long lo, int length) {
+            if (node == null || node.length > length || !matches(node.hi, node.lo, node.length, hi, lo)) {
+                return node;
+            }
+            if (node.length == length) {
+                if (node.value == null) {
+                    return node;
+                }
+                previous = node.value;
+                size--;
+                if (node.left == null) {
+                    return node.right;
+                }
+                if (node.right == null) {
+                    return node.left;
+                }
+                Node<V> copy = writable(node);
+                copy.value = null;
+                return copy;
+            }
+
+            boolean right = bit(hi, lo, node.length);
+            Node<V> child = right ? node.right : node.left;
+            Node<V> updated = remove(child, hi, lo, length);
+            if (updated == child) {
+                return node;
+            }
+            if (updated == null && node.value == null) {
+                // Branching nodes always have two children.
+                return right ? node.left : node.right;
+            }
+            Node<V> copy = writable(node);
+            if (right) {
+                copy.right = updated;
+            } else {
+                copy.left = updated;
+            }
+            return copy;
+        }
+
+        // Nodes created by this batch are not yet visible to readers and
+        // may be updated in place; all others are copied.
+        private Node<V> writable(Node<V> node) {
+            return node.owner == token ? node :
+                    new Node<>(token, node.hi, node.lo, node.length, node.value, node.left, node.right);
+        }
+    }
+
+    // Trie node. Nodes without a value are branching nodes and always have
+    // two children. Once published, nodes are never modified.
+    private static final class Node<V> {
+        private final Object owner;
+        private final long hi;
+        private final long lo;
+        private final int length;
+        private V value;
+        private Node<V> left;
+        private Node<V> right;
+
+        private Node(Object owner, long hi, long lo, int length, V value, Node<V> left, Node<V> right) {
+            this.owner = owner;
+            this.hi = hi;
+            this.lo = lo;
+            this.length = length;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    // Finds the value of the given prefix, or of the longest one containing it.
+    private static <V> V find(Node<V> node, long hi, long lo, int length, boolean longest) {
+        V match = null;
+        while (node != null && node.length <= length && matches(node.hi, node.lo, node.length, hi, lo)) {
+            if (node.value != null && (longest || node.length == length)) {
+                match = node.value;
+            }
+            if (node.length == length) {
+                break;
+            }
+            node = bit(hi, lo, node.length) ? node.right : node.left;
+        }
+        return match;
+    }
+
+    // Applies an action to the values of a subtree in address order.
+    private static <V> void forEach(Node<V> node, Consumer<? super V> action) {
+        while (node != null) {
+            if (node.value != null) {
+                action.accept(node.value);
+            }
+            forEach(node.left, action);
+            node = node.right;
+        }
+    }
+
+    // Indicates whether the given bits agree over the first length bits.
+    private static boolean matches(long hi, long lo, int length, long otherHi, long otherLo) {
+        return ((hi ^ otherHi) & maskHi(length)) == 0 && ((lo ^ otherLo) & maskLo(length)) == 0;
+    }
+
+    // Returns the number of leading bits in common, up to the given maximum.
+    private static int commonLength(long hi, long lo, long otherHi, long otherLo, int max) {
+        long diff = hi ^ otherHi;
+        int common = diff != 0 ? Long.numberOfLeadingZeros(diff) :
+                Long.SIZE + Long.numberOfLeadingZeros(lo ^ otherLo);
+        return Math.min(common, max);
+    }
+
+    // Returns the given bit, counting from the most significant one.
+    private static boolean bit(long hi, long lo, int index) {
+        return index < Long.SIZE ?
+                (hi >>> (Long.SIZE - 1 - index) & 1) != 0 :
+                (lo >>> (2 * Long.SIZE - 1 - index) & 1) != 0;
+    }
+
+    private static long maskHi(int length) {
+        return length == 0 ? 0 : length >= Long.SIZE ? -1L : -1L << (Long.SIZE - length);
+    }
+
+    private static long maskLo(int length) {
+        return length <= Long.SIZE ? 0 : length >= 2 * Long.SIZE ? -1L : -1L << (2 * Long.SIZE - length);
+    }
+}
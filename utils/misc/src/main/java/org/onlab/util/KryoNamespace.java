@@ -20,6 +20,7 @@ import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.ByteBufferInput;
 import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.pool.KryoCallback;
 import com.esotericsoftware.kryo.pool.KryoFactory;
 import com.esotericsoftware.kryo.pool.KryoPool;
@@ -51,6 +52,17 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
     public static final int DEFAULT_BUFFER_SIZE = 4096;
     public static final int MAX_BUFFER_SIZE = 100 * 1000 * 1000;
 
+    /**
+     * Capacity above which a per-thread output buffer is discarded after use
+     * rather than kept for the next serialization.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    // Output buffer of the current thread, reused across serializations.
+    // It is taken out while in use, so that nested serializations on the
+    // same thread allocate their own.
+    private static final ThreadLocal<Output> OUTPUTS = new ThreadLocal<>();
+
     /**
      * ID to use if this KryoNamespace does not define registration id.
      */
@@ -72,6 +84,13 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
 
     private final boolean registrationRequired;
 
+    private final ClassValue<SizeHint> sizeHints = new ClassValue<SizeHint>() {
+        @Override
+        protected SizeHint computeValue(Class<?> type) {
+            return new SizeHint();
+        }
+    };
+
 
     /**
      * KryoNamespace builder.
@@ -237,39 +256,51 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
 
     /**
      * Serializes given object to byte array using Kryo instance in pool.
+     * <p>
+     * The bytes are written to a buffer owned by the calling thread and
+     * reused across calls; the given size only applies if that buffer is
+     * already in use by an enclosing serialization.
+     * </p>
      *
      * @param obj Object to serialize
-     * @param bufferSize maximum size of serialized bytes
+     * @param bufferSize initial size of a newly allocated buffer
      * @return serialized bytes
      */
     public byte[] serialize(final Object obj, final int bufferSize) {
-        ByteBufferOutput out = new ByteBufferOutput(bufferSize, MAX_BUFFER_SIZE);
+        Output out = takeOutput(obj, bufferSize);
         try {
             Kryo kryo = borrow();
             try {
                 kryo.writeClassAndObject(out, obj);
-                out.flush();
+                recordSize(obj, out.position());
                 return out.toBytes();
             } finally {
                 release(kryo);
             }
         } finally {
-            out.release();
+            returnOutput(out);
         }
     }
 
     /**
      * Serializes given object to byte buffer using Kryo instance in pool.
+     * <p>
+     * The buffer may be a view of a transport buffer, allowing objects to
+     * be written without an intermediate copy; see
+     * {@link #serializedSizeHint(Object)} for sizing it.
+     * </p>
      *
      * @param obj Object to serialize
      * @param buffer to write to
      */
     public void serialize(final Object obj, final ByteBuffer buffer) {
         ByteBufferOutput out = new ByteBufferOutput(buffer);
+        int start = buffer.position();
         Kryo kryo = borrow();
         try {
             kryo.writeClassAndObject(out, obj);
             out.flush();
+            recordSize(obj, buffer.position() - start);
         } finally {
             release(kryo);
         }
@@ -287,19 +318,74 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
 
     /**
      * Serializes given object to OutputStream using Kryo instance in pool.
+     * <p>
+     * The buffer in front of the stream is owned by the calling thread and
+     * reused across calls; the given size only applies if that buffer is
+     * already in use by an enclosing serialization.
+     * </p>
      *
      * @param obj Object to serialize
      * @param stream to write to
      * @param bufferSize size of the buffer in front of the stream
      */
     public void serialize(final Object obj, final OutputStream stream, final int bufferSize) {
-        ByteBufferOutput out = new ByteBufferOutput(stream, bufferSize);
-        Kryo kryo = borrow();
+        Output out = takeOutput(obj, bufferSize);
+        out.setOutputStream(stream);
         try {
-            kryo.writeClassAndObject(out, obj);
-            out.flush();
+            Kryo kryo = borrow();
+            try {
+                kryo.writeClassAndObject(out, obj);
+                out.flush();
+            } finally {
+                release(kryo);
+            }
         } finally {
-            release(kryo);
+            out.setOutputStream(null);
+            returnOutput(out);
+        }
+    }
+
+    /**
+     * Returns an estimate of the number of bytes needed to serialize the
+     * given object, learned from the objects of the same class serialized
+     * so far.
+     *
+     * @param obj Object to serialize
+     * @return estimated serialized size; {@link #DEFAULT_BUFFER_SIZE} if
+     *         nothing is known about the class of the object
+     */
+    public int serializedSizeHint(final Object obj) {
+        if (obj == null) {
+            return DEFAULT_BUFFER_SIZE;
+        }
+        int estimate = sizeHints.get(obj.getClass()).estimate;
+        return estimate > 0 ? estimate : DEFAULT_BUFFER_SIZE;
+    }
+
+    // Takes the output buffer of the current thread, or allocates one if
+    // it is in use.
+    private Output takeOutput(Object obj, int bufferSize) {
+        Output out = OUTPUTS.get();
+        if (out != null) {
+            OUTPUTS.set(null);
+            return out;
+        }
+        int size = obj == null ? bufferSize : Math.max(bufferSize, serializedSizeHint(obj));
+        return new Output(Math.min(size, MAX_BUFFER_SIZE), MAX_BUFFER_SIZE);
+    }
+
+    // Makes the output buffer available to the next serialization on the
+    // current thread, unless it has grown too large to be worth keeping.
+    private static void returnOutput(Output out) {
+        out.clear();
+        if (out.getBuffer().length <= MAX_RETAINED_BUFFER_SIZE) {
+            OUTPUTS.set(out);
+        }
+    }
+
+    private void recordSize(Object obj, int size) {
+        if (obj != null) {
+            sizeHints.get(obj.getClass()).record(size);
         }
     }
 
@@ -425,6 +511,17 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
                     .toString();
     }
 
+    // Decaying maximum of the serialized sizes of a class; it follows size
+    // increases at once and decreases slowly.
+    private static final class SizeHint {
+        private volatile int estimate;
+
+        private void record(int size) {
+            int current = estimate;
+            estimate = size >= current ? size : current - ((current - size) >> 4);
+        }
+    }
+
     static final class RegistrationBlock {
         private final int begin;
         private final ImmutableList<Pair<Class<?>, Serializer<?>>> types;
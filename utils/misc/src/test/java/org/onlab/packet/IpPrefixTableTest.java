@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the IP prefix table.
+ */
+public class IpPrefixTableTest {
+
+    private final IpPrefixTable<String> table = new IpPrefixTable<>();
+
+    /**
+     * Tests exact, longest-prefix and covered-prefix lookups.
+     */
+    @Test
+    public void lookups() {
+        table.put(IpPrefix.valueOf("0.0.0.0/0"), "default");
+        table.put(IpPrefix.valueOf("10.0.0.0/8"), "10/8");
+        table.put(IpPrefix.valueOf("10.1.0.0/16"), "10.1/16");
+        table.put(IpPrefix.valueOf("10.1.2.0/24"), "10.1.2/24");
+        table.put(IpPrefix.valueOf("10.2.0.0/16"), "10.2/16");
+        table.put(IpPrefix.valueOf("2001:db8::/32"), "db8/32");
+
+        assertEquals(6, table.size());
+        assertEquals("10.1/16", table.get(IpPrefix.valueOf("10.1.0.0/16")));
+        assertNull(table.get(IpPrefix.valueOf("10.1.0.0/17")));
+
+        assertEquals("10.1.2/24", table.longestMatch(IpAddress.valueOf("10.1.2.3")));
+        assertEquals("10.1/16", table.longestMatch(IpAddress.valueOf("10.1.3.3")));
+        assertEquals("10/8", table.longestMatch(IpAddress.valueOf("10.3.0.1")));
+        assertEquals("default", table.longestMatch(IpAddress.valueOf("192.168.0.1")));
+        assertEquals("10.1/16", table.longestMatch(IpPrefix.valueOf("10.1.0.0/20")));
+        assertEquals("db8/32", table.longestMatch(IpAddress.valueOf("2001:db8::1")));
+        assertNull(table.longestMatch(IpAddress.valueOf("2001:db9::1")));
+
+        assertEquals(ImmutableList.of("10/8", "10.1/16", "10.1.2/24", "10.2/16"),
+                     table.covered(IpPrefix.valueOf("10.0.0.0/8")));
+        assertEquals(ImmutableList.of("10.1.2/24"), table.covered(IpPrefix.valueOf("10.1.2.0/23")));
+        assertEquals(ImmutableList.of("db8/32"), table.covered(IpPrefix.valueOf("::/0")));
+        assertEquals(ImmutableList.of(), table.covered(IpPrefix.valueOf("11.0.0.0/8")));
+
+        assertEquals("10.1/16", table.remove(IpPrefix.valueOf("10.1.0.0/16")));
+        assertNull(table.remove(IpPrefix.valueOf("10.1.0.0/16")));
+        assertEquals("10/8", table.longestMatch(IpAddress.valueOf("10.1.3.3")));
+        assertEquals("10.1.2/24", table.longestMatch(IpAddress.valueOf("10.1.2.3")));
+        assertEquals(5, table.size());
+    }
+
+    /**
+     * Tests that values replaced in a batch are not retained by the nodes
+     * later batches share with it.
+     */
+    @Test
+    public void supersededValuesCollected() throws InterruptedException {
+        IpPrefixTable<Object> objects = new IpPrefixTable<>();
+        Object replaced = new Object();
+        WeakReference<Object> ref = new WeakReference<>(replaced);
+        objects.put(IpPrefix.valueOf("10.1.0.0/16"), replaced);
+        // nodes of this batch survive the next one
+        objects.put(IpPrefix.valueOf("10.2.0.0/16"), new Object());
+        objects.put(IpPrefix.valueOf("10.1.0.0/16"), new Object());
+        replaced = null;
+
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+        assertEquals(2, objects.size());
+    }
+
+    /**
+     * Tests that snapshots are not affected by later updates and that
+     * failed batches leave the table unchanged.
+     */
+    @Test
+    public void snapshots() {
+        table.put(IpPrefix.valueOf("10.0.0.0/8"), "a");
+        IpPrefixTable.Snapshot<String> before = table.snapshot();
+
+        table.update(batch -> {
+            batch.put(IpPrefix.valueOf("10.0.0.0/8"), "b");
+            batch.put(IpPrefix.valueOf("10.1.0.0/16"), "c");
+            assertEquals("b", batch.get(IpPrefix.valueOf("10.0.0.0/8")));
+        });
+        assertEquals("a", before.get(IpPrefix.valueOf("10.0.0.0/8")));
+        assertEquals(1, before.size());
+        assertEquals(ImmutableList.of("b", "c"), table.values());
+
+        IpPrefixTable.Snapshot<String> after = table.snapshot();
+        try {
+            table.update(batch -> {
+                batch.remove(IpPrefix.valueOf("10.1.0.0/16"));
+                throw new IllegalStateException("abort");
+            });
+            fail("Batch should have failed");
+        } catch (IllegalStateException e) {
+            assertEquals("abort", e.getMessage());
+        }
+        assertTrue(after == table.snapshot());
+        assertEquals("c", table.get(IpPrefix.valueOf("10.1.0.0/16")));
+    }
+
+    /**
+     * Tests random updates and lookups against a reference implementation.
+     */
+    @Test
+    public void randomized() {
+        Random random = new Random(42);
+        Map<IpPrefix, String> reference = new HashMap<>();
+        List<IpPrefix> prefixes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            prefixes.add(randomPrefix(random));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            int round = i;
+            table.update(batch -> {
+                for (int j = 0; j < 200; j++) {
+                    IpPrefix prefix = prefixes.get(random.nextInt(prefixes.size()));
+                    if (random.nextInt(3) == 0) {
+                        assertEquals(reference.remove(prefix), batch.remove(prefix));
+                    } else {
+                        String value = prefix + "#" + round;
+                        assertEquals(reference.put(prefix, value), batch.put(prefix, value));
+                    }
+                }
+            });
+            assertEquals(reference.size(), table.size());
+
+            for (IpPrefix prefix : prefixes) {
+                assertEquals(reference.get(prefix), table.get(prefix));
+            }
+            for (int j = 0; j < 500; j++) {
+                IpPrefix prefix = randomPrefix(random);
+                IpAddress address = prefix.address();
+                assertEquals(expectedMatch(reference, address), table.longestMatch(address));
+                assertEquals(expectedCovered(reference, prefix),
+                             table.covered(prefix).stream().sorted().collect(Collectors.toList()));
+            }
+        }
+    }
+
+    // Random prefix concentrated in a small part of the address space, so
+    // that prefixes overlap.
+    private static IpPrefix randomPrefix(Random random) {
+        if (random.nextBoolean()) {
+            int address = 0x0a000000 | random.nextInt(1 << 12) << 12 | random.nextInt(1 << 12);
+            return IpPrefix.valueOf(address, random.nextInt(Ip4Address.BIT_LENGTH + 1));
+        }
+        byte[] octets = new byte[Ip6Address.BYTE_LENGTH];
+        random.nextBytes(octets);
+        octets[0] = 0x20;
+        octets[1] = 0x01;
+        octets[2] &= 0x03;
+        return IpPrefix.valueOf(IpAddress.Version.INET6, octets, random.nextInt(Ip6Address.BIT_LENGTH + 1));
+    }
+
+    private static String expectedMatch(Map<IpPrefix, String> reference, IpAddress address) {
+        IpPrefix longest = null;
+        for (IpPrefix prefix : reference.keySet()) {
+            if (prefix.contains(address) &&
+                    (longest == null || prefix.prefixLength() > longest.prefixLength())) {
+                longest = prefix;
+            }
+        }
+        return longest == null ? null : reference.get(longest);
+    }
+
+    private static List<String> expectedCovered(Map<IpPrefix, String> reference, IpPrefix covering) {
+        return reference.entrySet().stream()
+                .filter(e -> covering.contains(e.getKey()))
+                .map(Map.Entry::getValue)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
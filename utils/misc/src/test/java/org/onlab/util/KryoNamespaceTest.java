@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.util;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the Kryo namespace serialization.
+ */
+public class KryoNamespaceTest {
+
+    private final KryoNamespace namespace = KryoNamespace.newBuilder()
+            .register(byte[].class, String.class, ArrayList.class)
+            .register(new WrapperSerializer(), Wrapper.class)
+            .build();
+
+    /**
+     * Tests that consecutive serializations reusing the thread buffer do not
+     * leak bytes into each other.
+     */
+    @Test
+    public void reusedBuffer() {
+        byte[] large = namespace.serialize("a much longer string than the next one");
+        byte[] small = namespace.serialize("short");
+        assertEquals("short", namespace.deserialize(small));
+        assertEquals("a much longer string than the next one", namespace.deserialize(large));
+        assertArrayEquals(small, namespace.serialize("short"));
+    }
+
+    /**
+     * Tests serialization of objects larger than the retained thread buffer.
+     */
+    @Test
+    public void largeObject() {
+        byte[] data = new byte[3 * 1024 * 1024];
+        Arrays.fill(data, (byte) 7);
+        assertArrayEquals(data, namespace.deserialize(namespace.serialize(data)));
+        assertEquals("after", namespace.deserialize(namespace.serialize("after")));
+    }
+
+    /**
+     * Tests serialization from within a serializer of the same namespace.
+     */
+    @Test
+    public void nestedSerialization() {
+        Wrapper wrapper = new Wrapper("inner");
+        Wrapper copy = namespace.deserialize(namespace.serialize(wrapper));
+        assertEquals("inner", copy.value);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        namespace.serialize(wrapper, stream);
+        copy = namespace.deserialize(new ByteArrayInputStream(stream.toByteArray()));
+        assertEquals("inner", copy.value);
+    }
+
+    /**
+     * Tests that serialized sizes are learned per class.
+     */
+    @Test
+    public void sizeHint() {
+        byte[] data = new byte[10000];
+        assertEquals(KryoNamespace.DEFAULT_BUFFER_SIZE, namespace.serializedSizeHint(data));
+        int size = namespace.serialize(data).length;
+        assertEquals(size, namespace.serializedSizeHint(data));
+
+        // Smaller objects lower the estimate only gradually.
+        namespace.serialize(new byte[10]);
+        int hint = namespace.serializedSizeHint(data);
+        assertTrue("estimate should decay slowly", hint < size && hint > size / 2);
+
+        ByteBuffer buffer = ByteBuffer.allocate(namespace.serializedSizeHint("text") * 2);
+        namespace.serialize("text", buffer);
+        buffer.flip();
+        assertEquals("text", namespace.deserialize(buffer));
+        assertEquals(buffer.limit(), namespace.serializedSizeHint("text"));
+    }
+
+    // Object whose serializer serializes its contents through the namespace.
+    private static final class Wrapper {
+        private final String value;
+
+        private Wrapper(String value) {
+            this.value = value;
+        }
+    }
+
+    private final class WrapperSerializer extends Serializer<Wrapper> {
+        @Override
+        public void write(Kryo kryo, Output output, Wrapper object) {
+            byte[] bytes = namespace.serialize(object.value);
+            output.writeInt(bytes.length);
+            output.writeBytes(bytes);
+        }
+
+        @Override
+        public Wrapper read(Kryo kryo, Input input, Class<Wrapper> type) {
+            byte[] bytes = input.readBytes(input.readInt());
+            return new Wrapper(namespace.deserialize(bytes));
+        }
+    }
+}
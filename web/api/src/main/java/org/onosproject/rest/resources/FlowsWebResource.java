@@ -27,15 +27,16 @@ import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.FlowEntry;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleService;
-import org.onosproject.rest.AbstractWebResource;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -45,8 +46,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.onlab.util.Tools.nullIsNotFound;
 
 /**
@@ -54,7 +58,7 @@ import static org.onlab.util.Tools.nullIsNotFound;
  */
 
 @Path("flows")
-public class FlowsWebResource extends AbstractWebResource {
+public class FlowsWebResource extends PagedWebResource {
 
     @Context
     UriInfo uriInfo;
@@ -65,29 +69,55 @@ public class FlowsWebResource extends AbstractWebResource {
     public static final String DEVICE_ID = "deviceId";
     public static final String FLOW_ID = "flowId";
 
+    private static final String CURSOR_SEPARATOR = "/";
+    private static final String INVALID_CURSOR = "Cursor must hold a device and a flow identifier";
+
+    // Flow identifiers are keyed in the decimal form of the JSON id field
+    private static final Function<FlowEntry, String> FLOW_KEY = entry -> Long.toString(entry.id().value());
+
     final FlowRuleService service = get(FlowRuleService.class);
     final ObjectNode root = mapper().createObjectNode();
     final ArrayNode flowsNode = root.putArray(FLOWS);
 
     /**
      * Get all flow entries. Returns array of all flow rules in the system.
+     * Entries are written device by device as they are encoded, in order of
+     * device and flow identifiers; when a limit is given and more entries
+     * remain, the response carries the cursor to resume after.
      * @onos.rsModel Flows
-     * @return array of all the intents in the system
+     * @param cursor (optional) device and flow identifiers, separated by a
+     *               slash, of the flow entry to resume after
+     * @param limit (optional) maximum number of flow entries to return
+     * @return array of all the flows in the system
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getFlows() {
-        final Iterable<Device> devices = get(DeviceService.class).getDevices();
-        for (final Device device : devices) {
-            final Iterable<FlowEntry> flowEntries = service.getFlowEntries(device.id());
-            if (flowEntries != null) {
-                for (final FlowEntry entry : flowEntries) {
-                    flowsNode.add(codec(FlowEntry.class).encode(entry, this));
-                }
-            }
+    public Response getFlows(@QueryParam("cursor") String cursor,
+                             @QueryParam("limit") @DefaultValue("0") long limit) {
+        final String deviceCursor;
+        final String flowCursor;
+        if (cursor == null) {
+            deviceCursor = null;
+            flowCursor = null;
+        } else {
+            final int split = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            checkArgument(split > 0, INVALID_CURSOR);
+            deviceCursor = cursor.substring(0, split);
+            flowCursor = cursor.substring(split + 1);
         }
 
-        return ok(root).build();
+        final Iterable<Device> devices = get(DeviceService.class).getDevices();
+        final List<Iterable<FlowEntry>> flowEntries = StreamSupport.stream(devices.spliterator(), false)
+                .map(device -> device.id().toString())
+                .filter(id -> deviceCursor == null || id.compareTo(deviceCursor) >= 0)
+                .sorted()
+                .map(id -> (Iterable<FlowEntry>) () -> after(service.getFlowEntries(DeviceId.deviceId(id)),
+                                                             FLOW_KEY,
+                                                             id.equals(deviceCursor) ? flowCursor : null)
+                        .iterator())
+                .collect(Collectors.toList());
+        return ok(streamChunks(FlowEntry.class, FLOWS, flowEntries,
+                               entry -> entry.deviceId() + CURSOR_SEPARATOR + FLOW_KEY.apply(entry), limit)).build();
     }
 
     /**
@@ -33,14 +33,15 @@ import org.onosproject.net.host.HostProviderRegistry;
 import org.onosproject.net.host.HostProviderService;
 import org.onosproject.net.host.HostService;
 import org.onosproject.net.provider.ProviderId;
-import org.onosproject.rest.AbstractWebResource;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -53,6 +54,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import static org.onlab.util.Tools.nullIsNotFound;
 import static org.onosproject.net.HostId.hostId;
@@ -61,26 +63,31 @@ import static org.onosproject.net.HostId.hostId;
  * Manage inventory of end-station hosts.
  */
 @Path("hosts")
-public class HostsWebResource extends AbstractWebResource {
+public class HostsWebResource extends PagedWebResource {
 
     @Context
     UriInfo uriInfo;
     public static final String HOST_NOT_FOUND = "Host is not found";
     private static final String[] REMOVAL_KEYS = {"mac", "vlan", "location", "ipAddresses"};
+    private static final Function<Host, String> HOST_KEY = host -> host.id().toString();
 
     /**
      * Get all end-station hosts.
-     * Returns array of all known end-station hosts.
+     * Returns array of all known end-station hosts, in order of their
+     * identifiers.
      *
+     * @param cursor (optional) identifier of the host to resume after
+     * @param limit (optional) maximum number of hosts to return
      * @return 200 OK
      * @onos.rsModel Hosts
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getHosts() {
+    public Response getHosts(@QueryParam("cursor") String cursor,
+                             @QueryParam("limit") @DefaultValue("0") long limit) {
         final Iterable<Host> hosts = get(HostService.class).getHosts();
-        final ObjectNode root = encodeArray(Host.class, "hosts", hosts);
-        return ok(root).build();
+        return ok(streamArray(Host.class, "hosts", after(hosts, HOST_KEY, cursor),
+                              HOST_KEY, limit)).build();
     }
 
     /**
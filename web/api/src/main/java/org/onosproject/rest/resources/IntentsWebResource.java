@@ -20,14 +20,17 @@ import java.io.InputStream;
 import java.util.Objects;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -44,7 +47,6 @@ import org.onosproject.net.intent.IntentService;
 import org.onosproject.net.intent.IntentState;
 import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.PointToPointIntent;
-import org.onosproject.rest.AbstractWebResource;
 import org.slf4j.Logger;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -58,27 +60,32 @@ import static org.slf4j.LoggerFactory.getLogger;
  * Query, submit and withdraw network intents.
  */
 @Path("intents")
-public class IntentsWebResource extends AbstractWebResource {
+public class IntentsWebResource extends PagedWebResource {
     @Context
     UriInfo uriInfo;
 
     private static final Logger log = getLogger(IntentsWebResource.class);
     private static final int WITHDRAW_EVENT_TIMEOUT_SECONDS = 5;
+    private static final Function<Intent, String> INTENT_KEY = intent -> intent.id().toString();
 
     public static final String INTENT_NOT_FOUND = "Intent is not found";
 
     /**
      * Get all intents.
-     * Returns array containing all the intents in the system.
+     * Returns array containing all the intents in the system, in order of
+     * their identifiers.
      * @onos.rsModel Intents
+     * @param cursor (optional) identifier of the intent to resume after
+     * @param limit (optional) maximum number of intents to return
      * @return array of all the intents in the system
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getIntents() {
+    public Response getIntents(@QueryParam("cursor") String cursor,
+                               @QueryParam("limit") @DefaultValue("0") long limit) {
         final Iterable<Intent> intents = get(IntentService.class).getIntents();
-        final ObjectNode root = encodeArray(Intent.class, "intents", intents);
-        return ok(root).build();
+        return ok(streamArray(Intent.class, "intents", after(intents, INTENT_KEY, cursor),
+                              INTENT_KEY, limit)).build();
     }
 
     /**
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.rest.resources;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.onosproject.codec.JsonCodec;
+import org.onosproject.rest.AbstractWebResource;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Abstract REST resource streaming its collections one page at a time.
+ */
+abstract class PagedWebResource extends AbstractWebResource {
+
+    private static final String CURSOR = "cursor";
+
+    /**
+     * Returns the specified items whose key follows the given cursor, in
+     * ascending order of their keys. Keys are expected to be unique, so that
+     * a client resuming from the key of the last item it got neither misses
+     * nor repeats items, whatever the order of the underlying collection and
+     * whichever instance serves the request.
+     *
+     * @param items  items to be sorted; null for none
+     * @param key    function returning the key of an item
+     * @param cursor key the returned items follow; null for all items
+     * @param <T>    item type
+     * @return sorted list of items
+     */
+    protected static <T> List<T> after(Iterable<T> items, Function<T, String> key,
+                                       String cursor) {
+        if (items == null) {
+            return Collections.emptyList();
+        }
+        return StreamSupport.stream(items.spliterator(), false)
+                .filter(item -> cursor == null || key.apply(item).compareTo(cursor) > 0)
+                .sorted(Comparator.comparing(key))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a streaming output writing a JSON object wrapping the array
+     * encoding of the specified collection of items.
+     *
+     * @param codecClass codec item class
+     * @param field      field holding the array
+     * @param items      collection of items to be encoded into array
+     * @param key        function returning the cursor of an item
+     * @param limit      maximum number of items to be encoded; 0 for all
+     * @param <T>        item type
+     * @return streaming output
+     * @see #streamChunks(Class, String, Iterable, Function, long)
+     */
+    protected <T> StreamingOutput streamArray(Class<T> codecClass, String field,
+                                              Iterable<T> items, Function<T, String> key,
+                                              long limit) {
+        return streamChunks(codecClass, field, Collections.singletonList(items), key, limit);
+    }
+
+    /**
+     * Returns a streaming output writing a JSON object wrapping the array
+     * encoding of the specified chunks of items. Unlike
+     * {@link #encodeArray(Class, String, Iterable)}, items are encoded and
+     * written one at a time, and each chunk is flushed to the client as
+     * soon as it has been written, so the array is never held in memory as
+     * a whole. Null chunks are skipped.
+     * <p>
+     * If items remain once the limit has been reached, the cursor of the
+     * last item written is added in a {@code cursor} field so that the
+     * client can resume after it. Callers are expected to supply the items
+     * following the requested cursor in a stable order, e.g. using
+     * {@link #after(Iterable, Function, String)}.
+     * </p>
+     *
+     * @param codecClass codec item class
+     * @param field      field holding the array
+     * @param chunks     chunks of items to be encoded into array
+     * @param key        function returning the cursor of an item
+     * @param limit      maximum number of items to be encoded; 0 for all
+     * @param <T>        item type
+     * @return streaming output
+     */
+    protected <T> StreamingOutput streamChunks(Class<T> codecClass, String field,
+                                               Iterable<? extends Iterable<T>> chunks,
+                                               Function<T, String> key, long limit) {
+        checkArgument(limit >= 0, "Limit must not be negative");
+        final JsonCodec<T> codec = codec(codecClass);
+        return output -> {
+            try (JsonGenerator generator = mapper().getFactory().createGenerator(output)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartObject();
+                generator.writeArrayFieldStart(field);
+
+                long written = 0;
+                T last = null;
+                boolean more = false;
+                for (Iterable<T> chunk : chunks) {
+                    if (chunk == null) {
+                        continue;
+                    }
+                    for (T item : chunk) {
+                        if (limit > 0 && written == limit) {
+                            more = true;
+                            break;
+                        }
+                        mapper().writeTree(generator, codec.encode(item, this));
+                        written++;
+                        last = item;
+                    }
+                    if (more) {
+                        break;
+                    }
+                    generator.flush();
+                }
+
+                generator.writeEndArray();
+                if (more) {
+                    generator.writeStringField(CURSOR, key.apply(last));
+                }
+                generator.writeEndObject();
+            }
+        };
+    }
+}
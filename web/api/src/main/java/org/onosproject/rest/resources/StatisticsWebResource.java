@@ -19,6 +19,7 @@ import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.stream.StreamSupport;
 
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -37,9 +38,12 @@ import org.onosproject.net.DeviceId;
 import org.onosproject.net.Link;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.device.PortStatistics;
+import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.flow.FlowRuleService;
 import org.onosproject.net.flow.TableStatisticsEntry;
 import org.onosproject.net.link.LinkService;
+import org.onosproject.net.statistic.FlowLoadHistory;
+import org.onosproject.net.statistic.FlowStatisticService;
 import org.onosproject.net.statistic.Load;
 import org.onosproject.net.statistic.StatisticService;
 import org.onosproject.rest.AbstractWebResource;
@@ -47,6 +51,7 @@ import org.onosproject.rest.AbstractWebResource;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import static org.onlab.util.Tools.nullIsNotFound;
 import static org.onosproject.net.DeviceId.deviceId;
 import static org.onosproject.net.PortNumber.portNumber;
 
@@ -55,6 +60,9 @@ import static org.onosproject.net.PortNumber.portNumber;
  */
 @Path("statistics")
 public class StatisticsWebResource  extends AbstractWebResource {
+    private static final String DEVICE_NOT_FOUND = "Device is not found";
+    private static final String FLOW_NOT_FOUND = "Flow load history is not found";
+
     @Context
     UriInfo uriInfo;
 
@@ -212,4 +220,50 @@ public class StatisticsWebResource  extends AbstractWebResource {
         return ok(root).build();
     }
 
+    /**
+     * Get the recent load history of the busiest flows forwarded to a port.
+     * Histories are only available from the master of the device.
+     * @onos.rsModel StatisticsFlowsHistory
+     * @param deviceId device ID
+     * @param port port number
+     * @param topn maximum number of flows, ordered by descending byte rate
+     * @return JSON encoded array of flow load histories
+     */
+    @GET
+    @Path("flows/history/{deviceId}/{port}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getFlowLoadHistories(@PathParam("deviceId") String deviceId,
+                                         @PathParam("port") String port,
+                                         @QueryParam("topn") @DefaultValue("10") int topn) {
+        final Device device = nullIsNotFound(get(DeviceService.class).getDevice(deviceId(deviceId)),
+                                             DEVICE_NOT_FOUND);
+        final Iterable<FlowLoadHistory> histories =
+                get(FlowStatisticService.class).loadTopnHistory(device, portNumber(port), topn);
+        return ok(encodeArray(FlowLoadHistory.class, "histories", histories)).build();
+    }
+
+    /**
+     * Get the recent load history of a flow forwarded to a port.
+     * Histories are only available from the master of the device.
+     * @onos.rsModel StatisticsFlowsHistory
+     * @param deviceId device ID
+     * @param port port number
+     * @param flowId flow ID
+     * @return JSON encoded array holding the flow load history
+     */
+    @GET
+    @Path("flows/history/{deviceId}/{port}/{flowId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getFlowLoadHistory(@PathParam("deviceId") String deviceId,
+                                       @PathParam("port") String port,
+                                       @PathParam("flowId") long flowId) {
+        final Device device = nullIsNotFound(get(DeviceService.class).getDevice(deviceId(deviceId)),
+                                             DEVICE_NOT_FOUND);
+        final FlowLoadHistory history = nullIsNotFound(
+                get(FlowStatisticService.class).loadHistory(device, portNumber(port), FlowId.valueOf(flowId)),
+                FLOW_NOT_FOUND);
+        final ObjectNode root = mapper().createObjectNode();
+        root.putArray("histories").add(codec(FlowLoadHistory.class).encode(history, this));
+        return ok(root).build();
+    }
 }
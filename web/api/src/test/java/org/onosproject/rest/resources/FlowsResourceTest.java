@@ -495,6 +495,38 @@ public class FlowsResourceTest extends ResourceTest {
         assertThat(jsonFlows, hasFlow(flow4));
     }
 
+    /**
+     * Tests fetching flows in pages with the cursor and limit parameters.
+     */
+    @Test
+    public void testFlowsPaged() {
+        setupMockFlows();
+        expect(mockDeviceService.getDevices())
+                .andReturn(ImmutableSet.of(device2, device1));
+        replay(mockFlowService);
+        replay(mockDeviceService);
+        final WebTarget wt = target();
+
+        final JsonObject first = Json.parse(wt.path("flows")
+                .queryParam("limit", 3)
+                .request().get(String.class)).asObject();
+        final JsonArray firstFlows = first.get("flows").asArray();
+        assertThat(firstFlows.size(), is(3));
+        assertThat(firstFlows, hasFlow(flow1));
+        assertThat(firstFlows, hasFlow(flow2));
+        assertThat(firstFlows, hasFlow(flow3));
+        assertThat(first.get("cursor").asString(), is(deviceId2 + "/" + Long.toString(flow3.id().value())));
+
+        final JsonObject second = Json.parse(wt.path("flows")
+                .queryParam("cursor", first.get("cursor").asString())
+                .queryParam("limit", 3)
+                .request().get(String.class)).asObject();
+        assertThat(second.names(), hasSize(1));
+        final JsonArray secondFlows = second.get("flows").asArray();
+        assertThat(secondFlows.size(), is(1));
+        assertThat(secondFlows, hasFlow(flow4));
+    }
+
     /**
      * Tests the result of a rest api GET for a device.
      */
@@ -43,6 +43,7 @@ import org.onosproject.net.host.HostProviderService;
 import org.onosproject.net.host.HostService;
 import org.onosproject.net.provider.ProviderId;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
@@ -50,7 +51,9 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.easymock.EasyMock.anyBoolean;
@@ -60,6 +63,7 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -292,6 +296,58 @@ public class HostResourceTest extends ResourceTest {
         assertThat(hosts, hasHost(host2));
     }
 
+    /**
+     * Tests fetching hosts in pages with the cursor and limit parameters.
+     */
+    @Test
+    public void testHostsPaged() {
+        replay(mockHostService);
+        final ProviderId pid = new ProviderId("of", "foo");
+        for (int i = 1; i <= 3; i++) {
+            final MacAddress mac = MacAddress.valueOf(i);
+            hosts.add(new DefaultHost(pid, HostId.hostId(mac), mac, vlanId((short) i),
+                                      new HostLocation(DeviceId.deviceId("1"), portNumber(i), 1),
+                                      ImmutableSet.of()));
+        }
+        final WebTarget wt = target();
+
+        final JsonObject first = Json.parse(wt.path("hosts")
+                .queryParam("limit", 2)
+                .request().get(String.class)).asObject();
+        final JsonArray firstHosts = first.get("hosts").asArray();
+        assertThat(firstHosts.size(), is(2));
+        assertThat(first.get("cursor").asString(),
+                   is(firstHosts.get(1).asObject().get("id").asString()));
+
+        // hosts added before the cursor are not returned, nor do they shift
+        // the following ones
+        final MacAddress mac = MacAddress.valueOf(0);
+        hosts.add(new DefaultHost(pid, HostId.hostId(mac), mac, vlanId((short) 1),
+                                  new HostLocation(DeviceId.deviceId("1"), portNumber(1), 1),
+                                  ImmutableSet.of()));
+
+        final JsonObject second = Json.parse(wt.path("hosts")
+                .queryParam("cursor", first.get("cursor").asString())
+                .queryParam("limit", 2)
+                .request().get(String.class)).asObject();
+        assertThat(second.names(), hasSize(1));
+        assertThat(second.get("hosts").asArray().size(), is(1));
+
+        final List<String> ids = new ArrayList<>();
+        firstHosts.forEach(h -> ids.add(h.asObject().get("id").asString()));
+        second.get("hosts").asArray().forEach(h -> ids.add(h.asObject().get("id").asString()));
+        assertThat(ids, contains(HostId.hostId(MacAddress.valueOf(1)).toString(),
+                                 HostId.hostId(MacAddress.valueOf(2)).toString(),
+                                 HostId.hostId(MacAddress.valueOf(3)).toString()));
+
+        try {
+            wt.path("hosts").queryParam("limit", -1).request().get(String.class);
+            fail("GET with a negative limit did not throw an exception");
+        } catch (BadRequestException ex) {
+            assertThat(ex.getMessage(), containsString("HTTP 400 Bad Request"));
+        }
+    }
+
     /**
      * Tests fetch of one host by Id.
      */
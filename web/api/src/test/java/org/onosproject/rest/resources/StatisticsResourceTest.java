@@ -27,17 +27,25 @@ import org.onlab.osgi.TestServiceDirectory;
 import org.onlab.rest.BaseResource;
 import org.onosproject.codec.CodecService;
 import org.onosproject.codec.impl.CodecManager;
+import org.onosproject.net.DefaultDevice;
+import org.onosproject.net.Device;
 import org.onosproject.net.Link;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.link.LinkService;
 import org.onosproject.net.statistic.DefaultLoad;
+import org.onosproject.net.statistic.FlowLoadHistory;
+import org.onosproject.net.statistic.FlowStatisticService;
 import org.onosproject.net.statistic.StatisticService;
 
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.client.WebTarget;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.HashMap;
 import java.util.stream.IntStream;
 
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
@@ -47,8 +55,11 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.onosproject.net.NetTestTools.connectPoint;
+import static org.onosproject.net.NetTestTools.did;
 import static org.onosproject.net.NetTestTools.link;
+import static org.onosproject.net.PortNumber.portNumber;
 
 /**
  * Unit tests for statistics REST APIs.
@@ -59,8 +70,17 @@ public class StatisticsResourceTest extends ResourceTest {
     Link link2 = link("src2", 2, "dst2", 2);
     Link link3 = link("src3", 3, "dst3", 3);
 
+    Device device1 = new DefaultDevice(null, did("1"), Device.Type.SWITCH,
+                                       "", "", "", "", null);
+    FlowLoadHistory history1 =
+            new FlowLoadHistory(connectPoint("1", 2), FlowId.valueOf(7),
+                                new long[]{1000, 3000}, new long[]{1000, 2000},
+                                new long[]{100, 400}, new long[]{1, 8});
+
     LinkService mockLinkService;
     StatisticService mockStatisticService;
+    DeviceService mockDeviceService;
+    FlowStatisticService mockFlowStatisticService;
 
     /**
      * Initializes test mocks and environment.
@@ -81,7 +101,20 @@ public class StatisticsResourceTest extends ResourceTest {
         expect(mockStatisticService.load(link3))
                 .andReturn(new DefaultLoad(222, 111, 1));
 
-        replay(mockLinkService, mockStatisticService);
+        mockDeviceService = createMock(DeviceService.class);
+        expect(mockDeviceService.getDevice(did("1")))
+                .andReturn(device1).anyTimes();
+        expect(mockDeviceService.getDevice(anyObject()))
+                .andReturn(null).anyTimes();
+
+        mockFlowStatisticService = createMock(FlowStatisticService.class);
+        expect(mockFlowStatisticService.loadTopnHistory(device1, portNumber(2), 10))
+                .andReturn(ImmutableList.of(history1));
+        expect(mockFlowStatisticService.loadHistory(device1, portNumber(2), FlowId.valueOf(7)))
+                .andReturn(history1);
+
+        replay(mockLinkService, mockStatisticService,
+               mockDeviceService, mockFlowStatisticService);
 
         // Register the services needed for the test
         CodecManager codecService = new CodecManager();
@@ -90,6 +123,8 @@ public class StatisticsResourceTest extends ResourceTest {
                 new TestServiceDirectory()
                         .add(LinkService.class, mockLinkService)
                         .add(StatisticService.class, mockStatisticService)
+                        .add(DeviceService.class, mockDeviceService)
+                        .add(FlowStatisticService.class, mockFlowStatisticService)
                         .add(CodecService.class, codecService);
 
         BaseResource.setServiceDirectory(testDirectory);
@@ -179,4 +214,67 @@ public class StatisticsResourceTest extends ResourceTest {
         checkValues(load3, 111, 222, true, "src3");
 
     }
+
+    /**
+     * Checks that the values in a JSON representation of a flow load
+     * history are correct.
+     *
+     * @param history JSON for the flow load history
+     */
+    private void checkHistory(JsonObject history) {
+        assertThat(history.get("id").asString(), is("7"));
+        assertThat(history.get("device").asString(), is("of:1"));
+        assertThat(history.get("port").asString(), is("2"));
+
+        final JsonArray samples = history.get("samples").asArray();
+        assertThat(samples.size(), is(2));
+        assertThat(samples.get(1).asObject().get("bytes").asLong(), is(400L));
+        assertThat(samples.get(1).asObject().get("byteRate").asLong(), is(200L));
+    }
+
+    /**
+     * Tests GET of the load histories of the busiest flows of a port.
+     */
+    @Test
+    public void testFlowLoadHistoriesGet() {
+        final WebTarget wt = target();
+        final String response = wt.path("statistics/flows/history/of:1/2")
+                .request().get(String.class);
+
+        final JsonObject result = Json.parse(response).asObject();
+        assertThat(result.names(), hasSize(1));
+
+        final JsonArray histories = result.get("histories").asArray();
+        assertThat(histories.size(), is(1));
+        checkHistory(histories.get(0).asObject());
+    }
+
+    /**
+     * Tests GET of the load history of a single flow.
+     */
+    @Test
+    public void testFlowLoadHistoryGet() {
+        final WebTarget wt = target();
+        final String response = wt.path("statistics/flows/history/of:1/2/7")
+                .request().get(String.class);
+
+        final JsonObject result = Json.parse(response).asObject();
+        final JsonArray histories = result.get("histories").asArray();
+        assertThat(histories.size(), is(1));
+        checkHistory(histories.get(0).asObject());
+    }
+
+    /**
+     * Tests GET of the load histories of an unknown device.
+     */
+    @Test
+    public void testFlowLoadHistoriesUnknownDevice() {
+        final WebTarget wt = target();
+        try {
+            wt.path("statistics/flows/history/of:2/2").request().get(String.class);
+            fail("GET of an unknown device did not throw an exception");
+        } catch (NotFoundException ex) {
+            assertThat(ex.getMessage(), containsString("HTTP 404 Not Found"));
+        }
+    }
 }